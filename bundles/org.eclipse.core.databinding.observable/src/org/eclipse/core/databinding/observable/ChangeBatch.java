@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.map.MapDiff;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.ValueDiff;
+
+/**
+ * Collects the change events fired within {@link Realm#runBatched(Runnable)}
+ * and merges them into one event of each type per {@link ChangeManager}.
+ *
+ * @since 1.12
+ */
+/* package */class ChangeBatch {
+
+	// observables like lists define equals and hashCode on their contents
+	private final Map<ChangeManager, PendingEvents> pendingEventsByManager = new IdentityHashMap<>();
+
+	/** The pending events in the order in which they were first fired */
+	private List<PendingEvents> pendingEvents = new ArrayList<>();
+
+	/**
+	 * Records the given event.
+	 *
+	 * @return <code>false</code> if the event cannot be delayed and has to be
+	 *         fired immediately
+	 */
+	boolean add(ChangeManager changeManager, ObservableEvent event) {
+		if (!(event instanceof ChangeEvent || event instanceof ListChangeEvent || event instanceof SetChangeEvent
+				|| event instanceof MapChangeEvent || event instanceof ValueChangeEvent)) {
+			return false;
+		}
+		PendingEvents pending = pendingEventsByManager.get(changeManager);
+		if (pending == null) {
+			pending = new PendingEvents(changeManager);
+			pendingEventsByManager.put(changeManager, pending);
+			pendingEvents.add(pending);
+		}
+		if (event instanceof ChangeEvent) {
+			if (pending.change == null) {
+				pending.change = (ChangeEvent) event;
+			}
+		} else {
+			pending.diffs.computeIfAbsent(event.getListenerType(), t -> createDiff(event)).add(event);
+		}
+		return true;
+	}
+
+	/**
+	 * Fires the merged events, in the order in which the change managers fired
+	 * their first event. The generic change event is fired first, and is
+	 * omitted if all other changes cancel out each other.
+	 * <p>
+	 * Events fired by listeners are collected as well and fired in a further
+	 * round, so that observables depending on several changed observables, like
+	 * computed values, are only notified once.
+	 * </p>
+	 * <p>
+	 * If a listener throws an exception, the events of the other change
+	 * managers are fired nevertheless, and the first exception is rethrown
+	 * afterwards.
+	 * </p>
+	 */
+	void fire() {
+		RuntimeException exception = null;
+		while (!pendingEvents.isEmpty()) {
+			List<PendingEvents> round = pendingEvents;
+			pendingEvents = new ArrayList<>();
+			pendingEventsByManager.clear();
+			for (PendingEvents pending : round) {
+				try {
+					fire(pending);
+				} catch (RuntimeException e) {
+					if (exception == null) {
+						exception = e;
+					} else {
+						exception.addSuppressed(e);
+					}
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	private static void fire(PendingEvents pending) {
+		ChangeManager changeManager = pending.changeManager;
+		List<ObservableEvent> events = new ArrayList<>();
+		for (MergedDiff diff : pending.diffs.values()) {
+			ObservableEvent event = diff.createEvent();
+			if (event != null) {
+				events.add(event);
+			}
+		}
+		if (pending.change != null && (pending.diffs.isEmpty() || !events.isEmpty())) {
+			changeManager.doFireEvent(pending.change);
+		}
+		for (ObservableEvent event : events) {
+			changeManager.doFireEvent(event);
+		}
+	}
+
+	private static MergedDiff createDiff(ObservableEvent event) {
+		if (event instanceof ListChangeEvent) {
+			return new MergedListDiff();
+		} else if (event instanceof SetChangeEvent) {
+			return new MergedSetDiff();
+		} else if (event instanceof MapChangeEvent) {
+			return new MergedMapDiff();
+		}
+		return new MergedValueDiff();
+	}
+
+	private static class PendingEvents {
+		final ChangeManager changeManager;
+		ChangeEvent change;
+		final Map<Object, MergedDiff> diffs = new LinkedHashMap<>(2);
+
+		PendingEvents(ChangeManager changeManager) {
+			this.changeManager = changeManager;
+		}
+	}
+
+	/**
+	 * The events of one type fired by one change manager. The diffs are only
+	 * merged when the batch completes, so lazily computed diffs are not
+	 * computed before listeners ask for them.
+	 */
+	private static abstract class MergedDiff {
+		final List<ObservableEvent> events = new ArrayList<>();
+
+		void add(ObservableEvent event) {
+			events.add(event);
+		}
+
+		/**
+		 * @return the merged event, or <code>null</code> if the changes cancel
+		 *         out each other
+		 */
+		abstract ObservableEvent createEvent();
+	}
+
+	private static class MergedListDiff extends MergedDiff {
+		@SuppressWarnings("unchecked")
+		@Override
+		ObservableEvent createEvent() {
+			// the entries of consecutive diffs are applied one after the other
+			List<ListDiffEntry<Object>> entries = new ArrayList<>();
+			ListChangeEvent<Object> listChangeEvent = null;
+			for (ObservableEvent event : events) {
+				listChangeEvent = (ListChangeEvent<Object>) event;
+				entries.addAll(Arrays.asList(listChangeEvent.diff.getDifferences()));
+			}
+			if (entries.isEmpty()) {
+				return null;
+			}
+			return new ListChangeEvent<>(listChangeEvent.getObservableList(), Diffs.createListDiff(entries));
+		}
+	}
+
+	private static class MergedSetDiff extends MergedDiff {
+		@SuppressWarnings("unchecked")
+		@Override
+		ObservableEvent createEvent() {
+			Set<Object> additions = new HashSet<>();
+			Set<Object> removals = new HashSet<>();
+			SetChangeEvent<Object> setChangeEvent = null;
+			for (ObservableEvent event : events) {
+				setChangeEvent = (SetChangeEvent<Object>) event;
+				for (Object element : setChangeEvent.diff.getRemovals()) {
+					if (!additions.remove(element)) {
+						removals.add(element);
+					}
+				}
+				for (Object element : setChangeEvent.diff.getAdditions()) {
+					if (!removals.remove(element)) {
+						additions.add(element);
+					}
+				}
+			}
+			if (additions.isEmpty() && removals.isEmpty()) {
+				return null;
+			}
+			return new SetChangeEvent<>(setChangeEvent.getObservableSet(), Diffs.createSetDiff(additions, removals));
+		}
+	}
+
+	private static class MergedMapDiff extends MergedDiff {
+		private static final Object ABSENT = new Object();
+
+		@SuppressWarnings("unchecked")
+		@Override
+		ObservableEvent createEvent() {
+			// the value of each changed key before the batch and now, or ABSENT
+			Map<Object, Object> oldValues = new LinkedHashMap<>();
+			Map<Object, Object> newValues = new HashMap<>();
+			MapChangeEvent<Object, Object> mapChangeEvent = null;
+			for (ObservableEvent event : events) {
+				mapChangeEvent = (MapChangeEvent<Object, Object>) event;
+				MapDiff<Object, Object> diff = mapChangeEvent.diff;
+				for (Object key : diff.getRemovedKeys()) {
+					recordOldValue(oldValues, key, diff.getOldValue(key));
+					newValues.put(key, ABSENT);
+				}
+				for (Object key : diff.getAddedKeys()) {
+					recordOldValue(oldValues, key, ABSENT);
+					newValues.put(key, diff.getNewValue(key));
+				}
+				for (Object key : diff.getChangedKeys()) {
+					recordOldValue(oldValues, key, diff.getOldValue(key));
+					newValues.put(key, diff.getNewValue(key));
+				}
+			}
+
+			Set<Object> addedKeys = new HashSet<>();
+			Set<Object> removedKeys = new HashSet<>();
+			Set<Object> changedKeys = new HashSet<>();
+			Map<Object, Object> diffOldValues = new HashMap<>();
+			Map<Object, Object> diffNewValues = new HashMap<>();
+			for (Map.Entry<Object, Object> entry : oldValues.entrySet()) {
+				Object key = entry.getKey();
+				Object oldValue = entry.getValue();
+				Object newValue = newValues.get(key);
+				if (oldValue == ABSENT) {
+					if (newValue != ABSENT) {
+						addedKeys.add(key);
+						diffNewValues.put(key, newValue);
+					}
+				} else if (newValue == ABSENT) {
+					removedKeys.add(key);
+					diffOldValues.put(key, oldValue);
+				} else if (!Objects.equals(oldValue, newValue)) {
+					changedKeys.add(key);
+					diffOldValues.put(key, oldValue);
+					diffNewValues.put(key, newValue);
+				}
+			}
+			if (addedKeys.isEmpty() && removedKeys.isEmpty() && changedKeys.isEmpty()) {
+				return null;
+			}
+			return new MapChangeEvent<>(mapChangeEvent.getObservableMap(),
+					Diffs.createMapDiff(addedKeys, removedKeys, changedKeys, diffOldValues, diffNewValues));
+		}
+
+		private static void recordOldValue(Map<Object, Object> oldValues, Object key, Object oldValue) {
+			// values may be null, so putIfAbsent cannot be used
+			if (!oldValues.containsKey(key)) {
+				oldValues.put(key, oldValue);
+			}
+		}
+	}
+
+	private static class MergedValueDiff extends MergedDiff {
+		@SuppressWarnings("unchecked")
+		@Override
+		ObservableEvent createEvent() {
+			ValueChangeEvent<Object> first = (ValueChangeEvent<Object>) events.get(0);
+			ValueChangeEvent<Object> last = (ValueChangeEvent<Object>) events.get(events.size() - 1);
+			if (first == last) {
+				return first;
+			}
+			// stay lazy for values which compute their new value on demand
+			return new ValueChangeEvent<>(last.getObservableValue(), new ValueDiff<Object>() {
+				@Override
+				public Object getOldValue() {
+					return first.diff.getOldValue();
+				}
+
+				@Override
+				public Object getNewValue() {
+					return last.diff.getNewValue();
+				}
+			});
+		}
+	}
+}
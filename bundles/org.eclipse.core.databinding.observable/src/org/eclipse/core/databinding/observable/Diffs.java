@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -32,12 +32,19 @@ import org.eclipse.core.databinding.observable.list.ListDiffEntry;
 import org.eclipse.core.databinding.observable.map.MapDiff;
 import org.eclipse.core.databinding.observable.set.SetDiff;
 import org.eclipse.core.databinding.observable.value.ValueDiff;
+import org.eclipse.core.internal.databinding.observable.MyersListDiff;
 
 /**
  * @since 1.0
  *
  */
 public class Diffs {
+	/**
+	 * Lists up to this size are compared by the quadratic algorithm adapted
+	 * from EMF, larger lists by {@link MyersListDiff}.
+	 */
+	private static final int SMALL_LIST_SIZE = 32;
+
 	private static final class UnmodifiableListDiff<E> extends ListDiff<E> {
 		private ListDiff<? extends E> toWrap;
 
@@ -229,7 +236,11 @@ public class Diffs {
 	 */
 	public static <E> ListDiff<E> computeListDiff(List<? extends E> oldList, List<? extends E> newList) {
 		List<ListDiffEntry<E>> diffEntries = new ArrayList<>();
-		createListDiffs(new ArrayList<>(oldList), newList, diffEntries);
+		if (oldList.size() <= SMALL_LIST_SIZE && newList.size() <= SMALL_LIST_SIZE) {
+			createListDiffs(new ArrayList<>(oldList), newList, diffEntries);
+		} else {
+			MyersListDiff.createListDiffs(oldList, newList, diffEntries);
+		}
 		return createListDiff(diffEntries);
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,10 +15,9 @@
  *******************************************************************************/
 package org.eclipse.core.databinding.observable;
 
-import java.util.Set;
+import java.util.Arrays;
 
 import org.eclipse.core.databinding.util.Policy;
-import org.eclipse.core.internal.databinding.identity.IdentitySet;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -64,20 +63,10 @@ import org.eclipse.core.runtime.Status;
 public class ObservableTracker {
 
 	/**
-	 * Threadlocal storage pointing to the current Set of IObservables, or null
-	 * if none. Note that this is actually the top of a stack. Whenever a method
-	 * changes the current value, it remembers the old value as a local variable
-	 * and restores the old value when the method exits.
+	 * Threadlocal storage pointing to the tracking state of the current thread,
+	 * or null if the thread never monitored or collected observables.
 	 */
-	private static ThreadLocal<IChangeListener> currentChangeListener = new ThreadLocal<>();
-
-	private static ThreadLocal<IStaleListener> currentStaleListener = new ThreadLocal<>();
-
-	private static ThreadLocal<Set<IObservable>> currentGetterCalledSet = new ThreadLocal<>();
-
-	private static ThreadLocal<Set<IObservable>> currentObservableCreatedSet = new ThreadLocal<>();
-
-	private static ThreadLocal<Integer> currentIgnoreCount = new ThreadLocal<>();
+	private static ThreadLocal<Tracker> currentTracker = new ThreadLocal<>();
 
 	/**
 	 * Invokes the given runnable, and returns the set of IObservables that were
@@ -97,31 +86,59 @@ public class ObservableTracker {
 	 */
 	public static IObservable[] runAndMonitor(Runnable runnable,
 			IChangeListener changeListener, IStaleListener staleListener) {
+		return runAndMonitor(runnable, changeListener, staleListener, null);
+	}
+
+	/**
+	 * Invokes the given runnable, and returns the set of IObservables that were
+	 * read by the runnable, like
+	 * {@link #runAndMonitor(Runnable, IChangeListener, IStaleListener)}. If the
+	 * runnable read exactly the given previous dependencies, in the same order,
+	 * the previous dependencies array itself is returned. This allows callers
+	 * which re-run the same code repeatedly to detect that their dependencies
+	 * did not change, e.g. to skip re-registering their listeners.
+	 *
+	 * @param runnable
+	 *            runnable to execute
+	 * @param changeListener
+	 *            listener to register with all accessed observables, or
+	 *            <code>null</code> if no change listener is to be registered
+	 * @param staleListener
+	 *            listener to register with all accessed observables, or
+	 *            <code>null</code> if no stale listener is to be registered
+	 * @param previousDependencies
+	 *            the result of the previous invocation, or <code>null</code>
+	 * @return an array of unique observable objects, or
+	 *         <code>previousDependencies</code> if the same observables were
+	 *         read
+	 * @since 1.12
+	 */
+	public static IObservable[] runAndMonitor(Runnable runnable, IChangeListener changeListener,
+			IStaleListener staleListener, IObservable[] previousDependencies) {
+		Tracker tracker = getTracker();
 		// Remember the previous value in the listener stack
-		Set<IObservable> lastObservableSet = currentGetterCalledSet.get();
-		IChangeListener lastChangeListener = currentChangeListener.get();
-		IStaleListener lastStaleListener = currentStaleListener.get();
-		Integer lastIgnore = currentIgnoreCount.get();
-
-		Set<IObservable> observableSet = new IdentitySet<>();
-		// Push the new listeners to the top of the stack
-		currentGetterCalledSet.set(observableSet);
-		currentChangeListener.set(changeListener);
-		currentStaleListener.set(staleListener);
-		currentIgnoreCount.set(null);
+		Frame lastFrame = tracker.getterCalledFrame;
+		int lastIgnore = tracker.ignoreCount;
+
+		Frame frame = tracker.acquireFrame();
+		frame.changeListener = changeListener;
+		frame.staleListener = staleListener;
+		// Push the new frame to the top of the stack
+		tracker.getterCalledFrame = frame;
+		tracker.ignoreCount = 0;
 		try {
 			runnable.run();
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentGetterCalledSet.set(lastObservableSet);
-			currentChangeListener.set(lastChangeListener);
-			currentStaleListener.set(lastStaleListener);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			// Pop the new frame off the top of the stack (by restoring the
+			// previous frame)
+			tracker.getterCalledFrame = lastFrame;
+			checkUnmatchedIgnore(tracker, runnable);
+			tracker.ignoreCount = lastIgnore;
 		}
 
-		return observableSet.toArray(new IObservable[observableSet.size()]);
+		IObservable[] result = frame.toArray(previousDependencies);
+		tracker.releaseFrame(frame);
+		return result;
 	}
 
 	/**
@@ -141,34 +158,46 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static IObservable[] runAndCollect(Runnable runnable) {
-		Set<IObservable> lastObservableCreatedSet = currentObservableCreatedSet.get();
-		Integer lastIgnore = currentIgnoreCount.get();
+		Tracker tracker = getTracker();
+		Frame lastFrame = tracker.observableCreatedFrame;
+		int lastIgnore = tracker.ignoreCount;
 
-		Set<IObservable> observableSet = new IdentitySet<>();
-		// Push the new listeners to the top of the stack
-		currentObservableCreatedSet.set(observableSet);
-		currentIgnoreCount.set(null);
+		Frame frame = tracker.acquireFrame();
+		// Push the new frame to the top of the stack
+		tracker.observableCreatedFrame = frame;
+		tracker.ignoreCount = 0;
 		try {
 			runnable.run();
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentObservableCreatedSet.set(lastObservableCreatedSet);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			// Pop the new frame off the top of the stack (by restoring the
+			// previous frame)
+			tracker.observableCreatedFrame = lastFrame;
+			checkUnmatchedIgnore(tracker, runnable);
+			tracker.ignoreCount = lastIgnore;
 		}
 
-		return observableSet.toArray(new IObservable[observableSet.size()]);
+		IObservable[] result = frame.toArray(null);
+		tracker.releaseFrame(frame);
+		return result;
+	}
+
+	private static Tracker getTracker() {
+		Tracker tracker = currentTracker.get();
+		if (tracker == null) {
+			tracker = new Tracker();
+			currentTracker.set(tracker);
+		}
+		return tracker;
 	}
 
-	private static void checkUnmatchedIgnore(Runnable runnable) {
-		if (isIgnore()) {
+	private static void checkUnmatchedIgnore(Tracker tracker, Runnable runnable) {
+		if (tracker.ignoreCount > 0) {
 			Policy.getLog()
 					.log(new Status(
 							IStatus.ERROR,
 							Policy.JFACE_DATABINDING,
 							"There were " //$NON-NLS-1$
-									+ currentIgnoreCount.get()
+									+ tracker.ignoreCount
 									+ " unmatched setIgnore(true) invocations in runnable " //$NON-NLS-1$
 									+ runnable));
 		}
@@ -193,15 +222,13 @@ public class ObservableTracker {
 	 * @since 1.3
 	 */
 	public static void setIgnore(boolean ignore) {
-		Integer lastCount = currentIgnoreCount.get();
-
-		int newCount = (lastCount == null ? 0 : lastCount.intValue())
-				+ (ignore ? 1 : -1);
+		Tracker tracker = getTracker();
+		int newCount = tracker.ignoreCount + (ignore ? 1 : -1);
 
 		if (newCount < 0)
 			throw new IllegalStateException("Ignore count is already zero"); //$NON-NLS-1$
 
-		currentIgnoreCount.set(newCount == 0 ? null : Integer.valueOf(newCount));
+		tracker.ignoreCount = newCount;
 	}
 
 	/**
@@ -231,10 +258,6 @@ public class ObservableTracker {
 				+ Integer.toHexString(System.identityHashCode(observable));
 	}
 
-	private static boolean isIgnore() {
-		return currentIgnoreCount.get() != null;
-	}
-
 	/**
 	 * Notifies the ObservableTracker that an observable was read from. The
 	 * JavaDoc for methods that invoke this method should include the following
@@ -254,16 +277,17 @@ public class ObservableTracker {
 			Assert.isTrue(false, "Getter called outside realm of observable " //$NON-NLS-1$
 					+ toString(observable));
 
-		if (isIgnore())
+		Tracker tracker = currentTracker.get();
+		if (tracker == null || tracker.ignoreCount > 0)
 			return;
 
-		Set<IObservable> getterCalledSet = currentGetterCalledSet.get();
-		if (getterCalledSet != null && getterCalledSet.add(observable)) {
+		Frame frame = tracker.getterCalledFrame;
+		if (frame != null && frame.add(observable)) {
 			// If anyone is listening for observable usage...
-			IChangeListener changeListener = currentChangeListener.get();
+			IChangeListener changeListener = frame.changeListener;
 			if (changeListener != null)
 				observable.addChangeListener(changeListener);
-			IStaleListener staleListener = currentStaleListener.get();
+			IStaleListener staleListener = frame.staleListener;
 			if (staleListener != null)
 				observable.addStaleListener(staleListener);
 		}
@@ -277,11 +301,147 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static void observableCreated(IObservable observable) {
-		if (isIgnore())
+		Tracker tracker = currentTracker.get();
+		if (tracker == null || tracker.ignoreCount > 0)
 			return;
-		Set<IObservable> observableCreatedSet = currentObservableCreatedSet.get();
-		if (observableCreatedSet != null) {
-			observableCreatedSet.add(observable);
+		Frame frame = tracker.observableCreatedFrame;
+		if (frame != null) {
+			frame.add(observable);
+		}
+	}
+
+	/**
+	 * The tracking state of one thread. The frames of nested runAndMonitor and
+	 * runAndCollect calls are pooled, so that tracking does not allocate
+	 * anything but the resulting arrays.
+	 */
+	private static final class Tracker {
+		/** The frame collecting read observables, or null */
+		Frame getterCalledFrame;
+
+		/** The frame collecting created observables, or null */
+		Frame observableCreatedFrame;
+
+		int ignoreCount;
+
+		private Frame[] pool = new Frame[4];
+
+		private int poolSize;
+
+		Frame acquireFrame() {
+			if (poolSize == 0) {
+				return new Frame();
+			}
+			Frame frame = pool[--poolSize];
+			pool[poolSize] = null;
+			return frame;
+		}
+
+		void releaseFrame(Frame frame) {
+			frame.clear();
+			if (poolSize == pool.length) {
+				pool = Arrays.copyOf(pool, poolSize * 2);
+			}
+			pool[poolSize++] = frame;
+		}
+	}
+
+	/**
+	 * The observables collected by one runAndMonitor or runAndCollect call, in
+	 * the order in which they were first added. Duplicates are detected by a
+	 * linear scan for a few observables, and by an identity hash table beyond
+	 * that.
+	 */
+	private static final class Frame {
+		private static final int MAX_LINEAR_SIZE = 8;
+
+		private static final int MAX_POOLED_SIZE = 1024;
+
+		IChangeListener changeListener;
+
+		IStaleListener staleListener;
+
+		private IObservable[] observables = new IObservable[MAX_LINEAR_SIZE];
+
+		private int size;
+
+		/** Open addressing identity hash table, or null */
+		private IObservable[] table;
+
+		/**
+		 * @return <code>true</code> if the observable was not yet added
+		 */
+		boolean add(IObservable observable) {
+			if (table == null) {
+				for (int i = 0; i < size; i++) {
+					if (observables[i] == observable) {
+						return false;
+					}
+				}
+				if (size == MAX_LINEAR_SIZE) {
+					rehash(4 * MAX_LINEAR_SIZE);
+				}
+			}
+			if (table != null) {
+				int mask = table.length - 1;
+				int index = System.identityHashCode(observable) & mask;
+				while (table[index] != null) {
+					if (table[index] == observable) {
+						return false;
+					}
+					index = (index + 1) & mask;
+				}
+				table[index] = observable;
+			}
+			if (size == observables.length) {
+				observables = Arrays.copyOf(observables, size * 2);
+			}
+			observables[size++] = observable;
+			if (table != null && size * 2 > table.length) {
+				rehash(table.length * 2);
+			}
+			return true;
+		}
+
+		private void rehash(int capacity) {
+			table = new IObservable[capacity];
+			int mask = capacity - 1;
+			for (int i = 0; i < size; i++) {
+				int index = System.identityHashCode(observables[i]) & mask;
+				while (table[index] != null) {
+					index = (index + 1) & mask;
+				}
+				table[index] = observables[i];
+			}
+		}
+
+		IObservable[] toArray(IObservable[] previous) {
+			if (previous != null && previous.length == size) {
+				boolean same = true;
+				for (int i = 0; i < size && same; i++) {
+					same = previous[i] == observables[i];
+				}
+				if (same) {
+					return previous;
+				}
+			}
+			return Arrays.copyOf(observables, size);
+		}
+
+		void clear() {
+			if (observables.length > MAX_POOLED_SIZE) {
+				// don't keep large arrays of exceptionally large frames
+				observables = new IObservable[MAX_LINEAR_SIZE];
+				table = null;
+			} else {
+				Arrays.fill(observables, 0, size, null);
+				if (table != null) {
+					Arrays.fill(table, null);
+				}
+			}
+			size = 0;
+			changeListener = null;
+			staleListener = null;
 		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -22,6 +22,8 @@ import java.util.TimerTask;
 
 import org.eclipse.core.databinding.util.Policy;
 import org.eclipse.core.internal.databinding.observable.Queue;
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.AssertionFailedException;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
@@ -124,6 +126,13 @@ public abstract class Realm {
 
 	Queue workQueue = new Queue();
 
+	/**
+	 * The change events collected by {@link #runBatched(Runnable)}, or
+	 * <code>null</code> if no batch is running. Only accessed from within this
+	 * realm.
+	 */
+	ChangeBatch batch;
+
 	/**
 	 * Runs the given runnable. If an exception occurs within the runnable, it is
 	 * logged and not re-thrown. If the runnable implements {@link ISafeRunnable},
@@ -323,6 +332,50 @@ public abstract class Realm {
 		}
 	}
 
+	/**
+	 * Runs the given runnable, delaying the change events fired by observables
+	 * of this realm until the runnable completes. The events of each observable
+	 * are then merged and every listener is notified at most once per event
+	 * type, with a diff describing all changes made during the batch. Changes
+	 * which cancel out each other, like adding and removing the same set
+	 * element, are not reported at all.
+	 * <p>
+	 * This avoids recomputing dependents, like computed values or bound
+	 * viewers, for every single modification of a bulk update. Stale and
+	 * dispose events are not delayed. While the batch is running, listeners are
+	 * not yet aware of the changes made so far.
+	 * </p>
+	 * <p>
+	 * Nested calls run the runnable as part of the outer batch. The delayed
+	 * events are fired even if the runnable throws an exception. Events fired
+	 * by listeners while the delayed events are fired are batched as well.
+	 * </p>
+	 *
+	 * @param runnable
+	 *            {@link Runnable} to execute
+	 * @throws AssertionFailedException
+	 *             if this realm is not the current realm
+	 * @since 1.12
+	 */
+	public void runBatched(Runnable runnable) {
+		Assert.isTrue(isCurrent(), "This operation must be run within the realm"); //$NON-NLS-1$
+		if (batch != null) {
+			runnable.run();
+			return;
+		}
+		ChangeBatch newBatch = new ChangeBatch();
+		batch = newBatch;
+		try {
+			runnable.run();
+		} finally {
+			try {
+				newBatch.fire();
+			} finally {
+				batch = null;
+			}
+		}
+	}
+
 	/**
 	 * Sets the provided <code>realm</code> as the default for the duration of
 	 * {@link Runnable#run()} and resets the previous realm after completion.
@@ -0,0 +1,400 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable.list;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+
+/**
+ * An unmodifiable observable list containing the elements of a source list
+ * which are accepted by a filter, ordered by a comparator. Elements which
+ * compare as equal keep their order in the source list.
+ * <p>
+ * The list is maintained incrementally: each entry of a source
+ * {@link ListDiff} is applied in <code>O(log n)</code> time and results in at
+ * most one entry in the diff fired by this list, so large lists, like the
+ * input of an <code>ObservableListContentProvider</code>, do not have to be
+ * sorted and compared again on every change.
+ * </p>
+ * <p>
+ * The filter and the comparator must give the same results for an element for
+ * as long as it is contained in the source list. To reflect a change of an
+ * element's sort key, remove the element from the source list and add it
+ * again, for example by calling {@link IObservableList#set(int, Object)}.
+ * </p>
+ *
+ * @param <E> the type of the elements in the list
+ *
+ * @since 1.12
+ */
+public class SortedFilteredObservableList<E> extends AbstractObservableList<E> {
+
+	private final IObservableList<E> source;
+	private final Predicate<? super E> filter;
+	private final Comparator<? super E> comparator;
+
+	/** All elements of the source list, in source order */
+	private final OrderStatisticTree<E> sourceTree = new OrderStatisticTree<>();
+
+	/** The accepted elements, in sort order */
+	private final OrderStatisticTree<E> sortedTree = new OrderStatisticTree<>();
+
+	private final IListChangeListener<E> listChangeListener = event -> handleListChange(event.diff);
+
+	private final IStaleListener staleListener = staleEvent -> fireStale();
+
+	/**
+	 * Constructs a list containing all elements of the given source list,
+	 * ordered by the given comparator.
+	 *
+	 * @param source     the source list
+	 * @param comparator the comparator defining the order of the elements
+	 */
+	public SortedFilteredObservableList(IObservableList<E> source, Comparator<? super E> comparator) {
+		this(source, null, comparator);
+	}
+
+	/**
+	 * Constructs a list containing the elements of the given source list which
+	 * are accepted by the given filter, ordered by the given comparator. The
+	 * list belongs to the realm of the source list.
+	 *
+	 * @param source     the source list
+	 * @param filter     the filter deciding which elements are contained in
+	 *                   this list, or <code>null</code> to include all
+	 *                   elements
+	 * @param comparator the comparator defining the order of the elements
+	 */
+	public SortedFilteredObservableList(IObservableList<E> source, Predicate<? super E> filter,
+			Comparator<? super E> comparator) {
+		super(source.getRealm());
+		this.source = source;
+		this.filter = filter;
+		this.comparator = Objects.requireNonNull(comparator);
+
+		for (E element : source) {
+			addElement(sourceTree.size(), element);
+		}
+		source.addListChangeListener(listChangeListener);
+		source.addStaleListener(staleListener);
+	}
+
+	private void handleListChange(ListDiff<? extends E> diff) {
+		List<ListDiffEntry<E>> entries = new ArrayList<>();
+		for (ListDiffEntry<? extends E> entry : diff.getDifferences()) {
+			ListDiffEntry<E> sortedEntry = entry.isAddition() ? addElement(entry.getPosition(), entry.getElement())
+					: removeElement(entry.getPosition());
+			if (sortedEntry == null) {
+				continue;
+			}
+			int last = entries.size() - 1;
+			if (last >= 0 && sortedEntry.isAddition() && !entries.get(last).isAddition()
+					&& entries.get(last).getPosition() == sortedEntry.getPosition()
+					&& entries.get(last).getElement() == sortedEntry.getElement()) {
+				// the element was moved in the source list without changing its
+				// position in this list
+				entries.remove(last);
+			} else {
+				entries.add(sortedEntry);
+			}
+		}
+		if (!entries.isEmpty()) {
+			fireListChange(Diffs.createListDiff(entries));
+		}
+	}
+
+	private ListDiffEntry<E> addElement(int sourceIndex, E element) {
+		Node<E> sourceNode = sourceTree.insertAt(sourceIndex, element);
+		if (filter != null && !filter.test(element)) {
+			return null;
+		}
+		Node<E> sortedNode = sortedTree.insertSorted(element, sourceIndex, this::compare);
+		sourceNode.peer = sortedNode;
+		sortedNode.peer = sourceNode;
+		return Diffs.createListDiffEntry(OrderStatisticTree.indexOf(sortedNode), true, element);
+	}
+
+	private ListDiffEntry<E> removeElement(int sourceIndex) {
+		Node<E> sourceNode = sourceTree.get(sourceIndex);
+		sourceTree.remove(sourceNode);
+		Node<E> sortedNode = sourceNode.peer;
+		if (sortedNode == null) {
+			return null;
+		}
+		int index = OrderStatisticTree.indexOf(sortedNode);
+		sortedTree.remove(sortedNode);
+		return Diffs.createListDiffEntry(index, false, sortedNode.element);
+	}
+
+	/**
+	 * Compares an element about to be inserted at the given position of the
+	 * source list with the element of a node of the sorted tree, breaking ties
+	 * by the position in the source list. Only the position of the node has to
+	 * be computed, and only if the elements compare as equal.
+	 */
+	private int compare(E element, int sourceIndex, Node<E> sortedNode) {
+		int result = comparator.compare(element, sortedNode.element);
+		if (result != 0) {
+			return result;
+		}
+		return Integer.compare(sourceIndex, OrderStatisticTree.indexOf(sortedNode.peer));
+	}
+
+	@Override
+	protected int doGetSize() {
+		return sortedTree.size();
+	}
+
+	@Override
+	public E get(int index) {
+		getterCalled();
+		if (index < 0 || index >= sortedTree.size()) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + sortedTree.size()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return sortedTree.get(index).element;
+	}
+
+	@Override
+	public boolean isStale() {
+		getterCalled();
+		return source.isStale();
+	}
+
+	@Override
+	public Object getElementType() {
+		return source.getElementType();
+	}
+
+	private void getterCalled() {
+		ObservableTracker.getterCalled(this);
+	}
+
+	@Override
+	public synchronized void dispose() {
+		source.removeListChangeListener(listChangeListener);
+		source.removeStaleListener(staleListener);
+		super.dispose();
+	}
+
+	private static class Node<E> {
+		final E element;
+		final int priority;
+		Node<E> parent;
+		Node<E> left;
+		Node<E> right;
+		int size = 1;
+
+		/** The node of the same element in the other tree */
+		Node<E> peer;
+
+		Node(E element, int priority) {
+			this.element = element;
+			this.priority = priority;
+		}
+	}
+
+	@FunctionalInterface
+	private interface NodeComparator<E> {
+		int compare(E element, int sourceIndex, Node<E> node);
+	}
+
+	/**
+	 * A treap whose nodes know the size of their subtree, so nodes can be
+	 * looked up by index and the index of a node can be computed in
+	 * <code>O(log n)</code> expected time.
+	 */
+	private static class OrderStatisticTree<E> {
+		private final Random random = new Random();
+		private Node<E> root;
+
+		int size() {
+			return size(root);
+		}
+
+		Node<E> get(int index) {
+			Node<E> node = root;
+			while (true) {
+				int leftSize = size(node.left);
+				if (index < leftSize) {
+					node = node.left;
+				} else if (index > leftSize) {
+					index -= leftSize + 1;
+					node = node.right;
+				} else {
+					return node;
+				}
+			}
+		}
+
+		static <E> int indexOf(Node<E> node) {
+			int index = size(node.left);
+			for (Node<E> parent = node.parent; parent != null; node = parent, parent = parent.parent) {
+				if (parent.right == node) {
+					index += size(parent.left) + 1;
+				}
+			}
+			return index;
+		}
+
+		Node<E> insertAt(int index, E element) {
+			Node<E> node = new Node<>(element, random.nextInt());
+			if (root == null) {
+				root = node;
+				return node;
+			}
+			Node<E> parent = root;
+			while (true) {
+				parent.size++;
+				int leftSize = size(parent.left);
+				if (index <= leftSize) {
+					if (parent.left == null) {
+						setLeft(parent, node);
+						break;
+					}
+					parent = parent.left;
+				} else {
+					index -= leftSize + 1;
+					if (parent.right == null) {
+						setRight(parent, node);
+						break;
+					}
+					parent = parent.right;
+				}
+			}
+			siftUp(node);
+			return node;
+		}
+
+		Node<E> insertSorted(E element, int sourceIndex, NodeComparator<E> nodeComparator) {
+			Node<E> node = new Node<>(element, random.nextInt());
+			if (root == null) {
+				root = node;
+				return node;
+			}
+			Node<E> parent = root;
+			while (true) {
+				parent.size++;
+				if (nodeComparator.compare(element, sourceIndex, parent) < 0) {
+					if (parent.left == null) {
+						setLeft(parent, node);
+						break;
+					}
+					parent = parent.left;
+				} else {
+					if (parent.right == null) {
+						setRight(parent, node);
+						break;
+					}
+					parent = parent.right;
+				}
+			}
+			siftUp(node);
+			return node;
+		}
+
+		void remove(Node<E> node) {
+			// rotate the node down until it is a leaf
+			while (node.left != null || node.right != null) {
+				if (node.right == null || (node.left != null && node.left.priority > node.right.priority)) {
+					rotateRight(node);
+				} else {
+					rotateLeft(node);
+				}
+			}
+			Node<E> parent = node.parent;
+			if (parent == null) {
+				root = null;
+				return;
+			}
+			if (parent.left == node) {
+				parent.left = null;
+			} else {
+				parent.right = null;
+			}
+			node.parent = null;
+			for (; parent != null; parent = parent.parent) {
+				parent.size--;
+			}
+		}
+
+		private void siftUp(Node<E> node) {
+			while (node.parent != null && node.parent.priority < node.priority) {
+				if (node.parent.left == node) {
+					rotateRight(node.parent);
+				} else {
+					rotateLeft(node.parent);
+				}
+			}
+		}
+
+		/** Replaces the given node by its left child */
+		private void rotateRight(Node<E> node) {
+			Node<E> pivot = node.left;
+			setLeft(node, pivot.right);
+			replace(node, pivot);
+			setRight(pivot, node);
+			node.size = size(node.left) + size(node.right) + 1;
+			pivot.size = size(pivot.left) + node.size + 1;
+		}
+
+		/** Replaces the given node by its right child */
+		private void rotateLeft(Node<E> node) {
+			Node<E> pivot = node.right;
+			setRight(node, pivot.left);
+			replace(node, pivot);
+			setLeft(pivot, node);
+			node.size = size(node.left) + size(node.right) + 1;
+			pivot.size = node.size + size(pivot.right) + 1;
+		}
+
+		private void replace(Node<E> node, Node<E> replacement) {
+			Node<E> parent = node.parent;
+			replacement.parent = parent;
+			if (parent == null) {
+				root = replacement;
+			} else if (parent.left == node) {
+				parent.left = replacement;
+			} else {
+				parent.right = replacement;
+			}
+		}
+
+		private static <E> void setLeft(Node<E> node, Node<E> child) {
+			node.left = child;
+			if (child != null) {
+				child.parent = node;
+			}
+		}
+
+		private static <E> void setRight(Node<E> node, Node<E> child) {
+			node.right = child;
+			if (child != null) {
+				child.parent = node;
+			}
+		}
+
+		private static int size(Node<?> node) {
+			return node == null ? 0 : node.size;
+		}
+	}
+}
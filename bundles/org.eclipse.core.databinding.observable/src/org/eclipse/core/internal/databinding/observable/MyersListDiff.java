@@ -0,0 +1,484 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+
+/**
+ * Computes the differences between two lists with the linear space variant of
+ * the O((N+M)D) algorithm from Eugene W. Myers, "An O(ND) Difference Algorithm
+ * and Its Variations".
+ * <p>
+ * Elements are compared by {@link Object#equals(Object)} through integer ids
+ * assigned by a hash map, so the algorithm itself only compares ints. Common
+ * prefixes and suffixes are skipped, and edits which only remove or only add
+ * elements are recognized in linear time without running the full algorithm.
+ * </p>
+ * <p>
+ * The resulting entries are meant to be applied in order. Within each changed
+ * region additions and removals alternate, so {@link ListDiffEntry}s at the
+ * same position are reported as replacements by
+ * {@link org.eclipse.core.databinding.observable.list.ListDiff#accept}. An
+ * element which was removed at one place and added at another one is reported
+ * as an adjacent remove/add pair of the same element, i.e. as a move.
+ * </p>
+ */
+public final class MyersListDiff {
+
+	private static final byte MATCH = 0;
+	private static final byte DELETE = 1;
+	private static final byte INSERT = 2;
+
+	/** Element ids of the old list */
+	private final int[] a;
+
+	/** Element ids of the new list */
+	private final int[] b;
+
+	/** The edit script, consumes the old and new list from left to right */
+	private final byte[] script;
+
+	private int scriptLength;
+
+	private int[] forward;
+	private int[] backward;
+
+	// the snake found by the last call to middleSnake
+	private int snakeStartX;
+	private int snakeStartY;
+	private int snakeEndX;
+	private int snakeEndY;
+
+	private MyersListDiff(int[] a, int[] b) {
+		this.a = a;
+		this.b = b;
+		this.script = new byte[a.length + b.length];
+	}
+
+	/**
+	 * Adds the entries which turn the old list into the new list to the given
+	 * list of entries.
+	 *
+	 * @param oldList
+	 *            the old list state
+	 * @param newList
+	 *            the new list state
+	 * @param listDiffs
+	 *            the list to which the entries are added
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> void createListDiffs(List<? extends E> oldList, List<? extends E> newList,
+			List<ListDiffEntry<E>> listDiffs) {
+		Object[] oldElements = oldList.toArray();
+		Object[] newElements = newList.toArray();
+		Map<Object, Integer> ids = new HashMap<>();
+		int[] a = toIds(oldElements, ids);
+		int[] b = toIds(newElements, ids);
+
+		int n = a.length;
+		int m = b.length;
+		int start = 0;
+		while (start < n && start < m && a[start] == b[start]) {
+			start++;
+		}
+		int oldEnd = n;
+		int newEnd = m;
+		while (oldEnd > start && newEnd > start && a[oldEnd - 1] == b[newEnd - 1]) {
+			oldEnd--;
+			newEnd--;
+		}
+		if (start == oldEnd && start == newEnd) {
+			return;
+		}
+
+		MyersListDiff differ = new MyersListDiff(a, b);
+		if (!differ.removeOnly(start, oldEnd, start, newEnd) && !differ.addOnly(start, oldEnd, start, newEnd)) {
+			int maxD = (oldEnd - start + newEnd - start + 1) / 2;
+			differ.forward = new int[2 * maxD + 3];
+			differ.backward = new int[2 * maxD + 3];
+			differ.compare(start, oldEnd, start, newEnd);
+			differ.alternate();
+		}
+		differ.emit(start, oldEnd, newEnd, ids.size(), (E[]) oldElements, (E[]) newElements, listDiffs);
+	}
+
+	private static int[] toIds(Object[] elements, Map<Object, Integer> ids) {
+		int[] result = new int[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			Integer id = ids.get(elements[i]);
+			if (id == null) {
+				id = Integer.valueOf(ids.size());
+				ids.put(elements[i], id);
+			}
+			result[i] = id.intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the edit script if the new range is a subsequence of the old
+	 * range.
+	 */
+	private boolean removeOnly(int aStart, int aEnd, int bStart, int bEnd) {
+		if (bEnd - bStart > aEnd - aStart) {
+			return false;
+		}
+		int j = bStart;
+		for (int i = aStart; i < aEnd; i++) {
+			if (j < bEnd && a[i] == b[j]) {
+				j++;
+				script[scriptLength++] = MATCH;
+			} else {
+				script[scriptLength++] = DELETE;
+			}
+		}
+		if (j == bEnd) {
+			return true;
+		}
+		scriptLength = 0;
+		return false;
+	}
+
+	/**
+	 * Creates the edit script if the old range is a subsequence of the new
+	 * range.
+	 */
+	private boolean addOnly(int aStart, int aEnd, int bStart, int bEnd) {
+		if (aEnd - aStart > bEnd - bStart) {
+			return false;
+		}
+		int i = aStart;
+		for (int j = bStart; j < bEnd; j++) {
+			if (i < aEnd && a[i] == b[j]) {
+				i++;
+				script[scriptLength++] = MATCH;
+			} else {
+				script[scriptLength++] = INSERT;
+			}
+		}
+		if (i == aEnd) {
+			return true;
+		}
+		scriptLength = 0;
+		return false;
+	}
+
+	private void append(byte op, int count) {
+		Arrays.fill(script, scriptLength, scriptLength + count, op);
+		scriptLength += count;
+	}
+
+	private void compare(int aStart, int aEnd, int bStart, int bEnd) {
+		int prefix = 0;
+		while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+			aStart++;
+			bStart++;
+			prefix++;
+		}
+		append(MATCH, prefix);
+		int suffix = 0;
+		while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+			aEnd--;
+			bEnd--;
+			suffix++;
+		}
+
+		if (aStart == aEnd) {
+			append(INSERT, bEnd - bStart);
+		} else if (bStart == bEnd) {
+			append(DELETE, aEnd - aStart);
+		} else {
+			// without a common prefix or suffix the distance is at least two,
+			// so both halves are smaller than the whole range
+			middleSnake(aStart, aEnd - aStart, bStart, bEnd - bStart);
+			int x = aStart + snakeStartX;
+			int y = bStart + snakeStartY;
+			int u = aStart + snakeEndX;
+			int v = bStart + snakeEndY;
+			compare(aStart, x, bStart, y);
+			append(MATCH, u - x);
+			compare(u, aEnd, v, bEnd);
+		}
+		append(MATCH, suffix);
+	}
+
+	/**
+	 * Finds the middle snake of an optimal edit script for the given ranges,
+	 * the coordinates of the snake are stored relative to the range starts.
+	 */
+	private void middleSnake(int aStart, int n, int bStart, int m) {
+		int delta = n - m;
+		boolean odd = (delta & 1) != 0;
+		int maxD = (n + m + 1) / 2;
+		int offset = maxD + 1;
+		int[] vf = forward;
+		int[] vb = backward;
+		vf[offset + 1] = 0;
+		vb[offset + 1] = 0;
+		for (int d = 0; d <= maxD; d++) {
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1])) {
+					x = vf[offset + k + 1];
+				} else {
+					x = vf[offset + k - 1] + 1;
+				}
+				int y = x - k;
+				int startX = x;
+				int startY = y;
+				while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+					x++;
+					y++;
+				}
+				vf[offset + k] = x;
+				if (odd && k >= delta - (d - 1) && k <= delta + (d - 1) && x + vb[offset + delta - k] >= n) {
+					setSnake(startX, startY, x, y);
+					return;
+				}
+			}
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || (k != d && vb[offset + k - 1] < vb[offset + k + 1])) {
+					x = vb[offset + k + 1];
+				} else {
+					x = vb[offset + k - 1] + 1;
+				}
+				int y = x - k;
+				int startX = x;
+				int startY = y;
+				while (x < n && y < m && a[aStart + n - x - 1] == b[bStart + m - y - 1]) {
+					x++;
+					y++;
+				}
+				vb[offset + k] = x;
+				if (!odd && delta - k >= -d && delta - k <= d && x + vf[offset + delta - k] >= n) {
+					setSnake(n - x, m - y, n - startX, m - startY);
+					return;
+				}
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	private void setSnake(int startX, int startY, int endX, int endY) {
+		snakeStartX = startX;
+		snakeStartY = startY;
+		snakeEndX = endX;
+		snakeEndY = endY;
+	}
+
+	/**
+	 * Reorders the insertions and deletions of each changed region so that
+	 * they alternate, starting with an insertion.
+	 */
+	private void alternate() {
+		int i = 0;
+		while (i < scriptLength) {
+			if (script[i] == MATCH) {
+				i++;
+				continue;
+			}
+			int start = i;
+			int deletes = 0;
+			int inserts = 0;
+			while (i < scriptLength && script[i] != MATCH) {
+				if (script[i] == DELETE) {
+					deletes++;
+				} else {
+					inserts++;
+				}
+				i++;
+			}
+			int k = start;
+			while (deletes > 0 || inserts > 0) {
+				if (inserts > 0) {
+					script[k++] = INSERT;
+					inserts--;
+				}
+				if (deletes > 0) {
+					script[k++] = DELETE;
+					deletes--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Turns the edit script into list diff entries. A deleted element which is
+	 * equal to an inserted one is moved instead. The current position of the
+	 * remaining old elements and of moved elements is tracked with a Fenwick
+	 * tree over slots, which holds one slot per old element and, in front of
+	 * it, one slot per moved element inserted right before it.
+	 */
+	private <E> void emit(int start, int oldEnd, int newEnd, int idCount, E[] oldElements, E[] newElements,
+			List<ListDiffEntry<E>> listDiffs) {
+		int oldSize = oldEnd - start;
+
+		// pair deleted elements with equal inserted elements, in order
+		int[] firstDeleted = new int[idCount];
+		int[] lastDeleted = new int[idCount];
+		Arrays.fill(firstDeleted, -1);
+		int[] nextDeleted = new int[oldSize];
+		int i = start;
+		for (int t = 0; t < scriptLength; t++) {
+			if (script[t] == DELETE) {
+				int id = a[i];
+				nextDeleted[i - start] = -1;
+				if (firstDeleted[id] == -1) {
+					firstDeleted[id] = i;
+				} else {
+					nextDeleted[lastDeleted[id] - start] = i;
+				}
+				lastDeleted[id] = i;
+			}
+			if (script[t] != INSERT) {
+				i++;
+			}
+		}
+		int newSize = newEnd - start;
+		int[] insertPartner = new int[newSize];
+		int[] deletePartner = new int[oldSize];
+		Arrays.fill(deletePartner, -1);
+		int j = start;
+		int pairs = 0;
+		for (int t = 0; t < scriptLength; t++) {
+			if (script[t] == INSERT) {
+				int id = b[j];
+				int partner = firstDeleted[id];
+				if (partner != -1) {
+					firstDeleted[id] = nextDeleted[partner - start];
+					deletePartner[partner - start] = j;
+					pairs++;
+				}
+				insertPartner[j - start] = partner;
+				j++;
+			} else if (script[t] == MATCH) {
+				j++;
+			}
+		}
+
+		// assign the slots, a moved element which is pushed back is placed in
+		// front of the old element following its insertion point
+		int[] oldSlot = new int[oldSize];
+		int[] insertSlot = new int[newSize];
+		int slot = 0;
+		i = start;
+		j = start;
+		for (int t = 0; t < scriptLength; t++) {
+			if (script[t] == INSERT) {
+				if (insertPartner[j - start] != -1) {
+					insertSlot[j - start] = slot++;
+				}
+				j++;
+			} else {
+				oldSlot[i - start] = slot++;
+				if (script[t] == MATCH) {
+					j++;
+				}
+				i++;
+			}
+		}
+
+		int[] tree = new int[oldSize + pairs + 1];
+		for (int k = 0; k < oldSize; k++) {
+			tree[oldSlot[k] + 1] = 1;
+		}
+		for (int k = 1; k < tree.length; k++) {
+			int parent = k + (k & -k);
+			if (parent < tree.length) {
+				tree[parent] += tree[k];
+			}
+		}
+
+		boolean[] moved = new boolean[oldSize];
+		int position = start;
+		i = start;
+		j = start;
+		for (int t = 0; t < scriptLength; t++) {
+			switch (script[t]) {
+			case MATCH:
+				update(tree, oldSlot[i - start], -1);
+				position++;
+				i++;
+				j++;
+				break;
+			case DELETE:
+				int index = i - start;
+				i++;
+				if (moved[index]) {
+					break;
+				}
+				int removePosition = position + prefixSum(tree, oldSlot[index]);
+				update(tree, oldSlot[index], -1);
+				int partner = deletePartner[index];
+				if (partner == -1) {
+					listDiffs.add(Diffs.createListDiffEntry(removePosition, false, oldElements[index + start]));
+				} else {
+					// push the element back to where it is inserted later on
+					moved[index] = true;
+					int pushedSlot = insertSlot[partner - start];
+					update(tree, pushedSlot, 1);
+					int addPosition = position + prefixSum(tree, pushedSlot);
+					if (removePosition != addPosition) {
+						listDiffs.add(Diffs.createListDiffEntry(removePosition, false, oldElements[index + start]));
+						listDiffs.add(Diffs.createListDiffEntry(addPosition, true, oldElements[index + start]));
+					}
+				}
+				break;
+			default:
+				int insertIndex = j - start;
+				j++;
+				int deleted = insertPartner[insertIndex];
+				if (deleted == -1) {
+					listDiffs.add(Diffs.createListDiffEntry(position, true, newElements[insertIndex + start]));
+				} else if (moved[deleted - start]) {
+					// pushed back before, now it is in place
+					update(tree, insertSlot[insertIndex], -1);
+				} else {
+					// pull the element forward
+					moved[deleted - start] = true;
+					int from = position + prefixSum(tree, oldSlot[deleted - start]);
+					update(tree, oldSlot[deleted - start], -1);
+					if (from != position) {
+						listDiffs.add(Diffs.createListDiffEntry(from, false, oldElements[deleted]));
+						listDiffs.add(Diffs.createListDiffEntry(position, true, oldElements[deleted]));
+					}
+				}
+				position++;
+				break;
+			}
+		}
+	}
+
+	private static void update(int[] tree, int slot, int delta) {
+		for (int k = slot + 1; k < tree.length; k += k & -k) {
+			tree[k] += delta;
+		}
+	}
+
+	/** Returns the number of occupied slots before the given slot */
+	private static int prefixSum(int[] tree, int slot) {
+		int sum = 0;
+		for (int k = slot; k > 0; k -= k & -k) {
+			sum += tree[k];
+		}
+		return sum;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015 Google, Inc. and others.
+ * Copyright (c) 2015, 2022 Google, Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,7 +14,9 @@
 package org.eclipse.core.internal.databinding.observable.sideeffect;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -24,6 +26,7 @@ import org.eclipse.core.databinding.observable.IObservable;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.sideeffect.ISideEffect;
+import org.eclipse.core.internal.databinding.identity.IdentitySet;
 import org.eclipse.core.runtime.Assert;
 
 /**
@@ -89,6 +92,11 @@ public final class SideEffect implements ISideEffect {
 	 */
 	private boolean asyncScheduled;
 	private int pauseDepth;
+	/**
+	 * True while the runnable is executed. Changes of the dependencies are
+	 * ignored meanwhile, as the runnable already sees them.
+	 */
+	private boolean updating;
 	private Runnable runnable;
 	/**
 	 * Dependencies which we are currently listening for change events from
@@ -189,14 +197,21 @@ public final class SideEffect implements ISideEffect {
 			// event that a dependency is lazily created, this prevents it from
 			// being destroyed and immediately recreated.
 
-			// Stop listening for dependency changes.
-			stopListening();
-
-			// This line will do the following:
-			// - Run the calculate method
-			// - While doing so, add any observable that is touched to the
-			// dependencies list
-			IObservable[] newDependencies = ObservableTracker.runAndMonitor(runnable, null, null);
+			// Keep listening to the old dependencies, but ignore their changes
+			// while running. Most side-effects read the same observables each
+			// time, in which case the listeners don't have to be re-registered.
+			IObservable[] oldDependencies = dependencies;
+			IObservable[] newDependencies;
+			updating = true;
+			try {
+				// This line will do the following:
+				// - Run the calculate method
+				// - While doing so, add any observable that is touched to the
+				// dependencies list
+				newDependencies = ObservableTracker.runAndMonitor(runnable, null, null, oldDependencies);
+			} finally {
+				updating = false;
+			}
 
 			// If the side-effect disposed itself, exit without attaching any
 			// listeners.
@@ -204,11 +219,10 @@ public final class SideEffect implements ISideEffect {
 				return;
 			}
 
-			for (IObservable next : newDependencies) {
-				next.addChangeListener(privateInterface);
+			if (newDependencies != oldDependencies) {
+				updateListeners(oldDependencies, newDependencies);
+				dependencies = newDependencies;
 			}
-
-			dependencies = newDependencies;
 		}
 	}
 
@@ -275,6 +289,21 @@ public final class SideEffect implements ISideEffect {
 		update();
 	}
 
+	private void updateListeners(IObservable[] oldDependencies, IObservable[] newDependencies) {
+		Set<IObservable> oldSet = new IdentitySet<>();
+		if (oldDependencies != null) {
+			oldSet.addAll(Arrays.asList(oldDependencies));
+		}
+		for (IObservable next : newDependencies) {
+			if (!oldSet.remove(next)) {
+				next.addChangeListener(privateInterface);
+			}
+		}
+		for (IObservable next : oldSet) {
+			next.removeChangeListener(privateInterface);
+		}
+	}
+
 	private void stopListening() {
 		if (dependencies != null) {
 			for (IObservable observable : dependencies) {
@@ -337,7 +366,9 @@ public final class SideEffect implements ISideEffect {
 	private class PrivateInterface implements IChangeListener, Runnable {
 		@Override
 		public void handleChange(ChangeEvent event) {
-			markDirtyInternal();
+			if (!updating) {
+				markDirtyInternal();
+			}
 		}
 
 		@Override
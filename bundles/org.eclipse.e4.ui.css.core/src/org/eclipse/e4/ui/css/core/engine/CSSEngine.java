@@ -219,6 +219,24 @@ public interface CSSEngine {
 	 */
 	void applyStyles(Object node, boolean applyStylesToChildNodes, boolean computeDefaultStyle);
 
+	/**
+	 * Re-apply styles to the Object node and its child nodes after a change
+	 * which can only affect the selectors matching them, like a change of the
+	 * CSS class, the CSS id or a pseudo state of the node. Only the CSS
+	 * properties whose value differs from the value applied by the previous
+	 * call of this method are applied again.
+	 * <p>
+	 * The default implementation applies all styles to the node and its child
+	 * nodes.
+	 * </p>
+	 *
+	 * @param node
+	 * @since 0.14
+	 */
+	default void applyChangedStyles(Object node) {
+		applyStyles(node, true);
+	}
+
 	/*--------------- Apply style declaration -----------------*/
 
 	/**
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * An index of the conditional selectors of the style sheets of a document,
+ * bucketed by condition type and, for attribute conditions like CSS ids and
+ * classes, by the condition value.
+ * <p>
+ * Style sheets are indexed when they are added, so the index never has to
+ * scan the rules of style sheets added before. The selectors of each bucket
+ * are kept in source order.
+ * </p>
+ */
+final class ConditionalSelectorIndex {
+
+	private final Map<Short, List<Selector>> selectorsByType = new HashMap<>();
+	private final Map<Short, Map<String, List<Selector>>> selectorsByValue = new HashMap<>();
+
+	/**
+	 * Adds the conditional selectors of the style rules of the given style
+	 * sheet to the index.
+	 */
+	void addStyleSheet(CSSStyleSheet styleSheet) {
+		CSSRuleList ruleList = styleSheet.getCssRules();
+		int length = ruleList.getLength();
+		for (int i = 0; i < length; i++) {
+			CSSRule rule = ruleList.item(i);
+			if (rule.getType() != CSSRule.STYLE_RULE || !(rule instanceof ExtendedCSSRule)) {
+				continue;
+			}
+			SelectorList selectorList = ((ExtendedCSSRule) rule).getSelectorList();
+			int l = selectorList.getLength();
+			for (int j = 0; j < l; j++) {
+				Selector selector = selectorList.item(j);
+				if (selector.getSelectorType() == Selector.SAC_CONDITIONAL_SELECTOR) {
+					add((ConditionalSelector) selector);
+				}
+			}
+		}
+	}
+
+	private void add(ConditionalSelector selector) {
+		Condition condition = selector.getCondition();
+		Short type = Short.valueOf(condition.getConditionType());
+		selectorsByType.computeIfAbsent(type, t -> new ArrayList<>()).add(selector);
+		if (condition instanceof AttributeCondition) {
+			String value = ((AttributeCondition) condition).getValue();
+			if (value != null) {
+				selectorsByValue.computeIfAbsent(type, t -> new HashMap<>())
+						.computeIfAbsent(value, v -> new ArrayList<>(1)).add(selector);
+			}
+		}
+	}
+
+	/**
+	 * Removes all selectors from the index.
+	 */
+	void clear() {
+		selectorsByType.clear();
+		selectorsByValue.clear();
+	}
+
+	/**
+	 * Returns the conditional selectors with a condition of the given type, in
+	 * source order.
+	 */
+	List<Selector> getSelectors(int conditionType) {
+		return unmodifiable(selectorsByType.get(Short.valueOf((short) conditionType)));
+	}
+
+	/**
+	 * Returns the conditional selectors with an attribute condition of the given
+	 * type and value, in source order.
+	 */
+	List<Selector> getSelectors(int conditionType, String value) {
+		Map<String, List<Selector>> selectors = selectorsByValue.get(Short.valueOf((short) conditionType));
+		return unmodifiable(selectors != null ? selectors.get(value) : null);
+	}
+
+	private static List<Selector> unmodifiable(List<Selector> selectors) {
+		return selectors != null ? Collections.unmodifiableList(selectors) : Collections.emptyList();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2018 Angelo Zerr and others.
+ * Copyright (c) 2008, 2022 Angelo Zerr and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,17 +18,11 @@
 package org.eclipse.e4.ui.css.core.impl.dom;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
 import org.eclipse.e4.ui.css.core.dom.ExtendedDocumentCSS;
-import org.w3c.css.sac.ConditionalSelector;
 import org.w3c.css.sac.Selector;
-import org.w3c.css.sac.SelectorList;
 import org.w3c.dom.Element;
-import org.w3c.dom.css.CSSRule;
-import org.w3c.dom.css.CSSRuleList;
 import org.w3c.dom.css.CSSStyleDeclaration;
 import org.w3c.dom.css.CSSStyleSheet;
 import org.w3c.dom.css.DocumentCSS;
@@ -43,9 +37,10 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	private StyleSheetListImpl styleSheetList = new StyleSheetListImpl();
 
 	/**
-	 * key=selector type, value = CSSStyleDeclaration
+	 * The conditional selectors of all style sheets, maintained as style sheets
+	 * are added and removed
 	 */
-	private Map<Integer, List<?>> styleDeclarationMap;
+	private final ConditionalSelectorIndex selectorIndex = new ConditionalSelectorIndex();
 
 	private List<StyleSheetChangeListener> styleSheetChangeListeners = new ArrayList<>(1);
 
@@ -62,6 +57,9 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	@Override
 	public void addStyleSheet(StyleSheet styleSheet) {
 		styleSheetList.addStyleSheet(styleSheet);
+		if (styleSheet instanceof CSSStyleSheet) {
+			selectorIndex.addStyleSheet((CSSStyleSheet) styleSheet);
+		}
 		styleSheetChangeListeners.forEach(l -> l.styleSheetAdded(styleSheet));
 	}
 
@@ -72,7 +70,7 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 			styleSheetChangeListeners.forEach(l -> l.styleSheetRemoved(styleSheet));
 		}
 		styleSheetList.removeAllStyleSheets();
-		this.styleDeclarationMap = null;
+		selectorIndex.clear();
 	}
 
 	@Override
@@ -82,84 +80,26 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 
 	@Override
 	public List<?> querySelector(int selectorType, int conditionType) {
-		List<?> list = getCSSStyleDeclarationList(selectorType, conditionType);
-		if (list != null) {
-			return list;
-		}
-		int l = styleSheetList.getLength();
-		for (int i = 0; i < l; i++) {
-			CSSStyleSheet styleSheet = (CSSStyleSheet) styleSheetList.item(i);
-			CSSRuleList ruleList = styleSheet.getCssRules();
-			list = querySelector(ruleList, selectorType, conditionType);
-			setCSSStyleDeclarationList(list, selectorType, conditionType);
-		}
-		return list;
-	}
-
-	protected List<Selector> querySelector(CSSRuleList ruleList, int selectorType, int selectorConditionType) {
-		List<Selector> list = new ArrayList<>();
-		if (selectorType == Selector.SAC_CONDITIONAL_SELECTOR) {
-			int length = ruleList.getLength();
-			for (int i = 0; i < length; i++) {
-				CSSRule rule = ruleList.item(i);
-				if (rule.getType() == CSSRule.STYLE_RULE && rule instanceof ExtendedCSSRule) {
-					ExtendedCSSRule r = (ExtendedCSSRule) rule;
-					SelectorList selectorList = r.getSelectorList();
-					// Loop for SelectorList
-					int l = selectorList.getLength();
-					for (int j = 0; j < l; j++) {
-						Selector selector = selectorList.item(j);
-						if (selector.getSelectorType() == selectorType) {
-							// It's conditional selector
-							ConditionalSelector conditionalSelector = (ConditionalSelector) selector;
-							short conditionType = conditionalSelector.getCondition().getConditionType();
-							if (selectorConditionType == conditionType) {
-								// current selector match the current CSS
-								// Rule
-								// CSSStyleRule styleRule = (CSSStyleRule)
-								// rule;
-								list.add(selector);
-							}
-						}
-					}
-				}
-			}
-		}
-		return list;
-	}
-
-	protected List<?> getCSSStyleDeclarationList(int selectorType, int conditionType) {
-		Integer key = getKey(selectorType, conditionType);
-		return getStyleDeclarationMap().get(key);
-	}
-
-	protected void setCSSStyleDeclarationList(List<?> list, int selectorType, int conditionType) {
-		Integer key = getKey(selectorType, conditionType);
-		getStyleDeclarationMap().put(key, list);
-	}
-
-	protected Integer getKey(int selectorType, int conditionType) {
-		if (selectorType == Selector.SAC_CONDITIONAL_SELECTOR) {
-			if (conditionType == SAC_CLASS_CONDITION.intValue()) {
-				return SAC_CLASS_CONDITION;
-			}
-			if (conditionType == SAC_ID_CONDITION.intValue()) {
-				return SAC_ID_CONDITION;
-			}
-			if (conditionType == SAC_PSEUDO_CLASS_CONDITION.intValue()) {
-				return SAC_PSEUDO_CLASS_CONDITION;
-			}
-			return OTHER_SAC_CONDITIONAL_SELECTOR;
+		if (selectorType != Selector.SAC_CONDITIONAL_SELECTOR) {
+			return Collections.emptyList();
 		}
-
-		return OTHER_SAC_SELECTOR;
+		return selectorIndex.getSelectors(conditionType);
 	}
 
-	protected Map<Integer, List<?>> getStyleDeclarationMap() {
-		if (styleDeclarationMap == null) {
-			styleDeclarationMap = new HashMap<>();
-		}
-		return styleDeclarationMap;
+	/**
+	 * Returns the conditional selectors of all style sheets whose condition is
+	 * an attribute condition of the given type with the given value, like the
+	 * selectors for a CSS class or id.
+	 *
+	 * @param conditionType
+	 *            the condition type, like
+	 *            {@link org.w3c.css.sac.Condition#SAC_CLASS_CONDITION}
+	 * @param value
+	 *            the value of the condition, like the CSS class name
+	 * @return the matching selectors in source order, never <code>null</code>
+	 */
+	public List<Selector> queryConditionSelector(int conditionType, String value) {
+		return selectorIndex.getSelectors(conditionType, value);
 	}
 
 	@Override
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractDescendantSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractSiblingSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAndConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSConditionalSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSElementSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleRule;
+
+/**
+ * An index of the selectors of a list of style rules, bucketed by the
+ * rightmost simple selector of each selector: the CSS id, a CSS class, the
+ * element name or, if none of these can be determined, the universal bucket.
+ * <p>
+ * Every selector is stored in exactly one bucket, together with its position
+ * in the source rule list, so that the candidates for an element can be
+ * returned in the same order in which a linear scan over all rules would have
+ * visited them.
+ * </p>
+ */
+final class StyleRuleIndex {
+
+	/**
+	 * A selector of a style rule, together with its position in source order.
+	 */
+	static final class Entry {
+		final ExtendedSelector selector;
+		final CSSStyleDeclaration style;
+		final int order;
+
+		Entry(ExtendedSelector selector, CSSStyleDeclaration style, int order) {
+			this.selector = selector;
+			this.style = style;
+			this.order = order;
+		}
+	}
+
+	private final Map<String, List<Entry>> idEntries = new HashMap<>();
+	private final Map<String, List<Entry>> classEntries = new HashMap<>();
+	private final Map<String, List<Entry>> elementEntries = new HashMap<>();
+	private final List<Entry> universalEntries = new ArrayList<>();
+
+	/**
+	 * Creates the index for the given rules. Only {@link CSSRule#STYLE_RULE}s
+	 * implementing {@link ExtendedCSSRule} are indexed.
+	 */
+	StyleRuleIndex(List<CSSRule> rules) {
+		int order = 0;
+		for (CSSRule rule : rules) {
+			if (rule.getType() != CSSRule.STYLE_RULE || (!(rule instanceof ExtendedCSSRule))) {
+				continue;
+			}
+			CSSStyleDeclaration style = ((CSSStyleRule) rule).getStyle();
+			SelectorList selectorList = ((ExtendedCSSRule) rule).getSelectorList();
+			int l = selectorList.getLength();
+			for (int j = 0; j < l; j++) {
+				Selector selector = selectorList.item(j);
+				if (selector instanceof ExtendedSelector) {
+					add(new Entry((ExtendedSelector) selector, style, order++));
+				}
+			}
+		}
+	}
+
+	private void add(Entry entry) {
+		Selector subject = getSubject(entry.selector);
+		if (subject instanceof CSSConditionalSelectorImpl) {
+			CSSConditionalSelectorImpl conditional = (CSSConditionalSelectorImpl) subject;
+			String id = findConditionValue(conditional.getCondition(), CSSIdConditionImpl.class);
+			if (id != null) {
+				addTo(idEntries, id, entry);
+				return;
+			}
+			String cssClass = findConditionValue(conditional.getCondition(), CSSClassConditionImpl.class);
+			if (cssClass != null) {
+				addTo(classEntries, cssClass, entry);
+				return;
+			}
+			subject = conditional.getSimpleSelector();
+		}
+		if (subject instanceof CSSElementSelectorImpl) {
+			String name = ((CSSElementSelectorImpl) subject).getLocalName();
+			if (name != null) {
+				addTo(elementEntries, name, entry);
+				return;
+			}
+		}
+		universalEntries.add(entry);
+	}
+
+	private static void addTo(Map<String, List<Entry>> bucket, String key, Entry entry) {
+		bucket.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+	}
+
+	/**
+	 * Returns the simple selector which has to match the element itself.
+	 */
+	private static Selector getSubject(Selector selector) {
+		Selector subject = selector;
+		while (true) {
+			if (subject instanceof AbstractDescendantSelector) {
+				subject = ((AbstractDescendantSelector) subject).getSimpleSelector();
+			} else if (subject instanceof AbstractSiblingSelector) {
+				subject = ((AbstractSiblingSelector) subject).getSiblingSelector();
+			} else {
+				return subject;
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of a condition of the given type which must hold for
+	 * the whole condition to hold, or <code>null</code> if there is none.
+	 */
+	private static String findConditionValue(Condition condition, Class<? extends Condition> type) {
+		if (type.isInstance(condition)) {
+			return ((AttributeCondition) condition).getValue();
+		}
+		if (condition instanceof CSSAndConditionImpl) {
+			CSSAndConditionImpl and = (CSSAndConditionImpl) condition;
+			String value = findConditionValue(and.getFirstCondition(), type);
+			return value != null ? value : findConditionValue(and.getSecondCondition(), type);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the entries whose selectors can possibly match the given element,
+	 * in source order. The selectors still have to be matched against the
+	 * element by the caller.
+	 */
+	List<Entry> getCandidates(Element elt) {
+		List<List<Entry>> buckets = new ArrayList<>(4);
+		if (!universalEntries.isEmpty()) {
+			buckets.add(universalEntries);
+		}
+		String name = elt.getPrefix() == null ? elt.getNodeName() : elt.getLocalName();
+		addBucket(buckets, elementEntries, name);
+
+		String id;
+		String cssClass;
+		if (elt instanceof CSSStylableElement) {
+			id = ((CSSStylableElement) elt).getCSSId();
+			cssClass = ((CSSStylableElement) elt).getCSSClass();
+		} else {
+			id = elt.getAttribute("id");
+			cssClass = elt.getAttribute("class");
+		}
+		addBucket(buckets, idEntries, id);
+		if (cssClass != null && !classEntries.isEmpty()) {
+			int length = cssClass.length();
+			int start = 0;
+			while (start < length) {
+				while (start < length && Character.isSpaceChar(cssClass.charAt(start))) {
+					start++;
+				}
+				int end = start;
+				while (end < length && !Character.isSpaceChar(cssClass.charAt(end))) {
+					end++;
+				}
+				if (end > start) {
+					List<Entry> bucket = classEntries.get(cssClass.substring(start, end));
+					// the same class may be listed more than once
+					if (bucket != null && !containsBucket(buckets, bucket)) {
+						buckets.add(bucket);
+					}
+				}
+				start = end;
+			}
+		}
+		return merge(buckets);
+	}
+
+	private static void addBucket(List<List<Entry>> buckets, Map<String, List<Entry>> entries, String key) {
+		if (key != null) {
+			List<Entry> bucket = entries.get(key);
+			if (bucket != null) {
+				buckets.add(bucket);
+			}
+		}
+	}
+
+	private static boolean containsBucket(List<List<Entry>> buckets, List<Entry> bucket) {
+		for (List<Entry> b : buckets) {
+			if (b == bucket) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<Entry> merge(List<List<Entry>> buckets) {
+		switch (buckets.size()) {
+		case 0:
+			return Collections.emptyList();
+		case 1:
+			return buckets.get(0);
+		default:
+			int size = 0;
+			for (List<Entry> bucket : buckets) {
+				size += bucket.size();
+			}
+			List<Entry> result = new ArrayList<>(size);
+			for (List<Entry> bucket : buckets) {
+				result.addAll(bucket);
+			}
+			// each bucket is already in source order and a selector is
+			// never in two buckets
+			result.sort((e1, e2) -> Integer.compare(e1.order, e2.order));
+			return result;
+		}
+	}
+}
@@ -47,6 +47,8 @@ public class ViewCSSImpl implements ViewCSS, ExtendedDocumentCSS.StyleSheetChang
 	private boolean ruleCachingEnabled;
 	/** Cached state of combined CSS rules for the current stylesheets */
 	private List<CSSRule> currentCombinedRules;
+	/** Index of the selectors of {@link #currentCombinedRules} */
+	private StyleRuleIndex currentRuleIndex;
 
 	/**
 	 * Creates a new ViewCSS.
@@ -73,9 +75,25 @@ public class ViewCSSImpl implements ViewCSS, ExtendedDocumentCSS.StyleSheetChang
 	 */
 	@Override
 	public CSSStyleDeclaration getComputedStyle(Element elt, String pseudoElt) {
+		if (this.ruleCachingEnabled) {
+			return getComputedStyle(getRuleIndex(), elt, pseudoElt);
+		}
 		return getComputedStyle(getCombinedRules(), elt, pseudoElt);
 	}
 
+	/**
+	 * Retrieves the index of the combined CSS rules for all current stylesheets.
+	 * The index is built on first use after a stylesheet was added or removed.
+	 *
+	 * @return index of the CSS rules for all style sheets
+	 */
+	private StyleRuleIndex getRuleIndex() {
+		if (this.currentRuleIndex == null) {
+			this.currentRuleIndex = new StyleRuleIndex(getCombinedRules());
+		}
+		return this.currentRuleIndex;
+	}
+
 	/**
 	 * Retrieves the combined list of CSS rules for all current stylesheets. This
 	 * method returns a cached state when the stylesheets are the same as on its
@@ -111,17 +129,61 @@ public class ViewCSSImpl implements ViewCSS, ExtendedDocumentCSS.StyleSheetChang
 		return cssRules;
 	}
 
-	private CSSStyleDeclaration getComputedStyle(List<CSSRule> ruleList, Element elt, String pseudoElt) {
-		Node parent = elt.getParentNode();
+	/**
+	 * Computes the style of the element by matching only the selectors of the
+	 * index buckets the element falls into. The candidates are returned in source
+	 * order, so positions are assigned exactly as by the linear scan in
+	 * {@link #getComputedStyle(List, Element, String)}.
+	 */
+	private CSSStyleDeclaration getComputedStyle(StyleRuleIndex ruleIndex, Element elt, String pseudoElt) {
+		List<StyleRuleIndex.Entry> candidates = ruleIndex.getCandidates(elt);
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		Node[] hierarchy = getHierarchy(elt);
 
-		Node[] hierarchy = null;
-		if (parent != null) {
-			List<Node> hierarchyList = new ArrayList<>();
-			for (Node n = parent; n != null; n = n.getParentNode()) {
-				hierarchyList.add(n);
+		List<StyleWrapper> styleDeclarations = null;
+		StyleWrapper firstStyleDeclaration = null;
+		int position = 0;
+		for (StyleRuleIndex.Entry candidate : candidates) {
+			ExtendedSelector extendedSelector = candidate.selector;
+			if (extendedSelector.match(elt, hierarchy, 0, pseudoElt)) {
+				int specificity = extendedSelector.getSpecificity();
+				StyleWrapper wrapper = new StyleWrapper(candidate.style, specificity, position++);
+				if (firstStyleDeclaration == null) {
+					firstStyleDeclaration = wrapper;
+				} else {
+					if (styleDeclarations == null) {
+						styleDeclarations = new ArrayList<>();
+						styleDeclarations.add(firstStyleDeclaration);
+					}
+					styleDeclarations.add(wrapper);
+				}
 			}
-			hierarchy = hierarchyList.toArray(new Node[hierarchyList.size()]);
 		}
+		if (styleDeclarations != null) {
+			return new CSSComputedStyleImpl(styleDeclarations);
+		}
+		if (firstStyleDeclaration != null) {
+			return firstStyleDeclaration.style;
+		}
+		return null;
+	}
+
+	private static Node[] getHierarchy(Element elt) {
+		Node parent = elt.getParentNode();
+		if (parent == null) {
+			return null;
+		}
+		List<Node> hierarchyList = new ArrayList<>();
+		for (Node n = parent; n != null; n = n.getParentNode()) {
+			hierarchyList.add(n);
+		}
+		return hierarchyList.toArray(new Node[hierarchyList.size()]);
+	}
+
+	private CSSStyleDeclaration getComputedStyle(List<CSSRule> ruleList, Element elt, String pseudoElt) {
+		Node[] hierarchy = getHierarchy(elt);
 
 		List<StyleWrapper> styleDeclarations = null;
 		StyleWrapper firstStyleDeclaration = null;
@@ -172,10 +234,12 @@ public class ViewCSSImpl implements ViewCSS, ExtendedDocumentCSS.StyleSheetChang
 	@Override
 	public void styleSheetAdded(StyleSheet styleSheet) {
 		currentCombinedRules = null;
+		currentRuleIndex = null;
 	}
 
 	@Override
 	public void styleSheetRemoved(StyleSheet styleSheet) {
 		currentCombinedRules = null;
+		currentRuleIndex = null;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2020 Angelo Zerr and others.
+ * Copyright (c) 2008, 2022 Angelo Zerr and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import org.eclipse.core.runtime.FileLocator;
@@ -106,6 +107,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 */
 	private static final String ARCHIVE_IDENTIFIER = "!";
 
+	private static final String INHERIT = "inherit";
+
 	/**
 	 * Default {@link IResourcesLocatorManager} used to get InputStream, Reader
 	 * resource like Image.
@@ -122,6 +125,12 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 */
 	private ViewCSS viewCSS;
 
+	/**
+	 * Cache of the styles computed by {@link #viewCSS}, shared by all elements
+	 * with the same style signature.
+	 */
+	private ComputedStyleCache computedStyleCache;
+
 	/**
 	 * {@link IElementProvider} used to retrieve w3c Element linked to the
 	 * widget.
@@ -158,6 +167,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 
 	private ResourceRegistryKeyFactory keyFactory;
 
+	private StyleSheetCache styleSheetCache;
+
 	public AbstractCSSEngine() {
 		this(new DocumentCSSImpl());
 	}
@@ -165,6 +176,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public AbstractCSSEngine(ExtendedDocumentCSS documentCSS) {
 		this.documentCSS = documentCSS;
 		this.viewCSS = new ViewCSSImpl(documentCSS);
+		this.computedStyleCache = new ComputedStyleCache(documentCSS, viewCSS);
 		keyFactory = new ResourceRegistryKeyFactory();
 	}
 
@@ -189,7 +201,12 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		// Check that CharacterStream or ByteStream is not null
 		checkInputSource(source);
 		CSSParser parser = makeCSSParser();
-		CSSStyleSheet styleSheet = parser.parseStyleSheet(source);
+		CSSStyleSheet styleSheet;
+		if (styleSheetCache != null && source.getCharacterStream() == null && source.getURI() != null) {
+			styleSheet = styleSheetCache.parseStyleSheet(parser, source);
+		} else {
+			styleSheet = parser.parseStyleSheet(source);
+		}
 
 		CSSRuleList rules = styleSheet.getCssRules();
 		int length = rules.getLength();
@@ -252,6 +269,24 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		return s;
 	}
 
+	/**
+	 * Sets the cache used to avoid parsing unchanged style sheets again, or
+	 * <code>null</code> to always parse them. Only style sheets read from a
+	 * byte stream with a known URI are cached.
+	 *
+	 * @since 0.14
+	 */
+	public void setStyleSheetCache(StyleSheetCache styleSheetCache) {
+		this.styleSheetCache = styleSheetCache;
+	}
+
+	/**
+	 * @since 0.14
+	 */
+	public StyleSheetCache getStyleSheetCache() {
+		return styleSheetCache;
+	}
+
 	private void processNodeList(NodeList nodes, BiConsumer<Node, Boolean> consumer, boolean applyStylesToChildNodes) {
 		if (nodes instanceof IStreamingNodeList) {
 			((IStreamingNodeList) nodes).stream().forEach(child -> {
@@ -380,11 +415,13 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		if (elt == null || !isVisible(elt)) {
 			return;
 		}
+		// the values applied by the last incremental restyle are replaced
+		forgetAppliedStyles(element);
 
 		/*
 		 * Compute new Style to apply.
 		 */
-		CSSStyleDeclaration style = viewCSS.getComputedStyle(elt, null);
+		CSSStyleDeclaration style = computedStyleCache.getComputedStyle(elt, null);
 		if (computeDefaultStyle) {
 			if (applyStylesToChildNodes) {
 				this.computeDefaultStyle = computeDefaultStyle;
@@ -403,7 +440,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 			// there are static pseudo instances defined, loop for it and
 			// apply styles for each pseudo instance.
 			for (String pseudoInstance : pseudoInstances) {
-				CSSStyleDeclaration styleWithPseudoInstance = viewCSS.getComputedStyle(elt, pseudoInstance);
+				CSSStyleDeclaration styleWithPseudoInstance = computedStyleCache.getComputedStyle(elt,
+						pseudoInstance);
 				if (computeDefaultStyle) {
 					/*
 					 * Apply default style for the current pseudo instance.
@@ -474,7 +512,161 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		return true;
 	}
 
-	private void applyConditionalPseudoStyle(ExtendedCSSRule parentRule, String pseudoInstance, Object element, CSSStyleDeclaration styleWithPseudoInstance) {
+	@Override
+	public void applyChangedStyles(Object element) {
+		if (computeDefaultStyle) {
+			// default styles are computed from the complete new style
+			applyStyles(element, true);
+			return;
+		}
+		Element elt = getElement(element);
+		if (elt == null || !isVisible(elt)) {
+			return;
+		}
+
+		CSSElementContext elementContext = getCSSElementContext(element);
+		AppliedStyles appliedStyles = elementContext != null
+				? (AppliedStyles) elementContext.getData(AppliedStyles.class)
+				: null;
+		if (appliedStyles == null || appliedStyles.element != elt) {
+			appliedStyles = new AppliedStyles(elt);
+			if (elementContext != null) {
+				elementContext.setData(AppliedStyles.class, appliedStyles);
+			}
+		}
+
+		String inlineStyle = elt instanceof CSSStylableElement ? ((CSSStylableElement) elt).getCSSStyle() : null;
+		boolean changed = !Objects.equals(inlineStyle, appliedStyles.inlineStyle);
+		if (changed) {
+			// properties of the previous inline style have to be overridden again
+			appliedStyles.clear();
+			appliedStyles.inlineStyle = inlineStyle;
+		}
+
+		String[] pseudoInstances = getStaticPseudoInstances(elt);
+		if (pseudoInstances != null) {
+			for (String pseudoInstance : pseudoInstances) {
+				CSSStyleDeclaration styleWithPseudoInstance = computedStyleCache.getComputedStyle(elt,
+						pseudoInstance);
+				Set<String> changedProperties = appliedStyles.update(pseudoInstance, styleWithPseudoInstance);
+				if (!changedProperties.isEmpty()) {
+					changed = true;
+					CSSRule parentRule = styleWithPseudoInstance.getParentRule();
+					if (parentRule instanceof ExtendedCSSRule) {
+						applyConditionalPseudoStyle((ExtendedCSSRule) parentRule, pseudoInstance, element,
+								styleWithPseudoInstance, changedProperties);
+					} else {
+						applyStyleDeclaration(elt, styleWithPseudoInstance, pseudoInstance, changedProperties);
+					}
+				}
+			}
+		}
+
+		CSSStyleDeclaration style = computedStyleCache.getComputedStyle(elt, null);
+		Set<String> changedProperties = appliedStyles.update(null, style);
+		if (!changedProperties.isEmpty()) {
+			changed = true;
+			applyStyleDeclaration(elt, style, null, changedProperties);
+		}
+
+		// the inline style overrides the properties which were just applied
+		if (changed && elt instanceof CSSStylableElement && inlineStyle != null && !inlineStyle.isEmpty()) {
+			try {
+				applyStyleDeclaration(((CSSStylableElement) elt).getNativeWidget(),
+						parseStyleDeclaration(inlineStyle), null, null);
+			} catch (Exception e) {
+				handleExceptions(e);
+			}
+		}
+
+		NodeList nodes = elt instanceof ChildVisibilityAwareElement
+				? ((ChildVisibilityAwareElement) elt).getVisibleChildNodes()
+				: elt.getChildNodes();
+		if (nodes != null) {
+			processNodeList(nodes, (node, applyStylesToChildNodes) -> applyChangedStyles(node), true);
+			onStylesAppliedToChildNodes(elt, nodes);
+		}
+	}
+
+	/**
+	 * Forgets the values applied by {@link #applyChangedStyles(Object)} after
+	 * styles were applied to the element in another way, so that the next
+	 * incremental restyle applies all properties again.
+	 */
+	private void forgetAppliedStyles(Object element) {
+		CSSElementContext elementContext = getCSSElementContext(element);
+		if (elementContext != null && elementContext.getData(AppliedStyles.class) != null) {
+			elementContext.setData(AppliedStyles.class, null);
+		}
+	}
+
+	/**
+	 * The CSS property values last applied to an element by
+	 * {@link AbstractCSSEngine#applyChangedStyles(Object)}, stored into the
+	 * {@link CSSElementContext} of the element.
+	 */
+	private static final class AppliedStyles {
+
+		final Element element;
+
+		/** key = pseudo instance or <code>null</code>, value = applied style */
+		private final Map<String, CSSStyleDeclaration> styles = new HashMap<>(2);
+
+		/** key = pseudo instance or <code>null</code>, value = property to CSS text */
+		private final Map<String, Map<String, String>> values = new HashMap<>(2);
+
+		String inlineStyle;
+
+		AppliedStyles(Element element) {
+			this.element = element;
+		}
+
+		void clear() {
+			styles.clear();
+			values.clear();
+		}
+
+		/**
+		 * Records the new style of the element and returns the properties whose
+		 * values differ from the previously applied ones.
+		 */
+		Set<String> update(String pseudo, CSSStyleDeclaration style) {
+			CSSStyleDeclaration oldStyle = styles.put(pseudo, style);
+			if (style == null) {
+				// properties which are not set anymore are not reset
+				values.remove(pseudo);
+				return Collections.emptySet();
+			}
+			Map<String, String> oldValues = values.get(pseudo);
+			if (style == oldStyle && oldValues != null && !oldValues.containsValue(INHERIT)) {
+				// computed styles are shared while the style sheets do not change
+				return Collections.emptySet();
+			}
+			Map<String, String> newValues = new HashMap<>();
+			Set<String> changedProperties = new HashSet<>();
+			for (int i = 0; i < style.getLength(); i++) {
+				String property = style.item(i);
+				CSSValue value = style.getPropertyCSSValue(property);
+				String cssText = value != null ? value.getCssText() : null;
+				newValues.put(property, cssText);
+				// inherited values depend on the parent and are always applied again
+				if (oldValues == null || INHERIT.equals(cssText) || !oldValues.containsKey(property)
+						|| !Objects.equals(oldValues.get(property), cssText)) {
+					changedProperties.add(property);
+				}
+			}
+			values.put(pseudo, newValues);
+			return changedProperties;
+		}
+	}
+
+	private void applyConditionalPseudoStyle(ExtendedCSSRule parentRule, String pseudoInstance, Object element,
+			CSSStyleDeclaration styleWithPseudoInstance) {
+		applyConditionalPseudoStyle(parentRule, pseudoInstance, element, styleWithPseudoInstance, null);
+	}
+
+	private void applyConditionalPseudoStyle(ExtendedCSSRule parentRule, String pseudoInstance, Object element,
+			CSSStyleDeclaration styleWithPseudoInstance, Set<String> properties) {
 		SelectorList selectorList = parentRule.getSelectorList();
 		for (int j = 0; j < selectorList.getLength(); j++) {
 			Selector item = selectorList.item(j);
@@ -506,7 +698,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 					String value = attr.getValue();
 					if (value.equals(pseudoInstance)) {
 						// if we match the pseudo, apply the style
-						applyStyleDeclaration(element, styleWithPseudoInstance, pseudoInstance);
+						applyStyleDeclaration(element, styleWithPseudoInstance, pseudoInstance, properties);
 						return;
 					}
 				}
@@ -539,6 +731,16 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 
 	@Override
 	public void applyStyleDeclaration(Object element, CSSStyleDeclaration style, String pseudo) {
+		forgetAppliedStyles(element);
+		applyStyleDeclaration(element, style, pseudo, null);
+	}
+
+	/**
+	 * Applies the properties of the style declaration, or only the given subset
+	 * of them if <code>properties</code> is not <code>null</code>.
+	 */
+	private void applyStyleDeclaration(Object element, CSSStyleDeclaration style, String pseudo,
+			Set<String> properties) {
 		// Apply style
 		boolean avoidanceCacheInstalled = currentCSSPropertiesApplied == null;
 		if (avoidanceCacheInstalled) {
@@ -547,6 +749,9 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		List<ICSSPropertyHandler2> handlers2 = Collections.emptyList();
 		for (int i = 0; i < style.getLength(); i++) {
 			String property = style.item(i);
+			if (properties != null && !properties.contains(property)) {
+				continue;
+			}
 			CSSValue value = style.getPropertyCSSValue(property);
 			try {
 				ICSSPropertyHandler handler = this.applyCSSProperty(element, property, value, pseudo);
@@ -725,7 +930,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		}
 
 		element = getElement(element); // in case we're passed a node
-		if ("inherit".equals(value.getCssText())) {
+		if (INHERIT.equals(value.getCssText())) {
 			// go to parent node
 			Element actualElement = (Element) element;
 			Node parentNode = actualElement.getParentNode();
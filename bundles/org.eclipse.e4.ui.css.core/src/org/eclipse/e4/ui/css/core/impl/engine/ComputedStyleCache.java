@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.dom.ExtendedDocumentCSS;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSPseudoClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedCondition;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.ViewCSS;
+import org.w3c.dom.stylesheets.StyleSheet;
+import org.w3c.dom.stylesheets.StyleSheetList;
+
+/**
+ * Memoizes the {@link CSSStyleDeclaration}s computed by a {@link ViewCSS} per
+ * element style signature.
+ * <p>
+ * The signature of an element consists of everything the selectors of the
+ * current style sheets can look at: the element name, CSS id and CSS class,
+ * the values of the attributes and the state of the pseudo classes used in any
+ * selector, for the element and each of its ancestors, plus the requested
+ * pseudo element. Elements sharing the same signature are matched by the same
+ * rules, so the cascade only has to be computed once for all of them.
+ * </p>
+ * <p>
+ * The cache is cleared whenever a style sheet is added to or removed from the
+ * document. If the style sheets contain selectors which depend on anything
+ * else, e.g. sibling selectors, caching is disabled until the style sheets
+ * change.
+ * </p>
+ */
+public final class ComputedStyleCache implements ExtendedDocumentCSS.StyleSheetChangeListener {
+
+	/**
+	 * Maximum number of cached signatures, the least recently used signature is
+	 * evicted beyond that.
+	 */
+	static final int MAX_SIZE = 4096;
+
+	/** Marker for a cached signature for which no rule matched */
+	private static final Object NO_STYLE = new Object();
+
+	private final ExtendedDocumentCSS documentCSS;
+
+	private final ViewCSS viewCSS;
+
+	private final Map<List<Object>, Object> styles = new LinkedHashMap<List<Object>, Object>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	/** Whether the selector usage was analyzed for the current style sheets */
+	private boolean analyzed;
+
+	/** Whether the current style sheets only use selectors covered by the signature */
+	private boolean cacheable;
+
+	/** Attribute names used by attribute conditions of the current style sheets */
+	private String[] attributes;
+
+	/** Pseudo classes used by the current style sheets */
+	private String[] pseudoClasses;
+
+	/**
+	 * Creates a cache of the styles computed by the given view, which is
+	 * cleared when the style sheets of the given document change.
+	 */
+	public ComputedStyleCache(ExtendedDocumentCSS documentCSS, ViewCSS viewCSS) {
+		this.documentCSS = documentCSS;
+		this.viewCSS = viewCSS;
+		documentCSS.addStyleSheetChangeListener(this);
+	}
+
+	/**
+	 * Returns the computed style of the given element, from the cache if an
+	 * element with the same signature was computed before.
+	 */
+	public CSSStyleDeclaration getComputedStyle(Element elt, String pseudoElt) {
+		if (!analyzed) {
+			analyze();
+		}
+		if (!cacheable) {
+			return viewCSS.getComputedStyle(elt, pseudoElt);
+		}
+		List<Object> signature = computeSignature(elt, pseudoElt);
+		Object style = styles.get(signature);
+		if (style == null) {
+			style = viewCSS.getComputedStyle(elt, pseudoElt);
+			styles.put(signature, style == null ? NO_STYLE : style);
+		}
+		return style == NO_STYLE ? null : (CSSStyleDeclaration) style;
+	}
+
+	/**
+	 * Returns the number of cached signatures.
+	 */
+	public int size() {
+		return styles.size();
+	}
+
+	void clear() {
+		styles.clear();
+		analyzed = false;
+		attributes = null;
+		pseudoClasses = null;
+	}
+
+	private List<Object> computeSignature(Element elt, String pseudoElt) {
+		List<Object> signature = new ArrayList<>();
+		signature.add(pseudoElt);
+		addElementSignature(signature, elt);
+		for (Node n = elt.getParentNode(); n != null; n = n.getParentNode()) {
+			if (n.getNodeType() == Node.ELEMENT_NODE) {
+				addElementSignature(signature, (Element) n);
+			} else {
+				signature.add(Short.valueOf(n.getNodeType()));
+			}
+		}
+		return signature;
+	}
+
+	private void addElementSignature(List<Object> signature, Element elt) {
+		signature.add(elt.getNodeName());
+		signature.add(elt.getLocalName());
+		signature.add(elt.getNamespaceURI());
+		if (elt instanceof CSSStylableElement) {
+			CSSStylableElement stylableElement = (CSSStylableElement) elt;
+			signature.add(stylableElement.getCSSId());
+			signature.add(stylableElement.getCSSClass());
+			for (String pseudoClass : pseudoClasses) {
+				int state = 0;
+				if (stylableElement.isPseudoInstanceOf(pseudoClass)) {
+					state = stylableElement.isStaticPseudoInstance(pseudoClass) ? 2 : 1;
+				}
+				signature.add(Integer.valueOf(state));
+			}
+		} else {
+			signature.add(elt.getAttribute("id"));
+			signature.add(elt.getAttribute("class"));
+		}
+		for (String attribute : attributes) {
+			signature.add(elt.hasAttribute(attribute) ? elt.getAttribute(attribute) : null);
+		}
+	}
+
+	private void analyze() {
+		Set<String> attributeSet = new LinkedHashSet<>();
+		Set<String> pseudoClassSet = new LinkedHashSet<>();
+		boolean supported = true;
+		StyleSheetList styleSheetList = documentCSS.getStyleSheets();
+		int l = styleSheetList.getLength();
+		for (int i = 0; i < l && supported; i++) {
+			CSSRuleList rules = ((CSSStyleSheet) styleSheetList.item(i)).getCssRules();
+			int rulesSize = rules.getLength();
+			for (int j = 0; j < rulesSize && supported; j++) {
+				CSSRule rule = rules.item(j);
+				if (rule.getType() != CSSRule.STYLE_RULE || !(rule instanceof ExtendedCSSRule)) {
+					continue;
+				}
+				SelectorList selectorList = ((ExtendedCSSRule) rule).getSelectorList();
+				for (int k = 0; k < selectorList.getLength() && supported; k++) {
+					supported = collect(selectorList.item(k), attributeSet, pseudoClassSet);
+				}
+			}
+		}
+		attributes = attributeSet.toArray(new String[attributeSet.size()]);
+		pseudoClasses = pseudoClassSet.toArray(new String[pseudoClassSet.size()]);
+		cacheable = supported;
+		analyzed = true;
+	}
+
+	/**
+	 * Collects the attributes and pseudo classes the selector depends on.
+	 *
+	 * @return <code>false</code> if the selector depends on something which is
+	 *         not part of the element signature
+	 */
+	private static boolean collect(Selector selector, Set<String> attributeSet, Set<String> pseudoClassSet) {
+		if (selector instanceof ConditionalSelector) {
+			ConditionalSelector conditional = (ConditionalSelector) selector;
+			return collect(conditional.getSimpleSelector(), attributeSet, pseudoClassSet)
+					&& collect(conditional.getCondition(), attributeSet, pseudoClassSet);
+		}
+		if (selector instanceof DescendantSelector) {
+			DescendantSelector descendant = (DescendantSelector) selector;
+			return collect(descendant.getAncestorSelector(), attributeSet, pseudoClassSet)
+					&& collect(descendant.getSimpleSelector(), attributeSet, pseudoClassSet);
+		}
+		// sibling selectors depend on the siblings of the element
+		return selector instanceof ElementSelector;
+	}
+
+	private static boolean collect(Condition condition, Set<String> attributeSet, Set<String> pseudoClassSet) {
+		if (condition instanceof CombinatorCondition) {
+			CombinatorCondition combinator = (CombinatorCondition) condition;
+			return collect(combinator.getFirstCondition(), attributeSet, pseudoClassSet)
+					&& collect(combinator.getSecondCondition(), attributeSet, pseudoClassSet);
+		}
+		if (condition instanceof CSSPseudoClassConditionImpl) {
+			pseudoClassSet.add(((CSSPseudoClassConditionImpl) condition).getValue());
+			return true;
+		}
+		if (condition instanceof CSSClassConditionImpl || condition instanceof CSSIdConditionImpl) {
+			// part of every element signature
+			return true;
+		}
+		if (condition instanceof ExtendedCondition) {
+			((ExtendedCondition) condition).fillAttributeSet(attributeSet);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void styleSheetAdded(StyleSheet styleSheet) {
+		clear();
+	}
+
+	@Override
+	public void styleSheetRemoved(StyleSheet styleSheet) {
+		clear();
+	}
+}
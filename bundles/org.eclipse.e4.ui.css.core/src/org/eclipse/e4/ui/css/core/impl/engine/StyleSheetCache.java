@@ -0,0 +1,780 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.eclipse.e4.ui.css.core.dom.CSSProperty;
+import org.eclipse.e4.ui.css.core.dom.CSSPropertyList;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.dom.parsers.CSSParser;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSImportRuleImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSPropertyImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleDeclarationImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleRuleImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleSheetImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSValueFactory;
+import org.eclipse.e4.ui.css.core.impl.dom.MediaListImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.parsers.AbstractCSSParser;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSDocumentHandlerImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.DocumentHandlerFactoryImpl;
+import org.eclipse.e4.ui.css.core.sac.DocumentHandlerFactory;
+import org.eclipse.e4.ui.css.core.sac.ExtendedDocumentHandler;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionFactory;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.InputSource;
+import org.w3c.css.sac.LangCondition;
+import org.w3c.css.sac.LexicalUnit;
+import org.w3c.css.sac.SACMediaList;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorFactory;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.css.sac.SiblingSelector;
+import org.w3c.css.sac.SimpleSelector;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.stylesheets.MediaList;
+
+/**
+ * A persistent cache of parsed style sheets.
+ * <p>
+ * For every style sheet URI a file is kept in the cache directory holding the
+ * rules of the style sheet in a compact binary form: the selectors as SAC
+ * selector and condition trees and the property values as SAC lexical unit
+ * chains. On a cache hit the rules are rebuilt with the selector and condition
+ * factories of the parser, without running the CSS lexer and parser.
+ * </p>
+ * <p>
+ * An entry is only used if the length and the CRC32 checksum of the style
+ * sheet content match the cached ones, so edited or replaced style sheets are
+ * parsed again. <code>@import</code> rules are cached as such and resolved by
+ * the engine as before, so every imported style sheet has its own entry.
+ * </p>
+ * <p>
+ * Style sheets containing constructs which cannot be cached, e.g.
+ * <code>@page</code> rules, are simply parsed every time. The cache is best
+ * effort: any I/O error falls back to parsing the style sheet.
+ * </p>
+ *
+ * @since 0.14
+ */
+public final class StyleSheetCache {
+
+	/** Version of the file format, must be increased on any change */
+	private static final int FORMAT_VERSION = 1;
+
+	private static final String FILE_EXTENSION = ".csscache";
+
+	private static final byte IMPORT_RULE = 1;
+	private static final byte STYLE_RULE = 2;
+
+	private static final byte CLASS_CONDITION = -1;
+
+	private final File directory;
+
+	/**
+	 * Creates a cache storing its entries in the given directory. The
+	 * directory is created on the first write if it does not exist.
+	 */
+	public StyleSheetCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Parses the style sheet read from the byte stream of the given source,
+	 * from the cache if possible. The byte stream is read but not closed.
+	 */
+	CSSStyleSheet parseStyleSheet(CSSParser parser, InputSource source) throws IOException {
+		if (!isSupported(parser)) {
+			return parser.parseStyleSheet(source);
+		}
+		String uri = source.getURI();
+		byte[] content = source.getByteStream().readAllBytes();
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		long checksum = crc.getValue();
+
+		File file = getFile(uri);
+		CSSStyleSheet styleSheet = read(file, uri, checksum, content.length, parser);
+		if (styleSheet != null) {
+			return styleSheet;
+		}
+
+		InputSource contentSource = new InputSource();
+		contentSource.setURI(uri);
+		contentSource.setEncoding(source.getEncoding());
+		contentSource.setByteStream(new ByteArrayInputStream(content));
+		Map<CSSProperty, LexicalUnit> lexicalUnits = new IdentityHashMap<>();
+		parser.setDocumentHandlerFactory(new DocumentHandlerFactory() {
+			@Override
+			public ExtendedDocumentHandler makeDocumentHandler() {
+				return new CSSDocumentHandlerImpl() {
+					@Override
+					protected CSSProperty getCSSProperty(CSSStyleDeclaration styleDeclaration, String name,
+							LexicalUnit value, boolean important) {
+						CSSProperty property = super.getCSSProperty(styleDeclaration, name, value, important);
+						lexicalUnits.put(property, value);
+						return property;
+					}
+				};
+			}
+		});
+		styleSheet = parser.parseStyleSheet(contentSource);
+		write(file, uri, checksum, content.length, styleSheet, lexicalUnits);
+		return styleSheet;
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public void clear() {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Only parsers creating the default DOM and offering their SAC factories
+	 * can be served from the cache.
+	 */
+	private static boolean isSupported(CSSParser parser) {
+		return parser instanceof AbstractCSSParser
+				&& ((AbstractCSSParser) parser).getDocumentHandlerFactory().getClass() == DocumentHandlerFactoryImpl.class
+				&& parser.getSelectorFactory() != null && parser.getConditionFactory() != null;
+	}
+
+	File getFile(String uri) {
+		CRC32 crc = new CRC32();
+		crc.update(uri.getBytes(StandardCharsets.UTF_8));
+		return new File(directory, Long.toHexString(crc.getValue()) + FILE_EXTENSION);
+	}
+
+	/*--------------- Read -----------------*/
+
+	private static CSSStyleSheet read(File file, String uri, long checksum, int length, CSSParser parser) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+			if (in.readInt() != FORMAT_VERSION || !uri.equals(in.readUTF()) || in.readLong() != checksum
+					|| in.readInt() != length) {
+				return null;
+			}
+			return new Reader(in, parser.getSelectorFactory(), parser.getConditionFactory()).readStyleSheet();
+		} catch (IOException | RuntimeException e) {
+			// corrupt or outdated entry, parse again
+			return null;
+		}
+	}
+
+	private static final class Reader {
+		private final DataInputStream in;
+		private final SelectorFactory selectorFactory;
+		private final ConditionFactory conditionFactory;
+
+		Reader(DataInputStream in, SelectorFactory selectorFactory, ConditionFactory conditionFactory) {
+			this.in = in;
+			this.selectorFactory = selectorFactory;
+			this.conditionFactory = conditionFactory;
+		}
+
+		CSSStyleSheet readStyleSheet() throws IOException {
+			CSSStyleSheetImpl styleSheet = new CSSStyleSheetImpl();
+			CSSRuleListImpl rules = new CSSRuleListImpl();
+			styleSheet.setRuleList(rules);
+			int ruleCount = in.readInt();
+			for (int i = 0; i < ruleCount; i++) {
+				byte type = in.readByte();
+				switch (type) {
+				case IMPORT_RULE:
+					String href = readString();
+					String[] media = new String[in.readInt()];
+					for (int j = 0; j < media.length; j++) {
+						media[j] = readString();
+					}
+					rules.add(new CSSImportRuleImpl(styleSheet, null, href, new MediaListImpl(new MediaArray(media))));
+					break;
+				case STYLE_RULE:
+					Selector[] selectors = new Selector[in.readInt()];
+					for (int j = 0; j < selectors.length; j++) {
+						selectors[j] = readSelector();
+					}
+					CSSStyleRuleImpl rule = new CSSStyleRuleImpl(styleSheet, null, new SelectorArray(selectors));
+					CSSStyleDeclarationImpl declaration = new CSSStyleDeclarationImpl(rule);
+					int propertyCount = in.readInt();
+					for (int j = 0; j < propertyCount; j++) {
+						String name = readString();
+						boolean important = in.readBoolean();
+						LexicalUnit value = readLexicalUnits();
+						declaration.addProperty(new CSSPropertyImpl(name, CSSValueFactory.newValue(value), important));
+					}
+					rule.setStyle(declaration);
+					rules.add(rule);
+					break;
+				default:
+					throw new IOException("Unknown rule type " + type); //$NON-NLS-1$
+				}
+			}
+			return styleSheet;
+		}
+
+		private Selector readSelector() throws IOException {
+			short type = in.readShort();
+			switch (type) {
+			case Selector.SAC_ELEMENT_NODE_SELECTOR:
+				return selectorFactory.createElementSelector(readString(), readString());
+			case Selector.SAC_PSEUDO_ELEMENT_SELECTOR:
+				return selectorFactory.createPseudoElementSelector(readString(), readString());
+			case Selector.SAC_CONDITIONAL_SELECTOR:
+				SimpleSelector simple = (SimpleSelector) readSelector();
+				return selectorFactory.createConditionalSelector(simple, readCondition());
+			case Selector.SAC_DESCENDANT_SELECTOR:
+				Selector ancestor = readSelector();
+				return selectorFactory.createDescendantSelector(ancestor, (SimpleSelector) readSelector());
+			case Selector.SAC_CHILD_SELECTOR:
+				Selector parent = readSelector();
+				return selectorFactory.createChildSelector(parent, (SimpleSelector) readSelector());
+			case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+				short nodeType = in.readShort();
+				Selector child = readSelector();
+				return selectorFactory.createDirectAdjacentSelector(nodeType, child, (SimpleSelector) readSelector());
+			default:
+				throw new IOException("Unknown selector type " + type); //$NON-NLS-1$
+			}
+		}
+
+		private Condition readCondition() throws IOException {
+			short type = in.readShort();
+			switch (type) {
+			case CLASS_CONDITION:
+				return conditionFactory.createClassCondition(readString(), readString());
+			case Condition.SAC_AND_CONDITION:
+				Condition first = readCondition();
+				return conditionFactory.createAndCondition(first, readCondition());
+			case Condition.SAC_ATTRIBUTE_CONDITION:
+				return conditionFactory.createAttributeCondition(readString(), readString(), in.readBoolean(),
+						readString());
+			case Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION:
+				return conditionFactory.createOneOfAttributeCondition(readString(), readString(), in.readBoolean(),
+						readString());
+			case Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+				return conditionFactory.createBeginHyphenAttributeCondition(readString(), readString(),
+						in.readBoolean(), readString());
+			case Condition.SAC_ID_CONDITION:
+				return conditionFactory.createIdCondition(readString());
+			case Condition.SAC_PSEUDO_CLASS_CONDITION:
+				return conditionFactory.createPseudoClassCondition(readString(), readString());
+			case Condition.SAC_LANG_CONDITION:
+				return conditionFactory.createLangCondition(readString());
+			default:
+				throw new IOException("Unknown condition type " + type); //$NON-NLS-1$
+			}
+		}
+
+		private LexicalUnit readLexicalUnits() throws IOException {
+			int count = in.readInt();
+			CachedLexicalUnit first = null;
+			CachedLexicalUnit previous = null;
+			for (int i = 0; i < count; i++) {
+				CachedLexicalUnit unit = readLexicalUnit();
+				if (previous == null) {
+					first = unit;
+				} else {
+					previous.next = unit;
+					unit.previous = previous;
+				}
+				previous = unit;
+			}
+			return first;
+		}
+
+		private CachedLexicalUnit readLexicalUnit() throws IOException {
+			CachedLexicalUnit unit = new CachedLexicalUnit(in.readShort());
+			switch (getValueKind(unit.type)) {
+			case INTEGER_VALUE:
+				unit.integerValue = in.readInt();
+				break;
+			case FLOAT_VALUE:
+				unit.floatValue = in.readFloat();
+				break;
+			case DIMENSION_VALUE:
+				unit.floatValue = in.readFloat();
+				unit.dimensionUnitText = readString();
+				break;
+			case STRING_VALUE:
+				unit.stringValue = readString();
+				break;
+			case FUNCTION_VALUE:
+				unit.functionName = readString();
+				unit.parameters = readLexicalUnits();
+				break;
+			case SUB_VALUES:
+				unit.subValues = readLexicalUnits();
+				break;
+			case NO_VALUE:
+				break;
+			default:
+				throw new IOException("Unknown lexical unit type " + unit.type); //$NON-NLS-1$
+			}
+			return unit;
+		}
+
+		private String readString() throws IOException {
+			return in.readBoolean() ? in.readUTF() : null;
+		}
+	}
+
+	/*--------------- Write -----------------*/
+
+	private void write(File file, String uri, long checksum, int length, CSSStyleSheet styleSheet,
+			Map<CSSProperty, LexicalUnit> lexicalUnits) {
+		File tempFile = null;
+		try {
+			directory.mkdirs();
+			tempFile = File.createTempFile("stylesheet", ".tmp", directory); //$NON-NLS-1$ //$NON-NLS-2$
+			try (OutputStream stream = Files.newOutputStream(tempFile.toPath());
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(uri);
+				out.writeLong(checksum);
+				out.writeInt(length);
+				new Writer(out, lexicalUnits).writeStyleSheet(styleSheet);
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			tempFile = null;
+		} catch (IOException | RuntimeException e) {
+			// the style sheet can not be cached, it is parsed again next time
+			file.delete();
+		} finally {
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
+	private static final class Writer {
+		private final DataOutputStream out;
+		private final Map<CSSProperty, LexicalUnit> lexicalUnits;
+
+		Writer(DataOutputStream out, Map<CSSProperty, LexicalUnit> lexicalUnits) {
+			this.out = out;
+			this.lexicalUnits = lexicalUnits;
+		}
+
+		void writeStyleSheet(CSSStyleSheet styleSheet) throws IOException {
+			CSSRuleList rules = styleSheet.getCssRules();
+			int length = rules.getLength();
+			out.writeInt(length);
+			for (int i = 0; i < length; i++) {
+				CSSRule rule = rules.item(i);
+				if (rule.getType() == CSSRule.IMPORT_RULE) {
+					CSSImportRuleImpl importRule = (CSSImportRuleImpl) rule;
+					out.writeByte(IMPORT_RULE);
+					writeString(importRule.getHref());
+					MediaList media = importRule.getMedia();
+					out.writeInt(media.getLength());
+					for (int j = 0; j < media.getLength(); j++) {
+						writeString(media.item(j));
+					}
+				} else if (rule.getType() == CSSRule.STYLE_RULE && rule instanceof CSSStyleRuleImpl) {
+					CSSStyleRuleImpl styleRule = (CSSStyleRuleImpl) rule;
+					out.writeByte(STYLE_RULE);
+					SelectorList selectors = ((ExtendedCSSRule) styleRule).getSelectorList();
+					out.writeInt(selectors.getLength());
+					for (int j = 0; j < selectors.getLength(); j++) {
+						writeSelector(selectors.item(j));
+					}
+					CSSStyleDeclarationImpl declaration = (CSSStyleDeclarationImpl) styleRule.getStyle();
+					CSSPropertyList properties = declaration.getCSSPropertyList();
+					out.writeInt(properties.getLength());
+					for (int j = 0; j < properties.getLength(); j++) {
+						CSSProperty property = properties.item(j);
+						LexicalUnit value = lexicalUnits.get(property);
+						if (value == null) {
+							throw new IOException("Unknown value of property " + property.getName()); //$NON-NLS-1$
+						}
+						writeString(property.getName());
+						out.writeBoolean(property.isImportant());
+						writeLexicalUnits(value);
+					}
+				} else {
+					throw new IOException("Unsupported rule " + rule.getCssText()); //$NON-NLS-1$
+				}
+			}
+		}
+
+		private void writeSelector(Selector selector) throws IOException {
+			short type = selector.getSelectorType();
+			switch (type) {
+			case Selector.SAC_ELEMENT_NODE_SELECTOR:
+			case Selector.SAC_PSEUDO_ELEMENT_SELECTOR:
+				out.writeShort(type);
+				writeString(((ElementSelector) selector).getNamespaceURI());
+				writeString(((ElementSelector) selector).getLocalName());
+				break;
+			case Selector.SAC_CONDITIONAL_SELECTOR:
+				out.writeShort(type);
+				writeSelector(((ConditionalSelector) selector).getSimpleSelector());
+				writeCondition(((ConditionalSelector) selector).getCondition());
+				break;
+			case Selector.SAC_DESCENDANT_SELECTOR:
+			case Selector.SAC_CHILD_SELECTOR:
+				out.writeShort(type);
+				writeSelector(((DescendantSelector) selector).getAncestorSelector());
+				writeSelector(((DescendantSelector) selector).getSimpleSelector());
+				break;
+			case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+				out.writeShort(type);
+				out.writeShort(((SiblingSelector) selector).getNodeType());
+				writeSelector(((SiblingSelector) selector).getSelector());
+				writeSelector(((SiblingSelector) selector).getSiblingSelector());
+				break;
+			default:
+				throw new IOException("Unsupported selector " + selector); //$NON-NLS-1$
+			}
+		}
+
+		private void writeCondition(Condition condition) throws IOException {
+			// class conditions report the attribute condition type
+			if (condition instanceof CSSClassConditionImpl) {
+				out.writeShort(CLASS_CONDITION);
+				writeString(((AttributeCondition) condition).getNamespaceURI());
+				writeString(((AttributeCondition) condition).getValue());
+				return;
+			}
+			short type = condition.getConditionType();
+			switch (type) {
+			case Condition.SAC_AND_CONDITION:
+				out.writeShort(type);
+				writeCondition(((CombinatorCondition) condition).getFirstCondition());
+				writeCondition(((CombinatorCondition) condition).getSecondCondition());
+				break;
+			case Condition.SAC_ATTRIBUTE_CONDITION:
+			case Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION:
+			case Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+				AttributeCondition attributeCondition = (AttributeCondition) condition;
+				out.writeShort(type);
+				writeString(attributeCondition.getLocalName());
+				writeString(attributeCondition.getNamespaceURI());
+				out.writeBoolean(attributeCondition.getSpecified());
+				writeString(attributeCondition.getValue());
+				break;
+			case Condition.SAC_ID_CONDITION:
+				out.writeShort(type);
+				writeString(((AttributeCondition) condition).getValue());
+				break;
+			case Condition.SAC_PSEUDO_CLASS_CONDITION:
+				out.writeShort(type);
+				writeString(((AttributeCondition) condition).getNamespaceURI());
+				writeString(((AttributeCondition) condition).getValue());
+				break;
+			case Condition.SAC_LANG_CONDITION:
+				out.writeShort(type);
+				writeString(((LangCondition) condition).getLang());
+				break;
+			default:
+				throw new IOException("Unsupported condition " + condition); //$NON-NLS-1$
+			}
+		}
+
+		private void writeLexicalUnits(LexicalUnit first) throws IOException {
+			int count = 0;
+			for (LexicalUnit unit = first; unit != null; unit = unit.getNextLexicalUnit()) {
+				count++;
+			}
+			out.writeInt(count);
+			for (LexicalUnit unit = first; unit != null; unit = unit.getNextLexicalUnit()) {
+				writeLexicalUnit(unit);
+			}
+		}
+
+		private void writeLexicalUnit(LexicalUnit unit) throws IOException {
+			short type = unit.getLexicalUnitType();
+			out.writeShort(type);
+			switch (getValueKind(type)) {
+			case INTEGER_VALUE:
+				out.writeInt(unit.getIntegerValue());
+				break;
+			case FLOAT_VALUE:
+				out.writeFloat(unit.getFloatValue());
+				break;
+			case DIMENSION_VALUE:
+				out.writeFloat(unit.getFloatValue());
+				writeString(getDimensionUnitText(unit));
+				break;
+			case STRING_VALUE:
+				writeString(unit.getStringValue());
+				break;
+			case FUNCTION_VALUE:
+				writeString(getFunctionName(unit));
+				writeLexicalUnits(unit.getParameters());
+				break;
+			case SUB_VALUES:
+				writeLexicalUnits(unit.getSubValues());
+				break;
+			case NO_VALUE:
+				break;
+			default:
+				throw new IOException("Unsupported lexical unit type " + type); //$NON-NLS-1$
+			}
+		}
+
+		private static String getDimensionUnitText(LexicalUnit unit) {
+			try {
+				return unit.getDimensionUnitText();
+			} catch (IllegalStateException e) {
+				return null;
+			}
+		}
+
+		private static String getFunctionName(LexicalUnit unit) {
+			try {
+				return unit.getFunctionName();
+			} catch (IllegalStateException e) {
+				return null;
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			out.writeBoolean(value != null);
+			if (value != null) {
+				out.writeUTF(value);
+			}
+		}
+	}
+
+	/*--------------- Lexical units -----------------*/
+
+	private static final int UNSUPPORTED = 0;
+	private static final int NO_VALUE = 1;
+	private static final int INTEGER_VALUE = 2;
+	private static final int FLOAT_VALUE = 3;
+	private static final int DIMENSION_VALUE = 4;
+	private static final int STRING_VALUE = 5;
+	private static final int FUNCTION_VALUE = 6;
+	private static final int SUB_VALUES = 7;
+
+	/**
+	 * Returns which value a lexical unit of the given type carries.
+	 */
+	private static int getValueKind(short lexicalUnitType) {
+		switch (lexicalUnitType) {
+		case LexicalUnit.SAC_OPERATOR_COMMA:
+		case LexicalUnit.SAC_OPERATOR_PLUS:
+		case LexicalUnit.SAC_OPERATOR_MINUS:
+		case LexicalUnit.SAC_OPERATOR_MULTIPLY:
+		case LexicalUnit.SAC_OPERATOR_SLASH:
+		case LexicalUnit.SAC_OPERATOR_MOD:
+		case LexicalUnit.SAC_OPERATOR_EXP:
+		case LexicalUnit.SAC_OPERATOR_LT:
+		case LexicalUnit.SAC_OPERATOR_GT:
+		case LexicalUnit.SAC_OPERATOR_LE:
+		case LexicalUnit.SAC_OPERATOR_GE:
+		case LexicalUnit.SAC_OPERATOR_TILDE:
+		case LexicalUnit.SAC_INHERIT:
+			return NO_VALUE;
+		case LexicalUnit.SAC_INTEGER:
+			return INTEGER_VALUE;
+		case LexicalUnit.SAC_REAL:
+			return FLOAT_VALUE;
+		case LexicalUnit.SAC_EM:
+		case LexicalUnit.SAC_EX:
+		case LexicalUnit.SAC_PIXEL:
+		case LexicalUnit.SAC_INCH:
+		case LexicalUnit.SAC_CENTIMETER:
+		case LexicalUnit.SAC_MILLIMETER:
+		case LexicalUnit.SAC_POINT:
+		case LexicalUnit.SAC_PICA:
+		case LexicalUnit.SAC_PERCENTAGE:
+		case LexicalUnit.SAC_DEGREE:
+		case LexicalUnit.SAC_GRADIAN:
+		case LexicalUnit.SAC_RADIAN:
+		case LexicalUnit.SAC_MILLISECOND:
+		case LexicalUnit.SAC_SECOND:
+		case LexicalUnit.SAC_HERTZ:
+		case LexicalUnit.SAC_KILOHERTZ:
+		case LexicalUnit.SAC_DIMENSION:
+			return DIMENSION_VALUE;
+		case LexicalUnit.SAC_URI:
+		case LexicalUnit.SAC_IDENT:
+		case LexicalUnit.SAC_STRING_VALUE:
+		case LexicalUnit.SAC_ATTR:
+		case LexicalUnit.SAC_UNICODERANGE:
+			return STRING_VALUE;
+		case LexicalUnit.SAC_RGBCOLOR:
+		case LexicalUnit.SAC_COUNTER_FUNCTION:
+		case LexicalUnit.SAC_COUNTERS_FUNCTION:
+		case LexicalUnit.SAC_RECT_FUNCTION:
+		case LexicalUnit.SAC_FUNCTION:
+			return FUNCTION_VALUE;
+		case LexicalUnit.SAC_SUB_EXPRESSION:
+			return SUB_VALUES;
+		default:
+			return UNSUPPORTED;
+		}
+	}
+
+	/**
+	 * A {@link LexicalUnit} rebuilt from the cache. Like the units created by
+	 * the parser it throws an {@link IllegalStateException} when asked for a
+	 * value it does not carry.
+	 */
+	private static final class CachedLexicalUnit implements LexicalUnit {
+		final short type;
+		CachedLexicalUnit next;
+		CachedLexicalUnit previous;
+		int integerValue;
+		float floatValue;
+		String dimensionUnitText;
+		String stringValue;
+		String functionName;
+		LexicalUnit parameters;
+		LexicalUnit subValues;
+
+		CachedLexicalUnit(short type) {
+			this.type = type;
+		}
+
+		@Override
+		public short getLexicalUnitType() {
+			return type;
+		}
+
+		@Override
+		public LexicalUnit getNextLexicalUnit() {
+			return next;
+		}
+
+		@Override
+		public LexicalUnit getPreviousLexicalUnit() {
+			return previous;
+		}
+
+		@Override
+		public int getIntegerValue() {
+			if (getValueKind(type) != INTEGER_VALUE) {
+				throw new IllegalStateException();
+			}
+			return integerValue;
+		}
+
+		@Override
+		public float getFloatValue() {
+			int kind = getValueKind(type);
+			if (kind != FLOAT_VALUE && kind != DIMENSION_VALUE) {
+				throw new IllegalStateException();
+			}
+			return floatValue;
+		}
+
+		@Override
+		public String getDimensionUnitText() {
+			if (dimensionUnitText == null) {
+				throw new IllegalStateException();
+			}
+			return dimensionUnitText;
+		}
+
+		@Override
+		public String getFunctionName() {
+			if (functionName == null) {
+				throw new IllegalStateException();
+			}
+			return functionName;
+		}
+
+		@Override
+		public LexicalUnit getParameters() {
+			if (getValueKind(type) != FUNCTION_VALUE) {
+				throw new IllegalStateException();
+			}
+			return parameters;
+		}
+
+		@Override
+		public String getStringValue() {
+			if (getValueKind(type) != STRING_VALUE) {
+				throw new IllegalStateException();
+			}
+			return stringValue;
+		}
+
+		@Override
+		public LexicalUnit getSubValues() {
+			if (getValueKind(type) != SUB_VALUES) {
+				throw new IllegalStateException();
+			}
+			return subValues;
+		}
+	}
+
+	private static final class SelectorArray implements SelectorList {
+		private final Selector[] selectors;
+
+		SelectorArray(Selector[] selectors) {
+			this.selectors = selectors;
+		}
+
+		@Override
+		public int getLength() {
+			return selectors.length;
+		}
+
+		@Override
+		public Selector item(int index) {
+			return index < 0 || index >= selectors.length ? null : selectors[index];
+		}
+	}
+
+	private static final class MediaArray implements SACMediaList {
+		private final String[] media;
+
+		MediaArray(String[] media) {
+			this.media = media;
+		}
+
+		@Override
+		public int getLength() {
+			return media.length;
+		}
+
+		@Override
+		public String item(int index) {
+			return index < 0 || index >= media.length ? null : media[index];
+		}
+	}
+}
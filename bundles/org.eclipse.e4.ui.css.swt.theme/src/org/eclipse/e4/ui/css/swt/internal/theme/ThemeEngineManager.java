@@ -14,14 +14,17 @@
 package org.eclipse.e4.ui.css.swt.internal.theme;
 
 import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
+import org.eclipse.e4.ui.css.core.impl.engine.StyleSheetCache;
 import org.eclipse.e4.ui.css.swt.dom.WidgetElement;
 import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
 import org.eclipse.e4.ui.css.swt.theme.IThemeEngine;
 import org.eclipse.e4.ui.css.swt.theme.IThemeManager;
+import org.eclipse.osgi.service.datalocation.Location;
 import org.eclipse.swt.widgets.Display;
 import org.osgi.service.component.annotations.Component;
 
@@ -29,6 +32,8 @@ import org.osgi.service.component.annotations.Component;
 public class ThemeEngineManager implements IThemeManager {
 	private static final String KEY = "org.eclipse.e4.ui.css.swt.theme";
 
+	private static final String STYLESHEET_CACHE_DIRECTORY = "stylesheets"; //$NON-NLS-1$
+
 	private static ILog LOG = Platform.getLog(Platform.getBundle(KEY));
 
 	@Override
@@ -48,12 +53,32 @@ public class ThemeEngineManager implements IThemeManager {
 		if (cssEngine != null) {
 			return cssEngine;
 		}
-		cssEngine = new CSSSWTEngineImpl(display, true);
+		CSSSWTEngineImpl swtEngine = new CSSSWTEngineImpl(display, true);
+		swtEngine.setStyleSheetCache(createStyleSheetCache());
+		cssEngine = swtEngine;
 		cssEngine.setErrorHandler(e -> logError(e.getMessage(), e));
 		WidgetElement.setEngine(display, cssEngine);
 		return cssEngine;
 	}
 
+	/**
+	 * Returns a cache for the parsed theme style sheets in the workspace
+	 * metadata area, or <code>null</code> if there is no workspace, e.g. if
+	 * the application runs with <code>-data @none</code>.
+	 */
+	private static StyleSheetCache createStyleSheetCache() {
+		Location instanceLocation = Platform.getInstanceLocation();
+		if (instanceLocation == null || !instanceLocation.isSet() || instanceLocation.isReadOnly()) {
+			return null;
+		}
+		try {
+			IPath stateLocation = Platform.getStateLocation(Platform.getBundle(KEY));
+			return new StyleSheetCache(stateLocation.append(STYLESHEET_CACHE_DIRECTORY).toFile());
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
 	static void logError(String message, Throwable e) {
 		LOG.log(new Status(IStatus.ERROR, KEY, message, e));
 	}
@@ -45,7 +45,8 @@ public class CTabFolderElement extends CompositeElement implements ChildVisibili
 	private SelectionListener selectionListener = new SelectionAdapter() {
 		@Override
 		public void widgetSelected(SelectionEvent e) {
-			applyStyles(getWidget(), true);
+			// only the selected pseudo state changed
+			engine.applyChangedStyles(getWidget());
 		}
 
 	};
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.model.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.MApplicationElement;
+import org.eclipse.e4.ui.model.application.impl.ApplicationPackageImpl;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * A live index of the elements of an application model by element id and by
+ * type.
+ * <p>
+ * The index is an adapter on every element contained in the application. It
+ * is updated when elements are added to or removed from the containment tree
+ * and when an element id changes, so that lookups do not have to walk the
+ * whole model. It is created on first use by {@link #getIndex}, and like the
+ * model it must only be used by one thread at a time.
+ * </p>
+ */
+public class ModelIndex extends EContentAdapter {
+
+	private final Map<String, List<MApplicationElement>> elementsById = new HashMap<>();
+
+	private final Map<EClass, Set<MApplicationElement>> elementsByType = new HashMap<>();
+
+	private int size;
+
+	/**
+	 * Returns the index of the application containing the given element, and
+	 * creates it if it does not exist yet.
+	 *
+	 * @param element an element of an application model
+	 * @return the index, or <code>null</code> if the element is not contained in
+	 *         an application
+	 */
+	public static ModelIndex getIndex(MApplicationElement element) {
+		EObject root = EcoreUtil.getRootContainer((EObject) element);
+		if (!(root instanceof MApplication)) {
+			return null;
+		}
+		for (Adapter adapter : root.eAdapters()) {
+			if (adapter instanceof ModelIndex) {
+				return (ModelIndex) adapter;
+			}
+		}
+		ModelIndex index = new ModelIndex();
+		root.eAdapters().add(index);
+		return index;
+	}
+
+	/**
+	 * Returns the elements with the given id, in no particular order.
+	 *
+	 * @param id the element id
+	 * @return the elements, never <code>null</code>
+	 */
+	public List<MApplicationElement> getElementsById(String id) {
+		List<MApplicationElement> elements = elementsById.get(id);
+		return elements == null ? Collections.emptyList() : new ArrayList<>(elements);
+	}
+
+	/**
+	 * Returns the elements that are instances of the given type, in no particular
+	 * order.
+	 *
+	 * @param clazz the type of the elements
+	 * @return the elements, never <code>null</code>
+	 */
+	public <T> List<T> getElementsOfType(Class<T> clazz) {
+		List<T> result = new ArrayList<>();
+		for (Map.Entry<EClass, Set<MApplicationElement>> entry : elementsByType.entrySet()) {
+			Class<?> instanceClass = entry.getKey().getInstanceClass();
+			if (instanceClass != null && clazz.isAssignableFrom(instanceClass)) {
+				for (MApplicationElement element : entry.getValue()) {
+					result.add(clazz.cast(element));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of elements that are instances of the given type, which
+	 * is faster than getting them.
+	 *
+	 * @param clazz the type of the elements
+	 * @return the number of elements
+	 */
+	public int countElementsOfType(Class<?> clazz) {
+		int count = 0;
+		for (Map.Entry<EClass, Set<MApplicationElement>> entry : elementsByType.entrySet()) {
+			Class<?> instanceClass = entry.getKey().getInstanceClass();
+			if (instanceClass != null && clazz.isAssignableFrom(instanceClass)) {
+				count += entry.getValue().size();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of elements in the application, including the
+	 *         application
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Compares the positions of two elements of the same containment tree in a
+	 * depth-first traversal of {@link EObject#eContents()}, in which containers
+	 * come before their contents.
+	 *
+	 * @param a an element
+	 * @param b an element
+	 * @return a negative number if <code>a</code> comes first, a positive number
+	 *         if <code>b</code> comes first, or 0 if they are the same
+	 */
+	public static int compareContainmentOrder(EObject a, EObject b) {
+		if (a == b) {
+			return 0;
+		}
+		List<EObject> pathA = containmentPath(a);
+		List<EObject> pathB = containmentPath(b);
+		int common = 0;
+		while (common < pathA.size() && common < pathB.size() && pathA.get(common) == pathB.get(common)) {
+			common++;
+		}
+		if (common == pathA.size()) {
+			return -1; // a contains b
+		}
+		if (common == pathB.size()) {
+			return 1; // b contains a
+		}
+		EObject container = pathA.get(common).eContainer();
+		List<EObject> contents = container.eContents();
+		return Integer.compare(contents.indexOf(pathA.get(common)), contents.indexOf(pathB.get(common)));
+	}
+
+	private static List<EObject> containmentPath(EObject element) {
+		List<EObject> path = new ArrayList<>();
+		for (EObject e = element; e != null; e = e.eContainer()) {
+			path.add(e);
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+
+		if (notification.getFeature() == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__ELEMENT_ID
+				&& !notification.isTouch()) {
+			MApplicationElement element = (MApplicationElement) notification.getNotifier();
+			String oldId = notification.getOldStringValue();
+			if (!Objects.equals(oldId, element.getElementId()) && removeId(oldId, element)) {
+				addId(element.getElementId(), element);
+			}
+		}
+	}
+
+	@Override
+	protected void setTarget(EObject target) {
+		if (target instanceof MApplicationElement) {
+			MApplicationElement element = (MApplicationElement) target;
+			if (elementsByType.computeIfAbsent(target.eClass(), eClass -> new LinkedHashSet<>()).add(element)) {
+				addId(element.getElementId(), element);
+				size++;
+			}
+		}
+		super.setTarget(target);
+	}
+
+	@Override
+	protected void unsetTarget(EObject target) {
+		if (target instanceof MApplicationElement) {
+			MApplicationElement element = (MApplicationElement) target;
+			Set<MApplicationElement> elements = elementsByType.get(target.eClass());
+			if (elements != null && elements.remove(element)) {
+				removeId(element.getElementId(), element);
+				size--;
+			}
+		}
+		super.unsetTarget(target);
+	}
+
+	private void addId(String id, MApplicationElement element) {
+		if (id != null) {
+			elementsById.computeIfAbsent(id, key -> new ArrayList<>(1)).add(element);
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the element is not in the index
+	 */
+	private boolean removeId(String id, MApplicationElement element) {
+		if (id == null) {
+			Set<MApplicationElement> elements = elementsByType.get(((EObject) element).eClass());
+			return elements != null && elements.contains(element);
+		}
+		List<MApplicationElement> elements = elementsById.get(id);
+		if (elements == null || !elements.remove(element)) {
+			return false;
+		}
+		if (elements.isEmpty()) {
+			elementsById.remove(id);
+		}
+		return true;
+	}
+}
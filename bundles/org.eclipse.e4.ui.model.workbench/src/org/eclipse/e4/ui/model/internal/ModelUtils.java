@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2016 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -64,6 +64,37 @@ public class ModelUtils {
 		if (id == null || id.isEmpty()) {
 			return null;
 		}
+		ModelIndex index = ModelIndex.getIndex(element);
+		if (index != null) {
+			// the first element with this id in a depth-first search from element
+			MApplicationElement result = null;
+			for (MApplicationElement candidate : index.getElementsById(id)) {
+				if (isContainedIn(candidate, element) && (result == null
+						|| ModelIndex.compareContainmentOrder((EObject) candidate, (EObject) result) < 0)) {
+					result = candidate;
+				}
+			}
+			return result;
+		}
+		return findElementByIdRecursive(element, id);
+	}
+
+	/**
+	 * @return whether element is the ancestor or a descendant of it whose
+	 *         containers up to the ancestor are all application elements
+	 */
+	private static boolean isContainedIn(MApplicationElement element, MApplicationElement ancestor) {
+		EObject e = (EObject) element;
+		while (e != ancestor) {
+			e = e.eContainer();
+			if (!(e instanceof MApplicationElement)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static MApplicationElement findElementByIdRecursive(MApplicationElement element, String id) {
 		// is it me?
 		if (id.equals(element.getElementId())) {
 			return element;
@@ -74,7 +105,7 @@ public class ModelUtils {
 			if (!(childElement instanceof MApplicationElement)) {
 				continue;
 			}
-			MApplicationElement result = findElementById((MApplicationElement) childElement, id);
+			MApplicationElement result = findElementByIdRecursive((MApplicationElement) childElement, id);
 			if (result != null) {
 				return result;
 			}
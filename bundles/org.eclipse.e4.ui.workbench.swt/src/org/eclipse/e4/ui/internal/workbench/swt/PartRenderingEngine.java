@@ -54,6 +54,7 @@ import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.core.services.statusreporter.StatusReporter;
 import org.eclipse.e4.ui.bindings.keys.KeyBindingDispatcher;
+import org.eclipse.e4.ui.css.core.engine.CSSEngine;
 import org.eclipse.e4.ui.css.core.util.impl.resources.OSGiResourceLocator;
 import org.eclipse.e4.ui.css.swt.dom.WidgetElement;
 import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
@@ -1294,13 +1295,13 @@ public class PartRenderingEngine implements IPresentationEngine {
 				@Override
 				public void setClassname(Object widget, String classname) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
-					themeEngine.applyStyles(widget, true);
+					applyChangedStyles(themeEngine, widget);
 				}
 
 				@Override
 				public void setId(Object widget, String id) {
 					WidgetElement.setID((Widget) widget, id);
-					themeEngine.applyStyles(widget, true);
+					applyChangedStyles(themeEngine, widget);
 				}
 
 				@Override
@@ -1317,7 +1318,7 @@ public class PartRenderingEngine implements IPresentationEngine {
 				public void setClassnameAndId(Object widget, String classname, String id) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
 					WidgetElement.setID((Widget) widget, id);
-					themeEngine.applyStyles(widget, true);
+					applyChangedStyles(themeEngine, widget);
 				}
 			});
 
@@ -1337,13 +1338,13 @@ public class PartRenderingEngine implements IPresentationEngine {
 				@Override
 				public void setClassname(Object widget, String classname) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
-					cssEngine.applyStyles(widget, true);
+					cssEngine.applyChangedStyles(widget);
 				}
 
 				@Override
 				public void setId(Object widget, String id) {
 					WidgetElement.setID((Widget) widget, id);
-					cssEngine.applyStyles(widget, true);
+					cssEngine.applyChangedStyles(widget);
 				}
 
 				@Override
@@ -1364,7 +1365,7 @@ public class PartRenderingEngine implements IPresentationEngine {
 				public void setClassnameAndId(Object widget, String classname, String id) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
 					WidgetElement.setID((Widget) widget, id);
-					cssEngine.applyStyles(widget, true);
+					cssEngine.applyChangedStyles(widget);
 				}
 			});
 
@@ -1396,6 +1397,19 @@ public class PartRenderingEngine implements IPresentationEngine {
 		appContext.set(CSSRenderingUtils.class, cssUtils);
 	}
 
+	/**
+	 * Re-applies the styles of a widget and its children after its CSS class or
+	 * id changed, applying only the properties whose values changed.
+	 */
+	private static void applyChangedStyles(IThemeEngine themeEngine, Object widget) {
+		CSSEngine cssEngine = WidgetElement.getEngine((Widget) widget);
+		if (cssEngine != null) {
+			cssEngine.applyChangedStyles(widget);
+		} else {
+			themeEngine.applyStyles(widget, true);
+		}
+	}
+
 	private static IThemeEngine createThemeEngine(Display display, IEclipseContext appContext) {
 		// Store the app context
 		IContributionFactory contribution = appContext.get(IContributionFactory.class);
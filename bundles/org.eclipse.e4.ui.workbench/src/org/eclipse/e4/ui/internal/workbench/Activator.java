@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -112,6 +112,7 @@ public class Activator implements BundleActivator, DebugOptionsListener {
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		TopicSubscriptions.closeDefault();
 		if (locationTracker != null) {
 			locationTracker.close();
 			locationTracker = null;
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * Resource for the compact binary format of the e4 workbench model, which
+ * loads and saves much faster than XMI.
+ * <p>
+ * Each distinct string, such as an element id, a tag or a persisted state key
+ * or value, is written once and then referenced by its index, so the loaded
+ * model shares one instance per distinct string. Unlike {@link E4XMIResource},
+ * this resource does not assign ids to the elements; references within the
+ * model are stored by position.
+ * </p>
+ * <p>
+ * The application model of the workbench always lives in an
+ * {@link E4XMIResource}. This resource only reads it from and writes copies of
+ * it to the binary file, see {@link #saveCopy(Collection, Map)}.
+ * </p>
+ */
+public class E4BinaryResource extends BinaryResourceImpl {
+
+	public E4BinaryResource(URI uri) {
+		super(uri);
+	}
+
+	/**
+	 * Saves copies of the given objects, which stay in their resource. Supports
+	 * the {@link E4XMIResource#OPTION_FILTER_PERSIST_STATE} option.
+	 *
+	 * @param objects the objects to save, usually the contents of a resource
+	 * @param options the save options
+	 * @throws IOException if the resource cannot be saved
+	 */
+	public void saveCopy(Collection<EObject> objects, Map<?, ?> options) throws IOException {
+		boolean filter = options != null
+				&& Boolean.TRUE.equals(options.get(E4XMIResource.OPTION_FILTER_PERSIST_STATE));
+		Resource source = objects.isEmpty() ? null : objects.iterator().next().eResource();
+		ModelCopier copier = new ModelCopier(source, filter);
+		Collection<EObject> copies = copier.copyAll(objects);
+		copier.copyReferences();
+		getContents().addAll(copies);
+		try {
+			save(options);
+		} finally {
+			getContents().clear();
+		}
+	}
+
+	@Override
+	protected void doSave(OutputStream outputStream, Map<?, ?> options) throws IOException {
+		new StringTableOutputStream(outputStream, options).saveResource(this);
+	}
+
+	@Override
+	protected void doLoad(InputStream inputStream, Map<?, ?> options) throws IOException {
+		new StringTableInputStream(inputStream, options).loadResource(this);
+	}
+
+	/**
+	 * Copies the persistent features of a model, and skips the elements that
+	 * must not be persisted like {@link E4XMISave} does.
+	 */
+	private static class ModelCopier extends EcoreUtil.Copier {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Resource source;
+
+		private final boolean filter;
+
+		ModelCopier(Resource source, boolean filter) {
+			super(true, false);
+			this.source = source;
+			this.filter = filter;
+		}
+
+		@Override
+		public EObject copy(EObject eObject) {
+			if (filter && eObject != null && !E4XMISave.isPersisted(eObject)) {
+				return null;
+			}
+			return super.copy(eObject);
+		}
+
+		@Override
+		protected void copyAttribute(EAttribute eAttribute, EObject eObject, EObject copyEObject) {
+			if (!eAttribute.isTransient()) {
+				super.copyAttribute(eAttribute, eObject, copyEObject);
+			}
+		}
+
+		@Override
+		protected void copyContainment(EReference eReference, EObject eObject, EObject copyEObject) {
+			if (!eReference.isTransient()) {
+				super.copyContainment(eReference, eObject, copyEObject);
+			}
+		}
+
+		@Override
+		protected void copyReference(EReference eReference, EObject eObject, EObject copyEObject) {
+			if (eReference.isTransient() || !eObject.eIsSet(eReference)) {
+				return;
+			}
+			if (eReference.isMany()) {
+				@SuppressWarnings("unchecked")
+				List<EObject> targets = (List<EObject>) eObject.eGet(eReference, resolveProxies);
+				@SuppressWarnings("unchecked")
+				List<EObject> copies = (List<EObject>) copyEObject.eGet(eReference);
+				for (EObject target : targets) {
+					EObject copy = getReferenced(target);
+					if (copy != null) {
+						copies.add(copy);
+					}
+				}
+			} else {
+				EObject copy = getReferenced((EObject) eObject.eGet(eReference, resolveProxies));
+				if (copy != null) {
+					copyEObject.eSet(eReference, copy);
+				}
+			}
+		}
+
+		/**
+		 * @return the copy of the target, the target itself if it is in another
+		 *         resource, or <code>null</code> if it is not persisted
+		 */
+		private EObject getReferenced(EObject target) {
+			if (target == null) {
+				return null;
+			}
+			EObject copy = get(target);
+			if (copy != null) {
+				return copy;
+			}
+			Resource resource = target.eResource();
+			return resource == null || resource == source ? null : target;
+		}
+	}
+
+	/**
+	 * Writes each distinct string once: 0 stands for <code>null</code>, 1 for a
+	 * new string that follows, and any other number for the string at that
+	 * number minus 2 in the table.
+	 */
+	private static class StringTableOutputStream extends EObjectOutputStream {
+
+		// not initialized in the declaration, the super constructor may write
+		private Map<String, Integer> strings;
+
+		StringTableOutputStream(OutputStream outputStream, Map<?, ?> options) throws IOException {
+			super(outputStream, options);
+		}
+
+		@Override
+		public void writeString(String value) throws IOException {
+			if (value == null) {
+				writeCompressedInt(0);
+				return;
+			}
+			if (strings == null) {
+				strings = new HashMap<>();
+			}
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeCompressedInt(index.intValue() + 2);
+			} else {
+				strings.put(value, Integer.valueOf(strings.size()));
+				writeCompressedInt(1);
+				super.writeString(value);
+			}
+		}
+	}
+
+	/**
+	 * Reads the strings written by {@link StringTableOutputStream}.
+	 */
+	private static class StringTableInputStream extends EObjectInputStream {
+
+		// not initialized in the declaration, the super constructor may read
+		private List<String> strings;
+
+		StringTableInputStream(InputStream inputStream, Map<?, ?> options) throws IOException {
+			super(inputStream, options);
+		}
+
+		@Override
+		public String readString() throws IOException {
+			int code = readCompressedInt();
+			if (code == 0) {
+				return null;
+			}
+			if (strings == null) {
+				strings = new ArrayList<>();
+			}
+			if (code == 1) {
+				String value = super.readString();
+				strings.add(value);
+				return value;
+			}
+			return strings.get(code - 2);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2021 BestSolution.at and others.
+ * Copyright (c) 2010, 2022 BestSolution.at and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,8 +19,13 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.HashMap;
@@ -29,10 +34,15 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
@@ -49,11 +59,18 @@ import org.eclipse.e4.core.services.contributions.IContributionFactory;
 import org.eclipse.e4.ui.di.UISynchronize;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
+import org.eclipse.e4.ui.model.application.commands.impl.CommandsPackageImpl;
+import org.eclipse.e4.ui.model.application.impl.ApplicationPackageImpl;
 import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.impl.AdvancedPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.impl.UiPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.menu.impl.MenuPackageImpl;
 import org.eclipse.e4.ui.model.fragment.MModelFragment;
 import org.eclipse.e4.ui.model.fragment.MModelFragments;
 import org.eclipse.e4.ui.model.fragment.MStringModelFragment;
 import org.eclipse.e4.ui.model.fragment.impl.FragmentPackageImpl;
+import org.eclipse.e4.ui.model.internal.ModelIndex;
 import org.eclipse.e4.ui.model.internal.ModelUtils;
 import org.eclipse.e4.ui.workbench.modeling.IModelProcessorContribution;
 import org.eclipse.e4.ui.workbench.modeling.IModelProcessorContribution.ModelElement;
@@ -61,10 +78,16 @@ import org.eclipse.emf.common.util.Diagnostic;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.impl.EPackageRegistryImpl;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.util.Diagnostician;
 import org.eclipse.emf.ecore.util.EContentsEList;
 import org.eclipse.emf.ecore.util.EcoreUtil;
@@ -124,8 +147,8 @@ public class ModelAssembler {
 				}).collect(Collectors.toList());
 
 				// we skip direct processing in case the startup model processing is not done
-				// yet
-				if (processModelExecuted) {
+				// yet, or the restored model already contains the fragments
+				if (processModelExecuted && !fragmentsRestored) {
 					uiSync.asyncExec(() -> processFragmentWrappers(wrappers));
 				}
 
@@ -171,13 +194,7 @@ public class ModelAssembler {
 
 						URI uri;
 						try {
-							// check if the attrURI is already a platform URI
-							if (URIHelper.isPlatformURI(attrURI)) {
-								uri = URI.createURI(attrURI);
-							} else {
-								String path = bundleName + '/' + attrURI;
-								uri = URI.createPlatformPluginURI(path, false);
-							}
+							uri = createFragmentURI(attrURI, bundleName);
 						} catch (RuntimeException e) {
 							log(LogLevel.WARN, "Invalid location {} of model extension {}", attrURI, bundleName, //$NON-NLS-1$
 									e);
@@ -210,6 +227,23 @@ public class ModelAssembler {
 	private static final String INITIAL = "initial"; //$NON-NLS-1$
 	private static final String NOTEXISTS = "notexists"; //$NON-NLS-1$
 
+	private static final int TRACKED_BUNDLE_STATES = Bundle.STARTING | Bundle.ACTIVE | Bundle.STOPPING;
+
+	/**
+	 * The key of the persisted state of the application for the fingerprint of
+	 * the bundles whose fragments are merged into the model
+	 */
+	private static final String FRAGMENTS_FINGERPRINT = "ModelAssembler.fragmentsFingerprint"; //$NON-NLS-1$
+
+	/**
+	 * The namespaces of the packages of the application model and its fragments
+	 */
+	private static final String[] MODEL_PACKAGE_NS_URIS = { ApplicationPackageImpl.eNS_URI,
+			CommandsPackageImpl.eNS_URI, UiPackageImpl.eNS_URI, MenuPackageImpl.eNS_URI, BasicPackageImpl.eNS_URI,
+			AdvancedPackageImpl.eNS_URI,
+			org.eclipse.e4.ui.model.application.descriptor.basic.impl.BasicPackageImpl.eNS_URI,
+			FragmentPackageImpl.eNS_URI };
+
 	LoggerFactory factory;
 	Logger logger;
 
@@ -223,12 +257,13 @@ public class ModelAssembler {
 
 	private boolean processModelExecuted = false;
 
+	private volatile boolean fragmentsRestored = false;
+
 	@Activate
 	void activate(BundleContext bundleContext) {
 		this.bundleContext = bundleContext;
 
-		this.tracker = new BundleTracker<>(bundleContext,
-				Bundle.STARTING | Bundle.ACTIVE | Bundle.STOPPING, new ModelFragmentBundleTracker());
+		this.tracker = new BundleTracker<>(bundleContext, TRACKED_BUNDLE_STATES, new ModelFragmentBundleTracker());
 	}
 
 	@Deactivate
@@ -341,6 +376,34 @@ public class ModelAssembler {
 	 *
 	 */
 	private void processFragments(IExtension[] extensions, boolean initial) {
+		String fingerprint = null;
+		if (context != null && Boolean.TRUE.equals(context.get(E4Workbench.CACHE_MODEL_FRAGMENTS))) {
+			fingerprint = getFragmentsFingerprint(extensions);
+		}
+		if (!initial && fingerprint != null
+				&& fingerprint.equals(application.getPersistedState().get(FRAGMENTS_FINGERPRINT))) {
+			// the restored model was saved with the fragments of the same bundles
+			if (this.tracker != null) {
+				fragmentsRestored = true;
+				try {
+					this.tracker.open();
+				} finally {
+					fragmentsRestored = false;
+				}
+				// removing a bundle removes the elements its fragments contributed to the
+				// restored model
+				for (List<FragmentWrapperElementMapping> mappings : this.tracker.getTracked().values()) {
+					for (FragmentWrapperElementMapping mapping : mappings) {
+						mapping.elements = findRestoredElements(mapping);
+					}
+				}
+			}
+			log(LogLevel.DEBUG, "Skipped the unchanged model fragments"); //$NON-NLS-1$
+			return;
+		}
+
+		loadFragmentResources(getFragmentURIs(extensions, initial));
+
 		List<ModelFragmentWrapper> wrappers = new ArrayList<>();
 		for (IExtension extension : extensions) {
 			IConfigurationElement[] ces = extension.getConfigurationElements();
@@ -376,9 +439,269 @@ public class ModelAssembler {
 			wrappers.addAll(collect);
 		}
 
+		if (fingerprint != null) {
+			// elements which are not persisted have to be merged again
+			if (wrappers.stream().allMatch(ModelAssembler::isPersisted)) {
+				application.getPersistedState().put(FRAGMENTS_FINGERPRINT, fingerprint);
+			} else {
+				application.getPersistedState().remove(FRAGMENTS_FINGERPRINT);
+			}
+		}
+
 		processFragmentWrappers(wrappers);
 	}
 
+	/**
+	 * Finds the elements of a fragment in the restored application model, by the
+	 * element ids of the elements mapped so far and the contributor.
+	 *
+	 * @return the elements which the fragment contributed to the model before
+	 */
+	private List<MApplicationElement> findRestoredElements(FragmentWrapperElementMapping mapping) {
+		List<MApplicationElement> elements = new ArrayList<>();
+		ModelIndex index = ModelIndex.getIndex(application);
+		if (index == null) {
+			return elements;
+		}
+		ModelFragmentWrapper wrapper = mapping.wrapper;
+		for (MApplicationElement element : mapping.elements) {
+			if (element.getElementId() == null) {
+				continue;
+			}
+			for (MApplicationElement restored : index.getElementsById(element.getElementId())) {
+				if (Objects.equals(wrapper.getContributorURI(), restored.getContributorURI())
+						&& !elements.contains(restored)) {
+					elements.add(restored);
+				}
+			}
+		}
+		return elements;
+	}
+
+	private static boolean isPersisted(ModelFragmentWrapper wrapper) {
+		for (MApplicationElement element : wrapper.getModelFragment().getElements()) {
+			if (!E4XMISave.isPersisted((EObject) element)) {
+				return false;
+			}
+			for (TreeIterator<EObject> it = ((EObject) element).eAllContents(); it.hasNext();) {
+				if (!E4XMISave.isPersisted(it.next())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes a fingerprint of the bundles that contribute to the model, by
+	 * their names, versions and modification times.
+	 *
+	 * @return the fingerprint, or <code>null</code> if the bundles are not known
+	 */
+	private String getFragmentsFingerprint(IExtension[] extensions) {
+		if (bundleContext == null) {
+			return null;
+		}
+		Set<String> contributors = Arrays.stream(extensions).map(e -> e.getContributor().getName())
+				.collect(Collectors.toSet());
+		SortedSet<String> entries = new TreeSet<>();
+		for (Bundle bundle : bundleContext.getBundles()) {
+			if (contributors.contains(bundle.getSymbolicName()) || ((bundle.getState() & TRACKED_BUNDLE_STATES) != 0
+					&& bundle.getHeaders("").get(MODEL_FRAGMENT_HEADER) != null)) { //$NON-NLS-1$
+				entries.add(getFingerprintEntry(bundle));
+			}
+		}
+		for (ServiceReference<IModelProcessorContribution> contribution : processorContributions) {
+			Bundle bundle = contribution.getBundle();
+			if (bundle != null) {
+				entries.add(getFingerprintEntry(bundle));
+			}
+		}
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			for (String entry : entries) {
+				digest.update(entry.getBytes(StandardCharsets.UTF_8));
+			}
+			return new BigInteger(1, digest.digest()).toString(16);
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	private static String getFingerprintEntry(Bundle bundle) {
+		return bundle.getSymbolicName() + '_' + bundle.getVersion() + '@' + bundle.getLastModified() + '\n';
+	}
+
+	/**
+	 * @return the locations of the fragments that will be merged, or some more
+	 */
+	private List<URI> getFragmentURIs(IExtension[] extensions, boolean initial) {
+		List<URI> uris = new ArrayList<>();
+		for (IExtension extension : extensions) {
+			for (IConfigurationElement ce : extension.getConfigurationElements()) {
+				if ("fragment".equals(ce.getName()) && (initial || !INITIAL.equals(ce.getAttribute("apply")))) { //$NON-NLS-1$ //$NON-NLS-2$
+					addFragmentURI(uris, ce.getAttribute("uri"), ce.getContributor().getName()); //$NON-NLS-1$
+				}
+			}
+		}
+		if (this.tracker != null && bundleContext != null) {
+			// the bundles the tracker will add when it is opened
+			for (Bundle bundle : bundleContext.getBundles()) {
+				String fragmentHeader = (bundle.getState() & TRACKED_BUNDLE_STATES) != 0
+						? bundle.getHeaders("").get(MODEL_FRAGMENT_HEADER) //$NON-NLS-1$
+						: null;
+				if (fragmentHeader != null) {
+					String[] fr = fragmentHeader.split(";"); //$NON-NLS-1$
+					if (initial || fr.length < 2 || !fr[1].endsWith(INITIAL)) {
+						addFragmentURI(uris, fr[0], bundle.getSymbolicName());
+					}
+				}
+			}
+		}
+		return uris;
+	}
+
+	private static void addFragmentURI(List<URI> uris, String attrURI, String bundleName) {
+		if (attrURI != null) {
+			try {
+				uris.add(createFragmentURI(attrURI, bundleName));
+			} catch (RuntimeException e) {
+				// reported when the fragment is used
+			}
+		}
+	}
+
+	private static URI createFragmentURI(String attrURI, String bundleName) {
+		// check if the attrURI is already a platform URI
+		if (URIHelper.isPlatformURI(attrURI)) {
+			return URI.createURI(attrURI);
+		}
+		String path = bundleName + '/' + attrURI;
+		return URI.createPlatformPluginURI(path, false);
+	}
+
+	/**
+	 * Loads the fragment resources in parallel and adds them to the resource set
+	 * of the application, in the given order. The fragments are merged in the
+	 * same order as before, only the parsing is parallel. A resource which cannot
+	 * be loaded is left out, and loaded again and reported when it is used.
+	 *
+	 * @param uris the locations of the fragment resources
+	 */
+	private void loadFragmentResources(List<URI> uris) {
+		ResourceSet resourceSet = ((EObject) application).eResource().getResourceSet();
+		ResourceSet loadingSet = new ResourceSetImpl();
+		loadingSet.setResourceFactoryRegistry(resourceSet.getResourceFactoryRegistry());
+		loadingSet.setURIConverter(resourceSet.getURIConverter());
+		loadingSet.setPackageRegistry(new SynchronizedPackageRegistry(resourceSet.getPackageRegistry()));
+		loadingSet.getLoadOptions().putAll(resourceSet.getLoadOptions());
+
+		List<Resource> resources = new ArrayList<>();
+		for (URI uri : new LinkedHashSet<>(uris)) {
+			if (resourceSet.getResource(uri, false) == null) {
+				resources.add(loadingSet.createResource(uri));
+			}
+		}
+		int threads = Math.min(resources.size(), Runtime.getRuntime().availableProcessors());
+		if (threads < 2) {
+			// loaded when used
+			return;
+		}
+
+		// the loading threads must not compute the lazily computed metadata at once
+		initializeModelPackages(resourceSet.getPackageRegistry());
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "Model Fragment Loader"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> loads = new ArrayList<>();
+			for (Resource resource : resources) {
+				loads.add(executor.submit(() -> {
+					resource.load(loadingSet.getLoadOptions());
+					return null;
+				}));
+			}
+			for (int i = 0; i < resources.size(); i++) {
+				try {
+					loads.get(i).get();
+					resourceSet.getResources().add(resources.get(i));
+				} catch (ExecutionException e) {
+					// loaded again and reported when used
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Computes the lazily computed metadata of the classes of the application
+	 * model packages, which the fragments are made of, before the fragments are
+	 * loaded concurrently.
+	 *
+	 * @param registry the package registry of the application resource set
+	 */
+	private static void initializeModelPackages(EPackage.Registry registry) {
+		Set<EPackage> packages = new LinkedHashSet<>();
+		for (String nsURI : MODEL_PACKAGE_NS_URIS) {
+			EPackage ePackage = registry.getEPackage(nsURI);
+			if (ePackage != null) {
+				packages.add(ePackage);
+			}
+		}
+		for (Object value : registry.values()) {
+			if (value instanceof EPackage) {
+				packages.add((EPackage) value);
+			}
+		}
+		for (EPackage ePackage : packages) {
+			for (EClassifier classifier : ePackage.getEClassifiers()) {
+				if (classifier instanceof EClass) {
+					EClass eClass = (EClass) classifier;
+					List<EStructuralFeature> features = eClass.getEAllStructuralFeatures();
+					eClass.getEAllAttributes();
+					eClass.getEAllReferences();
+					eClass.getEAllContainments();
+					eClass.getEAllSuperTypes();
+					eClass.getEIDAttribute();
+					if (!features.isEmpty()) {
+						// builds the lookup of the features by name
+						eClass.getEStructuralFeature(features.get(0).getName());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Serializes the lookups of the loading threads, which may resolve and
+	 * register packages.
+	 */
+	private static class SynchronizedPackageRegistry extends EPackageRegistryImpl {
+
+		private static final long serialVersionUID = 1L;
+
+		SynchronizedPackageRegistry(EPackage.Registry delegateRegistry) {
+			super(delegateRegistry);
+		}
+
+		@Override
+		public synchronized EPackage getEPackage(String nsURI) {
+			return super.getEPackage(nsURI);
+		}
+
+		@Override
+		public synchronized EFactory getEFactory(String nsURI) {
+			return super.getEFactory(nsURI);
+		}
+	}
+
 	private List<ModelFragmentWrapper> getModelFragmentWrapperFromBundle(Bundle bundle, boolean initial) {
 		List<ModelFragmentWrapper> wrappers = new ArrayList<>();
 		String fragmentHeader = bundle.getHeaders("").get(MODEL_FRAGMENT_HEADER); //$NON-NLS-1$
@@ -542,13 +865,7 @@ public class ModelAssembler {
 
 		URI uri;
 		try {
-			// check if the attrURI is already a platform URI
-			if (URIHelper.isPlatformURI(attrURI)) {
-				uri = URI.createURI(attrURI);
-			} else {
-				String path = bundleName + '/' + attrURI;
-				uri = URI.createPlatformPluginURI(path, false);
-			}
+			uri = createFragmentURI(attrURI, bundleName);
 		} catch (RuntimeException e) {
 			log(LogLevel.WARN, "Invalid location {} of model extension {}", attrURI, bundleName, e); //$NON-NLS-1$
 			return null;
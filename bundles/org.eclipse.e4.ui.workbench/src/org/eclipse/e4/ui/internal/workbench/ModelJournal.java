@@ -0,0 +1,683 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.e4.core.services.log.Logger;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.impl.ApplicationPackageImpl;
+import org.eclipse.e4.ui.workbench.IWorkbench;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.util.ECollections;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.EMap;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+/**
+ * Saves the changes of the workbench model incrementally, so that auto-save
+ * does not have to copy and write the whole model on the UI thread.
+ * <p>
+ * The first {@link #flush(Consumer)} writes a snapshot of the model to the
+ * save location of the model. From then on the journal listens to the
+ * notifications of the model, and each flush records the current state of the
+ * features that changed since the previous flush, which only takes time in
+ * proportion to the changes. The records are appended to the journal file by a
+ * background job, which also compacts the journal into a new snapshot once it
+ * has grown large; the job belongs to the family of the journal. After a
+ * crash, {@link #replay(XMLResource, File)} applies the journal to the
+ * snapshot.
+ * </p>
+ * <p>
+ * Each snapshot gets a new generation, which is stored in the persisted state
+ * of the application and at the start of the journal. A snapshot is written
+ * before the journal of the previous snapshot is deleted, and a journal of
+ * another generation than the snapshot is not applied, so a crash in between
+ * loses nothing.
+ * </p>
+ * <p>
+ * Elements are identified by their ids in the model resource. The journal
+ * records the state of a feature rather than the change of it, so replaying a
+ * record more than once does no harm. Like {@link E4XMISave}, it skips the
+ * elements that must not be persisted.
+ * </p>
+ */
+public class ModelJournal {
+
+	private static final String JOB_NAME = "Workbench Model Journal Job"; //$NON-NLS-1$
+
+	/**
+	 * Size of the journal file from which it is compacted into a new snapshot.
+	 */
+	private static final long COMPACTION_SIZE = 512 * 1024;
+
+	/**
+	 * The key of the persisted state of the application holding the generation
+	 * of the snapshot.
+	 */
+	private static final String GENERATION_KEY = "org.eclipse.e4.ui.workbench.journal.generation"; //$NON-NLS-1$
+
+	private static final byte CREATE = 1;
+
+	private static final byte FEATURE = 2;
+
+	private static final int UNSET = -1;
+
+	private final XMLResource resource;
+
+	private final File snapshotFile;
+
+	private final File journalFile;
+
+	private final EPackage.Registry packageRegistry;
+
+	private final Logger logger;
+
+	private final ChangeRecorder recorder = new ChangeRecorder();
+
+	/** The features that changed since the last flush, only used in the UI thread */
+	private final Map<EObject, Set<EStructuralFeature>> changes = new LinkedHashMap<>();
+
+	/** The elements added since the last flush, only used in the UI thread */
+	private final Set<EObject> additions = new LinkedHashSet<>();
+
+	private final Queue<byte[]> pendingRecords = new ConcurrentLinkedQueue<>();
+
+	private final Job writeJob = new Job(JOB_NAME) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			write();
+			return Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == ModelJournal.this;
+		}
+	};
+
+	/** Whether the snapshot file and the journal match the recorded changes */
+	private boolean recording;
+
+	private volatile Resource pendingSnapshot;
+
+	private volatile boolean failed;
+
+	/** The generation of the snapshot the journal belongs to */
+	private volatile String generation;
+
+	/**
+	 * @param resource        the resource of the application model
+	 * @param snapshotFile    the file the model is saved to
+	 * @param journalFile     the file to append the changes to
+	 * @param packageRegistry the registry of the packages of the model
+	 * @param logger          the logger for write errors, may be
+	 *                        <code>null</code>
+	 */
+	public ModelJournal(XMLResource resource, File snapshotFile, File journalFile, EPackage.Registry packageRegistry,
+			Logger logger) {
+		this.resource = resource;
+		this.snapshotFile = snapshotFile;
+		this.journalFile = journalFile;
+		this.packageRegistry = packageRegistry;
+		this.logger = logger;
+		writeJob.setSystem(true);
+		writeJob.setPriority(Job.SHORT);
+	}
+
+	/**
+	 * Records the changes of the model since the last call and appends them to
+	 * the journal in the background. The first call, or the first after an error,
+	 * writes a complete snapshot instead. Must be called in the UI thread.
+	 *
+	 * @param cleanUp cleans up the copy of the model written as snapshot
+	 */
+	public void flush(Consumer<MApplication> cleanUp) {
+		if (failed) {
+			failed = false;
+			recording = false;
+		}
+		if (!recording) {
+			pendingSnapshot = createSnapshot(cleanUp);
+			pendingRecords.clear();
+			changes.clear();
+			additions.clear();
+			EObject application = resource.getContents().get(0);
+			if (!application.eAdapters().contains(recorder)) {
+				application.eAdapters().add(recorder);
+			}
+			recording = true;
+		} else if (!changes.isEmpty() || !additions.isEmpty()) {
+			pendingRecords.add(recordChanges());
+		} else {
+			return;
+		}
+		writeJob.schedule();
+	}
+
+	/**
+	 * Prepares for saving the whole model, which makes the journal obsolete.
+	 * Waits for the background job and deletes the journal, so that it can
+	 * neither overwrite the saved model nor be applied to it. The model gets a
+	 * new generation, which the journal continues with after
+	 * {@link #saved()}.
+	 */
+	public void aboutToSave() {
+		recording = false;
+		pendingSnapshot = null;
+		pendingRecords.clear();
+		writeJob.cancel();
+		try {
+			writeJob.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		pendingSnapshot = null;
+		pendingRecords.clear();
+		journalFile.delete();
+		generation = newGeneration();
+		((MApplication) resource.getContents().get(0)).getPersistedState().put(GENERATION_KEY, generation);
+		changes.clear();
+		additions.clear();
+	}
+
+	/**
+	 * Informs the journal that the whole model has been saved to the snapshot
+	 * file, so that it can continue from there instead of writing a new
+	 * snapshot.
+	 */
+	public void saved() {
+		failed = false;
+		EObject application = resource.getContents().get(0);
+		recording = application.eAdapters().contains(recorder);
+	}
+
+	/**
+	 * Copies the model with the ids of its elements.
+	 */
+	private Resource createSnapshot(Consumer<MApplication> cleanUp) {
+		EcoreUtil.Copier copier = new EcoreUtil.Copier();
+		EObject copy = copier.copy(resource.getContents().get(0));
+		copier.copyReferences();
+		E4XMIResource snapshot = new E4XMIResource(URI.createFileURI(snapshotFile.getAbsolutePath()));
+		snapshot.getContents().add(copy);
+		for (Map.Entry<EObject, EObject> entry : copier.entrySet()) {
+			if (!(entry.getKey() instanceof Map.Entry<?, ?>)) {
+				snapshot.setID(entry.getValue(), resource.getID(entry.getKey()));
+			}
+		}
+		if (cleanUp != null) {
+			cleanUp.accept((MApplication) copy);
+		}
+		return snapshot;
+	}
+
+	private byte[] recordChanges() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			// added elements are recorded completely
+			for (EObject element : additions) {
+				if (isJournaled(element)) {
+					recordCreate(out, element);
+				}
+			}
+			for (Map.Entry<EObject, Set<EStructuralFeature>> entry : changes.entrySet()) {
+				EObject element = entry.getKey();
+				if (isJournaled(element)) {
+					for (EStructuralFeature feature : entry.getValue()) {
+						recordFeature(out, element, feature);
+					}
+				}
+			}
+		} catch (IOException e) {
+			// cannot happen, the stream writes to memory
+			throw new IllegalStateException(e);
+		} finally {
+			changes.clear();
+			additions.clear();
+		}
+		return bytes.toByteArray();
+	}
+
+	private void recordCreate(DataOutputStream out, EObject element) throws IOException {
+		TreeIterator<EObject> it = EcoreUtil.getAllProperContents(Collections.singleton(element), false);
+		while (it.hasNext()) {
+			EObject o = it.next();
+			if (o instanceof Map.Entry<?, ?>) {
+				it.prune();
+			} else if (!E4XMISave.isPersisted(o)) {
+				it.prune();
+			} else {
+				EClass eClass = o.eClass();
+				out.writeByte(CREATE);
+				writeString(out, resource.getID(o));
+				writeString(out, eClass.getEPackage().getNsURI());
+				writeString(out, eClass.getName());
+				Set<EStructuralFeature> features = changes.computeIfAbsent(o, k -> new LinkedHashSet<>());
+				for (EStructuralFeature feature : eClass.getEAllStructuralFeatures()) {
+					if (isJournaled(feature) && o.eIsSet(feature)) {
+						features.add(feature);
+					}
+				}
+			}
+		}
+	}
+
+	private void recordFeature(DataOutputStream out, EObject element, EStructuralFeature feature) throws IOException {
+		out.writeByte(FEATURE);
+		writeString(out, resource.getID(element));
+		writeString(out, feature.getName());
+		if (!element.eIsSet(feature)) {
+			out.writeInt(UNSET);
+			return;
+		}
+		List<String> values = new ArrayList<>();
+		if (feature instanceof EAttribute) {
+			EAttribute attribute = (EAttribute) feature;
+			for (Object value : getValues(element, feature)) {
+				values.add(EcoreUtil.convertToString(attribute.getEAttributeType(), value));
+			}
+		} else if (isMap(feature)) {
+			EClass entryClass = ((EReference) feature).getEReferenceType();
+			EAttribute key = (EAttribute) entryClass.getEStructuralFeature("key"); //$NON-NLS-1$
+			EAttribute value = (EAttribute) entryClass.getEStructuralFeature("value"); //$NON-NLS-1$
+			for (Object entry : getValues(element, feature)) {
+				values.add(EcoreUtil.convertToString(key.getEAttributeType(), ((EObject) entry).eGet(key)));
+				values.add(EcoreUtil.convertToString(value.getEAttributeType(), ((EObject) entry).eGet(value)));
+			}
+		} else {
+			boolean containment = ((EReference) feature).isContainment();
+			for (Object value : getValues(element, feature)) {
+				EObject target = (EObject) value;
+				if (target == null) {
+					values.add(null);
+				} else if (target.eResource() == resource && (!containment || E4XMISave.isPersisted(target))) {
+					values.add(resource.getID(target));
+				}
+			}
+		}
+		out.writeInt(values.size());
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	private static List<?> getValues(EObject element, EStructuralFeature feature) {
+		// the core type of a map is the list of its entries
+		Object value = ((InternalEObject) element).eGet(feature, true, true);
+		return feature.isMany() ? (List<?>) value : Collections.singletonList(value);
+	}
+
+	private static boolean isMap(EStructuralFeature feature) {
+		return feature instanceof EReference && ((EReference) feature).isContainment()
+				&& feature.getEType().getInstanceClass() == Map.Entry.class;
+	}
+
+	private static boolean isJournaled(EStructuralFeature feature) {
+		return feature.isChangeable() && !feature.isTransient() && !feature.isDerived()
+				&& !(feature instanceof EReference && ((EReference) feature).isContainer());
+	}
+
+	/**
+	 * @return whether the element is in the model and is persisted
+	 */
+	private boolean isJournaled(EObject element) {
+		if (element.eResource() != resource) {
+			return false;
+		}
+		for (EObject e = element; e != null; e = e.eContainer()) {
+			if (!E4XMISave.isPersisted(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Runs in the background job.
+	 */
+	private void write() {
+		try {
+			Resource snapshot = pendingSnapshot;
+			if (snapshot != null) {
+				pendingSnapshot = null;
+				String newGeneration = newGeneration();
+				((MApplication) snapshot.getContents().get(0)).getPersistedState().put(GENERATION_KEY, newGeneration);
+				saveSnapshot(snapshot);
+				journalFile.delete();
+				generation = newGeneration;
+			}
+			if (!pendingRecords.isEmpty()) {
+				boolean created = journalFile.length() == 0;
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(journalFile, true)))) {
+					if (created) {
+						writeString(out, generation);
+					}
+					byte[] records;
+					while ((records = pendingRecords.poll()) != null) {
+						// the length makes a batch incomplete after a crash recognizable
+						out.writeInt(records.length);
+						out.write(records);
+					}
+				}
+				if (journalFile.length() > COMPACTION_SIZE) {
+					compact();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// start over with a new snapshot
+			failed = true;
+			pendingRecords.clear();
+			journalFile.delete();
+			if (logger != null) {
+				logger.warn(e, "Unable to write the workbench model journal"); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Applies the journal to the snapshot and makes the result the new snapshot.
+	 */
+	private void compact() throws IOException {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.setPackageRegistry(packageRegistry);
+		E4XMIResource snapshot = new E4XMIResource(URI.createFileURI(snapshotFile.getAbsolutePath()));
+		resourceSet.getResources().add(snapshot);
+		snapshot.load(null);
+		replay(snapshot, journalFile);
+		String newGeneration = newGeneration();
+		((MApplication) snapshot.getContents().get(0)).getPersistedState().put(GENERATION_KEY, newGeneration);
+		saveSnapshot(snapshot);
+		journalFile.delete();
+		generation = newGeneration;
+	}
+
+	private static String newGeneration() {
+		return UUID.randomUUID().toString();
+	}
+
+	private void saveSnapshot(Resource snapshot) throws IOException {
+		File temp = new File(snapshotFile.getPath() + ".tmp"); //$NON-NLS-1$
+		snapshot.setURI(URI.createFileURI(temp.getAbsolutePath()));
+		Map<String, Object> options = new HashMap<>();
+		options.put(E4XMIResource.OPTION_FILTER_PERSIST_STATE, Boolean.TRUE);
+		snapshot.save(options);
+		try {
+			Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Applies the changes recorded in a journal to the model they were recorded
+	 * for. A journal which belongs to another generation of the model, left by
+	 * a crash after a new snapshot was written, and an incomplete record at the
+	 * end of the journal, left by a crash while appending, are ignored.
+	 *
+	 * @param resource    the resource with the snapshot of the model
+	 * @param journalFile the journal
+	 * @throws IOException if the journal cannot be read
+	 */
+	public static void replay(XMLResource resource, File journalFile) throws IOException {
+		if (!journalFile.exists() || resource.getContents().isEmpty()
+				|| !(resource.getContents().get(0) instanceof MApplication)) {
+			return;
+		}
+		String snapshotGeneration = ((MApplication) resource.getContents().get(0)).getPersistedState()
+				.get(GENERATION_KEY);
+		// removed elements may be added again later
+		Map<String, EObject> elements = new HashMap<>();
+		for (TreeIterator<EObject> it = resource.getAllContents(); it.hasNext();) {
+			EObject element = it.next();
+			String id = resource.getID(element);
+			if (id != null) {
+				elements.put(id, element);
+			}
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+			try {
+				if (snapshotGeneration == null || !snapshotGeneration.equals(readString(in))) {
+					return;
+				}
+			} catch (EOFException e) {
+				return;
+			}
+			while (true) {
+				byte[] records;
+				try {
+					records = new byte[in.readInt()];
+					in.readFully(records);
+				} catch (EOFException e) {
+					break;
+				}
+				replay(resource, elements, new DataInputStream(new ByteArrayInputStream(records)));
+			}
+		}
+	}
+
+	private static void replay(XMLResource resource, Map<String, EObject> elements, DataInputStream in)
+			throws IOException {
+		ResourceSet resourceSet = resource.getResourceSet();
+		EPackage.Registry registry = resourceSet == null ? EPackage.Registry.INSTANCE
+				: resourceSet.getPackageRegistry();
+		int type;
+		while ((type = in.read()) != -1) {
+			if (type == CREATE) {
+				String id = readString(in);
+				String nsURI = readString(in);
+				String className = readString(in);
+				if (!elements.containsKey(id)) {
+					EPackage ePackage = registry.getEPackage(nsURI);
+					EClassifier eClass = ePackage == null ? null : ePackage.getEClassifier(className);
+					if (!(eClass instanceof EClass)) {
+						throw new IOException("Unknown model class " + nsURI + '#' + className); //$NON-NLS-1$
+					}
+					EObject element = EcoreUtil.create((EClass) eClass);
+					resource.setID(element, id);
+					elements.put(id, element);
+				}
+			} else if (type == FEATURE) {
+				EObject element = elements.get(readString(in));
+				String featureName = readString(in);
+				int count = in.readInt();
+				List<String> values = new ArrayList<>(Math.max(count, 0));
+				for (int i = 0; i < count; i++) {
+					values.add(readString(in));
+				}
+				EStructuralFeature feature = element == null ? null
+						: element.eClass().getEStructuralFeature(featureName);
+				if (feature != null) {
+					if (count == UNSET) {
+						element.eUnset(feature);
+					} else {
+						applyFeature(element, feature, values, elements);
+					}
+				}
+			} else {
+				throw new IOException("Corrupt workbench model journal"); //$NON-NLS-1$
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void applyFeature(EObject element, EStructuralFeature feature, List<String> values,
+			Map<String, EObject> elements) {
+		List<Object> newValues = new ArrayList<>(values.size());
+		if (feature instanceof EAttribute) {
+			for (String value : values) {
+				newValues.add(EcoreUtil.createFromString(((EAttribute) feature).getEAttributeType(), value));
+			}
+		} else if (isMap(feature)) {
+			EClass entryClass = ((EReference) feature).getEReferenceType();
+			EAttribute key = (EAttribute) entryClass.getEStructuralFeature("key"); //$NON-NLS-1$
+			EAttribute value = (EAttribute) entryClass.getEStructuralFeature("value"); //$NON-NLS-1$
+			EMap<Object, Object> map = (EMap<Object, Object>) ((InternalEObject) element).eGet(feature, true, true);
+			map.clear();
+			for (int i = 0; i + 1 < values.size(); i += 2) {
+				map.put(EcoreUtil.createFromString(key.getEAttributeType(), values.get(i)),
+						EcoreUtil.createFromString(value.getEAttributeType(), values.get(i + 1)));
+			}
+			return;
+		} else {
+			for (String id : values) {
+				EObject target = id == null ? null : elements.get(id);
+				if (target != null || id == null) {
+					newValues.add(target);
+				}
+			}
+		}
+		if (feature.isMany()) {
+			ECollections.setEList((EList<Object>) element.eGet(feature), newValues);
+		} else if (!newValues.isEmpty()) {
+			element.eSet(feature, newValues.get(0));
+		}
+	}
+
+	/*
+	 * Unlike DataOutputStream.writeUTF(), supports null and long strings like
+	 * mementos.
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static boolean isPersistState(Object value) {
+		if (value instanceof Map.Entry<?, ?>) {
+			return IWorkbench.PERSIST_STATE.equals(((Map.Entry<?, ?>) value).getKey());
+		}
+		if (value instanceof Collection<?>) {
+			for (Object element : (Collection<?>) value) {
+				if (isPersistState(element)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Collects the changed features and the added elements.
+	 */
+	private class ChangeRecorder extends EContentAdapter {
+
+		@Override
+		public void notifyChanged(Notification notification) {
+			super.notifyChanged(notification);
+
+			if (notification.isTouch() || !(notification.getNotifier() instanceof EObject)
+					|| !(notification.getFeature() instanceof EStructuralFeature)) {
+				return;
+			}
+			EObject element = (EObject) notification.getNotifier();
+			EStructuralFeature feature = (EStructuralFeature) notification.getFeature();
+			boolean persistStateChanged = isPersistState(notification.getNewValue())
+					|| isPersistState(notification.getOldValue());
+			if (element instanceof Map.Entry<?, ?>) {
+				// an entry of a map, like the persisted state
+				persistStateChanged = isPersistState(element);
+				feature = element.eContainmentFeature();
+				element = element.eContainer();
+				if (element == null) {
+					return;
+				}
+			}
+			if (!isJournaled(feature)) {
+				return;
+			}
+			changes.computeIfAbsent(element, k -> new LinkedHashSet<>()).add(feature);
+			if (persistStateChanged
+					&& feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__PERSISTED_STATE) {
+				// changes whether the element is persisted
+				EObject container = element.eContainer();
+				if (container != null) {
+					changes.computeIfAbsent(container, k -> new LinkedHashSet<>()).add(element.eContainmentFeature());
+					additions.add(element);
+				}
+			} else if (feature instanceof EReference && ((EReference) feature).isContainment() && !isMap(feature)) {
+				Object newValue = notification.getNewValue();
+				if (newValue instanceof EObject) {
+					additions.add((EObject) newValue);
+				} else if (newValue instanceof Collection<?>) {
+					for (Object value : (Collection<?>) newValue) {
+						additions.add((EObject) value);
+					}
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2020 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,11 +19,14 @@
 package org.eclipse.e4.ui.internal.workbench;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -64,6 +67,7 @@ import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolBar;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolControl;
+import org.eclipse.e4.ui.model.internal.ModelIndex;
 import org.eclipse.e4.ui.model.internal.ModelUtils;
 import org.eclipse.e4.ui.workbench.IPresentationEngine;
 import org.eclipse.e4.ui.workbench.Selector;
@@ -89,6 +93,12 @@ public class ModelServiceImpl implements EModelService {
 
 	static String HOSTED_ELEMENT = "HostedElement"; //$NON-NLS-1$
 
+	/**
+	 * Searches by type use the model index only if the application has at least
+	 * this many times more elements than instances of the type.
+	 */
+	private static final int INDEXED_TYPE_RATIO = 16;
+
 	private IEclipseContext appContext;
 
 	/** Factory which is able to create {@link MApplicationElement}s in a generic way. */
@@ -415,7 +425,7 @@ public class ModelServiceImpl implements EModelService {
 	@Override
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz, List<String> tagsToMatch) {
 		ElementMatcher matcher = new ElementMatcher(id, clazz, tagsToMatch);
-		return findElements(searchRoot, clazz, ANYWHERE, matcher);
+		return findElements(searchRoot, id, clazz, ANYWHERE, matcher);
 	}
 
 	@Override
@@ -427,24 +437,332 @@ public class ModelServiceImpl implements EModelService {
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch, int searchFlags) {
 		ElementMatcher matcher = new ElementMatcher(id, clazz, tagsToMatch);
-		return findElements(searchRoot, clazz, searchFlags, matcher);
+		return findElements(searchRoot, id, clazz, searchFlags, matcher);
 	}
 
 	@Override
 	public <T> List<T> findElements(MApplicationElement searchRoot, Class<T> clazz,
 			int searchFlags, Selector matcher) {
-		LinkedHashSet<T> elements = new LinkedHashSet<>();
-		findElementsRecursive(searchRoot, clazz, matcher, elements, searchFlags);
-		return new ArrayList<>(elements);
+		return findElements(searchRoot, null, clazz, searchFlags, matcher);
+	}
+
+	/**
+	 * Finds the elements like {@link #findElementsRecursive}, but looks up the
+	 * elements with the given id, or else the instances of the given class, in
+	 * the model index if there is one. Only a search for every element that the
+	 * matcher selects walks the model.
+	 *
+	 * @param id the id the matcher requires, or <code>null</code>
+	 */
+	private <T> List<T> findElements(MApplicationElement searchRoot, String id, Class<T> clazz,
+			int searchFlags, Selector matcher) {
+		Assert.isLegal(searchRoot != null);
+		List<T> elements = findIndexedElements(searchRoot, id, clazz, searchFlags, matcher);
+		if (elements == null) {
+			LinkedHashSet<T> found = new LinkedHashSet<>();
+			findElementsRecursive(searchRoot, clazz, matcher, found, searchFlags);
+			elements = new ArrayList<>(found);
+		}
+		return elements;
+	}
+
+	/**
+	 * @return the elements in the order {@link #findElementsRecursive} finds
+	 *         them, or <code>null</code> if the model has to be walked
+	 */
+	private <T> List<T> findIndexedElements(MApplicationElement searchRoot, String id, Class<T> clazz,
+			int searchFlags, Selector matcher) {
+		if (searchFlags == 0) {
+			return new ArrayList<>();
+		}
+		ModelIndex index = ModelIndex.getIndex(searchRoot);
+		if (index == null) {
+			return null;
+		}
+		List<?> candidates;
+		if (id != null) {
+			candidates = index.getElementsById(id);
+		} else if (clazz != null && index.countElementsOfType(clazz) * INDEXED_TYPE_RATIO <= index.size()) {
+			candidates = index.getElementsOfType(clazz);
+		} else {
+			return null;
+		}
+
+		IndexedSearch search = new IndexedSearch(searchRoot, clazz, searchFlags, index);
+		List<MApplicationElement> found = new ArrayList<>();
+		Map<MApplicationElement, int[]> paths = new HashMap<>();
+		for (Object candidate : candidates) {
+			MApplicationElement element = (MApplicationElement) candidate;
+			if ((clazz == null || clazz.isInstance(element)) && matcher.select(element)) {
+				int[] path = search.pathTo((EObject) element);
+				if (search.unsupported) {
+					return null;
+				}
+				if (path != null) {
+					found.add(element);
+					paths.put(element, path);
+				}
+			}
+		}
+		found.sort((a, b) -> Arrays.compare(paths.get(a), paths.get(b)));
+
+		List<T> elements = new ArrayList<>(found.size());
+		for (MApplicationElement element : found) {
+			@SuppressWarnings("unchecked")
+			T t = (T) element;
+			elements.add(t);
+		}
+		return elements;
+	}
+
+	/**
+	 * Finds out whether and when {@link #findElementsRecursive} reaches given
+	 * elements, by walking from the elements up to the search root. The steps
+	 * are ranked in the order findElementsRecursive takes them, so a change to
+	 * the traversal there must be mirrored here. EModelServiceFindTest compares
+	 * both searches for every kind of step.
+	 */
+	private class IndexedSearch {
+		private static final int APPLICATION_CHILD = 0;
+		private static final int BINDING_CONTEXT_CHILD = 1;
+		private static final int BINDING = 2;
+		private static final int SHARED_ELEMENT = 3;
+		private static final int CHILD = 4;
+		private static final int TRIM_BAR = 5;
+		private static final int DETACHED_WINDOW = 6;
+		private static final int MAIN_MENU = 7;
+		private static final int WINDOW_HANDLER = 8;
+		private static final int PERSPECTIVE_WINDOW = 9;
+		private static final int PLACEHOLDER_REF = 10;
+		private static final int PART_MENU = 11;
+		private static final int PART_TOOLBAR = 12;
+		private static final int PART_HANDLER = 13;
+
+		private final int[] unreachable = new int[0];
+
+		private final MApplicationElement searchRoot;
+		private final Class<?> clazz;
+		private final int searchFlags;
+		private final ModelIndex index;
+		private final Map<EObject, int[]> paths = new HashMap<>();
+		private Map<MUIElement, List<MPlaceholder>> placeholders;
+
+		/**
+		 * Set if the search takes a step this class does not mirror.
+		 */
+		boolean unsupported;
+
+		IndexedSearch(MApplicationElement searchRoot, Class<?> clazz, int searchFlags, ModelIndex index) {
+			this.searchRoot = searchRoot;
+			this.clazz = clazz;
+			this.searchFlags = searchFlags;
+			this.index = index;
+		}
+
+		/**
+		 * @return the ranks and indexes of the steps of the first path from the
+		 *         search root to the element, or <code>null</code> if the search
+		 *         does not reach the element
+		 */
+		int[] pathTo(EObject element) {
+			if (element == searchRoot) {
+				return new int[0];
+			}
+			int[] path = paths.get(element);
+			if (path == null) {
+				paths.put(element, unreachable); // placeholder cycles
+				path = computePathTo(element);
+				paths.put(element, path == null ? unreachable : path);
+			}
+			return path == unreachable ? null : path;
+		}
+
+		private int[] computePathTo(EObject element) {
+			int[] best = null;
+			EObject container = element.eContainer();
+			if (container instanceof MApplicationElement) {
+				best = min(best, append(pathTo(container), step((MApplicationElement) container, element)));
+			}
+			if (container instanceof MPerspectiveStack) {
+				// the primary perspective stack is searched from its window
+				MWindow window = primaryStackWindow((MPerspectiveStack) container);
+				if (window != null) {
+					best = min(best, append(pathTo((EObject) window),
+							perspectiveStep((MPerspectiveStack) container, element)));
+				}
+			}
+			if (element instanceof MUIElement) {
+				if (element instanceof MArea && (searchFlags & IN_SHARED_AREA) == 0) {
+					return best;
+				}
+				for (MPlaceholder placeholder : getPlaceholders((MUIElement) element)) {
+					best = min(best, append(pathTo((EObject) placeholder), new int[] { PLACEHOLDER_REF, 0 }));
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * @return the step from the container to the child, or <code>null</code>
+		 *         if the search does not take it
+		 */
+		private int[] step(MApplicationElement container, EObject child) {
+			if (container instanceof MApplication && searchFlags == ANYWHERE && clazz != null) {
+				MApplication app = (MApplication) container;
+				List<?> children = null;
+				if (clazz.equals(MHandler.class)) {
+					children = app.getHandlers();
+				} else if (clazz.equals(MCommand.class)) {
+					children = app.getCommands();
+				} else if (clazz.equals(MBindingContext.class)) {
+					children = app.getBindingContexts();
+				} else if (clazz.equals(MBindingTable.class) || clazz.equals(MKeyBinding.class)) {
+					children = app.getBindingTables();
+				} else if (clazz.equals(MAddon.class)) {
+					children = app.getAddons();
+				}
+				int[] step = step(APPLICATION_CHILD, children, child);
+				if (step != null) {
+					return step;
+				}
+			}
+			if (container instanceof MBindingContext && searchFlags == ANYWHERE) {
+				int[] step = step(BINDING_CONTEXT_CHILD, ((MBindingContext) container).getChildren(), child);
+				if (step != null) {
+					return step;
+				}
+			}
+			if (container instanceof MBindingTable) {
+				int[] step = step(BINDING, ((MBindingTable) container).getBindings(), child);
+				if (step != null) {
+					return step;
+				}
+			}
+			if (container instanceof MWindow && (searchFlags & IN_SHARED_ELEMENTS) != 0) {
+				int[] step = step(SHARED_ELEMENT, ((MWindow) container).getSharedElements(), child);
+				if (step != null) {
+					return step;
+				}
+			}
+			if (container instanceof MElementContainer<?>
+					&& ((MElementContainer<?>) container).getChildren().contains(child)) {
+				if (container instanceof MPerspectiveStack) {
+					return perspectiveStep((MPerspectiveStack) container, child);
+				}
+				if (container instanceof MWindow && (searchFlags & OUTSIDE_PERSPECTIVE) == 0
+						&& getPrimaryPerspectiveStack((MWindow) container) != null) {
+					return null;
+				}
+				return step(CHILD, ((MElementContainer<?>) container).getChildren(), child);
+			}
+			if (container instanceof MTrimmedWindow && (searchFlags & IN_TRIM) != 0) {
+				int[] step = step(TRIM_BAR, ((MTrimmedWindow) container).getTrimBars(), child);
+				if (step != null) {
+					return step;
+				}
+			}
+			if (container instanceof MWindow) {
+				MWindow window = (MWindow) container;
+				int[] step = step(DETACHED_WINDOW, window.getWindows(), child);
+				if (step == null && window.getMainMenu() == child && (searchFlags & IN_MAIN_MENU) != 0) {
+					step = new int[] { MAIN_MENU, 0 };
+				}
+				if (step == null && searchFlags == ANYWHERE && MHandler.class.equals(clazz)) {
+					step = step(WINDOW_HANDLER, window.getHandlers(), child);
+				}
+				if (step != null) {
+					return step;
+				}
+			}
+			if (container instanceof MPerspective) {
+				int[] step = step(PERSPECTIVE_WINDOW, ((MPerspective) container).getWindows(), child);
+				if (step != null) {
+					return step;
+				}
+			}
+			if (container instanceof MPart && (searchFlags & IN_PART) != 0) {
+				MPart part = (MPart) container;
+				int[] step = step(PART_MENU, part.getMenus(), child);
+				if (step == null && part.getToolbar() == child) {
+					step = new int[] { PART_TOOLBAR, 0 };
+				}
+				if (step == null && MHandler.class.equals(clazz)) {
+					step = step(PART_HANDLER, part.getHandlers(), child);
+				}
+				return step;
+			}
+			return null;
+		}
+
+		private int[] perspectiveStep(MPerspectiveStack stack, EObject child) {
+			if ((searchFlags & IN_ANY_PERSPECTIVE) != 0) {
+				return step(CHILD, stack.getChildren(), child);
+			} else if ((searchFlags & IN_ACTIVE_PERSPECTIVE) != 0) {
+				return stack.getSelectedElement() == child ? new int[] { CHILD, 0 } : null;
+			} else if ((searchFlags & IN_SHARED_AREA) != 0) {
+				// the shared areas are searched in a nested search
+				unsupported = true;
+			}
+			return null;
+		}
+
+		private int[] step(int rank, List<?> children, EObject child) {
+			int i = children == null ? -1 : children.indexOf(child);
+			return i == -1 ? null : new int[] { rank, i };
+		}
+
+		/**
+		 * @return the window whose children are not searched in favor of the
+		 *         given stack, or <code>null</code>
+		 */
+		private MWindow primaryStackWindow(MPerspectiveStack stack) {
+			if ((searchFlags & OUTSIDE_PERSPECTIVE) != 0) {
+				return null;
+			}
+			EObject container = ((EObject) stack).eContainer();
+			if (container instanceof MPartSashContainer) {
+				container = container.eContainer();
+			}
+			if (container instanceof MWindow && getPrimaryPerspectiveStack((MWindow) container) == stack) {
+				return (MWindow) container;
+			}
+			return null;
+		}
+
+		private List<MPlaceholder> getPlaceholders(MUIElement ref) {
+			if (placeholders == null) {
+				placeholders = new HashMap<>();
+				for (MPlaceholder placeholder : index.getElementsOfType(MPlaceholder.class)) {
+					if (placeholder.getRef() != null) {
+						placeholders.computeIfAbsent(placeholder.getRef(), r -> new ArrayList<>()).add(placeholder);
+					}
+				}
+			}
+			return placeholders.getOrDefault(ref, List.of());
+		}
+
+		private int[] append(int[] path, int[] step) {
+			if (path == null || step == null) {
+				return null;
+			}
+			int[] result = Arrays.copyOf(path, path.length + step.length);
+			System.arraycopy(step, 0, result, path.length, step.length);
+			return result;
+		}
+
+		private int[] min(int[] a, int[] b) {
+			if (a == null) {
+				return b;
+			}
+			return b == null || Arrays.compare(a, b) <= 0 ? a : b;
+		}
 	}
 
 	private <T> Iterable<T> findPerspectiveElements(MUIElement searchRoot, String id,
 			Class<T> clazz,
 			List<String> tagsToMatch) {
-		LinkedHashSet<T> elements = new LinkedHashSet<>();
 		ElementMatcher matcher = new ElementMatcher(id, clazz, tagsToMatch);
-		findElementsRecursive(searchRoot, clazz, matcher, elements, PRESENTATION);
-		return elements;
+		return findElements(searchRoot, id, clazz, PRESENTATION, matcher);
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2021 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -24,8 +24,11 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -54,6 +57,7 @@ import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.osgi.framework.Bundle;
 
@@ -62,8 +66,11 @@ import org.osgi.framework.Bundle;
  */
 public class ResourceHandler implements IModelResourceHandler {
 
+	private static final String BINARY_EXTENSION = "bin"; //$NON-NLS-1$
+
 	private ResourceSet resourceSet;
 	private Resource resource;
+	private ModelJournal journal;
 
 	@Inject
 	private Logger logger;
@@ -90,6 +97,11 @@ public class ResourceHandler implements IModelResourceHandler {
 	@Named(IWorkbench.CLEAR_PERSISTED_STATE)
 	private boolean clearPersistedState;
 
+	@Inject
+	@Optional
+	@Named(E4Workbench.BINARY_MODEL)
+	private boolean binaryModel;
+
 	/**
 	 * Constructor.
 	 *
@@ -131,7 +143,8 @@ public class ResourceHandler implements IModelResourceHandler {
 	 * @return {@code true} if the specified application model has top-level windows.
 	 */
 	private boolean hasTopLevelWindows(Resource applicationResource) {
-		if (applicationResource == null || applicationResource.getContents() == null) {
+		if (applicationResource == null || applicationResource.getContents() == null
+				|| applicationResource.getContents().isEmpty()) {
 			// If the application resource doesn't exist or has no contents, then it has no
 			// top-level windows (and we are in an error state).
 			return false;
@@ -143,39 +156,28 @@ public class ResourceHandler implements IModelResourceHandler {
 	@Override
 	public Resource loadMostRecentModel() {
 		File workbenchData = null;
-		URI restoreLocation = null;
+		File binaryData = null;
 
 		if (saveAndRestore) {
 			workbenchData = getWorkbenchSaveLocation();
-			restoreLocation = URI.createFileURI(workbenchData.getAbsolutePath());
+			binaryData = getBinarySaveLocation();
 		}
 
-		if (clearPersistedState && workbenchData != null && workbenchData.exists()) {
-			workbenchData.delete();
+		if (clearPersistedState && workbenchData != null) {
+			if (workbenchData.exists()) {
+				workbenchData.delete();
+			}
+			if (binaryData.exists()) {
+				binaryData.delete();
+			}
+			getJournalLocation().delete();
 		}
 
-		// last stored time-stamp
-		long restoreLastModified = restoreLocation == null ? 0L : new File(
-				restoreLocation.toFileString()).lastModified();
-
-		// See bug 380663, bug 381219
-		// long lastApplicationModification = getLastApplicationModification();
-		// boolean restore = restoreLastModified > lastApplicationModification;
-		boolean restore = restoreLastModified > 0;
 		boolean initialModel;
 
 		resource = null;
-		if (restore && saveAndRestore) {
-			resource = loadResource(restoreLocation);
-			// If the saved model does not have any top-level windows, Eclipse will exit
-			// immediately, so throw out the persisted state and reinitialize with the defaults.
-			if (!hasTopLevelWindows(resource)) {
-				if (logger != null) {
-					logger.error(new Exception(), // log a stack trace to help debug the corruption
-							"The persisted application model has no top-level window. Reinitializing with the default application model."); //$NON-NLS-1$
-				}
-				resource = null;
-			}
+		if (saveAndRestore) {
+			resource = loadSavedModel(workbenchData, binaryData);
 		}
 		if (resource == null) {
 			Resource applicationResource = loadResource(applicationDefinitionInstance);
@@ -209,15 +211,134 @@ public class ResourceHandler implements IModelResourceHandler {
 		CommandLineOptionModelProcessor processor = ContextInjectionFactory.make(CommandLineOptionModelProcessor.class, context);
 		processor.process();
 
+		if (saveAndRestore && resource instanceof XMLResource) {
+			journal = new ModelJournal((XMLResource) resource, getWorkbenchSaveLocation(), getJournalLocation(),
+					resourceSet.getPackageRegistry(), logger);
+		}
+
 		return resource;
 	}
 
+	/**
+	 * Loads the most recently saved of the XMI and the binary model. Falls back to
+	 * the other one if it cannot be loaded or has no top-level window, so that
+	 * switching between the formats migrates the saved model.
+	 *
+	 * @return the saved model, or <code>null</code> if there is none to restore
+	 */
+	private Resource loadSavedModel(File workbenchData, File binaryData) {
+		// See bug 380663, bug 381219
+		// long lastApplicationModification = getLastApplicationModification();
+		// boolean restore = restoreLastModified > lastApplicationModification;
+		List<File> savedModels = new ArrayList<>(2);
+		for (File file : new File[] { workbenchData, binaryData }) {
+			// last stored time-stamp
+			if (file.lastModified() > 0) {
+				savedModels.add(file);
+			}
+		}
+		savedModels.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+		for (File file : savedModels) {
+			Resource savedModel = file == binaryData ? loadBinaryResource(file)
+					: loadResource(URI.createFileURI(file.getAbsolutePath()));
+			if (file == workbenchData && savedModel instanceof XMLResource) {
+				replayJournal((XMLResource) savedModel);
+			}
+			if (hasTopLevelWindows(savedModel)) {
+				return savedModel;
+			}
+			// If the saved model does not have any top-level windows, Eclipse will exit
+			// immediately, so throw out the persisted state and reinitialize with the defaults.
+			if (logger != null) {
+				logger.error(new Exception(), // log a stack trace to help debug the corruption
+						"The persisted application model " + file //$NON-NLS-1$
+								+ " has no top-level window. Reinitializing with the default application model."); //$NON-NLS-1$
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Applies the changes auto-saved after the model, if the workbench crashed.
+	 */
+	private void replayJournal(XMLResource savedModel) {
+		File journalFile = getJournalLocation();
+		try {
+			ModelJournal.replay(savedModel, journalFile);
+		} catch (IOException | RuntimeException e) {
+			if (logger != null) {
+				logger.error(e, "Unable to apply the workbench model journal " + journalFile); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * Loads a model saved in the binary format, and moves it to a regular XMI
+	 * resource.
+	 */
+	private Resource loadBinaryResource(File file) {
+		URI uri = URI.createFileURI(file.getAbsolutePath());
+		E4BinaryResource binaryResource = new E4BinaryResource(uri);
+		resourceSet.getResources().add(binaryResource);
+		try {
+			binaryResource.load(resourceSet.getLoadOptions());
+			if (binaryResource.getContents().isEmpty()
+					|| !(binaryResource.getContents().get(0) instanceof MApplication)) {
+				return null;
+			}
+			return createResourceWithApp((MApplication) binaryResource.getContents().get(0));
+		} catch (Exception e) {
+			logger.error(e, "Unable to load resource " + uri); //$NON-NLS-1$
+			return null;
+		} finally {
+			resourceSet.getResources().remove(binaryResource);
+		}
+	}
+
 	@Override
 	public void save() throws IOException {
 		if (saveAndRestore) {
 			Map<String, Object> options = new HashMap<>();
 			options.put(E4XMIResource.OPTION_FILTER_PERSIST_STATE, Boolean.TRUE);
-			resource.save(options);
+			URI binaryURI = getBinaryURI(resource.getURI());
+			if (journal != null) {
+				journal.aboutToSave();
+			}
+			if (binaryModel) {
+				new E4BinaryResource(binaryURI).saveCopy(resource.getContents(), options);
+				// only the most recent model is restored, remove the outdated one
+				deleteFile(resource.getURI());
+			} else {
+				resource.save(options);
+				deleteFile(binaryURI);
+				if (journal != null
+						&& resource.getURI().equals(URI.createFileURI(getWorkbenchSaveLocation().getAbsolutePath()))) {
+					journal.saved();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the journal that auto-saves the changes of the model incrementally.
+	 *
+	 * @return the journal, or <code>null</code> if the model is not persisted
+	 */
+	public ModelJournal getJournal() {
+		return journal;
+	}
+
+	private static URI getBinaryURI(URI uri) {
+		return uri.trimFileExtension().appendFileExtension(BINARY_EXTENSION);
+	}
+
+	private static void deleteFile(URI uri) {
+		if (uri.isFile()) {
+			File file = new File(uri.toFileString());
+			if (file.exists()) {
+				file.delete();
+			}
 		}
 	}
 
@@ -247,6 +368,14 @@ public class ResourceHandler implements IModelResourceHandler {
 		return new File(getBaseLocation(), "workbench.xmi"); //$NON-NLS-1$
 	}
 
+	private File getJournalLocation() {
+		return new File(getBaseLocation(), "workbench.journal"); //$NON-NLS-1$
+	}
+
+	private File getBinarySaveLocation() {
+		return new File(getBaseLocation(), "workbench." + BINARY_EXTENSION); //$NON-NLS-1$
+	}
+
 	private File getBaseLocation() {
 		File baseLocation;
 		try {
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+
+/**
+ * Knows the topics of all registered {@link EventHandler} services, so that an
+ * event which nobody receives does not have to be created.
+ * <p>
+ * Topics are matched like the event admin does: a topic pattern is either
+ * <code>*</code>, a topic, or a topic prefix followed by <code>/*</code>. The
+ * filters of the handlers are ignored, so a topic may have subscribers that
+ * do not receive all of its events. The answers are cached per topic until the
+ * handlers change, which is best with a limited number of topics such as the
+ * model topics.
+ * </p>
+ */
+public class TopicSubscriptions {
+
+	private static final String WILDCARD = "*"; //$NON-NLS-1$
+
+	private static final String PREFIX_WILDCARD = "/*"; //$NON-NLS-1$
+
+	private static TopicSubscriptions instance;
+
+	/** the number of handlers for each topic pattern */
+	private final Map<String, Integer> patterns = new HashMap<>();
+
+	/**
+	 * The cached answers, replaced when the patterns change. Obtained before
+	 * the patterns are read, so an answer computed from outdated patterns ends
+	 * up in an outdated cache.
+	 */
+	private volatile Map<String, Boolean> results = new ConcurrentHashMap<>();
+
+	private ServiceTracker<EventHandler, ServiceReference<EventHandler>> tracker;
+
+	/**
+	 * Returns the subscriptions of the framework running this bundle, and starts
+	 * tracking the event handlers on first use.
+	 *
+	 * @return the subscriptions, or <code>null</code> when not running in OSGi
+	 */
+	public static synchronized TopicSubscriptions getDefault() {
+		if (instance == null) {
+			Bundle bundle = FrameworkUtil.getBundle(TopicSubscriptions.class);
+			BundleContext context = bundle == null ? null : bundle.getBundleContext();
+			if (context == null) {
+				return null;
+			}
+			instance = new TopicSubscriptions();
+			instance.open(context);
+		}
+		return instance;
+	}
+
+	/**
+	 * Stops tracking the event handlers, called when this bundle stops.
+	 */
+	static synchronized void closeDefault() {
+		if (instance != null) {
+			instance.tracker.close();
+			instance = null;
+		}
+	}
+
+	private void open(BundleContext context) {
+		tracker = new ServiceTracker<>(context, EventHandler.class,
+				new ServiceTrackerCustomizer<EventHandler, ServiceReference<EventHandler>>() {
+					private final Map<ServiceReference<EventHandler>, String[]> topics = new HashMap<>();
+
+					@Override
+					public ServiceReference<EventHandler> addingService(ServiceReference<EventHandler> reference) {
+						String[] added = getTopics(reference);
+						synchronized (topics) {
+							topics.put(reference, added);
+						}
+						addTopics(added);
+						return reference;
+					}
+
+					@Override
+					public void modifiedService(ServiceReference<EventHandler> reference,
+							ServiceReference<EventHandler> service) {
+						String[] added = getTopics(reference);
+						String[] removed;
+						synchronized (topics) {
+							removed = topics.put(reference, added);
+						}
+						addTopics(added);
+						removeTopics(removed);
+					}
+
+					@Override
+					public void removedService(ServiceReference<EventHandler> reference,
+							ServiceReference<EventHandler> service) {
+						String[] removed;
+						synchronized (topics) {
+							removed = topics.remove(reference);
+						}
+						removeTopics(removed);
+					}
+				});
+		// also the handlers that use another version of the event package
+		tracker.open(true);
+	}
+
+	private static String[] getTopics(ServiceReference<EventHandler> reference) {
+		Object topics = reference.getProperty(EventConstants.EVENT_TOPIC);
+		if (topics instanceof String) {
+			return new String[] { (String) topics };
+		}
+		if (topics instanceof String[]) {
+			return (String[]) topics;
+		}
+		if (topics instanceof Collection<?>) {
+			return ((Collection<?>) topics).stream().filter(String.class::isInstance).toArray(String[]::new);
+		}
+		return null;
+	}
+
+	/**
+	 * Records the topic patterns of a handler.
+	 *
+	 * @param topics the topic patterns, may be <code>null</code>
+	 */
+	public void addTopics(String[] topics) {
+		if (topics == null) {
+			return;
+		}
+		synchronized (patterns) {
+			for (String topic : topics) {
+				patterns.merge(topic, Integer.valueOf(1), (a, b) -> Integer.valueOf(a.intValue() + b.intValue()));
+			}
+		}
+		results = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Forgets the topic patterns of a handler.
+	 *
+	 * @param topics the topic patterns previously added, may be
+	 *               <code>null</code>
+	 */
+	public void removeTopics(String[] topics) {
+		if (topics == null) {
+			return;
+		}
+		synchronized (patterns) {
+			for (String topic : topics) {
+				patterns.computeIfPresent(topic, (key, count) -> count.intValue() == 1 ? null
+						: Integer.valueOf(count.intValue() - 1));
+			}
+		}
+		results = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @param topic an event topic
+	 * @return whether a handler may receive events with the topic
+	 */
+	public boolean hasSubscribers(String topic) {
+		Map<String, Boolean> cache = results;
+		Boolean result = cache.get(topic);
+		if (result == null) {
+			result = Boolean.valueOf(matches(topic));
+			cache.put(topic, result);
+		}
+		return result.booleanValue();
+	}
+
+	private boolean matches(String topic) {
+		synchronized (patterns) {
+			if (patterns.containsKey(WILDCARD) || patterns.containsKey(topic)) {
+				return true;
+			}
+			for (int i = topic.lastIndexOf('/'); i > 0; i = topic.lastIndexOf('/', i - 1)) {
+				if (patterns.containsKey(topic.substring(0, i) + PREFIX_WILDCARD)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.model.application.MApplicationElement;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.workbench.UIEvents.EventTags;
+import org.eclipse.emf.common.notify.Notification;
+import org.osgi.service.event.EventConstants;
+
+/**
+ * The read-only properties of a model event sent by {@link UIEventPublisher},
+ * with a fixed set of keys instead of hash map entries.
+ * <p>
+ * The map contains the topic and the {@link IEventBroker#DATA} of the event,
+ * so the event broker can create the event from it without copying it first.
+ * The data is a view of the same properties without these two keys, like the
+ * map the event broker used to create. The old and new values are only taken
+ * from the notification when they are read.
+ * </p>
+ */
+final class UIEventProperties extends AbstractMap<String, Object> {
+
+	private static final String[] KEYS = { EventConstants.EVENT_TOPIC, IEventBroker.DATA, EventTags.TYPE,
+			EventTags.ELEMENT, EventTags.ATTNAME, EventTags.NEW_VALUE, EventTags.OLD_VALUE, EventTags.POSITION,
+			EventTags.WIDGET };
+
+	private static final int TOPIC = 0;
+
+	private static final int DATA = 1;
+
+	private static final int TYPE = 2;
+
+	private static final int ELEMENT = 3;
+
+	private static final int ATTNAME = 4;
+
+	private static final int NEW_VALUE = 5;
+
+	private static final int OLD_VALUE = 6;
+
+	private static final int POSITION = 7;
+
+	private static final int WIDGET = 8;
+
+	private final String topic;
+
+	private final String type;
+
+	private final Notification notification;
+
+	private final MApplicationElement element;
+
+	private final String attributeName;
+
+	private final String mapKey;
+
+	private final Object widget;
+
+	private final Map<String, Object> data = new Data();
+
+	private boolean valuesResolved;
+
+	private Object newValue;
+
+	private Object oldValue;
+
+	private Object position;
+
+	/**
+	 * @param topic         the topic of the event
+	 * @param type          the {@link EventTags#TYPE} of the event
+	 * @param notification  the notification of the change
+	 * @param element       the changed element
+	 * @param attributeName the name of the changed attribute
+	 * @param mapKey        the key of the changed map entry when the notifier
+	 *                      is a map entry, otherwise <code>null</code>
+	 */
+	UIEventProperties(String topic, String type, Notification notification, MApplicationElement element,
+			String attributeName, String mapKey) {
+		this.topic = topic;
+		this.type = type;
+		this.notification = notification;
+		this.element = element;
+		this.attributeName = attributeName;
+		this.mapKey = mapKey;
+		this.widget = element instanceof MUIElement ? ((MUIElement) element).getWidget() : null;
+	}
+
+	private void resolveValues() {
+		if (valuesResolved) {
+			return;
+		}
+		switch (notification.getEventType()) {
+		case Notification.SET:
+			if (mapKey != null) {
+				// map entries for the old and new values
+				oldValue = new SimpleImmutableEntry<>(mapKey, notification.getOldValue());
+				newValue = new SimpleImmutableEntry<>(mapKey, notification.getNewValue());
+			} else {
+				oldValue = notification.getOldValue();
+				newValue = notification.getNewValue();
+			}
+			break;
+		case Notification.MOVE:
+			// for MOVE, oldValue is actually the source position
+		case Notification.ADD:
+		case Notification.REMOVE:
+			oldValue = notification.getOldValue();
+			newValue = notification.getNewValue();
+			position = Integer.valueOf(notification.getPosition());
+			break;
+		case Notification.ADD_MANY:
+			newValue = notification.getNewValue();
+			position = Integer.valueOf(notification.getPosition());
+			break;
+		case Notification.REMOVE_MANY:
+			oldValue = notification.getOldValue();
+			position = notification.getNewValue();
+			break;
+		default:
+			// no need to include UNSET
+		}
+		valuesResolved = true;
+	}
+
+	private boolean has(int slot) {
+		switch (slot) {
+		case NEW_VALUE:
+			resolveValues();
+			return newValue != null;
+		case OLD_VALUE:
+			resolveValues();
+			return oldValue != null;
+		case POSITION:
+			resolveValues();
+			return position != null;
+		case WIDGET:
+			return element instanceof MUIElement;
+		default:
+			return true;
+		}
+	}
+
+	private Object value(int slot) {
+		switch (slot) {
+		case TOPIC:
+			return topic;
+		case DATA:
+			return data;
+		case TYPE:
+			return type;
+		case ELEMENT:
+			return element;
+		case ATTNAME:
+			return attributeName;
+		case NEW_VALUE:
+			resolveValues();
+			return newValue;
+		case OLD_VALUE:
+			resolveValues();
+			return oldValue;
+		case POSITION:
+			resolveValues();
+			return position;
+		default:
+			return widget;
+		}
+	}
+
+	private int slot(Object key, int first) {
+		for (int i = first; i < KEYS.length; i++) {
+			if (KEYS[i].equals(key)) {
+				return has(i) ? i : -1;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int slot = slot(key, TOPIC);
+		return slot == -1 ? null : value(slot);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return slot(key, TOPIC) != -1;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new Entries(TOPIC);
+	}
+
+	private final class Data extends AbstractMap<String, Object> {
+
+		@Override
+		public Object get(Object key) {
+			int slot = slot(key, TYPE);
+			return slot == -1 ? null : value(slot);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return slot(key, TYPE) != -1;
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return new Entries(TYPE);
+		}
+	}
+
+	private final class Entries extends AbstractSet<Entry<String, Object>> {
+
+		private final int first;
+
+		Entries(int first) {
+			this.first = first;
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+			for (int i = first; i < KEYS.length; i++) {
+				if (has(i)) {
+					size++;
+				}
+			}
+			return size;
+		}
+
+		@Override
+		public Iterator<Entry<String, Object>> iterator() {
+			return new Iterator<>() {
+				private int next = skip(first);
+
+				private int skip(int slot) {
+					while (slot < KEYS.length && !has(slot)) {
+						slot++;
+					}
+					return slot;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next < KEYS.length;
+				}
+
+				@Override
+				public Entry<String, Object> next() {
+					if (next >= KEYS.length) {
+						throw new NoSuchElementException();
+					}
+					Entry<String, Object> entry = new SimpleImmutableEntry<>(KEYS[next], value(next));
+					next = skip(next + 1);
+					return entry;
+				}
+			};
+		}
+	}
+}
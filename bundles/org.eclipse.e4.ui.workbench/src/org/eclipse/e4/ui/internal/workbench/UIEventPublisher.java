@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,17 +14,15 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.internal.workbench;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
 import org.eclipse.e4.ui.model.application.impl.StringToObjectMapImpl;
 import org.eclipse.e4.ui.model.application.impl.StringToStringMapImpl;
-import org.eclipse.e4.ui.model.application.ui.MUIElement;
 import org.eclipse.e4.ui.workbench.UIEvents;
-import org.eclipse.e4.ui.workbench.UIEvents.EventTags;
 import org.eclipse.e4.ui.workbench.UIEvents.EventTypes;
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.ecore.EClass;
@@ -36,13 +34,34 @@ import org.eclipse.emf.ecore.util.EContentAdapter;
  */
 public class UIEventPublisher extends EContentAdapter {
 
+	/** The topics of each feature, indexed by the EMF notification type */
+	private static final Map<EStructuralFeature, String[]> featureTopics = new ConcurrentHashMap<>();
+
+	private static final String[] transientDataTopics = createTopics(
+			getTopicBase(UIEvents.ApplicationElement.TRANSIENTDATA));
+
+	private static final String[] persistedStateTopics = createTopics(
+			getTopicBase(UIEvents.ApplicationElement.PERSISTEDSTATE));
+
 	private IEclipseContext context;
 
+	private final TopicSubscriptions subscriptions;
+
 	/**
 	 * @param e4Context
 	 */
 	public UIEventPublisher(IEclipseContext e4Context) {
+		this(e4Context, TopicSubscriptions.getDefault());
+	}
+
+	/**
+	 * @param e4Context
+	 * @param subscriptions the subscriptions used to skip the events nobody
+	 *                      receives, or <code>null</code> to send all events
+	 */
+	public UIEventPublisher(IEclipseContext e4Context, TopicSubscriptions subscriptions) {
 		this.context = e4Context;
+		this.subscriptions = subscriptions;
 	}
 
 	@Override
@@ -53,14 +72,12 @@ public class UIEventPublisher extends EContentAdapter {
 		if (notification.isTouch())
 			return;
 
-		// Format the EMF event as an E4 UIEvent
-		Map<String, Object> argMap = new HashMap<>();
+		String topic = getTopic(notification);
 
-		String topic = formatData(notification, argMap);
-
-		if (topic != null) {
+		// Only format the EMF event as an E4 UIEvent if someone receives it
+		if (topic != null && (subscriptions == null || subscriptions.hasSubscribers(topic))) {
 			IEventBroker eventManager = context.get(IEventBroker.class);
-			eventManager.send(topic, argMap);
+			eventManager.send(topic, formatData(notification, topic));
 		}
 	}
 
@@ -102,58 +119,19 @@ public class UIEventPublisher extends EContentAdapter {
 	 * Likely there is some "simple" EMF wisdom we are missing to make this work with a couple of
 	 * annotations, a white swan and a full moon.
 	 */
-	private String formatData(final Notification notification, Map<String, Object> argMap) {
-		MApplicationElement appElement = null;
-		EStructuralFeature feature = null;
-		String attributeName = null;
-		String topic = null;
-
+	private String getTopic(Notification notification) {
 		Object notifier = notification.getNotifier();
-		Object oldValue = null;
-		Object newValue = null;
-		Object position = null;
+		int eventType = notification.getEventType();
 
 		if (notifier instanceof MApplicationElement) {
 			// Most EMF events will be these. Even map add and remove events
-			appElement = (MApplicationElement) notifier;
-			feature = (EStructuralFeature) notification.getFeature();
-			attributeName = feature.getName();
-			topic = getTopic(feature, getEventType(notification));
-			switch (notification.getEventType()) {
-			case Notification.MOVE:
-				// for MOVE, oldValue is actually the source position
-				oldValue = notification.getOldValue();
-				newValue = notification.getNewValue();
-				position = notification.getPosition();
-				break;
-			case Notification.ADD_MANY:
-				newValue = notification.getNewValue();
-				position = notification.getPosition();
-				break;
-			case Notification.REMOVE_MANY:
-				oldValue = notification.getOldValue();
-				position = notification.getNewValue();
-				break;
-			case Notification.ADD:
-			case Notification.REMOVE:
-				oldValue = notification.getOldValue();
-				newValue = notification.getNewValue();
-				position = notification.getPosition();
-				break;
-			case Notification.SET:
-			case Notification.UNSET:
-				oldValue = notification.getOldValue();
-				newValue = notification.getNewValue();
-				break;
-			default:
-				Platform.getLog(getClass()).error(getClass().getName()
-						+ ": unhandled EMF Notification code: " //$NON-NLS-1$
-						+ notification.getEventType());
-			}
+			EStructuralFeature feature = (EStructuralFeature) notification.getFeature();
+			String[] topics = featureTopics.computeIfAbsent(feature, UIEventPublisher::createFeatureTopics);
+			return getTopic(topics, eventType);
 		} else if (notifier instanceof StringToObjectMapImpl) {
 			// These are SET events on StringToObjectMap only
 			// StringToObjectMap is ONLY used by MApplicationData.transientData
-			appElement = (MApplicationElement) ((StringToObjectMapImpl) notifier).eContainer();
+			MApplicationElement appElement = (MApplicationElement) ((StringToObjectMapImpl) notifier).eContainer();
 
 			// Guard code to detect if some other model field is using a StringToObjectMap
 			final String key = ((StringToObjectMapImpl) notifier).getKey();
@@ -166,17 +144,11 @@ public class UIEventPublisher extends EContentAdapter {
 				throw new IllegalArgumentException(
 						"A StringToObjectMap that was NOT MApplicationElement.transientData changed.  You must modify UIEventPublisher appropriately"); //$NON-NLS-1$
 			}
-
-			attributeName = UIEvents.ApplicationElement.TRANSIENTDATA;
-			topic = getTopic(attributeName, getEventType(notification));
-
-			// We need to send MapEntries for the old and new values.
-			oldValue = createMapEntry(key, notification.getOldValue());
-			newValue = createMapEntry(key, notification.getNewValue());
+			return getTopic(transientDataTopics, eventType);
 		} else if (notifier instanceof StringToStringMapImpl) {
 			// These are SET events on StringToStringMap only
 			// StringToStringMap is ONLY used by MApplicationData.persistedState
-			appElement = (MApplicationElement) ((StringToStringMapImpl) notifier).eContainer();
+			MApplicationElement appElement = (MApplicationElement) ((StringToStringMapImpl) notifier).eContainer();
 
 			// Guard code to detect if some other model field is using a StringToStringMap
 			final String key = ((StringToStringMapImpl) notifier).getKey();
@@ -189,47 +161,48 @@ public class UIEventPublisher extends EContentAdapter {
 				throw new IllegalArgumentException(
 						"A StringToStringMap that was NOT MApplicationElement.persistedState changed.  You must modify UIEventPublisher appropriately"); //$NON-NLS-1$
 			}
-
-			attributeName = UIEvents.ApplicationElement.PERSISTEDSTATE;
-			topic = getTopic(attributeName, getEventType(notification));
-			oldValue = createMapEntry(key, notification.getOldValue());
-			newValue = createMapEntry(key, notification.getNewValue());
-		} else {
-			// Unhandled notification type. Ignore event
-			return null;
+			return getTopic(persistedStateTopics, eventType);
 		}
 
-		argMap.put(EventTags.TYPE, getEventType(notification));
-		argMap.put(EventTags.ELEMENT, appElement);
-		argMap.put(EventTags.ATTNAME, attributeName);
-
-		// no need to include UNSET
-		if (notification.getEventType() == Notification.SET
-				|| notification.getEventType() == Notification.MOVE
-				|| notification.getEventType() == Notification.ADD
-				|| notification.getEventType() == Notification.ADD_MANY
-				|| notification.getEventType() == Notification.REMOVE
-				|| notification.getEventType() == Notification.REMOVE_MANY) {
-			if (newValue != null) {
-				argMap.put(EventTags.NEW_VALUE, newValue);
-			}
-			if (oldValue != null) {
-				argMap.put(EventTags.OLD_VALUE, oldValue);
-			}
-			if (position != null) {
-				argMap.put(EventTags.POSITION, position);
-			}
-		}
+		// Unhandled notification type. Ignore event
+		return null;
+	}
 
-		if (appElement instanceof MUIElement) {
-			argMap.put(EventTags.WIDGET, ((MUIElement) appElement).getWidget());
+	private Map<String, Object> formatData(Notification notification, String topic) {
+		Object notifier = notification.getNotifier();
+		String type = getEventType(notification.getEventType());
+
+		if (notifier instanceof StringToObjectMapImpl) {
+			StringToObjectMapImpl entry = (StringToObjectMapImpl) notifier;
+			return new UIEventProperties(topic, type, notification, (MApplicationElement) entry.eContainer(),
+					UIEvents.ApplicationElement.TRANSIENTDATA, entry.getKey());
+		} else if (notifier instanceof StringToStringMapImpl) {
+			StringToStringMapImpl entry = (StringToStringMapImpl) notifier;
+			return new UIEventProperties(topic, type, notification, (MApplicationElement) entry.eContainer(),
+					UIEvents.ApplicationElement.PERSISTEDSTATE, entry.getKey());
 		}
 
-		return topic;
+		switch (notification.getEventType()) {
+		case Notification.MOVE:
+		case Notification.ADD_MANY:
+		case Notification.REMOVE_MANY:
+		case Notification.ADD:
+		case Notification.REMOVE:
+		case Notification.SET:
+		case Notification.UNSET:
+			break;
+		default:
+			Platform.getLog(getClass()).error(getClass().getName()
+					+ ": unhandled EMF Notification code: " //$NON-NLS-1$
+					+ notification.getEventType());
+		}
+		EStructuralFeature feature = (EStructuralFeature) notification.getFeature();
+		return new UIEventProperties(topic, type, notification, (MApplicationElement) notifier, feature.getName(),
+				null);
 	}
 
-	private String getEventType(Notification notification) {
-		switch (notification.getEventType()) {
+	private static String getEventType(int eventType) {
+		switch (eventType) {
 		case Notification.ADD:
 			return EventTypes.ADD;
 
@@ -253,35 +226,35 @@ public class UIEventPublisher extends EContentAdapter {
 		return "UNKNOWN"; //$NON-NLS-1$
 	}
 
-	private Map.Entry<String, Object> createMapEntry(final String key, final Object value) {
-		return new Map.Entry<>() {
-			@Override
-			public String getKey() {
-				return key;
-			}
-
-			@Override
-			public Object getValue() {
-				return value;
-			}
+	private static String getTopic(String[] topics, int eventType) {
+		if (eventType >= 0 && eventType < topics.length) {
+			return topics[eventType];
+		}
+		// like CREATE, other types are "UNKNOWN"
+		return topics[Notification.CREATE];
+	}
 
-			@Override
-			public Object setValue(Object value) {
-				throw new UnsupportedOperationException();
-			}
-		};
+	/**
+	 * Creates the topics once, interned so that the event admin can compare them
+	 * quickly.
+	 */
+	private static String[] createTopics(String topicBase) {
+		String[] topics = new String[Notification.EVENT_TYPE_COUNT];
+		for (int i = 0; i < topics.length; i++) {
+			topics[i] = (topicBase + UIEvents.TOPIC_SEP + getEventType(i)).intern();
+		}
+		return topics;
 	}
 
-	private String getTopic(EStructuralFeature eFeature, String type) {
+	private static String[] createFeatureTopics(EStructuralFeature eFeature) {
 		EClass eContainingClass = eFeature.getEContainingClass();
-		return UIEvents.UIModelTopicBase + UIEvents.TOPIC_SEP
+		return createTopics(UIEvents.UIModelTopicBase + UIEvents.TOPIC_SEP
 				+ eContainingClass.getEPackage().getName() + UIEvents.TOPIC_SEP
-				+ eContainingClass.getName() + UIEvents.TOPIC_SEP + eFeature.getName()
-				+ UIEvents.TOPIC_SEP + type;
+				+ eContainingClass.getName() + UIEvents.TOPIC_SEP + eFeature.getName());
 	}
 
-	private String getTopic(String attributeName, String type) {
+	private static String getTopicBase(String attributeName) {
 		String topicBase = "org/eclipse/e4/ui/model/application/ApplicationElement/"; //$NON-NLS-1$
-		return topicBase + attributeName + UIEvents.TOPIC_SEP + type;
+		return topicBase + attributeName;
 	}
 }
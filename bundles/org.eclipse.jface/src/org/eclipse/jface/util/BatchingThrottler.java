@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.util;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * A utility class that collects items submitted from any thread and delivers
+ * them in batches in the UI thread.
+ * <p>
+ * Like {@link Throttler}, the consumer runs at most once per delay, however
+ * often items are submitted. Items are queued without locking, and each batch
+ * contains the items submitted since the previous batch in submission order,
+ * without duplicates. The delay starts at the minimum wait time and adapts to
+ * the UI thread: it grows up to the maximum wait time while the consumer takes
+ * long to run or while the event loop is too busy to dispatch the throttler
+ * promptly, and shrinks back once the UI thread is idle again.
+ * </p>
+ *
+ * @param <T> the type of the items
+ * @since 3.26
+ */
+public class BatchingThrottler<T> {
+
+	/**
+	 * The consumer may use at most about one part in this number of the UI
+	 * thread's time.
+	 */
+	private static final int BUSY_RATIO = 4;
+
+	private final Display display;
+
+	private final Consumer<Set<T>> consumer;
+
+	private final long minWaitMillis;
+
+	private final long maxWaitMillis;
+
+	private final Queue<T> pending = new ConcurrentLinkedQueue<>();
+
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	private final Runnable timerExec = this::timerExec;
+
+	private final Runnable runner = this::run;
+
+	private volatile boolean running;
+
+	private volatile long delayMillis;
+
+	private volatile long postedNanos;
+
+	private long lastRunNanos;
+
+	/**
+	 * Initializes a new throttler that delivers the submitted items to the given
+	 * consumer in the {@link Display#getThread() UI thread} of the given
+	 * display, at most every {@code minWaitTime} and at least every ten times
+	 * that time.
+	 *
+	 * @param display     the display owning the thread onto which the consumer
+	 *                    will be executed.
+	 * @param minWaitTime the minimum duration between each execution of the
+	 *                    consumer.
+	 * @param consumer    the consumer of the batches of items.
+	 */
+	public BatchingThrottler(Display display, Duration minWaitTime, Consumer<Set<T>> consumer) {
+		this(display, minWaitTime, minWaitTime.multipliedBy(10), consumer);
+	}
+
+	/**
+	 * Initializes a new throttler that delivers the submitted items to the given
+	 * consumer in the {@link Display#getThread() UI thread} of the given
+	 * display.
+	 *
+	 * @param display     the display owning the thread onto which the consumer
+	 *                    will be executed.
+	 * @param minWaitTime the minimum duration between each execution of the
+	 *                    consumer.
+	 * @param maxWaitTime the maximum duration between each execution of the
+	 *                    consumer when the UI thread is busy.
+	 * @param consumer    the consumer of the batches of items.
+	 */
+	public BatchingThrottler(Display display, Duration minWaitTime, Duration maxWaitTime,
+			Consumer<Set<T>> consumer) {
+		if (minWaitTime.isNegative()) {
+			throw new IllegalArgumentException("Minimum wait time must be positive"); //$NON-NLS-1$
+		}
+		if (maxWaitTime.compareTo(minWaitTime) < 0) {
+			throw new IllegalArgumentException("Maximum wait time must not be smaller than minimum wait time"); //$NON-NLS-1$
+		}
+		if (maxWaitTime.toMillis() >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"Maximum wait time in millis must be smaller than " + Integer.MAX_VALUE); //$NON-NLS-1$
+		}
+		this.display = display;
+		this.consumer = consumer;
+		this.minWaitMillis = minWaitTime.toMillis();
+		this.maxWaitMillis = maxWaitTime.toMillis();
+		this.delayMillis = minWaitMillis;
+		this.lastRunNanos = System.nanoTime() - maxWaitMillis * 1_000_000;
+	}
+
+	/**
+	 * Adds the given item to the next batch and schedules the consumer to be
+	 * run after the current wait time, unless it has already been scheduled
+	 * but not executed yet. May be called from any thread.
+	 *
+	 * @param item the item to deliver
+	 */
+	public void submit(T item) {
+		pending.add(item);
+		schedule();
+	}
+
+	/**
+	 * Adds the given items to the next batch and schedules the consumer to be
+	 * run after the current wait time, unless it has already been scheduled
+	 * but not executed yet. May be called from any thread.
+	 *
+	 * @param items the items to deliver
+	 */
+	public void submitAll(Collection<? extends T> items) {
+		pending.addAll(items);
+		schedule();
+	}
+
+	/**
+	 * Returns the current wait time between each execution of the consumer,
+	 * between the minimum and the maximum wait time.
+	 *
+	 * @return the current wait time
+	 */
+	public Duration getCurrentWaitTime() {
+		return Duration.ofMillis(delayMillis);
+	}
+
+	/**
+	 * Returns whether items have been submitted that have not been delivered
+	 * yet, or a batch is being delivered.
+	 *
+	 * @return <code>true</code> if the consumer is scheduled or running
+	 */
+	public boolean isPending() {
+		return running || scheduled.get() || !pending.isEmpty();
+	}
+
+	private void schedule() {
+		if (display.isDisposed()) {
+			return;
+		}
+		if (scheduled.compareAndSet(false, true)) {
+			postedNanos = System.nanoTime();
+			if (Thread.currentThread() == display.getThread()) {
+				timerExec.run();
+			} else {
+				boolean exception = true;
+				try {
+					display.asyncExec(timerExec); // may throw SwtException
+					exception = false;
+				} finally {
+					if (exception) {
+						// SwtException - display meanwhile disposed
+						scheduled.set(false);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs in the UI thread once the event loop has dispatched the
+	 * asyncExec. Runs the consumer now, or after the rest of the wait time.
+	 */
+	private void timerExec() {
+		long now = System.nanoTime();
+		long dispatchMillis = (now - postedNanos) / 1_000_000;
+		if (dispatchMillis > delayMillis) {
+			// the event loop is saturated
+			delayMillis = Math.min(Math.max(dispatchMillis, 2 * delayMillis), maxWaitMillis);
+		}
+		long elapsedMillis = (now - lastRunNanos) / 1_000_000;
+		if (elapsedMillis >= delayMillis) {
+			run();
+		} else if (!display.isDisposed()) {
+			display.timerExec((int) (delayMillis - elapsedMillis), runner);
+		} else {
+			// fail - display meanwhile disposed
+			scheduled.set(false);
+		}
+	}
+
+	private void run() {
+		running = true;
+		// items submitted while the consumer runs schedule the next batch
+		scheduled.set(false);
+		Set<T> batch = new LinkedHashSet<>();
+		T item;
+		while ((item = pending.poll()) != null) {
+			batch.add(item);
+		}
+		long start = System.nanoTime();
+		try {
+			if (!batch.isEmpty()) {
+				consumer.accept(batch);
+			}
+		} finally {
+			lastRunNanos = System.nanoTime();
+			adaptDelay((lastRunNanos - start) / 1_000_000);
+			running = false;
+		}
+	}
+
+	private void adaptDelay(long runMillis) {
+		long wanted = Math.max(minWaitMillis, BUSY_RATIO * runMillis);
+		long delay = delayMillis;
+		if (wanted >= delay) {
+			delayMillis = Math.min(wanted, maxWaitMillis);
+		} else {
+			// back to the minimum gradually, the next batch may be as large
+			delayMillis = Math.max(wanted, delay / 2);
+		}
+	}
+}
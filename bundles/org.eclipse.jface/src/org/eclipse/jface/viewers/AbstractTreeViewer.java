@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -32,10 +32,12 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.internal.InternalPolicy;
+import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.util.SafeRunnable;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.BusyIndicator;
+import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.events.TreeEvent;
@@ -108,6 +110,19 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 */
 	private boolean isTreePathContentProvider = false;
 
+	/**
+	 * The children fetched from the viewer's content provider if it is an
+	 * instance of IAsyncTreeContentProvider, or <code>null</code>.
+	 */
+	private AsyncChildrenCache asyncChildren;
+
+	/**
+	 * Greater than zero while elements are expanded programmatically, in which
+	 * case children are obtained synchronously even from an
+	 * IAsyncTreeContentProvider.
+	 */
+	private int synchronousExpansions;
+
 	/**
 	 * Safe runnable used to update an item.
 	 */
@@ -271,6 +286,31 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 			}
 		}
 
+		addFilteredAndSorted(widget, parentElementOrTreePath, childElements);
+	}
+
+	/**
+	 * Filters and sorts the given child elements and creates items for them in
+	 * the given widget.
+	 *
+	 * @param widget
+	 *            the widget for the parent element
+	 * @param parentElementOrTreePath
+	 *            the parent element
+	 * @param childElements
+	 *            the child elements to add
+	 */
+	private void addFilteredAndSorted(Widget widget, Object parentElementOrTreePath, Object[] childElements) {
+		Object parent;
+		TreePath path;
+		if (parentElementOrTreePath instanceof TreePath) {
+			path = (TreePath) parentElementOrTreePath;
+			parent = path.getLastSegment();
+		} else {
+			parent = parentElementOrTreePath;
+			path = null;
+		}
+
 		if (childElements.length > 0) {
 			// TODO: Add filtering back?
 			Object[] filtered = filter(parentElementOrTreePath, childElements);
@@ -298,6 +338,76 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		}
 	}
 
+	/**
+	 * Merges a batch of children fetched from an
+	 * {@link IAsyncTreeContentProvider} into the items of the given parent
+	 * element. Items showing the pending placeholder get items for the children,
+	 * followed by a new placeholder if more children are to come.
+	 *
+	 * @param parent
+	 *            the parent element
+	 * @param childElements
+	 *            the fetched child elements
+	 * @param more
+	 *            whether more children of the parent element are to come
+	 */
+	void mergeAsyncChildren(Object parent, Object[] childElements, boolean more) {
+		for (Widget widget : findItems(parent)) {
+			boolean expanded = widget instanceof Item && getExpanded((Item) widget);
+			boolean placeholder = false;
+			for (Item item : getChildren(widget)) {
+				if (item.getData(AsyncChildrenCache.PLACEHOLDER_KEY) != null) {
+					item.dispose();
+					placeholder = true;
+				}
+			}
+			if (!placeholder) {
+				// the item was not expanded, or was refreshed meanwhile
+				internalAdd(widget, parent, childElements);
+				continue;
+			}
+			addFilteredAndSorted(widget, parent, childElements);
+			if (more) {
+				createPlaceholder(widget);
+			}
+			// the item collapses when its last child is disposed on some platforms
+			if (expanded && getChildren(widget).length > 0) {
+				setExpanded((Item) widget, true);
+			}
+		}
+	}
+
+	/**
+	 * Creates the item shown while the children of the element of the given
+	 * widget are fetched from an {@link IAsyncTreeContentProvider}.
+	 *
+	 * @param widget
+	 *            the widget
+	 */
+	private void createPlaceholder(Widget widget) {
+		Item item = newItem(widget, SWT.NULL, -1);
+		item.setText(JFaceResources.getString("AbstractTreeViewer.pending")); //$NON-NLS-1$
+		item.setData(AsyncChildrenCache.PLACEHOLDER_KEY, Boolean.TRUE);
+	}
+
+	/**
+	 * Removes the child items of the given item, whose children were being
+	 * fetched from an {@link IAsyncTreeContentProvider}, and adds a dummy so
+	 * that they are fetched again when the item is expanded.
+	 *
+	 * @param item
+	 *            the item
+	 */
+	void removeAsyncChildren(Item item) {
+		for (Item child : getItems(item)) {
+			if (child.getData() != null) {
+				disassociate(child);
+			}
+			child.dispose();
+		}
+		newItem(item, SWT.NULL, -1);
+	}
+
 	/**
 	 * Filter the children elements.
 	 *
@@ -658,7 +768,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		} else if (comparator != null) {
 			// be sure we're not modifying the original array from the model
 			result = result.clone();
-			comparator.sort(this, result);
+			comparator.sort(this, result, isParallel(result));
 		}
 		return result;
 	}
@@ -841,6 +951,9 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 				for (Object element : children) {
 					createTreeItem(widget, element, -1);
 				}
+				if (asyncChildren != null && asyncChildren.isPending(parentElement)) {
+					createPlaceholder(widget);
+				}
 			}
 		} finally {
 			setBusy(oldBusy);
@@ -1421,6 +1534,10 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 				if (equals(parent, getRoot())) {
 					return super.getRawChildren(parent);
 				}
+				if (asyncChildren != null) {
+					return synchronousExpansions > 0 ? asyncChildren.getChildrenNow(parent)
+							: asyncChildren.getChildren(parent);
+				}
 				IContentProvider cp = getContentProvider();
 				if (cp instanceof ITreePathContentProvider) {
 					ITreePathContentProvider tpcp = (ITreePathContentProvider) cp;
@@ -1551,6 +1668,9 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 */
 	protected void handleTreeCollapse(TreeEvent event) {
 		if (event.item.getData() != null) {
+			if (asyncChildren != null) {
+				asyncChildren.collapsed(event.item.getData(), (Item) event.item);
+			}
 			fireTreeCollapsed(new TreeExpansionEvent(this, event.item.getData()));
 		}
 	}
@@ -1584,8 +1704,19 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		});
 	}
 
+	@Override
+	protected void handleDispose(DisposeEvent event) {
+		if (asyncChildren != null) {
+			asyncChildren.clear();
+		}
+		super.handleDispose(event);
+	}
+
 	@Override
 	protected void inputChanged(Object input, Object oldInput) {
+		if (asyncChildren != null) {
+			asyncChildren.clear();
+		}
 		preservingSelection(() -> {
 			Control tree = getControl();
 			tree.setRedraw(false);
@@ -1682,7 +1813,15 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 * @return Widget
 	 */
 	protected Widget internalExpand(Object elementOrPath, boolean expand) {
+		synchronousExpansions++;
+		try {
+			return internalExpandSynchronously(elementOrPath, expand);
+		} finally {
+			synchronousExpansions--;
+		}
+	}
 
+	private Widget internalExpandSynchronously(Object elementOrPath, boolean expand) {
 		if (elementOrPath == null) {
 			return null;
 		}
@@ -1812,6 +1951,15 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 *               levels of the tree
 	 */
 	protected void internalExpandToLevel(Widget widget, int level) {
+		synchronousExpansions++;
+		try {
+			internalExpandToLevelSynchronously(widget, level);
+		} finally {
+			synchronousExpansions--;
+		}
+	}
+
+	private void internalExpandToLevelSynchronously(Widget widget, int level) {
 		if (level == ALL_LEVELS || level > 0) {
 			Object data = widget.getData();
 			if (widget instanceof Item && data != null
@@ -1968,6 +2116,9 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 */
 	/* package */void internalRefreshStruct(Widget widget, Object element,
 			boolean updateLabels) {
+		if (asyncChildren != null) {
+			asyncChildren.invalidate(element, widget);
+		}
 		updateChildren(widget, element, null, updateLabels);
 		Item[] children = getChildren(widget);
 		if (children != null) {
@@ -2412,6 +2563,12 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		// the actual check is in assertContentProviderType
 		super.setContentProvider(provider);
 		isTreePathContentProvider = provider instanceof ITreePathContentProvider;
+		if (asyncChildren != null) {
+			asyncChildren.clear();
+		}
+		asyncChildren = provider instanceof IAsyncTreeContentProvider
+				? new AsyncChildrenCache(this, (IAsyncTreeContentProvider) provider)
+				: null;
 	}
 
 	@Override
@@ -2463,7 +2620,12 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		// elements that need to be expanded. If the tree contains multiple
 		// equal elements, and those are in the set of elements to be expanded,
 		// only the first item found for each element will be expanded.
-		internalSetExpanded(expandedElements, getControl());
+		synchronousExpansions++;
+		try {
+			internalSetExpanded(expandedElements, getControl());
+		} finally {
+			synchronousExpansions--;
+		}
 	}
 
 	/**
@@ -2513,8 +2675,12 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		// elements that need to be expanded. If the tree contains multiple
 		// equal elements, and those are in the set of elements to be expanded,
 		// only the first item found for each element will be expanded.
-		internalSetExpandedTreePaths(expandedTreePaths, getControl(),
-				new TreePath(new Object[0]));
+		synchronousExpansions++;
+		try {
+			internalSetExpandedTreePaths(expandedTreePaths, getControl(), new TreePath(new Object[0]));
+		} finally {
+			synchronousExpansions--;
+		}
 	}
 
 	/**
@@ -2534,7 +2700,12 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		Widget item = internalExpand(elementOrTreePath, false);
 		if (item instanceof Item) {
 			if (expanded) {
-				createChildren(item);
+				synchronousExpansions++;
+				try {
+					createChildren(item);
+				} finally {
+					synchronousExpansions--;
+				}
 			}
 			setExpanded((Item) item, expanded);
 		}
@@ -2695,6 +2866,10 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 
 		Item[] items = getChildren(widget);
 
+		if (updateChildrenByDiff(widget, items, elementChildren, updateLabels)) {
+			return;
+		}
+
 		// save the expanded elements
 		CustomHashtable expanded = newHashtable(CustomHashtable.DEFAULT_CAPACITY); // assume
 																					// num
@@ -2841,6 +3016,214 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		}
 	}
 
+	/**
+	 * Updates the given items to correspond to the given child elements by
+	 * computing a keyed diff between the elements of the items and the child
+	 * elements. The items of the elements that keep their relative order are
+	 * reused as they are; only the items of removed or moved elements are
+	 * disposed, and only the items of added or moved elements are created. The
+	 * expanded items of a moved element are expanded again. The diff is only
+	 * applied if no items are dummies, neither the items nor the
+	 * child elements contain equal elements, and most items are reused.
+	 *
+	 * @param widget
+	 *            the widget
+	 * @param items
+	 *            the child items of the widget
+	 * @param elementChildren
+	 *            the child elements
+	 * @param updateLabels
+	 *            <code>true</code> to update labels for existing elements,
+	 *            <code>false</code> to only update labels as needed
+	 * @return <code>true</code> if the items were updated, and
+	 *         <code>false</code> if the diff was not applicable and the items
+	 *         are unchanged
+	 */
+	private boolean updateChildrenByDiff(Widget widget, Item[] items, Object[] elementChildren,
+			boolean updateLabels) {
+		int itemCount = items.length;
+		if (itemCount == 0) {
+			return false;
+		}
+		CustomHashtable newPositions = newHashtable(elementChildren.length * 2 + 1);
+		for (int i = 0; i < elementChildren.length; i++) {
+			if (newPositions.put(elementChildren[i], Integer.valueOf(i)) != null) {
+				return false;
+			}
+		}
+		// the new position of the element of each item, or -1 if it was removed
+		int[] newPosition = new int[itemCount];
+		boolean[] claimed = new boolean[elementChildren.length];
+		for (int i = 0; i < itemCount; i++) {
+			Object data = items[i].getData();
+			if (data == null) {
+				return false;
+			}
+			Integer position = (Integer) newPositions.get(data);
+			if (position == null) {
+				newPosition[i] = -1;
+			} else {
+				int p = position.intValue();
+				if (claimed[p]) {
+					return false;
+				}
+				claimed[p] = true;
+				newPosition[i] = p;
+			}
+		}
+
+		// the items of the longest run of elements in ascending new positions
+		// keep their place
+		boolean[] keep = longestAscendingRun(newPosition);
+		int kept = 0;
+		boolean[] reused = new boolean[elementChildren.length];
+		for (int i = 0; i < itemCount; i++) {
+			if (keep[i]) {
+				kept++;
+				reused[newPosition[i]] = true;
+			}
+		}
+		int operations = (itemCount - kept) + (elementChildren.length - kept);
+		if (operations > kept) {
+			// updating the items in place is cheaper
+			return false;
+		}
+
+		Control tree = getControl();
+		if (operations > 0) {
+			tree.setRedraw(false);
+		}
+		try {
+			CustomHashtable expanded = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			Item[] keptItems = new Item[kept];
+			int k = 0;
+			for (int i = 0; i < itemCount; i++) {
+				Item item = items[i];
+				if (keep[i]) {
+					keptItems[k++] = item;
+				} else {
+					if (newPosition[i] >= 0) {
+						collectExpandedElements(item, expanded);
+					}
+					disassociate(item);
+					item.dispose();
+				}
+			}
+			k = 0;
+			for (int i = 0; i < elementChildren.length; i++) {
+				Object newElement = elementChildren[i];
+				if (reused[i]) {
+					Item item = keptItems[k++];
+					Object oldElement = item.getData();
+					if (newElement != oldElement) {
+						// the elements are equal, but may still have different
+						// labels or children
+						unmapElement(oldElement, item);
+						item.setData(newElement);
+						mapElement(newElement, item);
+					}
+					updatePlus(item, newElement);
+					if (updateLabels) {
+						updateItem(item, newElement);
+					} else {
+						associate(newElement, item);
+					}
+				} else {
+					createTreeItem(widget, newElement, i);
+					if (expanded.containsKey(newElement)) {
+						restoreExpandedElements(getChild(widget, i), expanded);
+					}
+				}
+			}
+		} finally {
+			if (operations > 0) {
+				tree.setRedraw(true);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the elements of the given item and of its descendant items to the
+	 * given table if the items are expanded.
+	 *
+	 * @param item
+	 *            the item
+	 * @param expanded
+	 *            the expanded elements
+	 */
+	private void collectExpandedElements(Item item, CustomHashtable expanded) {
+		Object data = item.getData();
+		if (data != null && getExpanded(item)) {
+			expanded.put(data, data);
+			for (Item child : getItems(item)) {
+				collectExpandedElements(child, expanded);
+			}
+		}
+	}
+
+	/**
+	 * Expands the given item, and those of its descendant items whose elements
+	 * are contained in the given table.
+	 *
+	 * @param item
+	 *            the item
+	 * @param expanded
+	 *            the expanded elements
+	 */
+	private void restoreExpandedElements(Item item, CustomHashtable expanded) {
+		internalExpandToLevel(item, 1);
+		for (Item child : getItems(item)) {
+			Object data = child.getData();
+			if (data != null && expanded.containsKey(data)) {
+				restoreExpandedElements(child, expanded);
+			}
+		}
+	}
+
+	/**
+	 * Returns which of the given positions form a longest strictly ascending
+	 * subsequence, ignoring negative positions.
+	 *
+	 * @param positions
+	 *            the positions
+	 * @return whether each position is part of the subsequence
+	 */
+	private static boolean[] longestAscendingRun(int[] positions) {
+		int length = positions.length;
+		// tails[l] is the index of the smallest last position of an ascending
+		// subsequence of length l + 1
+		int[] tails = new int[length];
+		int[] predecessors = new int[length];
+		int longest = 0;
+		for (int i = 0; i < length; i++) {
+			int position = positions[i];
+			if (position < 0) {
+				continue;
+			}
+			int low = 0;
+			int high = longest;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (positions[tails[middle]] < position) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			predecessors[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == longest) {
+				longest++;
+			}
+		}
+		boolean[] result = new boolean[length];
+		for (int i = longest > 0 ? tails[longest - 1] : -1; i >= 0; i = predecessors[i]) {
+			result[i] = true;
+		}
+		return result;
+	}
+
 	/** Returns true if children were pruned */
 	/*package*/ boolean optionallyPruneChildren(Item item, Object element) {
 		// need a dummy node if element is expandable;
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.util.Policy;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Item;
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * The children of the elements of an {@link AbstractTreeViewer} with an
+ * {@link IAsyncTreeContentProvider}, and the fetches computing them.
+ * <p>
+ * The children of an element are fetched when the viewer first asks for them,
+ * unless the element is expanded programmatically, in which case they are
+ * obtained synchronously. Until the fetch completes, the element has no children and its items show a
+ * placeholder. The fetched children are then merged into the tree in batches
+ * of {@link #BATCH_SIZE}, each in its own UI runnable. The children obtained
+ * so far are cached and served until the element is refreshed.
+ * </p>
+ */
+final class AsyncChildrenCache {
+
+	/**
+	 * The key of the widget data marking the placeholder items shown while the
+	 * children of an element are fetched.
+	 */
+	static final String PLACEHOLDER_KEY = "org.eclipse.jface.viewers.pendingChildren"; //$NON-NLS-1$
+
+	/**
+	 * The number of children merged into the tree per UI runnable.
+	 */
+	static final int BATCH_SIZE = 200;
+
+	private static final Object[] NO_CHILDREN = new Object[0];
+
+	private final AbstractTreeViewer viewer;
+
+	private final IAsyncTreeContentProvider provider;
+
+	/**
+	 * Maps elements to their {@link Fetch}, honoring the viewer's comparer.
+	 */
+	private CustomHashtable fetches;
+
+	/**
+	 * Whether fetched children are being applied to the tree, in which case
+	 * refreshing an element does not fetch its children again.
+	 */
+	private boolean applying;
+
+	AsyncChildrenCache(AbstractTreeViewer viewer, IAsyncTreeContentProvider provider) {
+		this.viewer = viewer;
+		this.provider = provider;
+		this.fetches = viewer.newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Returns the children of the given element obtained so far, starting to
+	 * fetch them if this has not been done yet.
+	 */
+	Object[] getChildren(Object parent) {
+		Fetch fetch = (Fetch) fetches.get(parent);
+		if (fetch == null) {
+			fetch = new Fetch(parent);
+			fetches.put(parent, fetch);
+			fetch.start(true);
+		}
+		return fetch.getChildren();
+	}
+
+	/**
+	 * Returns the children of the given element without waiting for a fetch,
+	 * for the programmatic expansion of the element. If the children have not
+	 * been fetched yet, they are obtained synchronously from
+	 * {@link IAsyncTreeContentProvider#getChildren(Object)} and cached. Children
+	 * which are already being fetched for the first time continue to arrive in
+	 * the background.
+	 */
+	Object[] getChildrenNow(Object parent) {
+		Fetch fetch = (Fetch) fetches.get(parent);
+		if (fetch == null) {
+			fetch = new Fetch(parent);
+			try {
+				Object[] result = provider.getChildren(parent);
+				if (result != null) {
+					viewer.assertElementsNotNull(result);
+					fetch.children = result;
+				}
+			} catch (CompletionException | CancellationException e) {
+				Throwable cause = e.getCause() != null ? e.getCause() : e;
+				Policy.getLog().log(new Status(IStatus.ERROR, Policy.JFACE,
+						"Failed to fetch the children of " + parent, cause)); //$NON-NLS-1$
+			}
+			fetches.put(parent, fetch);
+		}
+		return fetch.getChildren();
+	}
+
+	/**
+	 * Returns whether the children of the given element are still being merged
+	 * into the tree for the first time.
+	 */
+	boolean isPending(Object parent) {
+		Fetch fetch = (Fetch) fetches.get(parent);
+		return fetch != null && fetch.future != null && fetch.initial;
+	}
+
+	/**
+	 * Called when the given element is refreshed. If the element is expanded,
+	 * its children are fetched again, and the cached ones are served until the
+	 * fetch completes. Otherwise the cached children are dropped.
+	 */
+	void invalidate(Object parent, Widget widget) {
+		if (applying) {
+			return;
+		}
+		Fetch fetch = (Fetch) fetches.get(parent);
+		if (fetch == null || fetch.future != null) {
+			return;
+		}
+		if (widget instanceof Item && !viewer.getExpanded((Item) widget)) {
+			fetches.remove(parent);
+		} else {
+			fetch.start(false);
+		}
+	}
+
+	/**
+	 * Called when the given item of the given element is collapsed. If the
+	 * children of the element are still being fetched for the first time, the
+	 * fetch is cancelled and the item is reset so that the children are fetched
+	 * again when it is expanded.
+	 */
+	void collapsed(Object parent, Item item) {
+		if (isPending(parent)) {
+			((Fetch) fetches.remove(parent)).cancel();
+			viewer.removeAsyncChildren(item);
+		}
+	}
+
+	/**
+	 * Cancels all fetches and drops all cached children.
+	 */
+	void clear() {
+		for (Enumeration<?> e = fetches.elements(); e.hasMoreElements();) {
+			((Fetch) e.nextElement()).cancel();
+		}
+		fetches = viewer.newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+	}
+
+	private final class Fetch {
+
+		final Object parent;
+
+		/**
+		 * The children obtained so far, except for the ones merged since the
+		 * last call of {@link #getChildren()}.
+		 */
+		Object[] children = NO_CHILDREN;
+
+		/**
+		 * While the children of the first fetch are merged, the children
+		 * obtained so far followed by room for the remaining ones, otherwise
+		 * <code>null</code>.
+		 */
+		private Object[] merging;
+
+		/**
+		 * The number of children in {@link #merging}.
+		 */
+		private int mergedCount;
+
+		/**
+		 * The future of the running fetch, or <code>null</code>.
+		 */
+		CompletableFuture<Object[]> future;
+
+		/**
+		 * Whether the running fetch is the first one, whose children are merged
+		 * into the tree in batches.
+		 */
+		boolean initial;
+
+		Fetch(Object parent) {
+			this.parent = parent;
+		}
+
+		void start(boolean first) {
+			initial = first;
+			CompletableFuture<Object[]> f = provider.getChildrenAsync(parent);
+			future = f;
+			Display display = viewer.getControl().getDisplay();
+			f.whenComplete((result, exception) -> {
+				if (!display.isDisposed()) {
+					display.asyncExec(() -> completed(f, result, exception));
+				}
+			});
+		}
+
+		/**
+		 * Returns the children obtained so far.
+		 */
+		Object[] getChildren() {
+			if (merging != null && children.length != mergedCount) {
+				children = Arrays.copyOf(merging, mergedCount);
+			}
+			return children;
+		}
+
+		void cancel() {
+			if (future != null) {
+				future.cancel(true);
+				future = null;
+			}
+		}
+
+		private boolean isCurrent(CompletableFuture<Object[]> f) {
+			return future == f && !viewer.getControl().isDisposed();
+		}
+
+		private void completed(CompletableFuture<Object[]> f, Object[] result, Throwable exception) {
+			if (!isCurrent(f)) {
+				// cancelled, or superseded by another fetch
+				return;
+			}
+			Object[] fetched = NO_CHILDREN;
+			if (exception != null) {
+				Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+						? exception.getCause()
+						: exception;
+				if (!(cause instanceof CancellationException)) {
+					Policy.getLog().log(new Status(IStatus.ERROR, Policy.JFACE,
+							"Failed to fetch the children of " + parent, cause)); //$NON-NLS-1$
+				}
+			} else if (result != null) {
+				viewer.assertElementsNotNull(result);
+				fetched = result;
+			}
+			if (viewer.findItems(parent).length == 0) {
+				// the element is no longer shown
+				future = null;
+				fetches.remove(parent);
+			} else if (initial) {
+				merge(f, fetched, 0);
+			} else {
+				future = null;
+				children = fetched;
+				applying = true;
+				try {
+					viewer.refresh(parent, false);
+				} finally {
+					applying = false;
+				}
+			}
+		}
+
+		private void merge(CompletableFuture<Object[]> f, Object[] fetched, int from) {
+			int to = Math.min(from + BATCH_SIZE, fetched.length);
+			boolean more = to < fetched.length;
+			if (from == 0) {
+				merging = Arrays.copyOf(children, children.length + fetched.length);
+				mergedCount = children.length;
+			}
+			Object[] batch = Arrays.copyOfRange(fetched, from, to);
+			System.arraycopy(batch, 0, merging, mergedCount, batch.length);
+			mergedCount += batch.length;
+			if (!more) {
+				future = null;
+				children = merging;
+				merging = null;
+			}
+			applying = true;
+			try {
+				viewer.mergeAsyncChildren(parent, batch, more);
+			} finally {
+				applying = false;
+			}
+			if (more) {
+				viewer.getControl().getDisplay().asyncExec(() -> {
+					if (isCurrent(f)) {
+						merge(f, fetched, to);
+					}
+				});
+			}
+		}
+	}
+}
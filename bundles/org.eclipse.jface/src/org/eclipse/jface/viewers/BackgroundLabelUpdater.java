@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.resource.LocalResourceManager;
+import org.eclipse.jface.resource.ResourceManager;
+import org.eclipse.jface.util.Policy;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Item;
+import org.eclipse.swt.widgets.Scrollable;
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * Computes the labels of the cells of a {@link ColumnViewer} whose label
+ * provider is an {@link IBackgroundLabelProvider} in a background thread.
+ * <p>
+ * The cells updated while the UI thread is busy are collected, and their
+ * labels are computed by a single background task once the UI thread is idle
+ * again. The rows shown in the viewer and the rows of the next page are
+ * computed first. The computed labels are applied to the cells in batches of
+ * {@link #BATCH_SIZE}, each in its own UI runnable. A cell updated again
+ * before its label was applied is computed again, the outdated label is
+ * dropped.
+ * </p>
+ * <p>
+ * The images of image descriptors are created with a resource manager that is
+ * disposed of together with the viewer's control.
+ * </p>
+ */
+final class BackgroundLabelUpdater {
+
+	/**
+	 * The key of the widget data holding the {@link RowLabels} of an item.
+	 */
+	static final String LABELS_KEY = "org.eclipse.jface.viewers.backgroundLabels"; //$NON-NLS-1$
+
+	/**
+	 * The number of computed labels applied to the cells per UI runnable.
+	 */
+	static final int BATCH_SIZE = 100;
+
+	private final ColumnViewer viewer;
+
+	/**
+	 * The cells updated since the last background task was started.
+	 */
+	private List<Request> queue = new ArrayList<>();
+
+	private ResourceManager resourceManager;
+
+	private volatile boolean disposed;
+
+	BackgroundLabelUpdater(ColumnViewer viewer) {
+		this.viewer = viewer;
+	}
+
+	/**
+	 * Schedules computing the label of the given cell with the given label
+	 * provider. Until the label is applied, the cell shows its previous label
+	 * if it has been showing the same element, and a placeholder otherwise.
+	 */
+	void update(ViewerCell cell, IBackgroundLabelProvider provider) {
+		Widget item = cell.getItem();
+		int column = cell.getColumnIndex();
+		Object element = cell.getElement();
+		RowLabels labels = (RowLabels) item.getData(LABELS_KEY);
+		if (labels == null || !viewer.equals(labels.element, element)) {
+			labels = new RowLabels(element);
+			item.setData(LABELS_KEY, labels);
+		}
+		Request previous = labels.get(column);
+		if (previous != null) {
+			previous.cancelled = true;
+		} else {
+			cell.setText(JFaceResources.getString("ColumnViewer.pending")); //$NON-NLS-1$
+			cell.setImage(null);
+		}
+		Request request = new Request(item, column, element, provider);
+		labels.set(column, request);
+		if (queue.isEmpty()) {
+			viewer.getControl().getDisplay().asyncExec(this::flush);
+		}
+		queue.add(request);
+	}
+
+	/**
+	 * Stops computing labels. Labels computed afterwards are not applied.
+	 */
+	void dispose() {
+		disposed = true;
+		for (Request request : queue) {
+			request.cancelled = true;
+		}
+		queue = new ArrayList<>();
+	}
+
+	/**
+	 * Starts a background task computing the labels of the queued cells.
+	 */
+	private void flush() {
+		List<Request> requests = queue;
+		queue = new ArrayList<>();
+		Control control = viewer.getControl();
+		if (disposed || control.isDisposed()) {
+			return;
+		}
+		Set<Widget> shown = getShownItems();
+		List<Request> first = new ArrayList<>();
+		List<Request> rest = new ArrayList<>();
+		for (Request request : requests) {
+			if (!request.cancelled) {
+				(shown.contains(request.item) ? first : rest).add(request);
+			}
+		}
+		first.addAll(rest);
+		if (first.isEmpty()) {
+			return;
+		}
+		Display display = control.getDisplay();
+		CompletableFuture.runAsync(() -> compute(display, first));
+	}
+
+	/**
+	 * Returns the items of the rows shown in the viewer and of the rows of the
+	 * next page.
+	 */
+	private Set<Widget> getShownItems() {
+		Set<Widget> items = new HashSet<>();
+		Item top = viewer.getTopItem();
+		Control control = viewer.getControl();
+		if (top == null || !(control instanceof Scrollable)) {
+			return items;
+		}
+		Rectangle area = ((Scrollable) control).getClientArea();
+		int bottom = area.y + 2 * area.height;
+		ViewerRow row = (ViewerRow) viewer.getViewerRowFromItem(top).clone();
+		while (row != null && row.getBounds().y < bottom) {
+			items.add(row.getItem());
+			row = row.getNeighbor(ViewerRow.BELOW, false);
+		}
+		return items;
+	}
+
+	/**
+	 * Computes the labels of the given cells in the background and applies
+	 * them in batches in the UI thread.
+	 */
+	private void compute(Display display, List<Request> requests) {
+		for (int from = 0; from < requests.size(); from += BATCH_SIZE) {
+			List<Request> batch = requests.subList(from, Math.min(from + BATCH_SIZE, requests.size()));
+			for (Request request : batch) {
+				if (disposed) {
+					return;
+				}
+				if (!request.cancelled) {
+					request.compute();
+				}
+			}
+			if (display.isDisposed()) {
+				return;
+			}
+			display.asyncExec(() -> apply(batch));
+		}
+	}
+
+	private void apply(List<Request> batch) {
+		if (disposed || viewer.getControl().isDisposed()) {
+			return;
+		}
+		for (Request request : batch) {
+			if (request.cancelled || request.label == null || request.item.isDisposed()) {
+				continue;
+			}
+			RowLabels labels = (RowLabels) request.item.getData(LABELS_KEY);
+			if (labels == null || labels.get(request.column) != request) {
+				// the item has been updated since
+				continue;
+			}
+			ViewerRow row = (ViewerRow) viewer.getViewerRowFromItem(request.item).clone();
+			apply(new ViewerCell(row, request.column, request.element), request.label);
+		}
+	}
+
+	private void apply(ViewerCell cell, ViewerLabel label) {
+		String text = label.getText();
+		cell.setText(text == null ? "" : text); //$NON-NLS-1$
+		cell.setStyleRanges(label.getStyleRanges());
+		Image image = label.getImage();
+		ImageDescriptor descriptor = label.getImageDescriptor();
+		if (descriptor != null) {
+			if (resourceManager == null) {
+				resourceManager = new LocalResourceManager(JFaceResources.getResources(), viewer.getControl());
+			}
+			image = resourceManager.createImageWithDefault(descriptor);
+		}
+		cell.setImage(image);
+		cell.setForeground(label.getForeground());
+		cell.setBackground(label.getBackground());
+		cell.setFont(label.getFont());
+	}
+
+	/**
+	 * The latest requests for the labels of the cells of an item.
+	 */
+	private static final class RowLabels {
+
+		final Object element;
+
+		private Request[] requests = new Request[1];
+
+		RowLabels(Object element) {
+			this.element = element;
+		}
+
+		Request get(int column) {
+			return column < requests.length ? requests[column] : null;
+		}
+
+		void set(int column, Request request) {
+			if (column >= requests.length) {
+				Request[] grown = new Request[column + 1];
+				System.arraycopy(requests, 0, grown, 0, requests.length);
+				requests = grown;
+			}
+			requests[column] = request;
+		}
+	}
+
+	/**
+	 * A request for the label of a cell.
+	 */
+	private static final class Request {
+
+		final Widget item;
+
+		final int column;
+
+		final Object element;
+
+		final IBackgroundLabelProvider provider;
+
+		/**
+		 * Whether the cell has been updated again or the viewer disposed.
+		 */
+		volatile boolean cancelled;
+
+		/**
+		 * The computed label, or <code>null</code>.
+		 */
+		ViewerLabel label;
+
+		Request(Widget item, int column, Object element, IBackgroundLabelProvider provider) {
+			this.item = item;
+			this.column = column;
+			this.element = element;
+			this.provider = provider;
+		}
+
+		void compute() {
+			ViewerLabel computed = new ViewerLabel(null, null);
+			try {
+				provider.updateLabel(computed, element);
+				label = computed;
+			} catch (RuntimeException e) {
+				Policy.getLog().log(new Status(IStatus.ERROR, Policy.JFACE,
+						"Failed to compute the label of " + element, e)); //$NON-NLS-1$
+				// show an empty label rather than the placeholder
+				label = new ViewerLabel(null, null);
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -63,6 +63,8 @@ public abstract class ColumnViewer extends StructuredViewer {
 
 	private MouseListener mouseListener;
 
+	private BackgroundLabelUpdater backgroundLabels;
+
 	// after logging for the first
 	// time
 
@@ -663,9 +665,71 @@ public abstract class ColumnViewer extends StructuredViewer {
 			((Control)event.widget).removeMouseListener(mouseListener);
 			mouseListener = null;
 		}
+		if (backgroundLabels != null) {
+			backgroundLabels.dispose();
+		}
 		super.handleDispose(event);
 	}
 
+	/**
+	 * Sets whether the labels of the columns whose label provider implements
+	 * {@link IBackgroundLabelProvider} are computed in a background thread.
+	 * This is disabled by default.
+	 * <p>
+	 * If enabled, updating a cell only schedules computing its label, and the
+	 * UI thread merely applies the computed label to the cell. The labels of
+	 * the rows shown in the viewer and of the rows of the next page are
+	 * computed first. Until its label is applied, a cell shows its previous
+	 * label if it has been showing the same element, and a placeholder
+	 * otherwise. The labels of the other columns are still computed in the UI
+	 * thread.
+	 * </p>
+	 *
+	 * @param background
+	 *            <code>true</code> to compute labels in a background thread,
+	 *            <code>false</code> to use only the UI thread
+	 * @since 3.26
+	 */
+	public void setBackgroundLabelComputation(boolean background) {
+		if (background == (backgroundLabels != null)) {
+			return;
+		}
+		if (background) {
+			backgroundLabels = new BackgroundLabelUpdater(this);
+		} else {
+			backgroundLabels.dispose();
+			backgroundLabels = null;
+		}
+	}
+
+	/**
+	 * Returns whether the labels of the columns whose label provider implements
+	 * {@link IBackgroundLabelProvider} are computed in a background thread.
+	 *
+	 * @return <code>true</code> if labels are computed in a background thread
+	 * @see #setBackgroundLabelComputation(boolean)
+	 * @since 3.26
+	 */
+	public boolean isBackgroundLabelComputation() {
+		return backgroundLabels != null;
+	}
+
+	/**
+	 * Returns the updater computing labels in a background thread, or
+	 * <code>null</code> if background label computation is disabled.
+	 */
+	BackgroundLabelUpdater getBackgroundLabels() {
+		return backgroundLabels;
+	}
+
+	/**
+	 * Returns the item of the topmost row shown in the viewer, or
+	 * <code>null</code> if it is not known. Subclasses may override.
+	 */
+	/* package */Item getTopItem() {
+		return null;
+	}
+
 	/**
 	 * Invoking this method fires an editor activation event which tries to
 	 * enable the editor but before this event is passed to {@link
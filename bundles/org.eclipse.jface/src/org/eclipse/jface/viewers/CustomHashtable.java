@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -22,28 +22,21 @@ import java.util.NoSuchElementException;
  * CustomHashtable associates keys with values. Keys and values cannot be null.
  * The size of the Hashtable is the number of key/value pairs it contains.
  * The capacity is the number of key/value pairs the Hashtable can hold.
- * The load factor is a float value which determines how full the Hashtable
- * gets before expanding the capacity. If the load factor of the Hashtable
- * is exceeded, the capacity is doubled.
+ * If the size of the Hashtable exceeds three quarters of its number of slots,
+ * the number of slots is doubled.
  * <p>
  * CustomHashtable allows a custom comparator and hash code provider.
+ * </p>
+ * <p>
+ * The Hashtable uses open addressing with linear probing. The keys, the
+ * values and the hash codes of the keys are stored in parallel arrays, so
+ * there is no object per key/value pair, and keys are only compared if their
+ * hash codes are equal. Removed pairs do not leave deletion markers behind:
+ * the pairs following them in their probe sequence are shifted back instead.
+ * </p>
  */
 /* package */final class CustomHashtable {
 
-	/**
-	 * HashMapEntry is an internal class which is used to hold the entries of a Hashtable.
-	 */
-	private static class HashMapEntry {
-		Object key, value;
-
-		HashMapEntry next;
-
-		HashMapEntry(Object theKey, Object theValue) {
-			key = theKey;
-			value = theValue;
-		}
-	}
-
 	private static final class EmptyEnumerator implements Enumeration {
 		@Override
 		public boolean hasMoreElements() {
@@ -56,28 +49,22 @@ import java.util.NoSuchElementException;
 		}
 	}
 
-	private class HashEnumerator implements Enumeration {
-		boolean key;
-
-		int start;
+	private static final class HashEnumerator implements Enumeration {
+		private final Object[] slots;
 
-		HashMapEntry entry;
+		private int index;
 
-		HashEnumerator(boolean isKey) {
-			key = isKey;
-			start = firstSlot;
+		HashEnumerator(Object[] slots) {
+			this.slots = slots;
 		}
 
 		@Override
 		public boolean hasMoreElements() {
-			if (entry != null) {
-				return true;
-			}
-			while (start <= lastSlot) {
-				if (elementData[start++] != null) {
-					entry = elementData[start - 1];
+			while (index < slots.length) {
+				if (slots[index] != null) {
 					return true;
 				}
+				index++;
 			}
 			return false;
 		}
@@ -85,27 +72,58 @@ import java.util.NoSuchElementException;
 		@Override
 		public Object nextElement() {
 			if (hasMoreElements()) {
-				Object result = key ? entry.key : entry.value;
-				entry = entry.next;
-				return result;
+				return slots[index++];
 			}
 			throw new NoSuchElementException();
 		}
 	}
 
-	transient int elementCount;
+	/**
+	 * The multiplier spreading the hash codes over the slots, 2^32 divided by
+	 * the golden ratio.
+	 */
+	private static final int SPREAD = 0x9E3779B9;
 
-	transient HashMapEntry[] elementData;
+	/**
+	 * The minimum number of slots.
+	 */
+	private static final int MINIMUM_LENGTH = 4;
+
+	/**
+	 * The maximum number of slots.
+	 */
+	private static final int MAXIMUM_LENGTH = 1 << 30;
 
-	private float loadFactor;
+	private int elementCount;
 
-	private int threshold;
+	/**
+	 * The keys, <code>null</code> for free slots.
+	 */
+	private Object[] keys;
+
+	/**
+	 * The values of the keys in the same slots.
+	 */
+	private Object[] values;
+
+	/**
+	 * The hash codes of the keys in the same slots.
+	 */
+	private int[] hashes;
 
-	transient int firstSlot = 0;
+	/**
+	 * The number of slots minus one, the number of slots being a power of two.
+	 */
+	private int mask;
 
-	transient int lastSlot = -1;
+	/**
+	 * The number of bits to shift a spread hash code to obtain its slot.
+	 */
+	private int shift;
+
+	private int threshold;
 
-	transient private IElementComparer comparer;
+	private final IElementComparer comparer;
 
 	private static final EmptyEnumerator emptyEnumerator = new EmptyEnumerator();
 
@@ -155,15 +173,14 @@ import java.util.NoSuchElementException;
 	 *   <code>equals</code> and <code>hashCode</code> methods
 	 */
 	public CustomHashtable(int capacity, IElementComparer comparer) {
-		if (capacity >= 0) {
-			elementCount = 0;
-			elementData = new HashMapEntry[capacity == 0 ? 1 : capacity];
-			firstSlot = elementData.length;
-			loadFactor = 0.75f;
-			computeMaxSize();
-		} else {
+		if (capacity < 0) {
 			throw new IllegalArgumentException();
 		}
+		int length = MINIMUM_LENGTH;
+		while (length < MAXIMUM_LENGTH && maxSize(length) < capacity) {
+			length <<= 1;
+		}
+		allocate(length);
 		this.comparer = comparer;
 	}
 
@@ -179,11 +196,10 @@ import java.util.NoSuchElementException;
 	 */
 	public CustomHashtable(CustomHashtable table, IElementComparer comparer) {
 		this(table.size() * 2, comparer);
-		for (int i = table.elementData.length; --i >= 0;) {
-			HashMapEntry entry = table.elementData[i];
-			while (entry != null) {
-				put(entry.key, entry.value);
-				entry = entry.next;
+		for (int i = table.keys.length; --i >= 0;) {
+			Object key = table.keys[i];
+			if (key != null) {
+				put(key, table.values[i]);
 			}
 		}
 	}
@@ -201,8 +217,17 @@ import java.util.NoSuchElementException;
 		return comparer;
 	}
 
-	private void computeMaxSize() {
-		threshold = (int) (elementData.length * loadFactor);
+	private static int maxSize(int length) {
+		return length - (length >>> 2);
+	}
+
+	private void allocate(int length) {
+		keys = new Object[length];
+		values = new Object[length];
+		hashes = new int[length];
+		mask = length - 1;
+		shift = Integer.numberOfLeadingZeros(mask);
+		threshold = maxSize(length);
 	}
 
 	/**
@@ -213,7 +238,7 @@ import java.util.NoSuchElementException;
 	 * @return		true if object is a key in this Hashtable, false otherwise
 	 */
 	public boolean containsKey(Object key) {
-		return getEntry(key) != null;
+		return indexOf(key) >= 0;
 	}
 
 	/**
@@ -227,7 +252,7 @@ import java.util.NoSuchElementException;
 		if (elementCount == 0) {
 			return emptyEnumerator;
 		}
-		return new HashEnumerator(false);
+		return new HashEnumerator(values);
 	}
 
 	/**
@@ -239,27 +264,33 @@ import java.util.NoSuchElementException;
 	 *				does not exist
 	 */
 	public Object get(Object key) {
-		int index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
-		HashMapEntry entry = elementData[index];
-		while (entry != null) {
-			if (keyEquals(key, entry.key)) {
-				return entry.value;
-			}
-			entry = entry.next;
-		}
-		return null;
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : null;
 	}
 
-	private HashMapEntry getEntry(Object key) {
-		int index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
-		HashMapEntry entry = elementData[index];
-		while (entry != null) {
-			if (keyEquals(key, entry.key)) {
-				return entry;
+	/**
+	 * Returns the slot of the given key, or -1 if the key does not exist.
+	 */
+	private int indexOf(Object key) {
+		int hash = hashCode(key);
+		Object[] k = keys;
+		int[] h = hashes;
+		int index = slot(hash);
+		Object candidate;
+		while ((candidate = k[index]) != null) {
+			if (h[index] == hash && keyEquals(key, candidate)) {
+				return index;
 			}
-			entry = entry.next;
+			index = (index + 1) & mask;
 		}
-		return null;
+		return -1;
+	}
+
+	/**
+	 * Answers the first slot to probe for a key with the given hash code.
+	 */
+	private int slot(int hash) {
+		return (hash * SPREAD) >>> shift;
 	}
 
 	/**
@@ -293,7 +324,7 @@ import java.util.NoSuchElementException;
 		if (elementCount == 0) {
 			return emptyEnumerator;
 		}
-		return new HashEnumerator(true);
+		return new HashEnumerator(keys);
 	}
 
 	/**
@@ -308,31 +339,25 @@ import java.util.NoSuchElementException;
 	 */
 	public Object put(Object key, Object value) {
 		if (key != null && value != null) {
-			int index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
-			HashMapEntry entry = elementData[index];
-			while (entry != null && !keyEquals(key, entry.key)) {
-				entry = entry.next;
-			}
-			if (entry == null) {
-				if (++elementCount > threshold) {
-					rehash();
-					index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
+			int hash = hashCode(key);
+			int index = slot(hash);
+			Object candidate;
+			while ((candidate = keys[index]) != null) {
+				if (hashes[index] == hash && keyEquals(key, candidate)) {
+					Object result = values[index];
+					keys[index] = key; // important to avoid hanging onto keys that are equal but "old" -- see bug 30607
+					values[index] = value;
+					return result;
 				}
-				if (index < firstSlot) {
-					firstSlot = index;
-				}
-				if (index > lastSlot) {
-					lastSlot = index;
-				}
-				entry = new HashMapEntry(key, value);
-				entry.next = elementData[index];
-				elementData[index] = entry;
-				return null;
+				index = (index + 1) & mask;
+			}
+			keys[index] = key;
+			values[index] = value;
+			hashes[index] = hash;
+			if (++elementCount > threshold) {
+				rehash();
 			}
-			Object result = entry.value;
-			entry.key = key; // important to avoid hanging onto keys that are equal but "old" -- see bug 30607
-			entry.value = value;
-			return result;
+			return null;
 		}
 		throw new NullPointerException();
 	}
@@ -342,31 +367,31 @@ import java.util.NoSuchElementException;
 	 * the size of this Hashtable exceeds the load factor.
 	 */
 	private void rehash() {
-		int length = elementData.length << 1;
-		if (length == 0) {
-			length = 1;
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		if (oldKeys.length >= MAXIMUM_LENGTH) {
+			if (elementCount >= MAXIMUM_LENGTH) {
+				throw new IllegalStateException();
+			}
+			// keep probing the full table
+			threshold = MAXIMUM_LENGTH - 1;
+			return;
 		}
-		firstSlot = length;
-		lastSlot = -1;
-		HashMapEntry[] newData = new HashMapEntry[length];
-		for (int i = elementData.length; --i >= 0;) {
-			HashMapEntry entry = elementData[i];
-			while (entry != null) {
-				int index = (hashCode(entry.key) & 0x7FFFFFFF) % length;
-				if (index < firstSlot) {
-					firstSlot = index;
-				}
-				if (index > lastSlot) {
-					lastSlot = index;
+		allocate(oldKeys.length << 1);
+		for (int i = oldKeys.length; --i >= 0;) {
+			Object key = oldKeys[i];
+			if (key != null) {
+				int hash = oldHashes[i];
+				int index = slot(hash);
+				while (keys[index] != null) {
+					index = (index + 1) & mask;
 				}
-				HashMapEntry next = entry.next;
-				entry.next = newData[index];
-				newData[index] = entry;
-				entry = next;
+				keys[index] = key;
+				values[index] = oldValues[i];
+				hashes[index] = hash;
 			}
 		}
-		elementData = newData;
-		computeMaxSize();
 	}
 
 	/**
@@ -377,23 +402,32 @@ import java.util.NoSuchElementException;
 	 *				did not exist
 	 */
 	public Object remove(Object key) {
-		HashMapEntry last = null;
-		int index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
-		HashMapEntry entry = elementData[index];
-		while (entry != null && !keyEquals(key, entry.key)) {
-			last = entry;
-			entry = entry.next;
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
 		}
-		if (entry != null) {
-			if (last == null) {
-				elementData[index] = entry.next;
-			} else {
-				last.next = entry.next;
+		Object result = values[index];
+		// shift back the following keys of the probe sequence that may not
+		// be placed before the freed slot
+		int free = index;
+		int next = index;
+		while (true) {
+			next = (next + 1) & mask;
+			if (keys[next] == null) {
+				break;
+			}
+			int distance = (next - slot(hashes[next])) & mask;
+			if (distance >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				hashes[free] = hashes[next];
+				free = next;
 			}
-			elementCount--;
-			return entry.value;
 		}
-		return null;
+		keys[free] = null;
+		values[free] = null;
+		elementCount--;
+		return result;
 	}
 
 	/**
@@ -413,14 +447,13 @@ import java.util.NoSuchElementException;
 
 		StringBuilder buffer = new StringBuilder();
 		buffer.append('{');
-		for (int i = elementData.length; --i >= 0;) {
-			HashMapEntry entry = elementData[i];
-			while (entry != null) {
-				buffer.append(entry.key);
+		for (int i = keys.length; --i >= 0;) {
+			Object key = keys[i];
+			if (key != null) {
+				buffer.append(key);
 				buffer.append('=');
-				buffer.append(entry.value);
+				buffer.append(values[i]);
 				buffer.append(", "); //$NON-NLS-1$
-				entry = entry.next;
 			}
 		}
 		// Remove the last ", "
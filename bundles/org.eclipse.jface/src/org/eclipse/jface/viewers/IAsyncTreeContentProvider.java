@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A tree content provider that computes the children of elements in the
+ * background.
+ * <p>
+ * When an {@link AbstractTreeViewer} with this content provider needs the
+ * children of an element, it calls {@link #getChildrenAsync(Object)} instead of
+ * {@link #getChildren(Object)} and shows a pending placeholder item below the
+ * element until the returned future completes. The children are then merged
+ * into the tree in batches, so that the UI thread stays responsive even for
+ * elements with many children. The root elements are still obtained
+ * synchronously via {@link #getElements(Object)}.
+ * </p>
+ * <p>
+ * Elements expanded programmatically, for example by
+ * {@link AbstractTreeViewer#expandAll()},
+ * {@link AbstractTreeViewer#expandToLevel(Object, int)},
+ * {@link AbstractTreeViewer#setExpandedElements(Object...)} or by revealing an
+ * element, get their children synchronously from {@link #getChildren(Object)},
+ * because the callers expect the items to exist when the method returns.
+ * </p>
+ * <p>
+ * The viewer caches the children it obtained and fetches them again when the
+ * element is refreshed. A fetch that has not completed yet is cancelled when
+ * its element is collapsed, when the input changes and when the viewer is
+ * disposed.
+ * </p>
+ *
+ * @see AbstractTreeViewer
+ * @since 3.26
+ */
+public interface IAsyncTreeContentProvider extends ITreeContentProvider {
+
+	/**
+	 * Starts computing the child elements of the given parent element and
+	 * returns a future that completes with them.
+	 * <p>
+	 * This method is called in the UI thread and must not block. The future may
+	 * be completed in any thread, but the computation must not wait for the UI
+	 * thread. If the future completes exceptionally, the failure is logged and
+	 * the element is shown without children. The viewer cancels the future if it
+	 * no longer needs the children; implementations may check
+	 * {@link CompletableFuture#isCancelled()} to stop the computation early.
+	 * </p>
+	 * The result is not modified by the viewer.
+	 *
+	 * @param parentElement the parent element
+	 * @return a future of the array of child elements, never <code>null</code>
+	 */
+	public CompletableFuture<Object[]> getChildrenAsync(Object parentElement);
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The default implementation waits for the future returned by
+	 * {@link #getChildrenAsync(Object)}. {@link AbstractTreeViewer} only calls
+	 * it when an element is expanded programmatically.
+	 * </p>
+	 */
+	@Override
+	public default Object[] getChildren(Object parentElement) {
+		return getChildrenAsync(parentElement).join();
+	}
+}
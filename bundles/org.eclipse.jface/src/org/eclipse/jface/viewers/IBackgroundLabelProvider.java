@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+/**
+ * Mixin interface for {@link CellLabelProvider}s whose labels can be computed
+ * in a thread other than the UI thread.
+ * <p>
+ * If background label computation is enabled on a {@link ColumnViewer}, the
+ * viewer does not call {@link CellLabelProvider#update(ViewerCell)} for the
+ * columns whose label provider implements this interface. It calls
+ * {@link #updateLabel(ViewerLabel, Object)} in a background thread instead,
+ * and then applies the computed label to the cell in the UI thread. Rows whose
+ * labels are still being computed show a placeholder, or their previous label
+ * if they were showing the same element before.
+ * </p>
+ *
+ * @see ColumnViewer#setBackgroundLabelComputation(boolean)
+ * @since 3.26
+ */
+public interface IBackgroundLabelProvider {
+
+	/**
+	 * Computes the label of the given element.
+	 * <p>
+	 * This method is called in a background thread, possibly concurrently for
+	 * several elements, and must not access any widgets. The text, style
+	 * ranges, image descriptor, colors and font set on the label are shown in
+	 * the cell. Images should be provided as image descriptors, the viewer
+	 * creates and disposes of their images; images set directly are shown as
+	 * is and must not be disposed while they are shown.
+	 * </p>
+	 *
+	 * @param label
+	 *            the label to update, initially empty
+	 * @param element
+	 *            the element of the row
+	 */
+	public void updateLabel(ViewerLabel label, Object element);
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+/**
+ * Finds out whether subclasses override a method, so that an optimized
+ * implementation of the method is only used where it is not replaced.
+ */
+final class OverriddenMethods {
+
+	private OverriddenMethods() {
+	}
+
+	/**
+	 * Returns a per class cache of whether a class overrides the public method
+	 * with the given signature declared by <code>baseClass</code>. A method
+	 * which cannot be found is considered overridden.
+	 *
+	 * @param baseClass      the class declaring the method
+	 * @param name           the name of the method
+	 * @param parameterTypes the parameter types of the method
+	 * @return the cache, to be queried with the class of an instance
+	 */
+	static ClassValue<Boolean> overrides(Class<?> baseClass, String name, Class<?>... parameterTypes) {
+		return new ClassValue<>() {
+			@Override
+			protected Boolean computeValue(Class<?> type) {
+				try {
+					Class<?> declaringClass = type.getMethod(name, parameterTypes).getDeclaringClass();
+					return Boolean.valueOf(declaringClass != baseClass);
+				} catch (NoSuchMethodException e) {
+					return Boolean.TRUE;
+				}
+			}
+		};
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -89,6 +89,17 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	private List<ViewerFilter> filters;
 
+	/**
+	 * The minimum number of elements which are filtered and sorted in parallel
+	 * if {@link #parallelFilteringAndSorting} is enabled.
+	 */
+	private static final int PARALLEL_THRESHOLD = 10000;
+
+	/**
+	 * Whether large numbers of elements are filtered and sorted in parallel.
+	 */
+	private boolean parallelFilteringAndSorting;
+
 	/**
 	 * Indicates whether the viewer should attempt to preserve the selection
 	 * across update operations.
@@ -854,7 +865,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		if (filters != null) {
 			for (Object element : filters) {
 				ViewerFilter f = (ViewerFilter) element;
-				Object[] filteredResult = f.filter(this, parent, result);
+				Object[] filteredResult = f.filter(this, parent, result, isParallel(result));
 				if (associateListener != null && filteredResult.length != result.length) {
 					notifyFilteredOut(result, filteredResult);
 				}
@@ -1032,11 +1043,18 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		if (sorter != null) {
 			// be sure we're not modifying the original array from the model
 			result = result.clone();
-			sorter.sort(this, result);
+			sorter.sort(this, result, isParallel(result));
 		}
 		return result;
 	}
 
+	/**
+	 * Returns whether the given elements are filtered and sorted in parallel.
+	 */
+	boolean isParallel(Object[] elements) {
+		return parallelFilteringAndSorting && elements.length >= PARALLEL_THRESHOLD;
+	}
+
 	/**
 	 * Returns this viewer's sorter, or <code>null</code> if it does not have
 	 * one.  If this viewer has a comparator that was set via
@@ -1576,6 +1594,40 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		}
 	}
 
+	/**
+	 * Sets whether large numbers of children are filtered and sorted by several
+	 * threads in parallel. The UI thread waits for the result, which is then
+	 * applied to the widgets in one step. This is disabled by default.
+	 * <p>
+	 * Only enable this if the filters and the comparator of this viewer can be
+	 * called concurrently from threads other than the UI thread, and do not
+	 * access any widgets. This includes the label provider if the comparator
+	 * sorts by label, which the default {@link ViewerComparator} does. Filters
+	 * overriding {@link ViewerFilter#filter(Viewer, Object, Object[])} and
+	 * comparators overriding {@link ViewerComparator#sort(Viewer, Object[])}
+	 * are still called on the UI thread only.
+	 * </p>
+	 *
+	 * @param parallel <code>true</code> to filter and sort in parallel,
+	 *                 <code>false</code> to use only the UI thread
+	 * @since 3.26
+	 */
+	public void setParallelFilteringAndSorting(boolean parallel) {
+		this.parallelFilteringAndSorting = parallel;
+	}
+
+	/**
+	 * Returns whether large numbers of children are filtered and sorted by
+	 * several threads in parallel.
+	 *
+	 * @return <code>true</code> if filtering and sorting run in parallel
+	 * @see #setParallelFilteringAndSorting(boolean)
+	 * @since 3.26
+	 */
+	public boolean isParallelFilteringAndSorting() {
+		return parallelFilteringAndSorting;
+	}
+
 	/**
 	 * Discards this viewer's filters and triggers refiltering and resorting of
 	 * the elements.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2020 IBM Corporation and others.
+ * Copyright (c) 2007, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,10 +16,14 @@
  *******************************************************************************/
 package org.eclipse.jface.viewers;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.jface.internal.InternalPolicy;
 import org.eclipse.jface.viewers.StyledString.Styler;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyleRange;
@@ -72,10 +76,24 @@ public abstract class StyledCellLabelProvider extends OwnerDrawLabelProvider {
 	 */
 	private static final int OWNER_DRAW_ENABLED = 1 << 4;
 
+	/**
+	 * The maximum number of prepared text layouts kept by a label provider.
+	 */
+	private static final int MAX_CACHED_TEXT_LAYOUTS = 256;
+
+	/**
+	 * The number of text layout lookups after which the hit rate is traced.
+	 */
+	private static final int TRACE_INTERVAL = 10000;
+
 	private int style;
 
-	// reused text layout
-	private TextLayout cachedTextLayout;
+	// prepared text layouts, least recently used first
+	private final TextLayoutCache cachedTextLayouts = new TextLayoutCache();
+
+	private long textLayoutLookups;
+
+	private long textLayoutHits;
 
 	private ColumnViewer viewer;
 	private ViewerColumn column;
@@ -176,10 +194,11 @@ public abstract class StyledCellLabelProvider extends OwnerDrawLabelProvider {
 
 	@Override
 	public void dispose() {
-		if (this.cachedTextLayout != null) {
-			cachedTextLayout.dispose();
-			cachedTextLayout = null;
+		if (InternalPolicy.DEBUG_TRACE_STYLED_TEXT_LAYOUT_CACHE && textLayoutLookups > 0) {
+			traceTextLayoutHitRate();
 		}
+		cachedTextLayouts.forEach((key, layout) -> layout.textLayout.dispose());
+		cachedTextLayouts.clear();
 
 		this.viewer= null;
 		this.column= null;
@@ -201,13 +220,43 @@ public abstract class StyledCellLabelProvider extends OwnerDrawLabelProvider {
 		super.update(cell); // calls 'repaint' to trigger the paint listener
 	}
 
-	private TextLayout getSharedTextLayout(Display display) {
-		if (cachedTextLayout == null) {
-			int orientation = viewer.getControl().getStyle() & (SWT.LEFT_TO_RIGHT | SWT.RIGHT_TO_LEFT);
-			cachedTextLayout = new TextLayout(display);
-			cachedTextLayout.setOrientation(orientation);
+	/**
+	 * Returns the text layout showing the text of the given cell with its
+	 * font and style ranges. Text layouts are prepared once and then taken from
+	 * a cache of the most recently used ones, as long as the text, font and
+	 * prepared style ranges of the cell stay the same.
+	 */
+	private PreparedTextLayout getTextLayout(Display display, ViewerCell cell, boolean applyColors) {
+		Font font = cell.getFont();
+		StyleRange[] styleRanges = cell.getStyleRanges();
+		StyleRange[] preparedRanges = null;
+		if (styleRanges != null) { // user didn't fill styled ranges
+			preparedRanges = new StyleRange[styleRanges.length];
+			for (int i = 0; i < styleRanges.length; i++) {
+				StyleRange curr = prepareStyleRange(styleRanges[i], applyColors);
+				preparedRanges[i] = transformFontStyleToFont(display, font, curr);
+			}
+		}
+		TextLayoutKey key = new TextLayoutKey(cell.getText(), font, preparedRanges);
+		PreparedTextLayout layout = cachedTextLayouts.get(key);
+		textLayoutLookups++;
+		if (layout != null) {
+			textLayoutHits++;
+		} else {
+			// the style ranges may be modified by clients later on
+			key = key.copy();
+			layout = createTextLayout(display, key);
+			cachedTextLayouts.put(key, layout);
+		}
+		if (InternalPolicy.DEBUG_TRACE_STYLED_TEXT_LAYOUT_CACHE && textLayoutLookups % TRACE_INTERVAL == 0) {
+			traceTextLayoutHitRate();
 		}
-		return cachedTextLayout;
+		return layout;
+	}
+
+	private void traceTextLayoutHitRate() {
+		System.out.println(getClass().getName() + " text layout cache: " + textLayoutHits + " hits in " //$NON-NLS-1$ //$NON-NLS-2$
+				+ textLayoutLookups + " lookups (" + textLayoutHits * 100 / textLayoutLookups + "%)"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
 	private boolean useColors(Event event) {
@@ -273,45 +322,48 @@ public abstract class StyledCellLabelProvider extends OwnerDrawLabelProvider {
 		ViewerCell cell= getViewerCell(event, element);
 		boolean applyColors = useColors(event);
 
-		TextLayout layout = getSharedTextLayout(event.display);
+		PreparedTextLayout layout = getTextLayout(event.display, cell, applyColors);
 
-		int textWidthDelta = deltaOfLastMeasure = updateTextLayout(layout, cell, applyColors);
+		int textWidthDelta = deltaOfLastMeasure = layout.textWidthDelta;
 
 		event.width += textWidthDelta;
 	}
 
 	/**
-	 * @param layout
-	 * @param cell
-	 * @param applyColors
-	 * @return the text width delta (0 if the text layout contains no other font)
+	 * Creates a text layout showing the text of the given key with its font and
+	 * style ranges.
+	 *
+	 * @param display
+	 * @param key
+	 * @return the text layout and its text width delta (0 if the text layout
+	 *         contains no other font)
 	 */
-	private int updateTextLayout(TextLayout layout, ViewerCell cell,
-			boolean applyColors) {
-		layout.setStyle(null, 0, Integer.MAX_VALUE); // clear old styles
-
-		layout.setText(cell.getText());
-		layout.setFont(cell.getFont()); // set also if null to clear previous usages
-
-		int originalTextWidth = layout.getBounds().width; // text width without any styles
-		boolean containsOtherFont= false;
-
-		StyleRange[] styleRanges = cell.getStyleRanges();
-		if (styleRanges != null) { // user didn't fill styled ranges
-			for (StyleRange styleRange : styleRanges) {
-				StyleRange curr = prepareStyleRange(styleRange, applyColors);
-				curr = transformFontStyleToFont(layout.getDevice(), cell.getFont(), curr);
-				layout.setStyle(curr, curr.start, curr.start + curr.length - 1);
+	private PreparedTextLayout createTextLayout(Display display, TextLayoutKey key) {
+		TextLayout layout = new TextLayout(display);
+		layout.setOrientation(viewer.getControl().getStyle() & (SWT.LEFT_TO_RIGHT | SWT.RIGHT_TO_LEFT));
+		layout.setText(key.text);
+		layout.setFont(key.font);
+
+		boolean containsOtherFont = false;
+		if (key.styleRanges != null) {
+			for (StyleRange curr : key.styleRanges) {
 				if (curr.font != null) {
-					containsOtherFont= true;
+					containsOtherFont = true;
 				}
 			}
 		}
+		// text width without any styles
+		int originalTextWidth = containsOtherFont ? layout.getBounds().width : 0;
+		if (key.styleRanges != null) {
+			for (StyleRange curr : key.styleRanges) {
+				layout.setStyle(curr, curr.start, curr.start + curr.length - 1);
+			}
+		}
 		int textWidthDelta = 0;
 		if (containsOtherFont) {
 			textWidthDelta = layout.getBounds().width - originalTextWidth;
 		}
-		return textWidthDelta;
+		return new PreparedTextLayout(layout, textWidthDelta);
 	}
 
 	private StyleRange transformFontStyleToFont(Device layoutDevice, Font cellFont, StyleRange styleRange) {
@@ -375,8 +427,7 @@ public abstract class StyledCellLabelProvider extends OwnerDrawLabelProvider {
 
 		Rectangle textBounds = cell.getTextBounds();
 		if (textBounds != null) {
-			TextLayout textLayout= getSharedTextLayout(event.display);
-			// text layout already configured in measure(Event, Object)
+			TextLayout textLayout = getTextLayout(event.display, cell, applyColors).textLayout;
 
 			Rectangle layoutBounds = textLayout.getBounds();
 
@@ -456,4 +507,84 @@ public abstract class StyledCellLabelProvider extends OwnerDrawLabelProvider {
 		return styledString; // no change
 	}
 
+
+	/**
+	 * The text, font and prepared style ranges of a text layout.
+	 */
+	private static final class TextLayoutKey {
+		final String text;
+		final Font font;
+		final StyleRange[] styleRanges;
+		private final int hashCode;
+
+		TextLayoutKey(String text, Font font, StyleRange[] styleRanges) {
+			this.text = text;
+			this.font = font;
+			this.styleRanges = styleRanges;
+			this.hashCode = Objects.hash(text, font) * 31 + Arrays.hashCode(styleRanges);
+		}
+
+		TextLayoutKey copy() {
+			if (styleRanges == null) {
+				return this;
+			}
+			StyleRange[] copies = new StyleRange[styleRanges.length];
+			for (int i = 0; i < styleRanges.length; i++) {
+				copies[i] = (StyleRange) styleRanges[i].clone();
+			}
+			return new TextLayoutKey(text, font, copies);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TextLayoutKey)) {
+				return false;
+			}
+			TextLayoutKey other = (TextLayoutKey) obj;
+			return hashCode == other.hashCode && Objects.equals(text, other.text) && Objects.equals(font, other.font)
+					&& Arrays.equals(styleRanges, other.styleRanges);
+		}
+	}
+
+	/**
+	 * A text layout configured with the text, font and style ranges of a cell.
+	 */
+	private static final class PreparedTextLayout {
+		final TextLayout textLayout;
+		final int textWidthDelta;
+
+		PreparedTextLayout(TextLayout textLayout, int textWidthDelta) {
+			this.textLayout = textLayout;
+			this.textWidthDelta = textWidthDelta;
+		}
+	}
+
+	/**
+	 * A cache of the most recently used text layouts, disposing of the least
+	 * recently used one when it is full.
+	 */
+	private static final class TextLayoutCache extends LinkedHashMap<TextLayoutKey, PreparedTextLayout> {
+		private static final long serialVersionUID = 1L;
+
+		TextLayoutCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<TextLayoutKey, PreparedTextLayout> eldest) {
+			if (size() > MAX_CACHED_TEXT_LAYOUTS) {
+				eldest.getValue().textLayout.dispose();
+				return true;
+			}
+			return false;
+		}
+	}
 }
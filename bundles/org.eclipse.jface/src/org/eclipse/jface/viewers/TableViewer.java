@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -214,6 +214,12 @@ public class TableViewer extends AbstractTableViewer {
 		return table.getItem(p);
 	}
 
+	@Override
+	Item getTopItem() {
+		int index = table.getTopIndex();
+		return index < table.getItemCount() ? table.getItem(index) : null;
+	}
+
 	// Methods to provide widget independency
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2017 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -61,6 +61,11 @@ import org.eclipse.swt.widgets.Widget;
  * {@link #setUseHashlookup(boolean)}.
  * </p>
  * <p>
+ * As of 3.26, a virtual tree can be sorted and filtered by wrapping an
+ * <code>ITreeContentProvider</code> in a {@link VirtualTreeContentProvider}.
+ * Tree items are then only created for the rows that are shown.
+ * </p>
+ * <p>
  * Users setting up an editable tree with more than 1 column <b>have</b> to pass the
  * SWT.FULL_SELECTION style bit
  * </p>
@@ -192,6 +197,11 @@ public class TreeViewer extends AbstractTreeViewer {
 		return getTree().getItem(p);
 	}
 
+	@Override
+	Item getTopItem() {
+		return tree.getTopItem();
+	}
+
 	@Override
 	protected int getItemCount(Control widget) {
 		return ((Tree) widget).getItemCount();
@@ -905,6 +915,9 @@ public class TreeViewer extends AbstractTreeViewer {
 			applyEditorValue();
 		}
 
+		if (event.item.getData() != null && getContentProvider() instanceof VirtualTreeContentProvider) {
+			((VirtualTreeContentProvider) getContentProvider()).forget(event.item.getData());
+		}
 		super.handleTreeCollapse(event);
 	}
 
@@ -1062,6 +1075,9 @@ public class TreeViewer extends AbstractTreeViewer {
 		if (contentProviderIsLazy) {
 			// avoid causing a callback:
 			item.setText(" "); //$NON-NLS-1$
+			if (item.getData() != null && getContentProvider() instanceof VirtualTreeContentProvider) {
+				((VirtualTreeContentProvider) getContentProvider()).forget(item.getData());
+			}
 		}
 		super.disassociate(item);
 	}
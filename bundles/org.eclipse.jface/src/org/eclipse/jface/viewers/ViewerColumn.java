@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -141,6 +141,11 @@ public abstract class ViewerColumn {
 			Assert.isTrue(false, "Column " + cell.getColumnIndex() + //$NON-NLS-1$
 			" has no label provider."); //$NON-NLS-1$
 		}
+		BackgroundLabelUpdater backgroundLabels = viewer.getBackgroundLabels();
+		if (backgroundLabels != null && labelProvider instanceof IBackgroundLabelProvider) {
+			backgroundLabels.update(cell, (IBackgroundLabelProvider) labelProvider);
+			return;
+		}
 		labelProvider.update(cell);
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2016 IBM Corporation and others.
+ * Copyright (c) 2006, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,8 +16,11 @@
 
 package org.eclipse.jface.viewers;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.stream.IntStream;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -48,6 +51,18 @@ import org.eclipse.jface.util.Policy;
  */
 public class ViewerComparator {
 
+	/**
+	 * Whether a class overrides {@link #compare(Viewer, Object, Object)}
+	 */
+	private static final ClassValue<Boolean> COMPARE_OVERRIDDEN = OverriddenMethods.overrides(ViewerComparator.class,
+			"compare", Viewer.class, Object.class, Object.class); //$NON-NLS-1$
+
+	/**
+	 * Whether a class overrides {@link #sort(Viewer, Object[])}
+	 */
+	private static final ClassValue<Boolean> SORT_OVERRIDDEN = OverriddenMethods.overrides(ViewerComparator.class,
+			"sort", Viewer.class, Object[].class); //$NON-NLS-1$
+
 	/**
 	 * The comparator to use to sort a viewer's contents.
 	 */
@@ -192,7 +207,10 @@ public class ViewerComparator {
 	 * The default implementation of this method uses the
 	 * {@link java.util.Arrays#sort(Object[], Comparator)} algorithm on the
 	 * given array, calling {@link #compare(Viewer, Object, Object)} to compare
-	 * elements.
+	 * elements. If <code>compare</code> is not overridden, the category and the
+	 * label of each element are computed only once per sort, and the labels are
+	 * compared by their {@link CollationKey}s if the string comparator is a
+	 * {@link Collator}.
 	 * </p>
 	 * <p>
 	 * Subclasses may reimplement this method to provide a more optimized implementation.
@@ -202,8 +220,31 @@ public class ViewerComparator {
 	 * @param elements the elements to sort
 	 */
 	public void sort(final Viewer viewer, Object[] elements) {
+		sortElements(viewer, elements, false);
+	}
+
+	/**
+	 * Sorts the given elements like {@link #sort(Viewer, Object[])}. If
+	 * <code>parallel</code> is <code>true</code> and <code>sort</code> is not
+	 * overridden, the elements are sorted by several threads concurrently.
+	 */
+	void sort(Viewer viewer, Object[] elements, boolean parallel) {
+		if (parallel && !SORT_OVERRIDDEN.get(getClass()).booleanValue()) {
+			sortElements(viewer, elements, true);
+		} else {
+			sort(viewer, elements);
+		}
+	}
+
+	private void sortElements(Viewer viewer, Object[] elements, boolean parallel) {
 		try {
-			Arrays.sort(elements, (a, b) -> ViewerComparator.this.compare(viewer, a, b));
+			if (!COMPARE_OVERRIDDEN.get(getClass()).booleanValue()) {
+				sortByKeys(viewer, elements, parallel);
+			} else if (parallel) {
+				Arrays.parallelSort(elements, (a, b) -> ViewerComparator.this.compare(viewer, a, b));
+			} else {
+				Arrays.sort(elements, (a, b) -> ViewerComparator.this.compare(viewer, a, b));
+			}
 		} catch (IllegalArgumentException e) {
 			String msg = e
 					+ "\nWorkaround for comparator violation:\n\tSet system property -Djava.util.Arrays.useLegacyMergeSort=true" //$NON-NLS-1$
@@ -228,4 +269,66 @@ public class ViewerComparator {
 			throw e;
 		}
 	}
+
+	/**
+	 * Sorts the elements like {@link #compare(Viewer, Object, Object)} does,
+	 * but computes the category and the label of each element only once.
+	 */
+	private void sortByKeys(Viewer viewer, Object[] elements, boolean parallel) {
+		if (elements.length < 2) {
+			return;
+		}
+		Comparator<? super String> stringComparator = getComparator();
+		Collator collator = stringComparator instanceof Collator ? (Collator) stringComparator : null;
+		SortKey[] keys = new SortKey[elements.length];
+		if (parallel) {
+			// collators synchronize the computation of collation keys
+			ThreadLocal<Collator> collators = ThreadLocal
+					.withInitial(() -> collator != null ? (Collator) collator.clone() : null);
+			IntStream.range(0, elements.length).parallel()
+					.forEach(i -> keys[i] = createSortKey(viewer, elements[i], collators.get()));
+		} else {
+			for (int i = 0; i < elements.length; i++) {
+				keys[i] = createSortKey(viewer, elements[i], collator);
+			}
+		}
+		Comparator<SortKey> keyComparator;
+		if (collator != null) {
+			keyComparator = (k1, k2) -> {
+				int result = Integer.compare(k1.category, k2.category);
+				return result != 0 ? result : ((CollationKey) k1.label).compareTo((CollationKey) k2.label);
+			};
+		} else {
+			keyComparator = (k1, k2) -> {
+				int result = Integer.compare(k1.category, k2.category);
+				return result != 0 ? result : stringComparator.compare((String) k1.label, (String) k2.label);
+			};
+		}
+		if (parallel) {
+			Arrays.parallelSort(keys, keyComparator);
+		} else {
+			Arrays.sort(keys, keyComparator);
+		}
+		for (int i = 0; i < keys.length; i++) {
+			elements[i] = keys[i].element;
+		}
+	}
+
+	private SortKey createSortKey(Viewer viewer, Object element, Collator collator) {
+		String label = getLabel(viewer, element);
+		return new SortKey(element, category(element), collator != null ? collator.getCollationKey(label) : label);
+	}
+
+	private static final class SortKey {
+		final Object element;
+		final int category;
+		/** the label, or its collation key */
+		final Object label;
+
+		SortKey(Object element, int category, Object label) {
+			this.element = element;
+			this.category = category;
+			this.label = label;
+		}
+	}
 }
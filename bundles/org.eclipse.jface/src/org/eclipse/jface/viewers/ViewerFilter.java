@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.jface.viewers;
 
 import java.util.ArrayList;
+import java.util.stream.IntStream;
 
 /**
  * A viewer filter is used by a structured viewer to extract a subset of
@@ -28,6 +29,13 @@ import java.util.ArrayList;
  * @see StructuredViewer
  */
 public abstract class ViewerFilter {
+
+	/**
+	 * Whether a class overrides {@link #filter(Viewer, Object, Object[])}
+	 */
+	private static final ClassValue<Boolean> FILTER_OVERRIDDEN = OverriddenMethods.overrides(ViewerFilter.class,
+			"filter", Viewer.class, Object.class, Object[].class); //$NON-NLS-1$
+
 	/**
 	 * Creates a new viewer filter.
 	 */
@@ -66,6 +74,28 @@ public abstract class ViewerFilter {
 		return out.toArray();
 	}
 
+	/**
+	 * Filters the given elements like {@link #filter(Viewer, Object, Object[])}.
+	 * If <code>parallel</code> is <code>true</code> and <code>filter</code> is
+	 * not overridden, <code>select</code> is called concurrently from several
+	 * threads.
+	 */
+	Object[] filter(Viewer viewer, Object parent, Object[] elements, boolean parallel) {
+		if (!parallel || FILTER_OVERRIDDEN.get(getClass()).booleanValue()) {
+			return filter(viewer, parent, elements);
+		}
+		int size = elements.length;
+		boolean[] selected = new boolean[size];
+		IntStream.range(0, size).parallel().forEach(i -> selected[i] = select(viewer, parent, elements[i]));
+		ArrayList<Object> out = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			if (selected[i]) {
+				out.add(elements[i]);
+			}
+		}
+		return out.toArray();
+	}
+
 	/**
 	 * Filters the given elements for the given viewer. The input array is not
 	 * modified.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,8 @@
  *******************************************************************************/
 package org.eclipse.jface.viewers;
 
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.Image;
@@ -58,6 +60,10 @@ public class ViewerLabel {
 
 	private Point tooltipShift;
 
+	private StyleRange[] styleRanges;
+
+	private ImageDescriptor imageDescriptor;
+
 	/**
 	 * Create a new instance of the receiver with the supplied initial text and
 	 * image.
@@ -414,4 +420,58 @@ public class ViewerLabel {
 	public boolean hasTooltipShift() {
 		return this.tooltipShift != null;
 	}
+
+	/**
+	 * Returns the style ranges to be applied on the text, or <code>null</code>
+	 * if no style ranges have been set.
+	 *
+	 * @return the style ranges or <code>null</code>
+	 *
+	 * @since 3.26
+	 */
+	public StyleRange[] getStyleRanges() {
+		return styleRanges;
+	}
+
+	/**
+	 * Sets the style ranges to be applied on the text. Style ranges are only
+	 * shown by viewers whose label provider is a
+	 * {@link StyledCellLabelProvider} with owner draw enabled.
+	 *
+	 * @param styleRanges
+	 *            the style ranges, or <code>null</code> for none
+	 *
+	 * @since 3.26
+	 */
+	public void setStyleRanges(StyleRange[] styleRanges) {
+		this.styleRanges = styleRanges;
+	}
+
+	/**
+	 * Returns the descriptor of the image, or <code>null</code> if no image
+	 * descriptor has been set.
+	 *
+	 * @return the image descriptor or <code>null</code>
+	 *
+	 * @since 3.26
+	 */
+	public ImageDescriptor getImageDescriptor() {
+		return imageDescriptor;
+	}
+
+	/**
+	 * Sets the descriptor of the image. Unlike an {@link Image}, an image
+	 * descriptor can be obtained in a thread other than the UI thread. The
+	 * viewer creates the image when it shows the label, in which case the image
+	 * descriptor takes precedence over the image.
+	 *
+	 * @param imageDescriptor
+	 *            the image descriptor, or <code>null</code> for none
+	 * @see IBackgroundLabelProvider
+	 *
+	 * @since 3.26
+	 */
+	public void setImageDescriptor(ImageDescriptor imageDescriptor) {
+		this.imageDescriptor = imageDescriptor;
+	}
 }
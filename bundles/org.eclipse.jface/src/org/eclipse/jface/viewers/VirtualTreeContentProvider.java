@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * A lazy tree content provider that obtains the elements of a
+ * {@link TreeViewer} from an {@link ITreeContentProvider} and sorts and
+ * filters them with the viewer's comparator and filters.
+ * <p>
+ * Unlike other lazy content providers, this content provider lets a tree
+ * viewer on a tree with the {@link org.eclipse.swt.SWT#VIRTUAL} style bit be
+ * sorted and filtered, so that large sorted trees need not be fully
+ * materialized: the viewer only creates and populates tree items for the rows
+ * that are shown. For each element whose children were requested, this content
+ * provider keeps an array of the sorted and filtered children, which serves as
+ * the index from the position of a row to its element. Indexes are computed
+ * again when the children are counted, in particular when the tree is
+ * refreshed, for example because the viewer's comparator or filters were
+ * changed. The indexes of an element and its descendants are released when
+ * the element is collapsed, removed from the tree or no longer among the
+ * children of its parent after a refresh.
+ * </p>
+ * <p>
+ * The tree viewer's hash lookup must be enabled by calling
+ * {@link StructuredViewer#setUseHashlookup(boolean)}.
+ * </p>
+ *
+ * @see TreeViewer
+ * @since 3.26
+ */
+public class VirtualTreeContentProvider implements ILazyTreeContentProvider {
+
+	private static final Object[] NO_CHILDREN = new Object[0];
+
+	private final ITreeContentProvider contentProvider;
+
+	private TreeViewer viewer;
+
+	private Object input;
+
+	/**
+	 * Maps elements to their sorted and filtered children.
+	 */
+	private CustomHashtable sortedChildren = new CustomHashtable();
+
+	/**
+	 * Creates a new lazy content provider for the given tree content provider.
+	 *
+	 * @param contentProvider
+	 *            the content provider obtaining the elements
+	 */
+	public VirtualTreeContentProvider(ITreeContentProvider contentProvider) {
+		Assert.isNotNull(contentProvider);
+		this.contentProvider = contentProvider;
+	}
+
+	/**
+	 * Returns the content provider obtaining the elements.
+	 *
+	 * @return the content provider
+	 */
+	public ITreeContentProvider getContentProvider() {
+		return contentProvider;
+	}
+
+	@Override
+	public void updateElement(Object parent, int index) {
+		if (viewer == null) {
+			return;
+		}
+		Object[] children = getSortedChildren(parent, false);
+		if (index >= children.length) {
+			return;
+		}
+		Object element = children[index];
+		viewer.replace(parent, index, element);
+		if (sortedChildren.containsKey(element)) {
+			// the children of the element were shown before
+			viewer.setChildCount(element, getSortedChildren(element, true).length);
+		} else {
+			viewer.setHasChildren(element, contentProvider.hasChildren(element));
+		}
+	}
+
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		if (viewer == null) {
+			return;
+		}
+		viewer.setChildCount(element, getSortedChildren(element, true).length);
+	}
+
+	@Override
+	public Object getParent(Object element) {
+		return contentProvider.getParent(element);
+	}
+
+	@Override
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		this.viewer = (TreeViewer) viewer;
+		this.input = newInput;
+		sortedChildren = new CustomHashtable(this.viewer.getComparer());
+		contentProvider.inputChanged(viewer, oldInput, newInput);
+	}
+
+	@Override
+	public void dispose() {
+		sortedChildren = new CustomHashtable();
+		contentProvider.dispose();
+	}
+
+	/**
+	 * Returns the sorted and filtered children of the given element.
+	 *
+	 * @param parent
+	 *            the parent element
+	 * @param recompute
+	 *            <code>true</code> to obtain the children again, and
+	 *            <code>false</code> to use the ones obtained before, if any
+	 * @return the sorted and filtered children
+	 */
+	private Object[] getSortedChildren(Object parent, boolean recompute) {
+		Object[] children = recompute ? null : (Object[]) sortedChildren.get(parent);
+		if (children != null) {
+			return children;
+		}
+		Object[] raw = parent == input ? contentProvider.getElements(parent) : contentProvider.getChildren(parent);
+		if (raw == null) {
+			raw = NO_CHILDREN;
+		}
+		children = raw;
+		boolean parallel = viewer.isParallel(raw);
+		for (ViewerFilter filter : viewer.getFilters()) {
+			children = filter.filter(viewer, parent, children, parallel);
+		}
+		ViewerComparator comparator = viewer.getComparator();
+		if (comparator != null) {
+			if (children == raw) {
+				// be sure we're not modifying the original array from the model
+				children = raw.clone();
+			}
+			comparator.sort(viewer, children, parallel);
+		}
+		Object[] oldChildren = (Object[]) sortedChildren.put(parent, children);
+		if (oldChildren != null) {
+			forgetRemoved(oldChildren, children);
+		}
+		return children;
+	}
+
+	/**
+	 * Releases the sorted and filtered children of the elements which are no
+	 * longer children of their parent.
+	 */
+	private void forgetRemoved(Object[] oldChildren, Object[] children) {
+		CustomHashtable remaining = null;
+		for (Object child : oldChildren) {
+			if (!sortedChildren.containsKey(child)) {
+				continue;
+			}
+			if (remaining == null) {
+				remaining = new CustomHashtable(children.length * 2 + 1, viewer.getComparer());
+				for (Object element : children) {
+					remaining.put(element, element);
+				}
+			}
+			if (!remaining.containsKey(child)) {
+				forget(child);
+			}
+		}
+	}
+
+	/**
+	 * Releases the sorted and filtered children of the given element and its
+	 * descendants, which are computed again when they are needed.
+	 *
+	 * @param element
+	 *            the element which was collapsed or removed
+	 */
+	void forget(Object element) {
+		Object[] children = (Object[]) sortedChildren.remove(element);
+		if (children != null) {
+			for (Object child : children) {
+				forget(child);
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,8 +18,8 @@ import org.eclipse.swt.widgets.Control;
 /**
  * Wrapper for a virtual-table-like widget. Contains all methods needed for lazy updates.
  * The JFace algorithms for deferred or lazy content providers should talk to this class
- * instead of directly to a TableViewer. This will allow them to be used with other virtual
- * viewers and widgets in the future.
+ * instead of directly to a TableViewer. <code>DeferredContentProvider</code> adapts both
+ * <code>TableViewer</code> and the root level of <code>TreeViewer</code> to this class.
  *
  * <p>
  * For example, if SWT starts to support virtual Lists in the future, it should be possible
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,45 +13,50 @@
  *******************************************************************************/
 package org.eclipse.jface.viewers.deferred;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.NullProgressMonitor;
-import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.viewers.AcceptAllFilter;
 import org.eclipse.jface.viewers.IFilter;
-import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 
 /**
- * Contains the algorithm for performing background sorting and filtering in a virtual
- * table. This is the real implementation for <code>DeferredContentProvider</code>.
- * However, this class will work with anything that implements <code>AbstractVirtualTable</code>
- * rather than being tied to a <code>TableViewer</code>.
- *
- * <p>
- * This is package visibility since it currently only needs to be used in one place,
- * but it could potentially be made public if there was a need to use the same background
- * sorting algorithm for something other than a TableViewer.
- * </p>
+ * Contains the algorithm for performing background sorting and filtering in a
+ * virtual table or tree. This is the real implementation for
+ * <code>DeferredContentProvider</code>. However, this class will work with
+ * anything that implements <code>AbstractVirtualTable</code> rather than being
+ * tied to a particular viewer.
  *
  * <p>
  * Information flow is like this:
  * </p>
  * <ol>
- * <li>IConcurrentModel sends unordered elements to BackgroundContentProvider (in a background thread)</li>
- * <li>BackgroundContentProvider sorts, filters, and sends element/index pairs to
- *     ConcurrentTableUpdator (in a background thread)</li>
- * <li>ConcurrentTableUpdator batches the updates and sends them to an AbstractVirtualTable
- *     (in the UI thread)</li>
+ * <li>IConcurrentModel sends unordered elements to BackgroundContentProvider (in
+ * any thread). They are queued in a <code>ChangeQueue</code> without
+ * locking.</li>
+ * <li>A background task drains the queue, filters the elements and sorts them
+ * into an <code>OrderStatisticTree</code>, {@link #CHUNK_SIZE} elements at a
+ * time.</li>
+ * <li>After each chunk, ConcurrentTableUpdator schedules an update of the
+ * AbstractVirtualTable, which reads the item count and the visible rows from
+ * this object (in the UI thread). Updates scheduled while one is pending are
+ * coalesced.</li>
  * </ol>
  *
  * <p>
- * Internally, sorting is done using a <code>LazySortedCollection</code>. This data structure
- * allows the content provider to locate and sort the visible range without fully sorting
- * all elements in the table. It also supports fast cancellation, allowing the visible range
- * to change in the middle of a sort without discarding partially-sorted information from
- * the previous range.
+ * Only the background task modifies the tree, and it never runs twice at the
+ * same time. It holds a lock while it applies a chunk, and the UI thread takes
+ * the same lock to read the tree, so the UI thread waits for at most one chunk
+ * no matter how fast the model changes. Changing the sort order sorts a
+ * snapshot of the elements, in parallel for large tables, and then replaces
+ * the tree.
  * </p>
  *
  * @since 3.1
@@ -59,19 +64,19 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 /* package */ final class BackgroundContentProvider {
 
 	/**
-	 * Sorting message string
+	 * Number of element changes applied while holding the lock.
 	 */
-	private static final String SORTING = JFaceResources.getString("Sorting"); //$NON-NLS-1$
+	private static final int CHUNK_SIZE = 1024;
 
 	/**
 	 * Table limit. -1 if unlimited
 	 */
-	private int limit = -1;
+	private volatile int limit = -1;
 
 	/**
 	 * Model that is currently providing input to this content provider.
 	 */
-	private IConcurrentModel model;
+	private final IConcurrentModel model;
 
 	/**
 	 * Current sort order
@@ -79,57 +84,69 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	private volatile Comparator sortOrder;
 
 	/**
-	 * True iff the content provider has
+	 * Current filter
 	 */
 	private volatile IFilter filter = AcceptAllFilter.getInstance();
 
 	/**
 	 * Queued changes
 	 */
-	private ChangeQueue changeQueue = new ChangeQueue();
+	private final ChangeQueue changeQueue = new ChangeQueue();
 
 	/**
 	 * Listener that gets callbacks from the model
 	 */
-	private IConcurrentModelListener listener = new IConcurrentModelListener() {
+	private final IConcurrentModelListener listener = new IConcurrentModelListener() {
 
 		@Override
 		public void add(Object[] added) {
-			BackgroundContentProvider.this.add(added);
+			enqueue(ChangeQueue.ADD, added);
 		}
 
 		@Override
 		public void remove(Object[] removed) {
-			BackgroundContentProvider.this.remove(removed);
+			enqueue(ChangeQueue.REMOVE, removed);
 		}
 
 		@Override
 		public void setContents(Object[] newContents) {
-			BackgroundContentProvider.this.setContents(newContents);
+			enqueue(ChangeQueue.SET, newContents);
 		}
 
 		@Override
 		public void update(Object[] changed) {
-			BackgroundContentProvider.this.update(changed);
+			enqueue(ChangeQueue.UPDATE, changed);
 		}
 
 	};
 
 	/**
-	 * Object that posts updates to the UI thread. Must synchronize on
-	 * sortMutex when accessing.
+	 * Object that posts updates to the UI thread.
 	 */
-	private ConcurrentTableUpdator updator;
+	private final ConcurrentTableUpdator updator;
 
-	private IProgressMonitor sortingProgressMonitor = new NullProgressMonitor();
-	private Thread sortThread = null;
+	/**
+	 * Guards the modifications of <code>elements</code> by the background task
+	 * and the reads from other threads.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
 
-	private volatile FastProgressReporter sortMon = new FastProgressReporter();
+	/**
+	 * The filtered elements in sort order. Only replaced or modified by the
+	 * background task, which may read it without holding the lock.
+	 */
+	private OrderStatisticTree elements;
+
+	/**
+	 * True iff the background task is scheduled or running
+	 */
+	private final AtomicBoolean taskScheduled = new AtomicBoolean();
 
-	private volatile Range range = new Range(0,0);
+	private volatile boolean disposed;
 
 	/**
-	 * Creates a new background content provider
+	 * Creates a new background content provider. Must be called in the UI
+	 * thread.
 	 *
 	 * @param table table that will receive updates
 	 * @param model data source
@@ -137,10 +154,10 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	 */
 	public BackgroundContentProvider(AbstractVirtualTable table,
 			IConcurrentModel model, Comparator sortOrder) {
-
-		updator = new ConcurrentTableUpdator(table);
 		this.model = model;
 		this.sortOrder = sortOrder;
+		this.elements = new OrderStatisticTree(sortOrder);
+		updator = new ConcurrentTableUpdator(table, this);
 		model.addListener(listener);
 	}
 
@@ -149,7 +166,7 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	 * Must be the last public method called on this object.
 	 */
 	public void dispose() {
-		cancelSortJob();
+		disposed = true;
 		updator.dispose();
 		model.removeListener(listener);
 	}
@@ -158,215 +175,12 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	 * Force a refresh. Asks the model to re-send its complete contents.
 	 */
 	public void refresh() {
-		if (updator.isDisposed()) {
+		if (disposed) {
 			return;
 		}
 		model.requestUpdate(listener);
 	}
 
-	/**
-	 * Called from sortJob. Sorts the elements defined by sortStart and sortLength.
-	 * Schedules a UI update when finished.
-	 *
-	 * @param mon monitor where progress will be reported
-	 */
-	private void doSort(IProgressMonitor mon) {
-
-		// Workaround for some weirdness in the Jobs framework: if you cancel a monitor
-		// for a job that has ended and reschedule that same job, it will start
-		// the job with a monitor that is already cancelled. We can workaround this by
-		// removing all references to the progress monitor whenever the job terminates,
-		// but this would require additional synchronize blocks (which are slow) and more
-		// complexity. Instead, we just un-cancel the monitor at the start of each job.
-		mon.setCanceled(false);
-
-		mon.beginTask(SORTING, 100);
-
-		// Create a LazySortedCollection
-		Comparator order = sortOrder;
-		IFilter f = filter;
-		LazySortedCollection collection = new LazySortedCollection(order);
-
-		// Fill it in with all existing known objects
-		Object[] knownObjects = updator.getKnownObjects();
-		for (Object object : knownObjects) {
-			if (object != null) {
-				collection.add(object);
-			}
-		}
-
-		boolean dirty = false;
-		int prevSize = knownObjects.length;
-		updator.setTotalItems(prevSize);
-
-		// Start processing changes
-		while(true) {
-			// If the sort order has changed, build a new LazySortedCollection with
-			// the new comparator
-			if (order != sortOrder) {
-				dirty = true;
-				order = sortOrder;
-				// Copy all elements from the old collection to the new one
-				LazySortedCollection newCollection = new LazySortedCollection(order);
-
-				Object[] items = collection.getItems(false);
-				for (int j = 0; j < items.length && order == sortOrder; j++) {
-					Object item = items[j];
-
-					newCollection.add(item);
-				}
-
-				// If the sort order changed again, re-loop
-				if (order != sortOrder) {
-					continue;
-				}
-				collection = newCollection;
-				continue;
-			}
-
-			// If the filter has changed
-			if (f != filter) {
-				dirty = true;
-				f = filter;
-
-				Object[] items = collection.getItems(false);
-
-				// Remove any items that don't pass the new filter
-				for (int j = 0; j < items.length && f == filter; j++) {
-					Object toTest = items[j];
-
-					if (!f.select(toTest)) {
-						collection.remove(toTest);
-					}
-				}
-				continue;
-			}
-
-			// If there are pending changes, process one of them
-			if (!changeQueue.isEmpty()) {
-				dirty = true;
-				ChangeQueue.Change next = changeQueue.dequeue();
-
-				switch(next.getType()) {
-					case ChangeQueue.ADD: {
-						filteredAdd(collection, next.getElements(), f);
-						break;
-					}
-					case ChangeQueue.REMOVE: {
-						Object[] toRemove = next.getElements();
-
-						flush(toRemove, collection);
-						collection.removeAll(toRemove);
-
-						break;
-					}
-					case ChangeQueue.UPDATE: {
-						Object[] items  = next.getElements();
-
-						for (Object item : items) {
-							if (collection.contains(item)) {
-								// TODO: write a collection.update(...) method
-								collection.remove(item);
-								collection.add(item);
-								updator.clear(item);
-							}
-						}
-
-						break;
-					}
-					case ChangeQueue.SET: {
-						Object[] items = next.getElements();
-						collection.clear();
-						filteredAdd(collection, items, f);
-
-						break;
-					}
-				}
-
-				continue;
-			}
-
-			int totalElements = collection.size();
-			if (limit != -1) {
-				if (totalElements > limit) {
-					totalElements = limit;
-				}
-			}
-
-			if (totalElements != prevSize) {
-				prevSize = totalElements;
-				// Send the total items to the updator ASAP -- the user may want
-				// to scroll to a different section of the table, which would
-				// cause our sort range to change and cause this job to get cancelled.
-				updator.setTotalItems(totalElements);
-				dirty = true;
-			}
-
-			// Terminate loop
-			if (!dirty) {
-				break;
-			}
-
-			try {
-				ConcurrentTableUpdator.Range updateRange = updator.getVisibleRange();
-				sortMon = new FastProgressReporter();
-				range = updateRange;
-				int sortStart = updateRange.start;
-				int sortLength = updateRange.length;
-
-				if (limit != -1) {
-					collection.retainFirst(limit, sortMon);
-				}
-
-				sortLength = Math.min(sortLength, totalElements - sortStart);
-				sortLength = Math.max(sortLength, 0);
-
-				Object[] objectsOfInterest = new Object[sortLength];
-
-				collection.getRange(objectsOfInterest, sortStart, true, sortMon);
-
-				// Send the new elements to the table
-				for (int i = 0; i < sortLength; i++) {
-					Object object = objectsOfInterest[i];
-					updator.replace(object, sortStart + i);
-				}
-
-				objectsOfInterest = new Object[collection.size()];
-
-				collection.getFirst(objectsOfInterest, true, sortMon);
-
-				// Send the new elements to the table
-				for (int i = 0; i < totalElements; i++) {
-					Object object = objectsOfInterest[i];
-					updator.replace(object, i);
-				}
-
-			} catch (InterruptedException e) {
-				continue;
-			}
-
-			dirty = false;
-		}
-
-		mon.done();
-	}
-
-	/**
-	 * @param collection
-	 * @param toAdd
-	 */
-	private static void filteredAdd(LazySortedCollection collection, Object[] toAdd, IFilter filter) {
-		if (filter != AcceptAllFilter.getInstance()) {
-			for (Object object : toAdd) {
-				if (filter.select(object)) {
-					collection.add(object);
-				}
-			}
-		} else {
-			collection.addAll(toAdd);
-		}
-	}
-
 	/**
 	 * Sets the sort order for this content provider
 	 *
@@ -375,8 +189,7 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	public void setSortOrder(Comparator sorter) {
 		Assert.isNotNull(sorter);
 		this.sortOrder = sorter;
-		sortMon.cancel();
-		refresh();
+		scheduleTask();
 	}
 
 	/**
@@ -387,21 +200,18 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	public void setFilter(IFilter toSet) {
 		Assert.isNotNull(toSet);
 		this.filter = toSet;
-		sortMon.cancel();
 		refresh();
 	}
 
 	/**
 	 * Sets the maximum table size. Based on the current sort order,
 	 * the table will be truncated if it grows beyond this size.
-	 * Using a limit improves memory usage and performance, and is
-	 * strongly recommended for large tables.
 	 *
 	 * @param limit maximum rows to show in the table or -1 if unbounded
 	 */
 	public void setLimit(int limit) {
 		this.limit = limit;
-		refresh();
+		updator.refreshAll();
 	}
 
 	/**
@@ -414,149 +224,194 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	}
 
 	/**
-	 * Checks if currently visible range has changed, and triggers and update
-	 * and resort if necessary. Must be called in the UI thread, typically
-	 * within a SWT.SetData callback.
-	 * @param includeIndex the index that should be included in the visible range.
+	 * Sends the element at the given row to the table. Must be called in the
+	 * UI thread, typically within a SWT.SetData callback.
+	 *
+	 * @param index the row requested by the table
 	 */
-	public void checkVisibleRange(int includeIndex) {
-		updator.checkVisibleRange(includeIndex);
-		ConcurrentTableUpdator.Range newRange = updator.getVisibleRange();
-		ConcurrentTableUpdator.Range oldRange = range;
-
-		// If we're in the middle of processing an invalid range, cancel the sort
-		if (newRange.start != oldRange.start || newRange.length != oldRange.length) {
-			sortMon.cancel();
-		}
+	public void updateElement(int index) {
+		updator.updateElement(index);
 	}
 
 	/**
-	 * This lock protects the two boolean variables sortThreadStarted and resortScheduled.
-	 */
-	private Object lock = new Object();
-
-	/**
-	 * true if the sort thread is running
+	 * Returns the number of rows, which is the number of filtered elements
+	 * truncated to the limit. May be called in any thread.
+	 *
+	 * @return the number of rows
 	 */
-	private boolean sortThreadStarted = false;
+	public int size() {
+		lock.lock();
+		try {
+			return rowCount();
+		} finally {
+			lock.unlock();
+		}
+	}
 
 	/**
-	 * true if we need to sort
+	 * Returns the element at the given row. May be called in any thread.
+	 *
+	 * @param index the row
+	 * @return the element, or <code>null</code> if there is no such row
 	 */
-	private boolean sortScheduled = false;
-
-	private final class SortThread extends Thread {
-		private SortThread(String name) {
-			super(name);
-		}
-
-		@Override
-		public void run() {
-			loop: while (true) {
-				synchronized (lock) {
-					sortScheduled = false;
-				}
-				try {
-					// this is the main work
-					doSort(sortingProgressMonitor);
-				} catch (Exception ex) {
-					// ignore
-				}
-				synchronized (lock) {
-					if (sortScheduled) {
-						continue loop;
-					}
-					sortThreadStarted = false;
-					break loop;
-				}
-			}
+	public Object get(int index) {
+		lock.lock();
+		try {
+			return index < rowCount() ? elements.get(index) : null;
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	/**
-	 * Must be called whenever the model changes. Dirties this object and triggers a sort
-	 * if necessary.
+	 * Returns the elements of the given rows. May be called in any thread.
+	 *
+	 * @param start the first row
+	 * @param length the number of rows
+	 * @return the elements, <code>null</code> for rows that do not exist
 	 */
-	private void makeDirty() {
-		synchronized (lock) {
-			sortMon.cancel();
-			// request sorting
-			sortScheduled = true;
-			if (!sortThreadStarted) {
-				sortThreadStarted = true;
-				sortThread = new SortThread(SORTING);
-				sortThread.setDaemon(true);
-				sortThread.setPriority(Thread.NORM_PRIORITY - 1);
-				sortThread.start();
+	public Object[] getRange(int start, int length) {
+		Object[] result = new Object[length];
+		lock.lock();
+		try {
+			int end = Math.min(start + length, rowCount());
+			for (int row = start; row < end; row++) {
+				result[row - start] = elements.get(row);
 			}
+		} finally {
+			lock.unlock();
 		}
+		return result;
 	}
 
-	/**
-	 * Cancels any sort in progress. Note that we try to use the
-	 * FastProgresReporter if possible since this is more responsive than
-	 * canceling the sort job. However, it is not a problem to cancel in both
-	 * ways.
-	 */
-	private void cancelSortJob() {
-		sortMon.cancel();
-		sortingProgressMonitor.setCanceled(true);
+	private int rowCount() {
+		int size = elements.size();
+		int max = limit;
+		return max != -1 && size > max ? max : size;
 	}
 
-	/**
-	 * Called when new elements are added to the model.
-	 *
-	 * @param toAdd
-	 *            newly added elements
-	 */
-	private void add(Object[] toAdd) {
-		changeQueue.enqueue(ChangeQueue.ADD, toAdd);
-		makeDirty();
+	private void enqueue(int type, Object[] changed) {
+		changeQueue.enqueue(type, changed);
+		scheduleTask();
 	}
 
 	/**
-	 * Called with the complete contents of the model
-	 *
-	 * @param contents new contents of the model
+	 * Starts the background task unless it is already scheduled or running.
 	 */
-	private void setContents(Object[] contents) {
-		changeQueue.enqueue(ChangeQueue.SET, contents);
-		makeDirty();
+	private void scheduleTask() {
+		if (!disposed && taskScheduled.compareAndSet(false, true)) {
+			CompletableFuture.runAsync(this::runTask);
+		}
 	}
 
-	/**
-	 * Called when elements are removed from the model
-	 *
-	 * @param toRemove elements removed from the model
-	 */
-	private void remove(Object[] toRemove) {
-		changeQueue.enqueue(ChangeQueue.REMOVE, toRemove);
-		makeDirty();
-		refresh();
+	private void runTask() {
+		do {
+			try {
+				processChanges();
+			} catch (RuntimeException e) {
+				Policy.getLog().log(new Status(IStatus.ERROR, Policy.JFACE,
+						"Failed to sort the contents of a deferred viewer", e)); //$NON-NLS-1$
+			}
+			taskScheduled.set(false);
+			// changes queued after the last check but before the flag was reset
+			// did not schedule the task
+		} while (!disposed && (!changeQueue.isEmpty() || sortOrder != elements.getComparator())
+				&& taskScheduled.compareAndSet(false, true));
+	}
+
+	private void processChanges() {
+		while (!disposed) {
+			Comparator order = sortOrder;
+			if (order != elements.getComparator()) {
+				setElements(new OrderStatisticTree(order, elements.toArray()));
+				continue;
+			}
+			List<ChangeQueue.Change> changes = changeQueue.drain();
+			if (changes.isEmpty()) {
+				return;
+			}
+			IFilter f = filter;
+			int first = 0;
+			if (changes.get(0).getType() == ChangeQueue.SET) {
+				setElements(new OrderStatisticTree(order, select(changes.get(0).getElements(), f)));
+				first = 1;
+			}
+			applyChanges(changes.subList(first, changes.size()), f);
+		}
 	}
 
 	/**
-	 * Notifies the updator that the given elements have changed
-	 *
-	 * @param toFlush changed elements
-	 * @param collection collection of currently-known elements
+	 * Replaces the tree. Sorting the new tree does not block the UI thread.
 	 */
-	private void flush(Object[] toFlush, LazySortedCollection collection) {
-		for (Object item : toFlush) {
-			if (collection.contains(item)) {
-				updator.clear(item);
+	private void setElements(OrderStatisticTree newElements) {
+		lock.lock();
+		try {
+			elements = newElements;
+		} finally {
+			lock.unlock();
+		}
+		updator.refreshAll();
+	}
+
+	private void applyChanges(List<ChangeQueue.Change> changes, IFilter f) {
+		int applied = 0;
+		lock.lock();
+		try {
+			for (ChangeQueue.Change change : changes) {
+				for (Object element : change.getElements()) {
+					applyChange(change.getType(), element, f);
+					if (++applied == CHUNK_SIZE) {
+						applied = 0;
+						lock.unlock();
+						updator.refresh();
+						lock.lock();
+						if (disposed) {
+							return;
+						}
+					}
+				}
 			}
+		} finally {
+			lock.unlock();
 		}
+		updator.refresh();
 	}
 
+	private void applyChange(int type, Object element, IFilter f) {
+		switch (type) {
+		case ChangeQueue.ADD:
+			if (f.select(element)) {
+				elements.add(element);
+			}
+			break;
+		case ChangeQueue.REMOVE:
+			elements.remove(element);
+			break;
+		case ChangeQueue.UPDATE:
+			if (elements.contains(element)) {
+				if (f.select(element)) {
+					elements.reposition(element);
+					updator.changed(element);
+				} else {
+					elements.remove(element);
+				}
+			}
+			break;
+		default:
+			break;
+		}
+	}
 
-	/**
-	 * Called when elements in the model change
-	 *
-	 * @param items changed items
-	 */
-	private void update(Object[] items) {
-		changeQueue.enqueue(ChangeQueue.UPDATE, items);
-		makeDirty();
+	private static Object[] select(Object[] toSelect, IFilter filter) {
+		if (filter == AcceptAllFilter.getInstance()) {
+			return toSelect.clone();
+		}
+		List<Object> selected = new ArrayList<>(toSelect.length);
+		for (Object object : toSelect) {
+			if (filter.select(object)) {
+				selected.add(object);
+			}
+		}
+		return selected.toArray();
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2017 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,11 +13,15 @@
  *******************************************************************************/
 package org.eclipse.jface.viewers.deferred;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Holds a queue of additions, removals, updates, and SET calls for a
- * BackgroundContentProvider
+ * BackgroundContentProvider. The model enqueues changes in any thread without
+ * locking, the content provider drains them in its background thread.
  */
 final class ChangeQueue {
 	/**
@@ -83,53 +87,53 @@ final class ChangeQueue {
 		}
 	}
 
-	private LinkedList<Change> queue = new LinkedList<>();
+	private final Queue<Change> queue = new ConcurrentLinkedQueue<>();
 
 	/**
-	 * Create a change of the given type and elements and enqueue it.
+	 * Create a change of the given type and elements and enqueue it. May be
+	 * called from any thread, never blocks.
 	 *
 	 * @param type the type of change to be created
 	 * @param elements the elements affected by the change
 	 */
-	public synchronized void enqueue(int type, Object[] elements) {
+	public void enqueue(int type, Object[] elements) {
 		enqueue(new Change(type, elements));
 	}
 
 	/**
-	 * Add the specified change to the queue
+	 * Add the specified change to the queue. May be called from any thread,
+	 * never blocks.
+	 *
 	 * @param toQueue the change to be added
 	 */
-	public synchronized void enqueue(Change toQueue) {
-		// A SET event makes all previous adds, removes, and sets redundant... so remove
-		// them from the queue
-		if (toQueue.type == SET) {
-			LinkedList<Change> newQueue = new LinkedList<>();
-			for (Change next : queue) {
-				if (next.getType() == ADD || next.getType() == REMOVE || next.getType() == SET) {
-					continue;
-				}
-
-				newQueue.add(next);
-			}
-			queue = newQueue;
-		}
-
+	public void enqueue(Change toQueue) {
 		queue.add(toQueue);
 	}
 
 	/**
-	 * Remove the first change from the queue.
-	 * @return the first change
+	 * Removes all queued changes and returns the ones that still need to be
+	 * processed. A SET event makes all previous changes redundant, so the
+	 * returned list starts with the last SET event if there is one.
+	 *
+	 * @return the changes, oldest first
 	 */
-	public synchronized Change dequeue() {
-		return queue.removeFirst();
+	public List<Change> drain() {
+		List<Change> changes = new ArrayList<>();
+		Change next;
+		while ((next = queue.poll()) != null) {
+			if (next.getType() == SET) {
+				changes.clear();
+			}
+			changes.add(next);
+		}
+		return changes;
 	}
 
 	/**
 	 * Return whether the queue is empty
 	 * @return <code>true</code> if empty, <code>false</code> otherwise
 	 */
-	public synchronized boolean isEmpty() {
+	public boolean isEmpty() {
 		return queue.isEmpty();
 	}
 }
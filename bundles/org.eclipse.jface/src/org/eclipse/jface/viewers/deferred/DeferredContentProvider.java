@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,36 +19,52 @@ import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.viewers.AcceptAllFilter;
 import org.eclipse.jface.viewers.IFilter;
 import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
 import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
 
 /**
  * Content provider that performs sorting and filtering in a background thread.
- * Requires a <code>TableViewer</code> created with the <code>SWT.VIRTUAL</code>
- * flag and an <code>IConcurrentModel</code> as input.
+ * Requires a <code>TableViewer</code> or <code>TreeViewer</code> created with
+ * the <code>SWT.VIRTUAL</code> flag and an <code>IConcurrentModel</code> as
+ * input. A <code>TreeViewer</code> shows the elements of the model as a flat
+ * list of root elements, which is useful to get a table with tree columns.
  * <p>
  * The sorter and filter must be set directly on the content provider.
- * Any sorter or filter on the TableViewer will be ignored.
+ * Any sorter or filter on the viewer will be ignored.
+ * </p>
+ * <p>
+ * The model may add and remove elements at a high rate; the changes are
+ * queued without blocking the model and applied in a background thread, and
+ * the viewer is updated with the rows it shows at most once per UI event loop
+ * iteration.
  * </p>
  *
  * <p>
  * The real implementation is in <code>BackgroundContentProvider</code>. This
  * object is a lightweight wrapper that adapts the algorithm to work with
- * <code>TableViewer</code>.
+ * <code>TableViewer</code> and <code>TreeViewer</code>.
  * </p>
  *
  * @since 3.1
  */
-public class DeferredContentProvider implements ILazyContentProvider {
+public class DeferredContentProvider implements ILazyContentProvider, ILazyTreeContentProvider {
 
 	private int limit = -1;
 	private BackgroundContentProvider provider;
 	private Comparator sortOrder;
 	private IFilter filter = AcceptAllFilter.getInstance();
+	private ViewerFilter[] viewerFilters = new ViewerFilter[0];
 	private AbstractVirtualTable table;
+	private Viewer viewer;
+	private Object input;
 
 	private static final class TableViewerAdapter extends AbstractVirtualTable {
 
@@ -102,6 +118,64 @@ public class DeferredContentProvider implements ILazyContentProvider {
 
 	}
 
+	private static final class TreeViewerAdapter extends AbstractVirtualTable {
+
+		private TreeViewer viewer;
+
+		private Object input;
+
+		/**
+		 * @param viewer
+		 * @param input
+		 */
+		public TreeViewerAdapter(TreeViewer viewer, Object input) {
+			this.viewer = viewer;
+			this.input = input;
+		}
+
+		@Override
+		public void clear(int index) {
+			viewer.getTree().clear(index, false);
+		}
+
+		@Override
+		public void replace(Object element, int itemIndex) {
+			viewer.replace(input, itemIndex, element);
+		}
+
+		@Override
+		public void setItemCount(int total) {
+			viewer.setChildCount(input, total);
+		}
+
+		@Override
+		public int getItemCount() {
+			return viewer.getTree().getItemCount();
+		}
+
+		@Override
+		public int getTopIndex() {
+			Tree tree = viewer.getTree();
+			TreeItem top = tree.getTopItem();
+			return top == null ? 0 : tree.indexOf(top);
+		}
+
+		@Override
+		public int getVisibleItemCount() {
+			Tree tree = viewer.getTree();
+			Rectangle rect = tree.getClientArea();
+			int itemHeight = tree.getItemHeight();
+			int headerHeight = tree.getHeaderHeight();
+			return (rect.height - headerHeight + itemHeight - 1) / (itemHeight + tree.getGridLineWidth());
+		}
+
+		@Override
+		public Control getControl() {
+			return viewer.getControl();
+		}
+
+	}
+
 	/**
 	 * Create a DeferredContentProvider with the given sort order.
 	 * @param sortOrder a comparator that sorts the content.
@@ -123,10 +197,16 @@ public class DeferredContentProvider implements ILazyContentProvider {
 		}
 
 		Assert.isTrue(newInput instanceof IConcurrentModel);
-		Assert.isTrue(viewer instanceof TableViewer);
+		Assert.isTrue(viewer instanceof TableViewer || viewer instanceof TreeViewer);
 		IConcurrentModel model = (IConcurrentModel)newInput;
 
-		this.table = new TableViewerAdapter((TableViewer)viewer);
+		this.viewer = viewer;
+		this.input = newInput;
+		if (viewer instanceof TableViewer) {
+			this.table = new TableViewerAdapter((TableViewer) viewer);
+		} else {
+			this.table = new TreeViewerAdapter((TreeViewer) viewer, newInput);
+		}
 
 		BackgroundContentProvider newProvider = new BackgroundContentProvider(
 				table,
@@ -135,12 +215,12 @@ public class DeferredContentProvider implements ILazyContentProvider {
 		setProvider(newProvider);
 
 		newProvider.setLimit(limit);
-		newProvider.setFilter(filter);
+		newProvider.setFilter(getEffectiveFilter());
 	}
 
 	/**
 	 * Sets the sort order for this content provider. This sort order takes priority
-	 * over anything that was supplied to the <code>TableViewer</code>.
+	 * over anything that was supplied to the viewer.
 	 *
 	 * @param sortOrder new sort order. The comparator must be able to support being
 	 * used in a background thread.
@@ -153,18 +233,52 @@ public class DeferredContentProvider implements ILazyContentProvider {
 		}
 	}
 
+	/**
+	 * Sorts the content by several keys, for example by the columns the user
+	 * has clicked, most recent first. Elements that are equal according to a
+	 * key are sorted by the next one. This sort order takes priority over
+	 * anything that was supplied to the viewer.
+	 *
+	 * @param keys the comparators of the keys, most significant first. They
+	 *            must be able to support being used in a background thread.
+	 * @since 3.26
+	 */
+	@SuppressWarnings("unchecked")
+	public void setSortKeys(Comparator<?>... keys) {
+		Assert.isTrue(keys.length > 0);
+		Comparator<Object> order = (Comparator<Object>) keys[0];
+		for (int i = 1; i < keys.length; i++) {
+			order = order.thenComparing((Comparator<Object>) keys[i]);
+		}
+		setSortOrder(order);
+	}
+
 	/**
 	 * Sets the filter for this content provider. This filter takes priority over
-	 * anything that was supplied to the <code>TableViewer</code>. The filter
+	 * anything that was supplied to the viewer. The filter
 	 * must be capable of being used in a background thread.
 	 *
 	 * @param toSet filter to set
 	 */
 	public void setFilter(IFilter toSet) {
 		this.filter = toSet;
-		if (provider != null) {
-			provider.setFilter(toSet);
-		}
+		updateFilter();
+	}
+
+	/**
+	 * Sets viewer filters for this content provider. Elements are shown if they
+	 * are selected by the filter set with {@link #setFilter(IFilter)} and by
+	 * all of the given viewer filters, which are called with the viewer and its
+	 * input as parent element. Any filters that were supplied to the viewer are
+	 * ignored. The filters must be capable of being used in a background
+	 * thread, in particular they must not access the viewer's widgets.
+	 *
+	 * @param filters the viewer filters, may be empty
+	 * @since 3.26
+	 */
+	public void setFilters(ViewerFilter... filters) {
+		this.viewerFilters = filters.clone();
+		updateFilter();
 	}
 
 	/**
@@ -193,8 +307,64 @@ public class DeferredContentProvider implements ILazyContentProvider {
 	@Override
 	public void updateElement(int element) {
 		if (provider != null) {
-			provider.checkVisibleRange(element);
+			provider.updateElement(element);
+		}
+	}
+
+	/**
+	 * @since 3.26
+	 */
+	@Override
+	public void updateElement(Object parent, int index) {
+		if (provider != null && parent == input) {
+			provider.updateElement(index);
+		}
+	}
+
+	/**
+	 * @since 3.26
+	 */
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		if (element != input && currentChildCount != 0) {
+			// the elements of the model have no children
+			((TreeViewer) viewer).setChildCount(element, 0);
+		}
+	}
+
+	/**
+	 * @since 3.26
+	 */
+	@Override
+	public Object getParent(Object element) {
+		return input;
+	}
+
+	private void updateFilter() {
+		if (provider != null) {
+			provider.setFilter(getEffectiveFilter());
+		}
+	}
+
+	private IFilter getEffectiveFilter() {
+		if (viewerFilters.length == 0) {
+			return filter;
 		}
+		IFilter toCheck = filter;
+		ViewerFilter[] filters = viewerFilters;
+		Viewer filteredViewer = viewer;
+		Object parent = input;
+		return element -> {
+			if (!toCheck.select(element)) {
+				return false;
+			}
+			for (ViewerFilter viewerFilter : filters) {
+				if (!viewerFilter.select(filteredViewer, parent, element)) {
+					return false;
+				}
+			}
+			return true;
+		};
 	}
 
 	private void setProvider(BackgroundContentProvider newProvider) {
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers.deferred;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A sorted collection of distinct elements that finds the element at a given
+ * position and the position of a given element in logarithmic time.
+ * <p>
+ * The elements are kept in a treap whose nodes know the size of their subtree
+ * and their parent. Elements that are equal according to the comparator are
+ * kept in insertion order, and elements are located by a hash map rather than
+ * by comparisons, so that an element whose sort key has changed can still be
+ * removed or moved to its new position.
+ * </p>
+ * <p>
+ * Not thread-safe. <code>BackgroundContentProvider</code> modifies the
+ * collection in one background thread at a time and guards the modifications
+ * and the reads from other threads with a lock.
+ * </p>
+ */
+/* package */ final class OrderStatisticTree {
+
+	/**
+	 * Arrays with at least this number of elements are sorted in parallel.
+	 */
+	private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
+	private static final class Node {
+		final Object element;
+
+		/**
+		 * Orders the elements that are equal according to the comparator.
+		 */
+		final long sequence;
+
+		int priority;
+
+		int size = 1;
+
+		Node left;
+
+		Node right;
+
+		Node parent;
+
+		Node(Object element, long sequence, int priority) {
+			this.element = element;
+			this.sequence = sequence;
+			this.priority = priority;
+		}
+	}
+
+	private final Comparator comparator;
+
+	private final Map<Object, Node> nodes;
+
+	private final SplittableRandom random = new SplittableRandom();
+
+	private Node root;
+
+	private long nextSequence;
+
+	// results of split(Node, int)
+	private Node splitLeft;
+
+	private Node splitRight;
+
+	/**
+	 * Creates an empty collection sorted by the given comparator.
+	 *
+	 * @param comparator the sort order, or <code>null</code> to keep the elements
+	 *                   in insertion order
+	 */
+	public OrderStatisticTree(Comparator comparator) {
+		this.comparator = comparator;
+		this.nodes = new HashMap<>();
+	}
+
+	/**
+	 * Creates a collection of the given distinct elements sorted by the given
+	 * comparator. This is faster than adding the elements one by one.
+	 *
+	 * @param comparator the sort order, or <code>null</code> to keep the elements
+	 *                   in the given order
+	 * @param elements   the elements, which are sorted in place
+	 */
+	public OrderStatisticTree(Comparator comparator, Object[] elements) {
+		this.comparator = comparator;
+		this.nodes = new HashMap<>(Math.max((int) (elements.length / .75f) + 1, 16));
+		if (comparator != null) {
+			if (elements.length >= PARALLEL_SORT_THRESHOLD) {
+				Arrays.parallelSort(elements, comparator);
+			} else {
+				Arrays.sort(elements, comparator);
+			}
+		}
+		root = build(elements, 0, elements.length);
+		nextSequence = elements.length;
+		assignPriorities();
+	}
+
+	/**
+	 * Returns the comparator sorting this collection.
+	 *
+	 * @return the comparator, or <code>null</code> for insertion order
+	 */
+	public Comparator getComparator() {
+		return comparator;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		return size(root);
+	}
+
+	/**
+	 * Returns whether the given element is in this collection.
+	 *
+	 * @param element the element
+	 * @return <code>true</code> if the element is in this collection
+	 */
+	public boolean contains(Object element) {
+		return nodes.containsKey(element);
+	}
+
+	/**
+	 * Returns the element at the given position.
+	 *
+	 * @param index the position, between 0 and size() - 1
+	 * @return the element
+	 */
+	public Object get(int index) {
+		Node node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = node.right;
+			} else {
+				return node.element;
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of the given element.
+	 *
+	 * @param element the element
+	 * @return the position of the element, or -1 if it is not in this collection
+	 */
+	public int indexOf(Object element) {
+		Node node = nodes.get(element);
+		return node == null ? -1 : rank(node);
+	}
+
+	/**
+	 * Adds the given element at its position in the sort order.
+	 *
+	 * @param element the element to add
+	 * @return <code>false</code> if the element already was in this collection
+	 */
+	public boolean add(Object element) {
+		if (nodes.containsKey(element)) {
+			return false;
+		}
+		Node node = new Node(element, nextSequence++, random.nextInt());
+		nodes.put(element, node);
+		insert(node);
+		return true;
+	}
+
+	/**
+	 * Removes the given element.
+	 *
+	 * @param element the element to remove
+	 * @return <code>false</code> if the element was not in this collection
+	 */
+	public boolean remove(Object element) {
+		Node node = nodes.remove(element);
+		if (node == null) {
+			return false;
+		}
+		removeAt(rank(node));
+		return true;
+	}
+
+	/**
+	 * Moves the given element to its position in the sort order, which may have
+	 * changed since it was added.
+	 *
+	 * @param element the element
+	 * @return <code>false</code> if the element is not in this collection
+	 */
+	public boolean reposition(Object element) {
+		Node node = nodes.get(element);
+		if (node == null) {
+			return false;
+		}
+		removeAt(rank(node));
+		node.left = node.right = node.parent = null;
+		node.size = 1;
+		insert(node);
+		return true;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear() {
+		root = null;
+		nodes.clear();
+	}
+
+	/**
+	 * Returns the elements in sort order.
+	 *
+	 * @return the elements
+	 */
+	public Object[] toArray() {
+		Object[] result = new Object[size()];
+		int i = 0;
+		ArrayDeque<Node> stack = new ArrayDeque<>();
+		Node node = root;
+		while (node != null || !stack.isEmpty()) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+			node = stack.pop();
+			result[i++] = node.element;
+			node = node.right;
+		}
+		return result;
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Updates the size of the given node and the parent of its children.
+	 */
+	private static Node pull(Node node) {
+		node.size = 1 + size(node.left) + size(node.right);
+		if (node.left != null) {
+			node.left.parent = node;
+		}
+		if (node.right != null) {
+			node.right.parent = node;
+		}
+		return node;
+	}
+
+	private int compare(Node a, Node b) {
+		if (comparator != null) {
+			int result = comparator.compare(a.element, b.element);
+			if (result != 0) {
+				return result;
+			}
+		}
+		return Long.compare(a.sequence, b.sequence);
+	}
+
+	/**
+	 * Returns the position of the given node.
+	 */
+	private static int rank(Node node) {
+		int rank = size(node.left);
+		for (Node n = node; n.parent != null; n = n.parent) {
+			if (n == n.parent.right) {
+				rank += size(n.parent.left) + 1;
+			}
+		}
+		return rank;
+	}
+
+	private void insert(Node node) {
+		int index = 0;
+		Node n = root;
+		while (n != null) {
+			if (compare(node, n) < 0) {
+				n = n.left;
+			} else {
+				index += size(n.left) + 1;
+				n = n.right;
+			}
+		}
+		split(root, index);
+		Node right = splitRight;
+		setRoot(merge(merge(splitLeft, node), right));
+	}
+
+	private void removeAt(int index) {
+		split(root, index);
+		Node left = splitLeft;
+		split(splitRight, 1);
+		setRoot(merge(left, splitRight));
+	}
+
+	private void setRoot(Node node) {
+		root = node;
+		if (node != null) {
+			node.parent = null;
+		}
+	}
+
+	/**
+	 * Splits the given subtree into its first <code>count</code> nodes, stored
+	 * in {@link #splitLeft}, and the other ones, stored in {@link #splitRight}.
+	 */
+	private void split(Node node, int count) {
+		if (node == null) {
+			splitLeft = splitRight = null;
+			return;
+		}
+		int leftSize = size(node.left);
+		if (leftSize < count) {
+			split(node.right, count - leftSize - 1);
+			node.right = splitLeft;
+			splitLeft = pull(node);
+		} else {
+			split(node.left, count);
+			node.left = splitRight;
+			splitRight = pull(node);
+		}
+	}
+
+	/**
+	 * Concatenates the given subtrees, all nodes of the first one preceding the
+	 * nodes of the second one.
+	 */
+	private static Node merge(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			return pull(left);
+		}
+		right.left = merge(left, right.left);
+		return pull(right);
+	}
+
+	/**
+	 * Builds a balanced subtree of the given sorted elements.
+	 */
+	private Node build(Object[] elements, int from, int to) {
+		if (from >= to) {
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		Node node = new Node(elements[middle], middle, 0);
+		nodes.put(node.element, node);
+		node.left = build(elements, from, middle);
+		node.right = build(elements, middle + 1, to);
+		return pull(node);
+	}
+
+	/**
+	 * Assigns random priorities to the nodes of a tree built from sorted
+	 * elements, decreasing from the root to the leaves as required by the
+	 * treap.
+	 */
+	private void assignPriorities() {
+		int[] priorities = new int[size()];
+		for (int i = 0; i < priorities.length; i++) {
+			priorities[i] = random.nextInt();
+		}
+		Arrays.sort(priorities);
+		int next = priorities.length;
+		ArrayDeque<Node> queue = new ArrayDeque<>();
+		if (root != null) {
+			queue.add(root);
+		}
+		while (!queue.isEmpty()) {
+			Node node = queue.poll();
+			node.priority = priorities[--next];
+			if (node.left != null) {
+				queue.add(node.left);
+			}
+			if (node.right != null) {
+				queue.add(node.right);
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -86,6 +86,8 @@ import org.eclipse.e4.core.di.InjectionException;
 import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
 import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
+import org.eclipse.e4.ui.internal.workbench.ModelJournal;
+import org.eclipse.e4.ui.internal.workbench.ResourceHandler;
 import org.eclipse.e4.ui.internal.workbench.renderers.swt.IUpdateService;
 import org.eclipse.e4.ui.internal.workbench.swt.E4Application;
 import org.eclipse.e4.ui.internal.workbench.swt.IEventLoopAdvisor;
@@ -1229,17 +1231,25 @@ public final class Workbench extends EventManager implements IWorkbench, org.ecl
 
 	/**
 	 * Copy the model, clean it up and write it out to workbench.xmi. Called as part
-	 * of persist(false) during auto-save.
+	 * of persist(false) during auto-save. If the resource handler keeps a journal,
+	 * only the changes since the last auto-save are recorded in the UI thread.
 	 */
 	private void persistWorkbenchModel() {
 		if (Job.getJobManager().find(WORKBENCH_AUTO_SAVE_JOB).length > 0) {
 			return;
 		}
+		final IModelResourceHandler handler = e4Context.get(IModelResourceHandler.class);
+		ModelJournal journal = handler instanceof ResourceHandler ? ((ResourceHandler) handler).getJournal() : null;
+		if (journal != null) {
+			if (!detectWorkbenchCorruption(application)) {
+				journal.flush(Workbench::cleanUpCopy);
+			}
+			return;
+		}
 		final MApplication appCopy = (MApplication) EcoreUtil.copy((EObject) application);
 		if (detectWorkbenchCorruption(appCopy)) {
 			return;
 		}
-		final IModelResourceHandler handler = e4Context.get(IModelResourceHandler.class);
 
 		Job cleanAndSaveJob = new Job(WORKBENCH_AUTO_SAVE_BACKGROUND_JOB) {
 			@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2020 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -804,7 +804,6 @@ public class WorkbenchMessages extends NLS {
 	// =================================================================
 	public static String DecorationScheduler_UpdateJobName;
 	public static String DecorationScheduler_CalculationJobName;
-	public static String DecorationScheduler_UpdatingTask;
 	public static String DecorationScheduler_CalculatingTask;
 	public static String DecorationScheduler_ClearResultsJob;
 	public static String DecorationScheduler_DecoratingSubtask;
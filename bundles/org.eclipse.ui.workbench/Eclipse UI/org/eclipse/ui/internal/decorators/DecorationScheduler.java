@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,12 +16,13 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.decorators;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -35,6 +36,7 @@ import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.resource.ResourceManager;
+import org.eclipse.jface.util.BatchingThrottler;
 import org.eclipse.jface.viewers.DecorationContext;
 import org.eclipse.jface.viewers.IDecorationContext;
 import org.eclipse.jface.viewers.ILabelProviderListener;
@@ -44,8 +46,6 @@ import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.internal.WorkbenchMessages;
-import org.eclipse.ui.progress.UIJob;
-import org.eclipse.ui.progress.WorkbenchJob;
 
 /**
  * The DecorationScheduler is the class that handles the decoration of elements
@@ -69,20 +69,18 @@ import org.eclipse.ui.progress.WorkbenchJob;
  * <code>awaitingDecoration</code> one by one. For each element, it calls
  * <code>ensureResultCached</code>, which in turn calls the actual lightweight
  * decorator(s) for the element and stores the decoration result in the
- * <code>resultCache</code> and adds the element to the
- * <code>pendingUpdate</code> collection to remember that it needs to be updated
- * in the UI.</li>
- *
- * <li>When the <code>decorationJob</code> has finished processing all elements
- * in <code>awaitingDecoration</code>, it finally schedules the
- * <code>updateJob</code>.</li>
+ * <code>resultCache</code> and submits the element to the
+ * <code>updateThrottler</code> to remember that it needs to be updated in the
+ * UI.</li>
  *
  * <li>
  * <p>
- * The <code>updateJob</code> runs in the UI thread and fires
- * {@link LabelProviderChangedEvent}s for all elements in
- * <code>pendingUpdate</code>. The {@link LabelProviderChangedEvent} causes the
- * respective viewers to trigger an <code>update</code> for the given elements.
+ * The <code>updateThrottler</code> collects the submitted elements and
+ * delivers them in batches to the UI thread, where a
+ * {@link LabelProviderChangedEvent} is fired for each batch. The batches are
+ * delivered less often while the UI thread is busy. The
+ * {@link LabelProviderChangedEvent} causes the respective viewers to trigger
+ * an <code>update</code> for the given elements.
  * </p>
  * <p>
  * Effectively, this again calls
@@ -95,9 +93,9 @@ import org.eclipse.ui.progress.WorkbenchJob;
  * </p>
  * <p>
  * Note that <code>isDecorationReady</code> must only return <code>true</code>
- * if the call originates from the <code>updateJob</code>. In all other cases,
- * the original call originates from the application code (possibly to trigger
- * an update of the decoration). This is why the <code>updateJob</code> uses the
+ * if the call originates from the update of a batch. In all other cases, the
+ * original call originates from the application code (possibly to trigger an
+ * update of the decoration). This is why the update uses the
  * <code>isUpdateJobRunning</code> flag to indicate that it is currently running
  * in the UI thread.
  * </p>
@@ -106,23 +104,15 @@ import org.eclipse.ui.progress.WorkbenchJob;
  *
  * So, in summary, a decoration is first enqueued, then calculated
  * asynchronously by the <code>decorationJob</code> and enqueued for UI-update,
- * and finally, the <code>updateJob</code> fires events which cause the viewers
+ * and finally, the <code>updateThrottler</code> fires events which cause the viewers
  * to update the UI using the now available decoration results.
  */
 public class DecorationScheduler {
 
-	private static final ILabelProviderListener[] EMPTY_LISTENER_LIST = new ILabelProviderListener[0];
-
 	// When decorations are computed they are added to this cache via
-	// scheduleUpdateJob() method
+	// ensureResultCached() method
 	private final Map<IDecorationContext, Map<Object, DecorationResult>> resultCache = new ConcurrentHashMap<>();
 
-	/**
-	 * Objects that are awaiting a label update. manually synchronized on
-	 * DecorationScheduler.pendingUpdate
-	 **/
-	private final Set<Object> pendingUpdate = new LinkedHashSet<>();
-
 	/** manually synchronized on DecorationScheduler.this **/
 	private final LinkedHashMap<Object, DecorationReference> awaitingDecoration = new LinkedHashMap<>();
 
@@ -133,7 +123,7 @@ public class DecorationScheduler {
 
 	private final Job decorationJob;
 
-	// Notifies about updateJob or clearJob finishing
+	// Notifies about clearJob finishing
 	private final class JobChangeListener extends JobChangeAdapter {
 
 		// is called after changeState(job, Job.NONE);
@@ -157,16 +147,17 @@ public class DecorationScheduler {
 
 	private final JobChangeListener jobFinishListener = new JobChangeListener();
 
-	private UIJob updateJob;
+	/**
+	 * Delivers the decorated elements to the UI thread in batches. Lazily created
+	 * while synchronized on DecorationScheduler.this
+	 **/
+	private volatile BatchingThrottler<Object> updateThrottler;
 
 	private Collection<ILabelProviderListener> removedListeners = Collections.synchronizedSet(new HashSet<>());
 
 	private Job clearJob;
 
-	// Static used for the updates to indicate an update is required
-	private static final int NEEDS_INIT = -1;
-
-	/** Amount of time to delay the update notification when max reached. */
+	/** Minimum amount of time to delay the update notification. */
 	private static final int UPDATE_DELAY = 100;
 
 	/**
@@ -314,22 +305,23 @@ public class DecorationScheduler {
 	}
 
 	/**
-	 * Execute a label update using the pending decorations.
+	 * Schedule a label update for the given element, whose decoration is cached.
 	 */
-	synchronized void scheduleUpdateJob() {
+	synchronized void submitUpdate(Object element) {
 
 		// Don't bother if we are shutdown now
 		if (shutdown) {
 			return;
 		}
 
-		// Lazy initialize the job
-		if (updateJob == null) {
-			updateJob = getUpdateJob();
+		// Lazy initialize the throttler
+		if (updateThrottler == null) {
+			updateThrottler = new BatchingThrottler<>(PlatformUI.getWorkbench().getDisplay(),
+					Duration.ofMillis(UPDATE_DELAY), this::update);
 		}
 
 		// Give it a bit of a lag for other updates to occur
-		updateJob.schedule(UPDATE_DELAY);
+		updateThrottler.submit(element);
 	}
 
 	/**
@@ -400,9 +392,6 @@ public class DecorationScheduler {
 					// Only notify listeners when we have exhausted the
 					// queue of decoration requests.
 				}
-				if (queued) {
-					scheduleUpdateJob();
-				}
 				return Status.OK_STATUS;
 			}
 
@@ -425,8 +414,8 @@ public class DecorationScheduler {
 					// Synchronize on the result lock as we want to
 					// be sure that we do not try and decorate during
 					// label update servicing.
-					// Note: resultCache and pendingUpdate modifications
-					// must be done atomically.
+					// Note: the result must be cached before the
+					// element is submitted for update.
 
 					// Add the decoration even if it's empty in
 					// order to indicate that the decoration is
@@ -437,9 +426,7 @@ public class DecorationScheduler {
 					// Add an update for only the original element
 					// to
 					// prevent multiple updates and clear the cache.
-					synchronized (pendingUpdate) {
-						pendingUpdate.add(element);
-					}
+					submitUpdate(element);
 					return true;
 				}
 				return false;
@@ -467,7 +454,8 @@ public class DecorationScheduler {
 	 * @return <code>true</code> if there are updates waiting to be served
 	 */
 	protected boolean updatesPending() {
-		if (updateJob != null && updateJob.getState() != Job.NONE) {
+		BatchingThrottler<Object> throttler = updateThrottler;
+		if (throttler != null && throttler.isPending()) {
 			return true;
 		}
 		if (clearJob != null && clearJob.getState() != Job.NONE) {
@@ -508,126 +496,64 @@ public class DecorationScheduler {
 	}
 
 	/**
-	 * Get the update WorkbenchJob.
+	 * Fires a label update for a batch of decorated elements. Runs in the UI
+	 * thread.
 	 *
-	 * @return WorkbenchJob
+	 * @param elements the elements whose decoration is cached
 	 */
-	private WorkbenchJob getUpdateJob() {
-		WorkbenchJob job = new WorkbenchJob(WorkbenchMessages.DecorationScheduler_UpdateJobName) {
-
-			int currentIndex = NEEDS_INIT;
-
-			LabelProviderChangedEvent labelProviderChangedEvent;
-
-			ILabelProviderListener[] listeners;
-
-			@Override
-			public IStatus runInUIThread(IProgressMonitor monitor) {
-				// set the flag to true while the job is running
-				isUpdateJobRunning = true;
-
-				try {
-					synchronized (DecorationScheduler.this) {
-						if (shutdown) {
-							return Status.CANCEL_STATUS;
-						}
-					}
-
-					// If this is the first one check again in case
-					// someone has already cleared it out.
-					if (currentIndex == NEEDS_INIT) {
-						if (hasPendingUpdates()) {
-							resetState();
-							return Status.OK_STATUS;
-						}
-						setUpUpdates();
-					}
-
-					if (listeners.length == 0) {
-						resetState();
-						return Status.OK_STATUS;
-					}
-
-					monitor.beginTask(WorkbenchMessages.DecorationScheduler_UpdatingTask, IProgressMonitor.UNKNOWN);
-
-					long startTime = System.currentTimeMillis();
-					while (currentIndex < listeners.length) {
-						ILabelProviderListener listener = listeners[currentIndex];
-						currentIndex++;
-
-						// If it was removed in the meantime then skip it.
-						if (!removedListeners.contains(listener)) {
-							decoratorManager.fireListener(labelProviderChangedEvent, listener);
-						}
-
-						// If it is taking long enough for the user to notice then
-						// cancel the updates.
-						if ((System.currentTimeMillis() - startTime) >= UPDATE_DELAY / 2) {
-							break;
-						}
-					}
-
-					monitor.done();
-
-					if (currentIndex >= listeners.length) {
-						resetState();
-						if (!hasPendingUpdates()) {
-							scheduleUpdateJob();
-						}
-						labelProviderChangedEvent = null;
-						listeners = EMPTY_LISTENER_LIST;
-					} else {
-						schedule(UPDATE_DELAY);// Reschedule if we are not done
-					}
-					return Status.OK_STATUS;
-				}
-				finally {
-					// reset the flag
-					isUpdateJobRunning = false;
+	private void update(Set<Object> elements) {
+		// remember the delivered results, a newer result may be cached for an
+		// element while its update is running
+		Map<IDecorationContext, Map<Object, DecorationResult>> delivered = deliveredResults(elements);
+		// set the flag to true while the update is running
+		isUpdateJobRunning = true;
+		try {
+			synchronized (this) {
+				if (shutdown) {
+					return;
 				}
 			}
-
-			/**
-			 * Clear any cached information.
-			 */
-			private void resetState() {
-				currentIndex = NEEDS_INIT;// Reset
-				removedListeners.clear();
-				// Other decoration requests may have occurred due to
-				// updates or we may have timed out updating listeners.
-				// Only clear the results if there are none pending.
-				if (awaitingDecoration.isEmpty()) {
-					resultCache.clear();
+			removedListeners.clear();
+			LabelProviderChangedEvent event = new LabelProviderChangedEvent(decoratorManager, elements.toArray());
+			for (ILabelProviderListener listener : decoratorManager.getListeners()) {
+				// If it was removed in the meantime then skip it.
+				if (!removedListeners.contains(listener)) {
+					decoratorManager.fireListener(event, listener);
 				}
 			}
+		} finally {
+			// reset the flag
+			isUpdateJobRunning = false;
+			removedListeners.clear();
+			// Only forget the results of this batch. The results of elements
+			// submitted since then are still needed by their own batch.
+			forgetResults(delivered);
+		}
+	}
 
-			private void setUpUpdates() {
-				// Get the elements awaiting update and then
-				// clear the list
-				removedListeners.clear();
-				currentIndex = 0;
-				synchronized (pendingUpdate) {
-					Object[] elements = pendingUpdate.toArray(new Object[pendingUpdate.size()]);
-					pendingUpdate.clear();
-					labelProviderChangedEvent = new LabelProviderChangedEvent(decoratorManager, elements);
+	private Map<IDecorationContext, Map<Object, DecorationResult>> deliveredResults(Set<Object> elements) {
+		Map<IDecorationContext, Map<Object, DecorationResult>> delivered = new HashMap<>();
+		for (Entry<IDecorationContext, Map<Object, DecorationResult>> entry : resultCache.entrySet()) {
+			Map<Object, DecorationResult> results = entry.getValue();
+			for (Object element : elements) {
+				DecorationResult result = results.get(element);
+				if (result != null) {
+					delivered.computeIfAbsent(entry.getKey(), context -> new HashMap<>()).put(element, result);
 				}
-				listeners = decoratorManager.getListeners();
-			}
-
-			@Override
-			public boolean belongsTo(Object family) {
-				return DecoratorManager.FAMILY_DECORATE == family;
 			}
+		}
+		return delivered;
+	}
 
-			@Override
-			public boolean shouldRun() {
-				return PlatformUI.isWorkbenchRunning();
+	private void forgetResults(Map<IDecorationContext, Map<Object, DecorationResult>> delivered) {
+		for (Entry<IDecorationContext, Map<Object, DecorationResult>> entry : delivered.entrySet()) {
+			Map<Object, DecorationResult> results = resultCache.get(entry.getKey());
+			if (results != null) {
+				for (Entry<Object, DecorationResult> result : entry.getValue().entrySet()) {
+					results.remove(result.getKey(), result.getValue());
+				}
 			}
-		};
-
-		job.setSystem(true);
-		job.addJobChangeListener(jobFinishListener);
-		return job;
+		}
 	}
 
 	/**
@@ -711,25 +637,8 @@ public class DecorationScheduler {
 	 * @param listener
 	 */
 	void listenerRemoved(ILabelProviderListener listener) {
-		if (updatesPending()) {// Only keep track of them if there are updates
-			// pending
+		if (isUpdateJobRunning) {// Only keep track of them while updating
 			removedListeners.add(listener);
 		}
-		if (!updatesPending()) {
-			removedListeners.remove(listener);
-		}
-
-	}
-
-	/**
-	 * Return whether or not there are any updates pending.
-	 *
-	 * @return boolean <code>true</code> if the updates are empty
-	 */
-	boolean hasPendingUpdates() {
-		synchronized (pendingUpdate) {
-			return pendingUpdate.isEmpty();
-		}
-
 	}
 }
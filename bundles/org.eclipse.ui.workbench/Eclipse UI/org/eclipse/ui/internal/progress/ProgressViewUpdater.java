@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2015 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,7 +20,9 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
-import org.eclipse.jface.util.Throttler;
+import java.util.Objects;
+import java.util.Set;
+import org.eclipse.jface.util.BatchingThrottler;
 import org.eclipse.ui.IWorkbenchPreferenceConstants;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.internal.progress.FinishedJobs.KeptJobsListener;
@@ -40,17 +42,64 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 	 */
 	private Map<IProgressUpdateCollector, Boolean> collectors;
 
-	final UpdatesInfo currentInfo = new UpdatesInfo();
-
 	boolean debug;
 
-	Throttler throttledUpdate = new Throttler(PlatformUI.getWorkbench().getDisplay(), Duration.ofMillis(100),
-			this::update);
+	/**
+	 * Collects the updates from any thread and delivers them in batches to the UI
+	 * thread, at most every 100ms to keep priority low, and less often while the
+	 * UI thread is busy.
+	 */
+	final BatchingThrottler<Update> throttledUpdate = new BatchingThrottler<>(
+			PlatformUI.getWorkbench().getDisplay(), Duration.ofMillis(100), this::update);
 
 	final KeptJobsListener finishedJobsListener = new FinishedJobsListener();
 
 	/**
-	 * The UpdatesInfo is a private class for keeping track of the updates required.
+	 * An update of a job tree element, or of all elements.
+	 */
+	static final class Update {
+
+		static final int ADD = 0;
+
+		static final int REMOVE = 1;
+
+		static final int REFRESH = 2;
+
+		static final int KEPT_FINISHED = 3;
+
+		static final int KEPT_REMOVED = 4;
+
+		static final int UPDATE_ALL = 5;
+
+		static final Update ALL = new Update(UPDATE_ALL, null);
+
+		final int kind;
+
+		final JobTreeElement element;
+
+		Update(int kind, JobTreeElement element) {
+			this.kind = kind;
+			this.element = element;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * kind + Objects.hashCode(element);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Update)) {
+				return false;
+			}
+			Update other = (Update) obj;
+			return kind == other.kind && Objects.equals(element, other.element);
+		}
+	}
+
+	/**
+	 * The UpdatesInfo is a private class for keeping track of the updates required
+	 * by a batch of updates. Only used in the UI thread.
 	 */
 	static class UpdatesInfo {
 
@@ -64,7 +113,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 
 		Collection<JobTreeElement> keptRemoved = new LinkedHashSet<>();
 
-		volatile boolean updateAll;
+		boolean updateAll;
 
 		private UpdatesInfo() {
 			// Create a new instance of the info
@@ -75,7 +124,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 		 *
 		 * @param addition
 		 */
-		synchronized void add(JobTreeElement addition) {
+		void add(JobTreeElement addition) {
 			additions.add(addition);
 		}
 
@@ -84,7 +133,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 		 *
 		 * @param removal
 		 */
-		synchronized void remove(JobTreeElement removal) {
+		void remove(JobTreeElement removal) {
 			deletions.add(removal);
 		}
 
@@ -93,7 +142,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 		 *
 		 * @param refresh
 		 */
-		synchronized void refresh(JobTreeElement refresh) {
+		void refresh(JobTreeElement refresh) {
 			refreshes.add(refresh);
 		}
 
@@ -102,7 +151,7 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 		 *
 		 * @param finished
 		 */
-		synchronized void keptFinished(JobTreeElement finished) {
+		void keptFinished(JobTreeElement finished) {
 			keptFinished.add(finished);
 		}
 
@@ -111,26 +160,42 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 		 *
 		 * @param removed
 		 */
-		synchronized void keptRemoved(JobTreeElement removed) {
+		void keptRemoved(JobTreeElement removed) {
 			keptRemoved.add(removed);
 		}
 
 		/**
-		 * Reset the caches after completion of an update.
+		 * Add the given update
+		 *
+		 * @param update
 		 */
-		synchronized void reset() {
-			additions.clear();
-			deletions.clear();
-			refreshes.clear();
-			keptFinished.clear();
-			keptRemoved.clear();
-			updateAll = false;
+		void add(Update update) {
+			switch (update.kind) {
+			case Update.ADD:
+				add(update.element);
+				break;
+			case Update.REMOVE:
+				remove(update.element);
+				break;
+			case Update.REFRESH:
+				refresh(update.element);
+				break;
+			case Update.KEPT_FINISHED:
+				keptFinished(update.element);
+				break;
+			case Update.KEPT_REMOVED:
+				keptRemoved(update.element);
+				break;
+			default:
+				updateAll = true;
+				break;
+			}
 		}
 
 		/**
 		 * @return array containing updated, added and deleted items
 		 */
-		synchronized JobTreeElement[][] processForUpdate() {
+		JobTreeElement[][] processForUpdate() {
 			HashSet<JobTreeElement> staleAdditions = new HashSet<>();
 
 			Iterator<JobTreeElement> additionsIterator = additions.iterator();
@@ -180,18 +245,16 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 	class FinishedJobsListener implements KeptJobsListener {
 		@Override
 		public void finished(JobTreeElement jte) {
-			currentInfo.keptFinished(jte);
-			throttledUpdate.throttledExec();
+			throttledUpdate.submit(new Update(Update.KEPT_FINISHED, jte));
 		}
 
 		@Override
 		public void removed(JobTreeElement jte) {
 			if (jte == null) {
-				currentInfo.updateAll = true;
+				throttledUpdate.submit(Update.ALL);
 			} else {
-				currentInfo.keptRemoved(jte);
+				throttledUpdate.submit(new Update(Update.KEPT_REMOVED, jte));
 			}
-			throttledUpdate.throttledExec();
 		}
 	}
 
@@ -275,24 +338,24 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 	}
 
 	/** Running in UI thread by throttledUpdate */
-	private void update() {
+	private void update(Set<Update> updates) {
 		// Abort the update if there isn't anything
 		if (collectors.isEmpty()) {
 			return;
 		}
 
-		if (currentInfo.updateAll) {
-			currentInfo.reset();
+		UpdatesInfo info = new UpdatesInfo();
+		for (Update update : updates) {
+			info.add(update);
+		}
+
+		if (info.updateAll) {
 			for (IProgressUpdateCollector collector : collectors.keySet()) {
 				collector.refresh();
 			}
 
 		} else {
-			JobTreeElement[][] elements;
-			synchronized (currentInfo) {
-				elements = currentInfo.processForUpdate();
-				currentInfo.reset();
-			}
+			JobTreeElement[][] elements = info.processForUpdate();
 
 			JobTreeElement[] updateItems = elements[0];
 			JobTreeElement[] additionItems = elements[1];
@@ -322,31 +385,22 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 
 	@Override
 	public void refreshJobInfo(JobInfo info) {
-		currentInfo.refresh(info);
-		// Add in a 100ms delay so as to keep priority low
-		throttledUpdate.throttledExec();
-
+		throttledUpdate.submit(new Update(Update.REFRESH, info));
 	}
 
 	@Override
 	public void refreshGroup(GroupInfo info) {
-		currentInfo.refresh(info);
-		// Add in a 100ms delay so as to keep priority low
-		throttledUpdate.throttledExec();
+		throttledUpdate.submit(new Update(Update.REFRESH, info));
 	}
 
 	@Override
 	public void addGroup(GroupInfo info) {
-		currentInfo.add(info);
-		throttledUpdate.throttledExec();
+		throttledUpdate.submit(new Update(Update.ADD, info));
 	}
 
 	@Override
 	public void refreshAll() {
-		currentInfo.updateAll = true;
-
-		// Add in a 100ms delay so as to keep priority low
-		throttledUpdate.throttledExec();
+		throttledUpdate.submit(Update.ALL);
 	}
 
 	@Override
@@ -354,28 +408,25 @@ class ProgressViewUpdater implements IJobProgressManagerListener {
 		GroupInfo group = info.getGroupInfo();
 
 		if (group == null) {
-			currentInfo.add(info);
+			throttledUpdate.submit(new Update(Update.ADD, info));
 		} else {
-			currentInfo.refresh(group);
+			throttledUpdate.submit(new Update(Update.REFRESH, group));
 		}
-		throttledUpdate.throttledExec();
 	}
 
 	@Override
 	public void removeJob(JobInfo info) {
 		GroupInfo group = info.getGroupInfo();
 		if (group == null) {
-			currentInfo.remove(info);
+			throttledUpdate.submit(new Update(Update.REMOVE, info));
 		} else {
-			currentInfo.refresh(group);
+			throttledUpdate.submit(new Update(Update.REFRESH, group));
 		}
-		throttledUpdate.throttledExec();
 	}
 
 	@Override
 	public void removeGroup(GroupInfo group) {
-		currentInfo.remove(group);
-		throttledUpdate.throttledExec();
+		throttledUpdate.submit(new Update(Update.REMOVE, group));
 	}
 
 	@Override
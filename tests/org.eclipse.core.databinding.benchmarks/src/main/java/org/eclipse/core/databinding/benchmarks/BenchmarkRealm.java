@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.benchmarks;
+
+import org.eclipse.core.databinding.observable.Realm;
+
+/**
+ * A realm which is current on every thread. Installing it as the default realm
+ * of the benchmark thread lets observables be created and used without a
+ * display or an event loop.
+ */
+public final class BenchmarkRealm extends Realm {
+
+	private static final BenchmarkRealm INSTANCE = new BenchmarkRealm();
+
+	private BenchmarkRealm() {
+	}
+
+	@Override
+	public boolean isCurrent() {
+		return true;
+	}
+
+	@Override
+	public void asyncExec(Runnable runnable) {
+		safeRun(runnable);
+	}
+
+	/**
+	 * Makes the benchmark realm the default realm of the calling thread.
+	 *
+	 * @return the benchmark realm
+	 */
+	public static Realm install() {
+		setDefault(INSTANCE);
+		return INSTANCE;
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.databinding.DataBindingContext;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast changes propagate through value bindings created with
+ * {@link DataBindingContext#bindValue}, from the model to the target and back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BindingBenchmark {
+
+	/** Number of bindings in the context, all of them are updated */
+	@Param({ "1", "100", "10000" })
+	public int bindings;
+
+	private DataBindingContext context;
+
+	private WritableValue<String>[] models;
+
+	private WritableValue<String>[] targets;
+
+	private int counter;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setUp() {
+		BenchmarkRealm.install();
+		context = new DataBindingContext();
+		models = new WritableValue[bindings];
+		targets = new WritableValue[bindings];
+		for (int i = 0; i < bindings; i++) {
+			models[i] = new WritableValue<>("model" + i, String.class);
+			targets[i] = new WritableValue<>(null, String.class);
+			context.bindValue(targets[i], models[i]);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Benchmark
+	public String modelToTarget() {
+		String value = Integer.toString(++counter);
+		for (WritableValue<String> model : models) {
+			model.setValue(value);
+		}
+		return targets[bindings - 1].getValue();
+	}
+
+	@Benchmark
+	public String targetToModel() {
+		String value = Integer.toString(++counter);
+		for (WritableValue<String> target : targets) {
+			target.setValue(value);
+		}
+		return models[bindings - 1].getValue();
+	}
+
+	@Benchmark
+	public DataBindingContext createAndDispose() {
+		DataBindingContext newContext = new DataBindingContext();
+		for (int i = 0; i < bindings; i++) {
+			newContext.bindValue(targets[i], models[i]);
+		}
+		newContext.dispose();
+		return newContext;
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the recomputation of a chain of {@link ComputedValue}s, each one
+ * depending on the previous one, after the source value of the chain changed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ComputedValueBenchmark {
+
+	@Param({ "1", "10", "100" })
+	public int depth;
+
+	/**
+	 * Whether a value change listener is attached to the end of the chain, so
+	 * that the chain is eagerly invalidated and recomputed on every change
+	 */
+	@Param({ "false", "true" })
+	public boolean listening;
+
+	private WritableValue<Integer> source;
+
+	private IObservableValue<Integer> last;
+
+	private IValueChangeListener<Integer> listener;
+
+	private int counter;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		BenchmarkRealm.install();
+		source = new WritableValue<>(Integer.valueOf(0), Integer.class);
+		IObservableValue<Integer> previous = source;
+		for (int i = 0; i < depth; i++) {
+			IObservableValue<Integer> dependency = previous;
+			previous = ComputedValue.create(() -> Integer.valueOf(dependency.getValue().intValue() + 1));
+		}
+		last = previous;
+		if (listening) {
+			listener = event -> blackhole.consume(event.diff.getNewValue());
+			last.addValueChangeListener(listener);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (listener != null) {
+			last.removeValueChangeListener(listener);
+		}
+	}
+
+	@Benchmark
+	public Integer changeSourceAndGet() {
+		source.setValue(Integer.valueOf(++counter));
+		return last.getValue();
+	}
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.list.ListDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Diffs#computeListDiff(List, List)} for large lists with a
+ * few scattered changes, the typical case when a list is refreshed from a
+ * model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListDiffBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int size;
+
+	/** Number of insertions, removals and replacements each */
+	@Param({ "0", "10" })
+	public int changes;
+
+	private List<String> oldList;
+
+	private List<String> newList;
+
+	@Setup
+	public void setUp() {
+		oldList = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			oldList.add("element" + i);
+		}
+		newList = new ArrayList<>(oldList);
+		Random random = new Random(size);
+		for (int i = 0; i < changes; i++) {
+			newList.add(random.nextInt(newList.size()), "inserted" + i);
+			newList.remove(random.nextInt(newList.size()));
+			newList.set(random.nextInt(newList.size()), "replaced" + i);
+		}
+	}
+
+	@Benchmark
+	public ListDiff<String> computeListDiff() {
+		return Diffs.computeListDiff(oldList, newList);
+	}
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.sideeffect.ISideEffect;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the overhead of {@link ObservableTracker#runAndMonitor} compared to
+ * reading the same observables without tracking.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ObservableTrackerBenchmark {
+
+	/** Number of observables read by the monitored runnable */
+	@Param({ "1", "10", "100" })
+	public int observables;
+
+	private WritableValue<Integer>[] values;
+
+	private Runnable reader;
+
+	private IObservable[] dependencies;
+
+	private WritableValue<Integer> trigger;
+
+	private ISideEffect sideEffect;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		BenchmarkRealm.install();
+		values = new WritableValue[observables];
+		for (int i = 0; i < observables; i++) {
+			values[i] = new WritableValue<>(Integer.valueOf(i), Integer.class);
+		}
+		reader = () -> {
+			for (WritableValue<Integer> value : values) {
+				blackhole.consume(value.getValue());
+			}
+		};
+		dependencies = ObservableTracker.runAndMonitor(reader, null, null);
+		trigger = new WritableValue<>(Integer.valueOf(0), Integer.class);
+		sideEffect = ISideEffect.create(() -> {
+			blackhole.consume(trigger.getValue());
+			reader.run();
+		});
+	}
+
+	@TearDown
+	public void tearDown() {
+		sideEffect.dispose();
+	}
+
+	@Benchmark
+	public void baseline() {
+		reader.run();
+	}
+
+	@Benchmark
+	public IObservable[] runAndMonitor() {
+		return ObservableTracker.runAndMonitor(reader, null, null);
+	}
+
+	@Benchmark
+	public IObservable[] runAndMonitorNested() {
+		return ObservableTracker.runAndMonitor(() -> ObservableTracker.runAndMonitor(reader, null, null), null,
+				null);
+	}
+
+	@Benchmark
+	public IObservable[] runAndMonitorUnchanged() {
+		return ObservableTracker.runAndMonitor(reader, null, null, dependencies);
+	}
+
+	/**
+	 * Changes a dependency of a side-effect, which the benchmark realm re-runs
+	 * right away. The dependencies of the side-effect stay the same.
+	 */
+	@Benchmark
+	public void sideEffectRerun() {
+		trigger.setValue(Integer.valueOf(trigger.getValue().intValue() + 1));
+	}
+
+	@Benchmark
+	public void runAndIgnore() {
+		ObservableTracker.runAndIgnore(reader);
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.databinding.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures mutating a {@link WritableList} and a {@link WritableSet} which
+ * have change listeners attached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WritableCollectionBenchmark {
+
+	/** Number of elements added and removed per operation */
+	@Param({ "1000", "100000" })
+	public int size;
+
+	/** Number of change listeners attached to the collection */
+	@Param({ "1", "10" })
+	public int listeners;
+
+	private List<Integer> elements;
+
+	private WritableList<Integer> list;
+
+	private WritableSet<Integer> set;
+
+	private Blackhole blackhole;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		BenchmarkRealm.install();
+		this.blackhole = blackhole;
+		elements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			elements.add(Integer.valueOf(i));
+		}
+		list = new WritableList<>();
+		set = new WritableSet<>();
+		IListChangeListener<Integer> listListener = event -> blackhole.consume(event.diff);
+		ISetChangeListener<Integer> setListener = event -> blackhole.consume(event.diff);
+		for (int i = 0; i < listeners; i++) {
+			list.addListChangeListener(listListener);
+			set.addSetChangeListener(setListener);
+		}
+	}
+
+	/**
+	 * Adds the elements one by one to the end of the list and removes them
+	 * again from the end.
+	 */
+	@Benchmark
+	public void listAddRemoveSingle() {
+		for (Integer element : elements) {
+			list.add(element);
+		}
+		for (int i = size - 1; i >= 0; i--) {
+			list.remove(i);
+		}
+	}
+
+	/**
+	 * Adds all elements to the list in one call and clears it again.
+	 */
+	@Benchmark
+	public void listAddAllClear() {
+		list.addAll(elements);
+		list.clear();
+	}
+
+	/**
+	 * Adds the elements one by one to the set and removes them again.
+	 */
+	@Benchmark
+	public void setAddRemoveSingle() {
+		for (Integer element : elements) {
+			set.add(element);
+		}
+		for (Integer element : elements) {
+			set.remove(element);
+		}
+	}
+
+	/**
+	 * Adds all elements to the set in one call and clears it again.
+	 */
+	@Benchmark
+	public void setAddAllClear() {
+		set.addAll(elements);
+		blackhole.consume(set.size());
+		set.clear();
+	}
+}
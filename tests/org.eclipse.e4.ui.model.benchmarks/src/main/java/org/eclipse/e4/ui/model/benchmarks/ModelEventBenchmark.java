@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.model.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.internal.workbench.TopicSubscriptions;
+import org.eclipse.e4.ui.internal.workbench.UIEventPublisher;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.MApplicationFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MBasicFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartSashContainer;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MStackElement;
+import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
+import org.eclipse.e4.ui.workbench.UIEvents;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Measures the model events published for the changes of a layout, like
+ * moving a part to another stack, selecting it and resizing the stacks.
+ * <p>
+ * The event broker creates the events like the event broker of the workbench
+ * and discards them. With the <code>unchecked</code> subscriptions all events
+ * are created, with <code>none</code> nobody receives the model events and
+ * with <code>model</code> a handler receives all of them.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModelEventBenchmark {
+
+	private static final int STACKS = 4;
+
+	private static final int PARTS_PER_STACK = 10;
+
+	@Param({ "unchecked", "none", "model" })
+	public String subscriptions;
+
+	private MPartStack[] stacks;
+
+	private int iteration;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		TopicSubscriptions topicSubscriptions = null;
+		if (!"unchecked".equals(subscriptions)) {
+			topicSubscriptions = new TopicSubscriptions();
+			topicSubscriptions.addTopics(new String[] { UIEvents.UILifeCycle.TOPIC + "/*" });
+			if ("model".equals(subscriptions)) {
+				topicSubscriptions.addTopics(new String[] { UIEvents.UIModelTopicBase + "/*" });
+			}
+		}
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set(IEventBroker.class, new DiscardingEventBroker(blackhole));
+
+		MApplication application = MApplicationFactory.INSTANCE.createApplication();
+		MTrimmedWindow window = MBasicFactory.INSTANCE.createTrimmedWindow();
+		application.getChildren().add(window);
+		MPartSashContainer sash = MBasicFactory.INSTANCE.createPartSashContainer();
+		window.getChildren().add(sash);
+		stacks = new MPartStack[STACKS];
+		for (int s = 0; s < STACKS; s++) {
+			stacks[s] = MBasicFactory.INSTANCE.createPartStack();
+			sash.getChildren().add(stacks[s]);
+			for (int i = 0; i < PARTS_PER_STACK; i++) {
+				MPart part = MBasicFactory.INSTANCE.createPart();
+				part.setElementId("org.eclipse.benchmark.view" + (s * PARTS_PER_STACK + i));
+				stacks[s].getChildren().add(part);
+			}
+			stacks[s].setSelectedElement(stacks[s].getChildren().get(0));
+		}
+		((EObject) application).eAdapters().add(new UIEventPublisher(context, topicSubscriptions));
+	}
+
+	/**
+	 * Moves a part to the next stack, selects it there and in the old stack,
+	 * moves it to the front and resizes both stacks.
+	 */
+	@Benchmark
+	public void layoutChange() {
+		MPartStack from = stacks[iteration % STACKS];
+		MPartStack to = stacks[++iteration % STACKS];
+		MStackElement part = from.getSelectedElement();
+		to.getChildren().add(part);
+		from.setSelectedElement(from.getChildren().get(0));
+		to.setSelectedElement(part);
+		((EList<MStackElement>) to.getChildren()).move(0, part);
+		part.getPersistedState().put("lastActive", Integer.toString(iteration));
+		from.setContainerData(Integer.toString(iteration));
+		to.setContainerData(Integer.toString(iteration + 1));
+	}
+
+	/**
+	 * Creates the events like the event broker of the workbench, and discards
+	 * them instead of giving them to the event admin.
+	 */
+	private static class DiscardingEventBroker implements IEventBroker {
+
+		private final Blackhole blackhole;
+
+		DiscardingEventBroker(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public boolean send(String topic, Object data) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> map = (Map<String, Object>) data;
+			if (map.containsKey(EventConstants.EVENT_TOPIC) && map.containsKey(IEventBroker.DATA)) {
+				blackhole.consume(new Event(topic, map));
+			} else {
+				Map<String, Object> eventMap = new HashMap<>(map);
+				eventMap.put(EventConstants.EVENT_TOPIC, topic);
+				eventMap.put(IEventBroker.DATA, data);
+				blackhole.consume(new Event(topic, eventMap));
+			}
+			return true;
+		}
+
+		@Override
+		public boolean post(String topic, Object data) {
+			return send(topic, data);
+		}
+
+		@Override
+		public boolean subscribe(String topic, EventHandler eventHandler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean subscribe(String topic, String filter, EventHandler eventHandler, boolean headless) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean unsubscribe(EventHandler eventHandler) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
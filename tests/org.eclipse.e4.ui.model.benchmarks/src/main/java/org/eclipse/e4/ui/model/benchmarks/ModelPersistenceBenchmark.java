@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.model.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.e4.ui.internal.workbench.E4BinaryResource;
+import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.MApplicationFactory;
+import org.eclipse.e4.ui.model.application.commands.MCommand;
+import org.eclipse.e4.ui.model.application.commands.MCommandsFactory;
+import org.eclipse.e4.ui.model.application.commands.MHandler;
+import org.eclipse.e4.ui.model.application.ui.advanced.MAdvancedFactory;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspective;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspectiveStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MBasicFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartSashContainer;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving and loading a workbench model in XMI and in the binary
+ * format, the work done on every shutdown, auto-save and startup. The sizes of
+ * the saved files are printed during the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModelPersistenceBenchmark {
+
+	private static final int PARTS_PER_STACK = 10;
+
+	private static final int STACKS_PER_PERSPECTIVE = 5;
+
+	private static final int COMMANDS = 2000;
+
+	/** Number of perspectives, each with 50 parts */
+	@Param({ "10", "100" })
+	public int perspectives;
+
+	private final Map<String, Object> options = Collections.singletonMap(E4XMIResource.OPTION_FILTER_PERSIST_STATE,
+			Boolean.TRUE);
+
+	private File directory;
+
+	private E4XMIResource xmiResource;
+
+	private URI xmiURI;
+
+	private URI binaryURI;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("modelBenchmark").toFile();
+		xmiURI = URI.createFileURI(new File(directory, "workbench.xmi").getAbsolutePath());
+		binaryURI = URI.createFileURI(new File(directory, "workbench.bin").getAbsolutePath());
+
+		xmiResource = new E4XMIResource(xmiURI);
+		xmiResource.getContents().add((EObject) createApplication());
+		saveXMI();
+		saveBinary();
+		System.out.println();
+		System.out.println("XMI size: " + new File(xmiURI.toFileString()).length() + " bytes");
+		System.out.println("Binary size: " + new File(binaryURI.toFileString()).length() + " bytes");
+	}
+
+	@TearDown
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private MApplication createApplication() {
+		MApplication application = MApplicationFactory.INSTANCE.createApplication();
+		application.setElementId("org.eclipse.ui.ide.workbench");
+		for (int i = 0; i < COMMANDS; i++) {
+			MCommand command = MCommandsFactory.INSTANCE.createCommand();
+			command.setElementId("org.eclipse.benchmark.command" + i);
+			command.setCommandName("Command " + i);
+			command.setDescription("Runs the benchmark command " + i);
+			command.getTags().add("Category:org.eclipse.benchmark.category" + i % 20);
+			application.getCommands().add(command);
+
+			MHandler handler = MCommandsFactory.INSTANCE.createHandler();
+			handler.setElementId(command.getElementId() + ".handler");
+			handler.setContributionURI("bundleclass://org.eclipse.benchmark/org.eclipse.benchmark.Handler" + i);
+			handler.setCommand(command);
+			application.getHandlers().add(handler);
+		}
+
+		MTrimmedWindow window = MBasicFactory.INSTANCE.createTrimmedWindow();
+		window.setElementId("IDEWindow");
+		window.setWidth(1600);
+		window.setHeight(1000);
+		application.getChildren().add(window);
+
+		MPerspectiveStack perspectiveStack = MAdvancedFactory.INSTANCE.createPerspectiveStack();
+		perspectiveStack.setElementId("PerspectiveStack");
+		window.getChildren().add(perspectiveStack);
+		for (int p = 0; p < perspectives; p++) {
+			MPerspective perspective = MAdvancedFactory.INSTANCE.createPerspective();
+			perspective.setElementId("org.eclipse.benchmark.perspective" + p);
+			perspective.setLabel("Perspective " + p);
+			perspective.getTags().add("persp.actionSet:org.eclipse.ui.cheatsheets.actionSet");
+			perspective.getTags().add("persp.actionSet:org.eclipse.search.searchActionSet");
+			perspectiveStack.getChildren().add(perspective);
+
+			MPartSashContainer sash = MBasicFactory.INSTANCE.createPartSashContainer();
+			perspective.getChildren().add(sash);
+			for (int s = 0; s < STACKS_PER_PERSPECTIVE; s++) {
+				MPartStack stack = MBasicFactory.INSTANCE.createPartStack();
+				stack.setElementId("org.eclipse.benchmark.stack" + s);
+				stack.setContainerData(Integer.toString(2000 + s));
+				sash.getChildren().add(stack);
+				for (int i = 0; i < PARTS_PER_STACK; i++) {
+					MPart part = MBasicFactory.INSTANCE.createPart();
+					part.setElementId("org.eclipse.benchmark.view" + (s * PARTS_PER_STACK + i));
+					part.setLabel("View " + i);
+					part.setContributionURI(
+							"bundleclass://org.eclipse.ui.workbench/org.eclipse.ui.internal.e4.compatibility.CompatibilityView");
+					part.setIconURI("platform:/plugin/org.eclipse.benchmark/icons/view" + i + ".png");
+					part.setCloseable(true);
+					part.getTags().add("View");
+					part.getTags().add("categoryTag:General");
+					part.getPersistedState().put("memento",
+							"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<view><selection id=\"" + i + "\"/></view>");
+					part.getPersistedState().put("originalCompatibilityViewClass",
+							"org.eclipse.ui.navigator.resources.ProjectExplorer");
+					part.getPersistedState().put("originalCompatibilityViewBundle",
+							"org.eclipse.ui.navigator.resources");
+					stack.getChildren().add(part);
+				}
+			}
+		}
+		return application;
+	}
+
+	@Benchmark
+	public void saveXMI() throws IOException {
+		xmiResource.save(options);
+	}
+
+	@Benchmark
+	public void saveBinary() throws IOException {
+		new E4BinaryResource(binaryURI).saveCopy(xmiResource.getContents(), options);
+	}
+
+	@Benchmark
+	public Resource loadXMI() throws IOException {
+		Resource resource = new E4XMIResource(xmiURI);
+		resource.load(null);
+		return resource;
+	}
+
+	@Benchmark
+	public Resource loadBinary() throws IOException {
+		Resource resource = new E4BinaryResource(binaryURI);
+		resource.load(null);
+		return resource;
+	}
+}
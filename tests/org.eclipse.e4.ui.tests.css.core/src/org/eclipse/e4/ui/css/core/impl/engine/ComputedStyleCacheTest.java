@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.e4.ui.tests.css.core.util.ParserTestUtil;
+import org.eclipse.e4.ui.tests.css.core.util.TestElement;
+import org.eclipse.swt.widgets.Display;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.css.CSSStyleDeclaration;
+
+public class ComputedStyleCacheTest {
+
+	private CSSSWTEngineImpl engine;
+	private DocumentCSSImpl docCss;
+	private ComputedStyleCache cache;
+
+	@BeforeEach
+	public void setUp() {
+		engine = new CSSSWTEngineImpl(Display.getDefault());
+		docCss = new DocumentCSSImpl();
+		cache = new ComputedStyleCache(docCss, new ViewCSSImpl(docCss));
+	}
+
+	@Test
+	public void testSameSignatureSharesStyle() throws Exception {
+		docCss.addStyleSheet(ParserTestUtil.parseCss("Button { color: blue; }\n" + ".red { color: red; }\n"
+				+ "Shell > Button { font-weight: bold; }\n"));
+
+		TestElement shell = new TestElement("Shell", engine);
+		TestElement button1 = new TestElement("Button", shell, engine);
+		TestElement button2 = new TestElement("Button", shell, engine);
+		TestElement redButton = new TestElement("Button", shell, engine);
+		redButton.setClass("red");
+
+		CSSStyleDeclaration style1 = cache.getComputedStyle(button1, null);
+		assertNotNull(style1);
+		assertSame(style1, cache.getComputedStyle(button2, null));
+		assertEquals(1, cache.size());
+
+		CSSStyleDeclaration redStyle = cache.getComputedStyle(redButton, null);
+		assertEquals("red", redStyle.getPropertyCSSValue("color").getCssText());
+		assertEquals(2, cache.size());
+
+		// the ancestor chain is part of the signature
+		TestElement composite = new TestElement("Composite", engine);
+		TestElement nestedButton = new TestElement("Button", composite, engine);
+		CSSStyleDeclaration nestedStyle = cache.getComputedStyle(nestedButton, null);
+		assertNull(nestedStyle.getPropertyCSSValue("font-weight"));
+		assertEquals(3, cache.size());
+
+		// elements without matching rules are cached as well
+		assertNull(cache.getComputedStyle(shell, null));
+		assertNull(cache.getComputedStyle(new TestElement("Shell", engine), null));
+		assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void testAttributesArePartOfSignature() throws Exception {
+		docCss.addStyleSheet(ParserTestUtil.parseCss("Button[style='SWT.CHECK'] { color: red; }\n"));
+
+		TestElement check = new TestElement("Button", engine);
+		check.setAttribute("style", "SWT.CHECK");
+		TestElement push = new TestElement("Button", engine);
+		push.setAttribute("style", "SWT.PUSH");
+
+		assertNotNull(cache.getComputedStyle(check, null));
+		assertNull(cache.getComputedStyle(push, null));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testStyleSheetChangeClearsCache() throws Exception {
+		docCss.addStyleSheet(ParserTestUtil.parseCss("Button { color: blue; }\n"));
+		TestElement button = new TestElement("Button", engine);
+		CSSStyleDeclaration style = cache.getComputedStyle(button, null);
+		assertEquals("blue", style.getPropertyCSSValue("color").getCssText());
+		assertEquals(1, cache.size());
+
+		docCss.addStyleSheet(ParserTestUtil.parseCss("Button { color: green; }\n"));
+		assertEquals(0, cache.size());
+		style = cache.getComputedStyle(button, null);
+		assertEquals("green", style.getPropertyCSSValue("color").getCssText());
+
+		docCss.removeAllStyleSheets();
+		assertEquals(0, cache.size());
+		assertNull(cache.getComputedStyle(button, null));
+	}
+
+	@Test
+	public void testSiblingSelectorsDisableCaching() throws Exception {
+		docCss.addStyleSheet(ParserTestUtil.parseCss("Label + Button { color: blue; }\n"));
+		TestElement button = new TestElement("Button", engine);
+		cache.getComputedStyle(button, null);
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
+import org.eclipse.e4.ui.tests.css.core.util.ParserTestUtil;
+import org.eclipse.e4.ui.tests.css.core.util.TestElement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.css.sac.InputSource;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleSheet;
+
+public class StyleSheetCacheTest {
+
+	private static final String URI = "platform:/plugin/org.eclipse.e4.ui.tests.css.core/test.css";
+
+	private static final String CSS = "Shell > Composite.editor Button#ok:checked, Label[style~='SWT.WRAP'] {\n"
+			+ "  color: #ff8000; background-color: rgb(10, 20, 30) !important;\n"
+			+ "  font: Arial 12px italic; margin: 1.5em 2px 0 -3px;\n"
+			+ "  background-image: url('./images/bg.png'); swt-corner-radius: 4;\n" + "}\n"
+			+ "CTabFolder:selected { color: inherit; swt-selected-tabs-background: #000000 #ffffff 100%; }\n"
+			+ "* { font-family: 'Segoe UI', sans-serif; }\n";
+
+	private File directory;
+	private AbstractCSSEngine engine;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("stylesheetcache").toFile();
+		engine = (AbstractCSSEngine) ParserTestUtil.createEngine();
+		engine.setStyleSheetCache(new StyleSheetCache(directory));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		engine.getStyleSheetCache().clear();
+		directory.delete();
+	}
+
+	@Test
+	public void testCachedStyleSheetEqualsParsedStyleSheet() throws Exception {
+		CSSStyleSheet parsed = parse(CSS);
+		assertTrue(getCacheFile().isFile());
+
+		CSSStyleSheet cached = parse(CSS);
+		CSSStyleSheet uncached = ParserTestUtil.parseCss(CSS);
+		CSSRuleList expectedRules = uncached.getCssRules();
+		assertEquals(expectedRules.getLength(), parsed.getCssRules().getLength());
+		assertEquals(expectedRules.getLength(), cached.getCssRules().getLength());
+		for (int i = 0; i < expectedRules.getLength(); i++) {
+			assertEquals(expectedRules.item(i).getCssText(), parsed.getCssRules().item(i).getCssText());
+			assertEquals(expectedRules.item(i).getCssText(), cached.getCssRules().item(i).getCssText());
+		}
+
+		// the rebuilt selectors match like the parsed ones
+		DocumentCSSImpl docCss = new DocumentCSSImpl();
+		docCss.addStyleSheet(cached);
+		TestElement label = new TestElement("Label", engine);
+		label.setAttribute("style", "SWT.WRAP SWT.LEFT");
+		CSSStyleDeclaration style = new ViewCSSImpl(docCss).getComputedStyle(label, null);
+		assertEquals("important", style.getPropertyPriority("background-color"));
+		assertEquals("rgb(255, 128, 0)", style.getPropertyCSSValue("color").getCssText());
+	}
+
+	@Test
+	public void testChangedContentIsParsedAgain() throws Exception {
+		parse("Button { color: red; }");
+		CSSStyleSheet changed = parse("Button { color: blue; }");
+		assertEquals("Button { color: blue; }", changed.getCssRules().item(0).getCssText());
+		changed = parse("Button { color: blue; }");
+		assertEquals("Button { color: blue; }", changed.getCssRules().item(0).getCssText());
+	}
+
+	@Test
+	public void testCorruptEntryIsIgnored() throws Exception {
+		parse("Button { color: red; }");
+		File file = getCacheFile();
+		byte[] content = Files.readAllBytes(file.toPath());
+		Files.write(file.toPath(), Arrays.copyOf(content, content.length / 2));
+
+		CSSStyleSheet styleSheet = parse("Button { color: red; }");
+		assertEquals("Button { color: red; }", styleSheet.getCssRules().item(0).getCssText());
+		assertFalse(Files.readAllBytes(file.toPath()).length < content.length);
+	}
+
+	/**
+	 * Returns the only entry of the cache directory.
+	 */
+	private File getCacheFile() {
+		File[] files = directory.listFiles();
+		assertNotNull(files);
+		assertEquals(1, files.length);
+		return files[0];
+	}
+
+	private CSSStyleSheet parse(String css) throws IOException {
+		engine.reset();
+		InputSource source = new InputSource();
+		source.setURI(URI);
+		source.setByteStream(new ByteArrayInputStream(css.getBytes(StandardCharsets.UTF_8)));
+		return (CSSStyleSheet) engine.parseStyleSheet(source);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013, 2016 IBM Corporation and others.
+ * Copyright (c) 2013, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,17 +16,27 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.tests.css.core;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
+import org.eclipse.e4.ui.css.core.dom.properties.ICSSPropertyHandler;
 import org.eclipse.e4.ui.css.core.impl.engine.CSSEngineImpl;
 import org.eclipse.e4.ui.tests.css.core.util.TestElement;
 import org.junit.jupiter.api.Test;
 import org.w3c.css.sac.Selector;
 import org.w3c.css.sac.SelectorList;
 import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSValue;
 
 public class CSSEngineTest {
 
@@ -80,6 +90,71 @@ public class CSSEngineTest {
 		assertFalse(engine.matches(selector, "", null));
 	}
 
+	@Test
+	public void testApplyChangedStyles() throws Exception {
+		List<String> applied = new ArrayList<>();
+		TestCSSEngine engine = new TestCSSEngine() {
+			@Override
+			public ICSSPropertyHandler applyCSSProperty(Object element, String property, CSSValue value,
+					String pseudo) throws Exception {
+				applied.add(property + ":" + value.getCssText());
+				return null;
+			}
+		};
+		Object widget = new Object();
+		TestElement button = new TestElement("Button", engine);
+		engine.setElementProvider((element, aEngine) -> element == widget ? button : null);
+		engine.parseStyleSheet(new StringReader(
+				"Button { color: blue; font-weight: bold; }\n" + ".active { color: red; }\n"));
+
+		engine.applyChangedStyles(widget);
+		assertEquals(new HashSet<>(Arrays.asList("color:blue", "font-weight:bold")), new HashSet<>(applied));
+
+		// nothing changed, nothing is applied
+		applied.clear();
+		engine.applyChangedStyles(widget);
+		assertTrue(applied.isEmpty());
+
+		// only the property whose value changed is applied
+		button.setClass("active");
+		engine.applyChangedStyles(widget);
+		assertEquals(Arrays.asList("color:red"), applied);
+
+		// a full restyle still applies everything
+		applied.clear();
+		engine.applyStyles(widget, true);
+		assertEquals(new HashSet<>(Arrays.asList("color:red", "font-weight:bold")), new HashSet<>(applied));
+	}
+
+	@Test
+	public void testApplyChangedStylesAfterFullRestyle() throws Exception {
+		Map<String, String> values = new HashMap<>();
+		TestCSSEngine engine = new TestCSSEngine() {
+			@Override
+			public ICSSPropertyHandler applyCSSProperty(Object element, String property, CSSValue value,
+					String pseudo) throws Exception {
+				values.put(property, value.getCssText());
+				return null;
+			}
+		};
+		Object widget = new Object();
+		TestElement button = new TestElement("Button", engine);
+		engine.setElementProvider((element, aEngine) -> element == widget ? button : null);
+		engine.parseStyleSheet(new StringReader("Button { color: blue; }\n" + ".active { color: red; }\n"));
+
+		engine.applyChangedStyles(widget);
+		assertEquals("blue", values.get("color"));
+
+		// a full restyle applies another value
+		button.setClass("active");
+		engine.applyStyles(widget, true);
+		assertEquals("red", values.get("color"));
+
+		// the value recorded before the full restyle must not hide the change
+		button.setClass(null);
+		engine.applyChangedStyles(widget);
+		assertEquals("blue", values.get("color"));
+	}
 
 	private TestCSSEngine engineWhichProducesElementsWithAttributeA() {
 		TestCSSEngine engine = new TestCSSEngine();
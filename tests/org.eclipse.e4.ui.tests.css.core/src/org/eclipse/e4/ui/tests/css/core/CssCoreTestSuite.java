@@ -16,8 +16,11 @@
 package org.eclipse.e4.ui.tests.css.core;
 
 import org.eclipse.e4.ui.css.core.impl.engine.AbstractCSSEngineTest;
+import org.eclipse.e4.ui.css.core.impl.engine.ComputedStyleCacheTest;
+import org.eclipse.e4.ui.css.core.impl.engine.StyleSheetCacheTest;
 import org.eclipse.e4.ui.tests.css.core.dom.CSSPropertyHandlerProviderTest;
 import org.eclipse.e4.ui.tests.css.core.parser.CascadeTest;
+import org.eclipse.e4.ui.tests.css.core.parser.DocumentCSSTest;
 import org.eclipse.e4.ui.tests.css.core.parser.FontFaceRulesTest;
 import org.eclipse.e4.ui.tests.css.core.parser.ImportTest;
 import org.eclipse.e4.ui.tests.css.core.parser.InheritTest;
@@ -43,8 +46,11 @@ import org.junit.runner.RunWith;
 	SelectorTest.class,
 	CSSEngineTest.class,
 	ImportTest.class,
+	DocumentCSSTest.class,
 	InheritTest.class,
 	AbstractCSSEngineTest.class,
+	ComputedStyleCacheTest.class,
+	StyleSheetCacheTest.class,
 	CSSPropertyHandlerProviderTest.class
 })
 public class CssCoreTestSuite {
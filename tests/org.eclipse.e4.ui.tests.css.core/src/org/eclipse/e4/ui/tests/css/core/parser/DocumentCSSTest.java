@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.tests.css.core.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
+import org.eclipse.e4.ui.tests.css.core.util.ParserTestUtil;
+import org.junit.jupiter.api.Test;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.Selector;
+
+public class DocumentCSSTest {
+
+	@Test
+	public void testQuerySelectorCoversAllStyleSheets() throws Exception {
+		DocumentCSSImpl docCss = new DocumentCSSImpl();
+		docCss.addStyleSheet(ParserTestUtil.parseCss(".a { color: red; } #x { color: blue; }"));
+		assertEquals(1, docCss.queryConditionSelector(Condition.SAC_CLASS_CONDITION).size());
+
+		// the selectors of style sheets added later are found as well
+		docCss.addStyleSheet(ParserTestUtil.parseCss("Button.b, .a { color: green; } Label { color: black; }"));
+		List<?> classSelectors = docCss.queryConditionSelector(Condition.SAC_CLASS_CONDITION);
+		assertEquals(3, classSelectors.size());
+		assertEquals("a", ((AttributeCondition) ((ConditionalSelector) classSelectors.get(0)).getCondition()).getValue());
+		assertEquals(1, docCss.queryConditionSelector(Condition.SAC_ID_CONDITION).size());
+		assertTrue(docCss.querySelector(Selector.SAC_ELEMENT_NODE_SELECTOR, Condition.SAC_CLASS_CONDITION).isEmpty());
+
+		docCss.removeAllStyleSheets();
+		assertTrue(docCss.queryConditionSelector(Condition.SAC_CLASS_CONDITION).isEmpty());
+	}
+
+	@Test
+	public void testQueryConditionSelectorByValue() throws Exception {
+		DocumentCSSImpl docCss = new DocumentCSSImpl();
+		docCss.addStyleSheet(ParserTestUtil.parseCss(".a { color: red; } Button.b { color: blue; }"));
+		docCss.addStyleSheet(ParserTestUtil.parseCss(".a:selected, #a { color: green; }"));
+
+		List<Selector> selectors = docCss.queryConditionSelector(Condition.SAC_CLASS_CONDITION, "a");
+		assertEquals(1, selectors.size());
+		assertEquals(1, docCss.queryConditionSelector(Condition.SAC_CLASS_CONDITION, "b").size());
+		assertEquals(1, docCss.queryConditionSelector(Condition.SAC_ID_CONDITION, "a").size());
+		assertTrue(docCss.queryConditionSelector(Condition.SAC_CLASS_CONDITION, "c").isEmpty());
+	}
+}
@@ -120,6 +120,34 @@ public class ViewCSSTest {
 		assertEquals("color: blue;", buttonStyle.getCssText());
 	}
 
+	@Test
+	public void testIndexedSelectorsKeepSourceOrder() throws Exception {
+		// the matching selectors are spread over the universal, element, class
+		// and id buckets, the source order decides between equal specificity
+		String css = "Button.primary { color: red; }\n" + "* Button.primary { color: green; }\n"
+				+ "#ok { background-color: white; }\n" + "Shell Button#ok { background-color: black; }\n"
+				+ ".primary { font-weight: bold; }\n" + "* { font-style: italic; }\n";
+		ViewCSS viewCSS = createViewCss(css);
+
+		final TestElement shell = new TestElement("Shell", engine);
+		final TestElement button = new TestElement("Button", shell, engine);
+		button.setClass("default  primary");
+		button.setId("ok");
+
+		CSSStyleDeclaration buttonStyle = viewCSS.getComputedStyle(button, null);
+		assertNotNull(buttonStyle);
+		assertEquals("green", buttonStyle.getPropertyCSSValue("color").getCssText());
+		assertEquals("black", buttonStyle.getPropertyCSSValue("background-color").getCssText());
+		assertEquals("bold", buttonStyle.getPropertyCSSValue("font-weight").getCssText());
+		assertEquals("italic", buttonStyle.getPropertyCSSValue("font-style").getCssText());
+
+		TestElement label = new TestElement("Label", shell, engine);
+		label.setClass("primaryLabel");
+		CSSStyleDeclaration labelStyle = viewCSS.getComputedStyle(label, null);
+		assertNotNull(labelStyle);
+		assertEquals("font-style: italic;", labelStyle.getCssText());
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testRuleCaching() throws Exception {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2019 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,9 +21,11 @@ import org.eclipse.e4.ui.tests.application.Bug308220Test;
 import org.eclipse.e4.ui.tests.application.Bug320857Test;
 import org.eclipse.e4.ui.tests.application.E4ResourceTest;
 import org.eclipse.e4.ui.tests.application.ModelElementTest;
+import org.eclipse.e4.ui.tests.application.ModelJournalTest;
 import org.eclipse.e4.ui.tests.application.ModelRobustnessTest;
 import org.eclipse.e4.ui.tests.application.ResourceHandlerTest;
 import org.eclipse.e4.ui.tests.application.StartupTestSuite;
+import org.eclipse.e4.ui.tests.application.TopicSubscriptionsTest;
 import org.eclipse.e4.ui.tests.application.UIEventTypesTest;
 import org.eclipse.e4.ui.tests.workbench.AreaRendererTest;
 import org.eclipse.e4.ui.tests.workbench.Bug308317Test;
@@ -66,6 +68,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
 		StartupTestSuite.class,
 		UIEventTypesTest.class,
+		TopicSubscriptionsTest.class,
 		Bug299755Test.class,
 		Bug308220Test.class,
 		Bug320857Test.class,
@@ -87,6 +90,7 @@ import org.junit.runners.Suite;
 		Bug308317Test.class,
 		ModelRobustnessTest.class,
 		ResourceHandlerTest.class,
+		ModelJournalTest.class,
 		InjectionEventTest.class,
 		PartFocusTest.class,
 		ModelElementTest.class,
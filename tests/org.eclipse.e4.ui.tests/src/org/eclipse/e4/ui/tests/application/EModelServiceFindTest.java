@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -33,12 +33,15 @@ import org.eclipse.e4.ui.model.application.commands.MHandler;
 import org.eclipse.e4.ui.model.application.commands.MKeyBinding;
 import org.eclipse.e4.ui.model.application.ui.MDirtyable;
 import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MArea;
 import org.eclipse.e4.ui.model.application.ui.advanced.MPerspective;
 import org.eclipse.e4.ui.model.application.ui.advanced.MPerspectiveStack;
 import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
 import org.eclipse.e4.ui.model.application.ui.basic.MPart;
 import org.eclipse.e4.ui.model.application.ui.basic.MPartSashContainer;
 import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MTrimBar;
+import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenuElement;
@@ -431,4 +434,141 @@ public class EModelServiceFindTest {
 		assertEquals(1, elements.size());
 		assertEquals(part, elements.get(0));
 	}
+
+	@Test
+	public void testFindElementsAfterModelChanges() {
+		MApplication application = createApplication();
+		EModelService modelService = application.getContext().get(EModelService.class);
+
+		MUIElement menuItem = modelService.find("menuItem1Id", application);
+		assertNotNull(menuItem);
+
+		menuItem.setElementId("renamedId");
+		assertNull(modelService.find("menuItem1Id", application));
+		assertSame(menuItem, modelService.find("renamedId", application));
+
+		MMenu menu = (MMenu) modelService.find("menuId", application);
+		menu.getChildren().remove(menuItem);
+		assertNull(modelService.find("renamedId", application));
+
+		MToolBar toolBar = (MToolBar) modelService.find("toolBarId", application);
+		toolBar.getChildren().add(modelService.createModelElement(MToolControl.class));
+		toolBar.getChildren().get(2).setElementId("renamedId");
+		assertSame(toolBar.getChildren().get(2), modelService.find("renamedId", application));
+		assertEquals(3, modelService.findElements(application, null, MToolControl.class).size());
+	}
+
+	@Test
+	public void testFindElementsInTraversalOrder() {
+		MApplication application = createApplication();
+		EModelService modelService = application.getContext().get(EModelService.class);
+
+		MTrimmedWindow window = modelService.createModelElement(MTrimmedWindow.class);
+		application.getChildren().add(window);
+
+		MPartStack sharedStack = modelService.createModelElement(MPartStack.class);
+		sharedStack.setElementId("sharedId");
+		window.getSharedElements().add(sharedStack);
+		MPart sharedPart = createDuplicatePart(modelService);
+		sharedStack.getChildren().add(sharedPart);
+
+		MArea sharedArea = modelService.createModelElement(MArea.class);
+		sharedArea.setElementId("duplicateId");
+		window.getSharedElements().add(sharedArea);
+		sharedArea.getChildren().add(createDuplicatePart(modelService));
+
+		MPerspectiveStack perspectiveStack = modelService.createModelElement(MPerspectiveStack.class);
+		window.getChildren().add(perspectiveStack);
+		for (int i = 0; i < 3; i++) {
+			MPerspective perspective = modelService.createModelElement(MPerspective.class);
+			perspective.setElementId("duplicateId");
+			perspectiveStack.getChildren().add(perspective);
+			perspective.getChildren().add(createDuplicatePart(modelService));
+			MPlaceholder placeholder = modelService.createModelElement(MPlaceholder.class);
+			placeholder.setElementId("duplicateId");
+			placeholder.setRef(sharedStack);
+			perspective.getChildren().add(0, placeholder);
+			MPlaceholder areaPlaceholder = modelService.createModelElement(MPlaceholder.class);
+			areaPlaceholder.setRef(sharedArea);
+			perspective.getChildren().add(areaPlaceholder);
+		}
+		perspectiveStack.setSelectedElement(perspectiveStack.getChildren().get(1));
+
+		// a detached window in a perspective and one in the window
+		MWindow perspectiveWindow = modelService.createModelElement(MWindow.class);
+		perspectiveWindow.setElementId("duplicateId");
+		perspectiveStack.getChildren().get(2).getWindows().add(perspectiveWindow);
+		perspectiveWindow.getChildren().add(createDuplicatePart(modelService));
+		MWindow detachedWindow = modelService.createModelElement(MWindow.class);
+		window.getWindows().add(detachedWindow);
+		MPlaceholder detachedPlaceholder = modelService.createModelElement(MPlaceholder.class);
+		detachedPlaceholder.setRef(sharedStack);
+		detachedWindow.getChildren().add(detachedPlaceholder);
+
+		MTrimBar trimBar = modelService.createModelElement(MTrimBar.class);
+		window.getTrimBars().add(trimBar);
+		MToolControl trimControl = modelService.createModelElement(MToolControl.class);
+		trimControl.setElementId("duplicateId");
+		trimBar.getChildren().add(trimControl);
+
+		MMenu mainMenu = modelService.createModelElement(MMenu.class);
+		window.setMainMenu(mainMenu);
+		MMenu mainMenuItem = modelService.createModelElement(MMenu.class);
+		mainMenuItem.setElementId("duplicateId");
+		mainMenu.getChildren().add(mainMenuItem);
+
+		MHandler windowHandler = modelService.createModelElement(MHandler.class);
+		windowHandler.setElementId("duplicateId");
+		window.getHandlers().add(windowHandler);
+
+		int[] flags = { EModelService.ANYWHERE, EModelService.PRESENTATION, EModelService.GLOBAL,
+				EModelService.IN_ACTIVE_PERSPECTIVE, EModelService.IN_ANY_PERSPECTIVE,
+				EModelService.OUTSIDE_PERSPECTIVE, EModelService.IN_SHARED_AREA, EModelService.IN_TRIM,
+				EModelService.IN_MAIN_MENU, EModelService.IN_PART, EModelService.IN_SHARED_ELEMENTS,
+				EModelService.IN_ANY_PERSPECTIVE | EModelService.IN_SHARED_ELEMENTS,
+				EModelService.OUTSIDE_PERSPECTIVE | EModelService.IN_SHARED_ELEMENTS,
+				EModelService.IN_ANY_PERSPECTIVE | EModelService.IN_SHARED_AREA | EModelService.IN_PART,
+				EModelService.ANYWHERE | EModelService.IN_MAIN_MENU | EModelService.IN_PART
+						| EModelService.IN_SHARED_ELEMENTS };
+		MUIElement[] searchRoots = { application, window, perspectiveStack, perspectiveStack.getChildren().get(2),
+				sharedStack, sharedArea, trimBar };
+		for (MUIElement searchRoot : searchRoots) {
+			for (int flag : flags) {
+				assertFoundInTraversalOrder(modelService, searchRoot, "duplicateId", null, flag);
+				assertFoundInTraversalOrder(modelService, searchRoot, "duplicateId", MPart.class, flag);
+				assertFoundInTraversalOrder(modelService, searchRoot, "duplicateId", MHandler.class, flag);
+				assertFoundInTraversalOrder(modelService, searchRoot, null, MHandler.class, flag);
+				assertFoundInTraversalOrder(modelService, searchRoot, null, MTrimBar.class, flag);
+				assertFoundInTraversalOrder(modelService, searchRoot, null, MPlaceholder.class, flag);
+			}
+		}
+	}
+
+	private MPart createDuplicatePart(EModelService modelService) {
+		MPart part = modelService.createModelElement(MPart.class);
+		part.setElementId("duplicateId");
+		MMenu menu = modelService.createModelElement(MMenu.class);
+		menu.setElementId("duplicateId");
+		part.getMenus().add(menu);
+		MToolBar toolBar = modelService.createModelElement(MToolBar.class);
+		toolBar.setElementId("duplicateId");
+		part.setToolbar(toolBar);
+		MHandler handler = modelService.createModelElement(MHandler.class);
+		handler.setElementId("duplicateId");
+		part.getHandlers().add(handler);
+		return part;
+	}
+
+	/**
+	 * Compares a search which may use the model index with a search by
+	 * predicate, which only walks the model.
+	 */
+	private <T> void assertFoundInTraversalOrder(EModelService modelService, MUIElement searchRoot, String id,
+			Class<T> clazz, int searchFlags) {
+		List<T> expected = modelService.findElements(searchRoot, clazz, searchFlags,
+				element -> id == null || id.equals(element.getElementId()));
+		List<T> actual = modelService.findElements(searchRoot, id, clazz, null, searchFlags);
+		assertEquals("search for " + id + " of " + clazz + " from " + searchRoot + " with flags " + searchFlags,
+				expected, actual);
+	}
 }
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.application;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
+import org.eclipse.e4.ui.internal.workbench.ModelJournal;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.MApplicationFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MBasicFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MStackElement;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+import org.eclipse.e4.ui.workbench.IWorkbench;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModelJournalTest {
+
+	private File directory;
+
+	private File snapshotFile;
+
+	private File journalFile;
+
+	private E4XMIResource resource;
+
+	private MApplication application;
+
+	private MWindow window;
+
+	private MPartStack stack;
+
+	private ModelJournal journal;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("modelJournal").toFile();
+		snapshotFile = new File(directory, "workbench.xmi");
+		journalFile = new File(directory, "workbench.journal");
+
+		application = MApplicationFactory.INSTANCE.createApplication();
+		window = MBasicFactory.INSTANCE.createWindow();
+		window.setElementId("window");
+		application.getChildren().add(window);
+		stack = MBasicFactory.INSTANCE.createPartStack();
+		window.getChildren().add(stack);
+		for (int i = 0; i < 3; i++) {
+			MPart part = MBasicFactory.INSTANCE.createPart();
+			part.setElementId("part" + i);
+			stack.getChildren().add(part);
+		}
+		resource = new E4XMIResource(URI.createFileURI(snapshotFile.getAbsolutePath()));
+		resource.getContents().add((EObject) application);
+
+		journal = new ModelJournal(resource, snapshotFile, journalFile, EPackage.Registry.INSTANCE, null);
+	}
+
+	@After
+	public void tearDown() {
+		journal.aboutToSave();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private void flush() throws InterruptedException {
+		journal.flush(null);
+		Job.getJobManager().join(journal, null);
+	}
+
+	private MApplication loadSnapshot() throws IOException {
+		E4XMIResource snapshot = new E4XMIResource(URI.createFileURI(snapshotFile.getAbsolutePath()));
+		snapshot.load(null);
+		ModelJournal.replay(snapshot, journalFile);
+		return (MApplication) snapshot.getContents().get(0);
+	}
+
+	@Test
+	public void testFirstFlushWritesSnapshot() throws Exception {
+		flush();
+		assertTrue(snapshotFile.exists());
+		assertFalse(journalFile.exists());
+
+		MApplication saved = loadSnapshot();
+		MPartStack savedStack = (MPartStack) saved.getChildren().get(0).getChildren().get(0);
+		assertEquals(3, savedStack.getChildren().size());
+	}
+
+	@Test
+	public void testReplayChanges() throws Exception {
+		flush();
+
+		MPart part0 = (MPart) stack.getChildren().get(0);
+		MPart part1 = (MPart) stack.getChildren().get(1);
+		MPart part2 = (MPart) stack.getChildren().get(2);
+		part0.setLabel("Label");
+		part0.getTags().add("tag");
+		part0.getPersistedState().put("memento", "state");
+		stack.setSelectedElement(part1);
+		stack.getChildren().remove(part2);
+		stack.getChildren().move(0, part1);
+		MPart part3 = MBasicFactory.INSTANCE.createPart();
+		part3.setElementId("part3");
+		part3.getPersistedState().put("key", "value");
+		stack.getChildren().add(part3);
+		flush();
+		assertTrue(journalFile.exists());
+
+		MApplication saved = loadSnapshot();
+		MPartStack savedStack = (MPartStack) saved.getChildren().get(0).getChildren().get(0);
+		assertEquals(Arrays.asList("part1", "part0", "part3"),
+				savedStack.getChildren().stream().map(MStackElement::getElementId).collect(Collectors.toList()));
+		MPart savedPart0 = (MPart) savedStack.getChildren().get(1);
+		assertEquals("Label", savedPart0.getLabel());
+		assertEquals(Arrays.asList("tag"), savedPart0.getTags());
+		assertEquals("state", savedPart0.getPersistedState().get("memento"));
+		assertSame(savedStack.getChildren().get(0), savedStack.getSelectedElement());
+		assertEquals("value", ((MPart) savedStack.getChildren().get(2)).getPersistedState().get("key"));
+	}
+
+	@Test
+	public void testElementsNotPersisted() throws Exception {
+		flush();
+
+		MPart part = MBasicFactory.INSTANCE.createPart();
+		part.getPersistedState().put(IWorkbench.PERSIST_STATE, "false");
+		stack.getChildren().add(part);
+		stack.getChildren().get(0).getPersistedState().put(IWorkbench.PERSIST_STATE, "false");
+		flush();
+
+		MApplication saved = loadSnapshot();
+		MPartStack savedStack = (MPartStack) saved.getChildren().get(0).getChildren().get(0);
+		assertEquals(2, savedStack.getChildren().size());
+		assertEquals("part1", savedStack.getChildren().get(0).getElementId());
+	}
+
+	@Test
+	public void testIncompleteRecordIgnored() throws Exception {
+		flush();
+		window.setLabel("Window");
+		flush();
+
+		// a crash while appending leaves an incomplete batch of records
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true))) {
+			out.writeInt(100);
+			out.write(new byte[] { 1, 2, 3 });
+		}
+
+		MApplication saved = loadSnapshot();
+		assertEquals("Window", saved.getChildren().get(0).getLabel());
+	}
+
+	@Test
+	public void testSavedModelMakesJournalObsolete() throws Exception {
+		flush();
+		window.setLabel("Window");
+		flush();
+		assertTrue(journalFile.exists());
+
+		journal.aboutToSave();
+		Map<String, Object> options = new HashMap<>();
+		options.put(E4XMIResource.OPTION_FILTER_PERSIST_STATE, Boolean.TRUE);
+		resource.save(options);
+		journal.saved();
+		assertFalse(journalFile.exists());
+
+		// continues from the saved model
+		window.setLabel("Changed");
+		flush();
+		assertTrue(journalFile.exists());
+		assertEquals("Changed", loadSnapshot().getChildren().get(0).getLabel());
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		flush();
+		char[] chars = new char[64 * 1024];
+		long written = 0;
+		for (int i = 0; i < 20; i++) {
+			Arrays.fill(chars, (char) ('a' + i));
+			window.setLabel(new String(chars));
+			flush();
+			written += chars.length;
+		}
+
+		// the journal was compacted into the snapshot at least once
+		assertTrue(journalFile.length() < written);
+		E4XMIResource snapshot = new E4XMIResource(URI.createFileURI(snapshotFile.getAbsolutePath()));
+		snapshot.load(null);
+		String compactedLabel = ((MApplication) snapshot.getContents().get(0)).getChildren().get(0).getLabel();
+		assertTrue(compactedLabel != null && compactedLabel.length() == chars.length);
+		assertEquals(window.getLabel(), loadSnapshot().getChildren().get(0).getLabel());
+
+		// the journal continues after the compacted snapshot
+		window.setLabel("Window");
+		flush();
+		assertTrue(journalFile.exists());
+		assertEquals("Window", loadSnapshot().getChildren().get(0).getLabel());
+	}
+
+	@Test
+	public void testJournalOfPreviousSnapshotIgnored() throws Exception {
+		flush();
+		window.setLabel("Old");
+		flush();
+		byte[] oldJournal = Files.readAllBytes(journalFile.toPath());
+
+		// a restart writes a new snapshot first, a crash may leave the old journal
+		journal.aboutToSave();
+		journal = new ModelJournal(resource, snapshotFile, journalFile, EPackage.Registry.INSTANCE, null);
+		window.setLabel("New");
+		flush();
+		Files.write(journalFile.toPath(), oldJournal);
+
+		assertEquals("New", loadSnapshot().getChildren().get(0).getLabel());
+	}
+}
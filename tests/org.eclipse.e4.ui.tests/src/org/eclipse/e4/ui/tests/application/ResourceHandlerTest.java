@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,9 +16,11 @@
 package org.eclipse.e4.ui.tests.application;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -26,6 +28,7 @@ import java.util.List;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.ui.di.UISynchronize;
+import org.eclipse.e4.ui.internal.workbench.E4BinaryResource;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
 import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
 import org.eclipse.e4.ui.internal.workbench.ResourceHandler;
@@ -77,11 +80,21 @@ public class ResourceHandlerTest {
 	}
 
 	private ResourceHandler createHandler(URI uri) {
+		return createHandler(uri, false);
+	}
+
+	private ResourceHandler createHandler(URI uri, boolean binaryModel) {
+		return createHandler(uri, binaryModel, getInstanceLocation(), true);
+	}
+
+	private ResourceHandler createHandler(URI uri, boolean binaryModel, Location instanceLocation,
+			boolean clearPersistedState) {
 		IEclipseContext appContext = E4Application.createDefaultContext();
 		IEclipseContext localContext = appContext.createChild();
-		localContext.set(E4Workbench.INSTANCE_LOCATION, getInstanceLocation());
+		localContext.set(E4Workbench.INSTANCE_LOCATION, instanceLocation);
 		localContext.set(IWorkbench.PERSIST_STATE, Boolean.TRUE);
-		localContext.set(IWorkbench.CLEAR_PERSISTED_STATE, Boolean.TRUE);
+		localContext.set(IWorkbench.CLEAR_PERSISTED_STATE, Boolean.valueOf(clearPersistedState));
+		localContext.set(E4Workbench.BINARY_MODEL, Boolean.valueOf(binaryModel));
 
 		localContext.set(E4Workbench.INITIAL_WORKBENCH_MODEL_URI, uri);
 
@@ -234,4 +247,144 @@ public class ResourceHandlerTest {
 		MApplication unchangedApplication = (MApplication) verifyResource.getContents().get(0);
 		assertEquals(2, unchangedApplication.getChildren().size());
 	}
+
+	@Test
+	public void testBinaryModelRoundTrip() throws IOException {
+		URI uri = URI.createPlatformPluginURI("org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+
+		ResourceHandler handler = createHandler(uri, true);
+		Resource resource = handler.loadMostRecentModel();
+		MApplication application = (MApplication) resource.getContents().get(0);
+		assertEquals(2, application.getChildren().size());
+
+		MWindow dynamicWindow = MBasicFactory.INSTANCE.createWindow();
+		dynamicWindow.getPersistedState().put(IWorkbench.PERSIST_STATE, "false");
+		application.getChildren().add(dynamicWindow);
+
+		Path output = Files.createTempFile(null, ".xmi");
+		output.toFile().deleteOnExit();
+		URI xmiUri = URI.createFileURI(output.toString());
+		URI binaryUri = xmiUri.trimFileExtension().appendFileExtension("bin");
+		new File(binaryUri.toFileString()).deleteOnExit();
+		resource.setURI(xmiUri);
+		handler.save();
+
+		// the binary model replaces the XMI model
+		assertFalse(Files.exists(output));
+		assertTrue(new File(binaryUri.toFileString()).exists());
+		// the model itself is not changed by saving
+		assertEquals(3, application.getChildren().size());
+
+		E4BinaryResource binaryResource = new E4BinaryResource(binaryUri);
+		binaryResource.load(null);
+		MApplication savedApplication = (MApplication) binaryResource.getContents().get(0);
+		assertEquals(2, savedApplication.getChildren().size());
+		assertEquals(application.getChildren().get(1).getElementId(),
+				savedApplication.getChildren().get(1).getElementId());
+		assertEquals(application.getCommands().size(), savedApplication.getCommands().size());
+		assertEquals(application.getHandlers().size(), savedApplication.getHandlers().size());
+		// references within the model point to the loaded elements
+		for (MHandler savedHandler : savedApplication.getHandlers()) {
+			MCommand command = savedHandler.getCommand();
+			assertTrue(command == null || savedApplication.getCommands().contains(command));
+		}
+	}
+
+	@Test
+	public void testLoadMostRecentModelChoosesNewerFormat() throws IOException {
+		Path instanceDir = Files.createTempDirectory(null);
+		Location location = createLocation(instanceDir);
+		File xmiFile = getSaveLocation(instanceDir, "workbench.xmi");
+		File binaryFile = getSaveLocation(instanceDir, "workbench.bin");
+		saveInBothFormats(location, binaryFile);
+
+		xmiFile.setLastModified(binaryFile.lastModified() + 10_000);
+		assertTrue(loadSavedApplication(location, false).getTags().contains("xmi"));
+
+		// the format to save in does not matter for loading
+		binaryFile.setLastModified(xmiFile.lastModified() + 10_000);
+		assertTrue(loadSavedApplication(location, false).getTags().contains("binary"));
+		assertTrue(loadSavedApplication(location, true).getTags().contains("binary"));
+	}
+
+	@Test
+	public void testLoadMostRecentModelFallsBackFromCorruptBinary() throws IOException {
+		Path instanceDir = Files.createTempDirectory(null);
+		Location location = createLocation(instanceDir);
+		File xmiFile = getSaveLocation(instanceDir, "workbench.xmi");
+		File binaryFile = getSaveLocation(instanceDir, "workbench.bin");
+		saveInBothFormats(location, binaryFile);
+
+		Files.write(binaryFile.toPath(), new byte[] { 1, 2, 3 });
+		binaryFile.setLastModified(xmiFile.lastModified() + 10_000);
+
+		MApplication savedApplication = loadSavedApplication(location, true);
+		assertTrue(savedApplication.getTags().contains("xmi"));
+		assertEquals(2, savedApplication.getChildren().size());
+	}
+
+	@Test
+	public void testSaveDeletesOtherFormat() throws IOException {
+		Path instanceDir = Files.createTempDirectory(null);
+		Location location = createLocation(instanceDir);
+		File xmiFile = getSaveLocation(instanceDir, "workbench.xmi");
+		File binaryFile = getSaveLocation(instanceDir, "workbench.bin");
+		saveInBothFormats(location, binaryFile);
+		assertTrue(xmiFile.exists());
+		assertTrue(binaryFile.exists());
+		xmiFile.setLastModified(binaryFile.lastModified() + 10_000);
+
+		ResourceHandler handler = createHandler(getBaseModelURI(), false, location, false);
+		handler.loadMostRecentModel();
+		handler.save();
+		assertTrue(xmiFile.exists());
+		assertFalse(binaryFile.exists());
+
+		handler = createHandler(getBaseModelURI(), true, location, false);
+		handler.loadMostRecentModel();
+		handler.save();
+		assertFalse(xmiFile.exists());
+		assertTrue(binaryFile.exists());
+
+		// the model saved in the binary format is restored
+		MApplication savedApplication = loadSavedApplication(location, true);
+		assertTrue(savedApplication.getTags().contains("xmi"));
+		assertEquals(2, savedApplication.getChildren().size());
+	}
+
+	/**
+	 * Saves the initial model tagged with "xmi" in the XMI format, and a copy of
+	 * it tagged with "binary" in the binary format.
+	 */
+	private void saveInBothFormats(Location location, File binaryFile) throws IOException {
+		ResourceHandler handler = createHandler(getBaseModelURI(), false, location, true);
+		Resource resource = handler.loadMostRecentModel();
+		MApplication application = (MApplication) resource.getContents().get(0);
+		application.getTags().add("xmi");
+		handler.save();
+
+		application.getTags().set(application.getTags().indexOf("xmi"), "binary");
+		new E4BinaryResource(URI.createFileURI(binaryFile.getAbsolutePath())).saveCopy(resource.getContents(), null);
+	}
+
+	private MApplication loadSavedApplication(Location location, boolean binaryModel) {
+		ResourceHandler handler = createHandler(getBaseModelURI(), binaryModel, location, false);
+		Resource resource = handler.loadMostRecentModel();
+		return (MApplication) resource.getContents().get(0);
+	}
+
+	private Location createLocation(Path instanceDir) throws IOException {
+		instanceDir.toFile().deleteOnExit();
+		return getInstanceLocation().createLocation(null, instanceDir.toUri().toURL(), false);
+	}
+
+	private static File getSaveLocation(Path instanceDir, String name) {
+		File file = instanceDir.resolve(".metadata/.plugins/org.eclipse.e4.workbench").resolve(name).toFile();
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static URI getBaseModelURI() {
+		return URI.createPlatformPluginURI("org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+	}
 }
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.application;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.internal.workbench.TopicSubscriptions;
+import org.eclipse.e4.ui.internal.workbench.swt.E4Application;
+import org.junit.Test;
+import org.osgi.service.event.EventHandler;
+
+public class TopicSubscriptionsTest {
+
+	private static final String TOPIC = "org/eclipse/e4/ui/model/application/ApplicationElement/elementId/SET";
+
+	@Test
+	public void testTopicPatterns() {
+		TopicSubscriptions subscriptions = new TopicSubscriptions();
+		assertFalse(subscriptions.hasSubscribers(TOPIC));
+
+		String[] exact = { TOPIC };
+		subscriptions.addTopics(exact);
+		assertTrue(subscriptions.hasSubscribers(TOPIC));
+		assertFalse(subscriptions.hasSubscribers(TOPIC + "X"));
+		subscriptions.removeTopics(exact);
+		assertFalse(subscriptions.hasSubscribers(TOPIC));
+
+		String[] prefix = { "org/eclipse/e4/ui/model/*" };
+		subscriptions.addTopics(prefix);
+		assertTrue(subscriptions.hasSubscribers(TOPIC));
+		assertFalse(subscriptions.hasSubscribers("org/eclipse/e4/ui/LifeCycle/bringToTop"));
+		subscriptions.removeTopics(prefix);
+		assertFalse(subscriptions.hasSubscribers(TOPIC));
+
+		String[] all = { "*" };
+		subscriptions.addTopics(all);
+		subscriptions.addTopics(all);
+		subscriptions.removeTopics(all);
+		assertTrue(subscriptions.hasSubscribers("org/eclipse/e4/ui/LifeCycle/bringToTop"));
+		subscriptions.removeTopics(all);
+		assertFalse(subscriptions.hasSubscribers("org/eclipse/e4/ui/LifeCycle/bringToTop"));
+	}
+
+	@Test
+	public void testDefaultTracksEventHandlers() {
+		String topic = TOPIC + "/unused";
+		TopicSubscriptions subscriptions = TopicSubscriptions.getDefault();
+		assertFalse(subscriptions.hasSubscribers(topic));
+
+		IEclipseContext context = E4Application.createDefaultContext();
+		try {
+			IEventBroker eventBroker = context.get(IEventBroker.class);
+			EventHandler handler = event -> {
+			};
+			eventBroker.subscribe(topic, handler);
+			assertTrue(subscriptions.hasSubscribers(topic));
+			eventBroker.unsubscribe(handler);
+			assertFalse(subscriptions.hasSubscribers(topic));
+		} finally {
+			context.dispose();
+		}
+	}
+}
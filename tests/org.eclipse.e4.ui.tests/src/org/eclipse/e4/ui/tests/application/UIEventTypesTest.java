@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2015 IBM Corporation and others.
+ * Copyright (c) 2012, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,10 +15,12 @@
 package org.eclipse.e4.ui.tests.application;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Map;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
@@ -28,6 +30,7 @@ import org.eclipse.emf.common.util.EList;
 import org.junit.Before;
 import org.junit.Test;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
 
 /**
  * Tests the translation of the EMF Notification.* types to UIEvents.EventType.*
@@ -199,4 +202,19 @@ public class UIEventTypesTest extends HeadlessApplicationElementTest {
 		assertEquals(null, event.getProperty(UIEvents.EventTags.NEW_VALUE));
 	}
 
+	@Test
+	public void testData() {
+		applicationElement.setElementId("aaa");
+		assertEquals(1, eventCount);
+		Map<?, ?> data = (Map<?, ?>) event.getProperty(IEventBroker.DATA);
+		assertNotNull(data);
+		assertEquals(applicationElement, data.get(UIEvents.EventTags.ELEMENT));
+		assertEquals(UIEvents.ApplicationElement.ELEMENTID, data.get(UIEvents.EventTags.ATTNAME));
+		assertEquals(UIEvents.EventTypes.SET, data.get(UIEvents.EventTags.TYPE));
+		assertEquals("aaa", data.get(UIEvents.EventTags.NEW_VALUE));
+		assertFalse(data.containsKey(UIEvents.EventTags.OLD_VALUE));
+		assertFalse(data.containsKey(EventConstants.EVENT_TOPIC));
+		assertEquals(4, data.size());
+	}
+
 }
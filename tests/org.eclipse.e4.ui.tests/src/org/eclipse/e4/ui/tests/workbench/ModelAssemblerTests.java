@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2021 EclipseSource Muenchen GmbH and others.
+ * Copyright (c) 2016, 2022 EclipseSource Muenchen GmbH and others.
  *
  *
  * This program and the accompanying materials
@@ -17,10 +17,17 @@
 package org.eclipse.e4.ui.tests.workbench;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
@@ -29,6 +36,7 @@ import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import org.eclipse.core.internal.registry.ExtensionRegistry;
 import org.eclipse.core.runtime.ContributorFactorySimple;
+import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IContributor;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
@@ -37,6 +45,7 @@ import org.eclipse.core.runtime.RegistryFactory;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.ui.di.UISynchronize;
+import org.eclipse.e4.ui.internal.workbench.E4Workbench;
 import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
 import org.eclipse.e4.ui.internal.workbench.E4XMIResourceFactory;
 import org.eclipse.e4.ui.internal.workbench.ExtensionsSort;
@@ -49,6 +58,7 @@ import org.eclipse.e4.ui.model.application.ui.MUIElement;
 import org.eclipse.e4.ui.model.application.ui.advanced.MArea;
 import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
 import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
 import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.fragment.MFragmentFactory;
@@ -62,6 +72,7 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.equinox.log.ExtendedLogReaderService;
 import org.eclipse.equinox.log.LogFilter;
 import org.eclipse.swt.widgets.Display;
@@ -69,6 +80,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogListener;
 
@@ -86,6 +100,8 @@ public class ModelAssemblerTests {
 	private EModelService modelService;
 
 	private static final int COUNTDOWN_TIMEOUT = 10_000;
+	/** Enough fragments to be loaded by several threads */
+	private static final int FRAGMENT_COUNT = 64;
 	private ArrayDeque<String> logMessages;
 	private ModelAssemblerTestLogListener logListener;
 
@@ -394,6 +410,140 @@ public class ModelAssemblerTests {
 		assertEquals(0, logMessages.size());
 	}
 
+	/**
+	 * Tests that the fragments are not merged again into a restored model that
+	 * already contains the fragments of the same bundles.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCachedFragments() throws Exception {
+		appContext.set(E4Workbench.CACHE_MODEL_FRAGMENTS, Boolean.TRUE);
+		MTrimmedWindow trimmedWindow = modelService.createModelElement(MTrimmedWindow.class);
+		trimmedWindow.setElementId("testModelProcessingOrder-trimmedWindow");
+		application.getChildren().add(trimmedWindow);
+		MPart part = modelService.createModelElement(MPart.class);
+		part.setElementId("testModelProcessingOrder-part");
+		trimmedWindow.getChildren().add(part);
+		MArea area = modelService.createModelElement(MArea.class);
+		area.setElementId("testModelProcessingOrder-area");
+		trimmedWindow.getChildren().add(area);
+
+		IContributor contributor = ContributorFactorySimple.createContributor(BUNDLE_SYMBOLIC_NAME);
+		IExtensionRegistry registry = createTestExtensionRegistry();
+		assembler.setExtensionRegistry(registry);
+		String dataFilePath = "org.eclipse.e4.ui.tests/data/ModelAssembler/modelProcessingOrder.xml";
+		registry.addContribution(getContentsAsInputStream(dataFilePath), contributor, false, null, null, null);
+
+		assembler.processModel(false);
+		MUIElement placeholder = modelService.find("testModelProcessingOrder-placeholder", area);
+		assertNotNull(placeholder);
+
+		// the fragment was merged before, the removal is kept
+		area.getChildren().remove(placeholder);
+		assembler.processModel(false);
+		assertNull(modelService.find("testModelProcessingOrder-placeholder", area));
+	}
+
+	/**
+	 * Tests that many fragments, which are loaded in parallel, are merged in the
+	 * order of their contributions.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testManyFragmentsMergeOrder() throws Exception {
+		MTrimmedWindow trimmedWindow = modelService.createModelElement(MTrimmedWindow.class);
+		application.getChildren().add(trimmedWindow);
+		MPartStack stack = modelService.createModelElement(MPartStack.class);
+		stack.setElementId("testManyFragments-stack");
+		trimmedWindow.getChildren().add(stack);
+
+		// the fragments are read from temporary files instead of the test bundle
+		Path directory = Files.createTempDirectory(null);
+		directory.toFile().deleteOnExit();
+		StringBuilder contribution = new StringBuilder();
+		contribution.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<plugin>\n");
+		contribution.append("<extension id=\"manyFragments\" point=\"" + EXTENSION_POINT_ID + "\">\n");
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < FRAGMENT_COUNT; i++) {
+			String path = "data/ModelAssembler/manyFragments/fragment" + i + ".e4xmi";
+			Path file = directory.resolve("fragment" + i + ".e4xmi");
+			Files.write(file, createPartFragment("testManyFragments-stack", "testManyFragments-part" + i, i)
+					.getBytes(StandardCharsets.UTF_8));
+			file.toFile().deleteOnExit();
+			resourceSet.getURIConverter().getURIMap().put(
+					URI.createPlatformPluginURI(BUNDLE_SYMBOLIC_NAME + '/' + path, false),
+					URI.createFileURI(file.toString()));
+			contribution.append("<fragment uri=\"" + path + "\"/>\n");
+			expected.add("testManyFragments-part" + i);
+		}
+		contribution.append("</extension>\n</plugin>\n");
+
+		IContributor contributor = ContributorFactorySimple.createContributor(BUNDLE_SYMBOLIC_NAME);
+		IExtensionRegistry registry = createTestExtensionRegistry();
+		assembler.setExtensionRegistry(registry);
+		registry.addContribution(new ByteArrayInputStream(contribution.toString().getBytes(StandardCharsets.UTF_8)),
+				contributor, false, null, null, null);
+
+		assembler.processModel(true);
+
+		List<String> merged = new ArrayList<>();
+		for (MUIElement element : stack.getChildren()) {
+			merged.add(element.getElementId());
+		}
+		assertEquals(expected, merged);
+	}
+
+	/**
+	 * Tests that stopping a bundle removes the elements its fragment contributed
+	 * to a restored model, into which the fragments were not merged again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCachedFragmentsRemovedWithBundle() throws Exception {
+		appContext.set(E4Workbench.CACHE_MODEL_FRAGMENTS, Boolean.TRUE);
+		MTrimmedWindow trimmedWindow = modelService.createModelElement(MTrimmedWindow.class);
+		application.getChildren().add(trimmedWindow);
+		MPartStack stack = modelService.createModelElement(MPartStack.class);
+		stack.setElementId("testCachedFragmentsRemoval-stack");
+		trimmedWindow.getChildren().add(stack);
+		assembler.setExtensionRegistry(createTestExtensionRegistry());
+
+		BundleContext context = FrameworkUtil.getBundle(getClass()).getBundleContext();
+		Bundle bundle = context.installBundle(FileLocator.toFileURL(new URL("platform:/plugin/" + BUNDLE_SYMBOLIC_NAME
+				+ "/data/ModelAssembler/tests.modelassembler.fragment/")).toString());
+		try {
+			bundle.start(Bundle.START_TRANSIENT);
+			processEvents();
+			assembler.processModel(false);
+			processEvents();
+			assertEquals(1, modelService.findElements(stack, "testCachedFragmentsRemoval-part", MPart.class).size());
+
+			// start again with a copy of the saved model, which contains the fragment
+			MApplication restored = (MApplication) EcoreUtil.copy((EObject) application);
+			E4XMIResource restoredResource = (E4XMIResource) factory.createResource(URI.createURI("restoreduri"));
+			new ResourceSetImpl().getResources().add(restoredResource);
+			restoredResource.getContents().add((EObject) restored);
+			restored.setContext(appContext);
+			appContext.set(MApplication.class, restored);
+			assembler.init(restored, appContext, new DisplayUISynchronize(Display.getDefault()));
+			assembler.processModel(false);
+			processEvents();
+			MUIElement restoredStack = modelService.find("testCachedFragmentsRemoval-stack", restored);
+			assertEquals(1,
+					modelService.findElements(restoredStack, "testCachedFragmentsRemoval-part", MPart.class).size());
+
+			bundle.stop();
+			processEvents();
+			assertEquals(0,
+					modelService.findElements(restoredStack, "testCachedFragmentsRemoval-part", MPart.class).size());
+		} finally {
+			bundle.uninstall();
+		}
+	}
+
 	/**
 	 * Tests that pre-processors running from a non-persisted state that are
 	 * marked as "always" are executed.
@@ -596,6 +746,28 @@ public class ModelAssemblerTests {
 		return registry;
 	}
 
+	private static String createPartFragment(String parentId, String partId, int index) {
+		return "<?xml version=\"1.0\" encoding=\"ASCII\"?>\n"
+				+ "<fragment:ModelFragments xmi:version=\"2.0\" xmlns:xmi=\"http://www.omg.org/XMI\""
+				+ " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+				+ " xmlns:basic=\"http://www.eclipse.org/ui/2010/UIModel/application/ui/basic\""
+				+ " xmlns:fragment=\"http://www.eclipse.org/ui/2010/UIModel/fragment\" xmi:id=\"_fragments" + index
+				+ "\">\n" //
+				+ "  <fragments xsi:type=\"fragment:StringModelFragment\" xmi:id=\"_fragment" + index
+				+ "\" featurename=\"children\" parentElementId=\"" + parentId + "\">\n" //
+				+ "    <elements xsi:type=\"basic:Part\" xmi:id=\"_part" + index + "\" elementId=\"" + partId
+				+ "\"/>\n" //
+				+ "  </fragments>\n" //
+				+ "</fragment:ModelFragments>\n";
+	}
+
+	private void processEvents() {
+		Display display = Display.getDefault();
+		while (display.readAndDispatch()) {
+			// process the asynchronous model changes
+		}
+	}
+
 	private InputStream getContentsAsInputStream(String filePath) throws IOException {
 		URI uri = URI.createPlatformPluginURI(filePath, true);
 		return URIConverter.INSTANCE.createInputStream(uri);
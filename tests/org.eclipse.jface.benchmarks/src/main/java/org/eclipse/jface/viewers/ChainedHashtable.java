@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+/**
+ * The former implementation of {@link CustomHashtable}, chaining an entry
+ * object per key/value pair in the slots of a table whose length is not a
+ * power of two. Only kept as the baseline of {@link CustomHashtableBenchmark}.
+ */
+final class ChainedHashtable {
+
+	private static class HashMapEntry {
+		Object key, value;
+
+		HashMapEntry next;
+
+		HashMapEntry(Object theKey, Object theValue) {
+			key = theKey;
+			value = theValue;
+		}
+	}
+
+	private int elementCount;
+
+	private HashMapEntry[] elementData;
+
+	private final float loadFactor = 0.75f;
+
+	private int threshold;
+
+	private final IElementComparer comparer;
+
+	ChainedHashtable(int capacity, IElementComparer comparer) {
+		elementData = new HashMapEntry[capacity == 0 ? 1 : capacity];
+		computeMaxSize();
+		this.comparer = comparer;
+	}
+
+	private void computeMaxSize() {
+		threshold = (int) (elementData.length * loadFactor);
+	}
+
+	Object get(Object key) {
+		int index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
+		HashMapEntry entry = elementData[index];
+		while (entry != null) {
+			if (keyEquals(key, entry.key)) {
+				return entry.value;
+			}
+			entry = entry.next;
+		}
+		return null;
+	}
+
+	private int hashCode(Object key) {
+		if (comparer == null) {
+			return key.hashCode();
+		}
+		return comparer.hashCode(key);
+	}
+
+	private boolean keyEquals(Object a, Object b) {
+		if (comparer == null) {
+			return a.equals(b);
+		}
+		return comparer.equals(a, b);
+	}
+
+	Object put(Object key, Object value) {
+		int index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
+		HashMapEntry entry = elementData[index];
+		while (entry != null && !keyEquals(key, entry.key)) {
+			entry = entry.next;
+		}
+		if (entry == null) {
+			if (++elementCount > threshold) {
+				rehash();
+				index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
+			}
+			entry = new HashMapEntry(key, value);
+			entry.next = elementData[index];
+			elementData[index] = entry;
+			return null;
+		}
+		Object result = entry.value;
+		entry.key = key;
+		entry.value = value;
+		return result;
+	}
+
+	private void rehash() {
+		int length = elementData.length << 1;
+		HashMapEntry[] newData = new HashMapEntry[length];
+		for (int i = elementData.length; --i >= 0;) {
+			HashMapEntry entry = elementData[i];
+			while (entry != null) {
+				int index = (hashCode(entry.key) & 0x7FFFFFFF) % length;
+				HashMapEntry next = entry.next;
+				entry.next = newData[index];
+				newData[index] = entry;
+				entry = next;
+			}
+		}
+		elementData = newData;
+		computeMaxSize();
+	}
+
+	Object remove(Object key) {
+		HashMapEntry last = null;
+		int index = (hashCode(key) & 0x7FFFFFFF) % elementData.length;
+		HashMapEntry entry = elementData[index];
+		while (entry != null && !keyEquals(key, entry.key)) {
+			last = entry;
+			entry = entry.next;
+		}
+		if (entry != null) {
+			if (last == null) {
+				elementData[index] = entry.next;
+			} else {
+				last.next = entry.next;
+			}
+			elementCount--;
+			return entry.value;
+		}
+		return null;
+	}
+
+	int size() {
+		return elementCount;
+	}
+}
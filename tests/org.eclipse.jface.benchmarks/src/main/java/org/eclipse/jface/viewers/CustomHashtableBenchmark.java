@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link CustomHashtable}, the element map of the structured viewers,
+ * with its former implementation {@link ChainedHashtable} when putting,
+ * getting and removing all elements of a large viewer. The tables are filled
+ * again before each invocation of the remove benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CustomHashtableBenchmark {
+
+	/**
+	 * An element comparer as set by viewers whose elements do not implement
+	 * <code>equals</code> and <code>hashCode</code> the way the viewer needs.
+	 */
+	private static final IElementComparer COMPARER = new IElementComparer() {
+		@Override
+		public boolean equals(Object a, Object b) {
+			return a.equals(b);
+		}
+
+		@Override
+		public int hashCode(Object element) {
+			return element.hashCode();
+		}
+	};
+
+	@Param({ "1000000" })
+	public int size;
+
+	@Param({ "false", "true" })
+	public boolean useComparer;
+
+	private String[] keys;
+
+	private IElementComparer comparer;
+
+	private CustomHashtable customHashtable;
+
+	private ChainedHashtable chainedHashtable;
+
+	@Setup
+	public void setUp() {
+		keys = new String[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = "element" + i;
+		}
+		comparer = useComparer ? COMPARER : null;
+		customHashtable = fillCustomHashtable();
+		chainedHashtable = fillChainedHashtable();
+	}
+
+	@Setup(Level.Invocation)
+	public void fill() {
+		if (customHashtable.size() == 0) {
+			customHashtable = fillCustomHashtable();
+		}
+		if (chainedHashtable.size() == 0) {
+			chainedHashtable = fillChainedHashtable();
+		}
+	}
+
+	private CustomHashtable fillCustomHashtable() {
+		CustomHashtable table = new CustomHashtable(comparer);
+		for (String key : keys) {
+			table.put(key, key);
+		}
+		return table;
+	}
+
+	private ChainedHashtable fillChainedHashtable() {
+		ChainedHashtable table = new ChainedHashtable(CustomHashtable.DEFAULT_CAPACITY, comparer);
+		for (String key : keys) {
+			table.put(key, key);
+		}
+		return table;
+	}
+
+	@Benchmark
+	public CustomHashtable putCustomHashtable() {
+		return fillCustomHashtable();
+	}
+
+	@Benchmark
+	public ChainedHashtable putChainedHashtable() {
+		return fillChainedHashtable();
+	}
+
+	@Benchmark
+	public void getCustomHashtable(Blackhole blackhole) {
+		for (String key : keys) {
+			blackhole.consume(customHashtable.get(key));
+		}
+	}
+
+	@Benchmark
+	public void getChainedHashtable(Blackhole blackhole) {
+		for (String key : keys) {
+			blackhole.consume(chainedHashtable.get(key));
+		}
+	}
+
+	@Benchmark
+	public void removeCustomHashtable(Blackhole blackhole) {
+		for (String key : keys) {
+			blackhole.consume(customHashtable.remove(key));
+		}
+	}
+
+	@Benchmark
+	public void removeChainedHashtable(Blackhole blackhole) {
+		for (String key : keys) {
+			blackhole.consume(chainedHashtable.remove(key));
+		}
+	}
+}
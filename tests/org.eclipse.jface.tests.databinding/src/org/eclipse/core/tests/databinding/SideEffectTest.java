@@ -123,6 +123,23 @@ public class SideEffectTest extends AbstractDefaultRealmTestCase {
 		assertEquals(4, sideEffectInvocations);
 	}
 
+	@Test
+	public void testWritingDependencyWhileRunningDoesntRerunSideEffect() throws Exception {
+		WritableValue<Integer> counter = new WritableValue<>(0, null);
+		ISideEffect incrementer = ISideEffect.create(() -> {
+			sideEffectInvocations++;
+			counter.setValue(counter.getValue() + 1);
+		});
+		runAsync();
+		assertEquals(1, sideEffectInvocations);
+
+		counter.setValue(10);
+		runAsync();
+		assertEquals(2, sideEffectInvocations);
+		assertEquals(Integer.valueOf(11), counter.getValue());
+		incrementer.dispose();
+	}
+
 	@Test
 	public void testChangingMultipleDependenciesOnlyRunsTheSideEffectOnce() throws Exception {
 		sideEffect.resume();
@@ -22,6 +22,7 @@ import static org.junit.Assert.fail;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.list.ListDiff;
@@ -287,6 +288,51 @@ public class Diffs_ListDiffTests {
 				Arrays.asList(new Object[] { "c", "a", "b" }));
 	}
 
+	@Test
+	public void testComputeListDiff_LargeLists() {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			List<Object> oldList = new ArrayList<>();
+			for (int j = 50 + random.nextInt(200); j > 0; j--) {
+				oldList.add(Integer.valueOf(random.nextInt(50)));
+			}
+			List<Object> newList = new ArrayList<>(oldList);
+			for (int j = random.nextInt(20); j > 0; j--) {
+				int index = random.nextInt(newList.size() + 1);
+				switch (random.nextInt(3)) {
+				case 0:
+					newList.add(index, Integer.valueOf(random.nextInt(50)));
+					break;
+				case 1:
+					if (index < newList.size()) {
+						newList.remove(index);
+					}
+					break;
+				default:
+					if (index < newList.size()) {
+						newList.add(random.nextInt(newList.size()), newList.remove(index));
+					}
+					break;
+				}
+			}
+			checkComputedListDiff(oldList, newList);
+		}
+	}
+
+	@Test
+	public void testComputeListDiff_LargeListsMove() {
+		List<Object> oldList = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			oldList.add(Integer.valueOf(i));
+		}
+		List<Object> newList = new ArrayList<>(oldList);
+		newList.add(10, newList.remove(900));
+
+		ListDiff<Object> diff = Diffs.computeListDiff(oldList, newList);
+		assertEquals(2, diff.getDifferences().length);
+		checkComputedListDiff(oldList, newList);
+	}
+
 	private static void checkComputedListDiff(List<Object> oldList, List<Object> newList) {
 		ListDiff<?> diff = Diffs.computeListDiff(oldList, newList);
 
@@ -15,6 +15,7 @@
 
 package org.eclipse.core.tests.databinding.observable;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -47,6 +48,29 @@ public class ObservableTrackerTest extends AbstractDefaultRealmTestCase {
 		assertSame(observable, result[0]);
 	}
 
+	@Test
+	public void testRunAndMonitor_PreviousDependencies() throws Exception {
+		final IObservable[] observables = new IObservable[20];
+		for (int i = 0; i < observables.length; i++) {
+			observables[i] = new ObservableStub();
+		}
+		Runnable runnable = () -> {
+			for (IObservable observable : observables) {
+				ObservableTracker.getterCalled(observable);
+				ObservableTracker.getterCalled(observable);
+			}
+		};
+		IObservable[] result = ObservableTracker.runAndMonitor(runnable, null, null);
+		assertArrayEquals(observables, result);
+
+		assertSame(result, ObservableTracker.runAndMonitor(runnable, null, null, result));
+
+		IObservable[] changed = ObservableTracker.runAndMonitor(
+				() -> ObservableTracker.getterCalled(observables[0]), null, null, result);
+		assertEquals(1, changed.length);
+		assertSame(observables[0], changed[0]);
+	}
+
 	@Test
 	public void testGetterCalled_ObservableDisposed() throws Exception {
 		try {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2018 Brad Reynolds and others.
+ * Copyright (c) 2006, 2022 Brad Reynolds and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,8 +15,22 @@
 package org.eclipse.core.tests.databinding.observable;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.map.WritableMap;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.WritableValue;
 import org.eclipse.jface.databinding.conformance.util.CurrentRealm;
 import org.eclipse.jface.databinding.conformance.util.RealmTester;
 import org.junit.Test;
@@ -35,4 +49,135 @@ public class RealmTest {
 
 		assertEquals("old realm should have been restored", oldRealm, Realm.getDefault());
 	}
+
+	@Test
+	public void testRunBatchedMergesListChanges() {
+		Realm realm = new CurrentRealm(true);
+		WritableList<String> list = new WritableList<>(realm, new ArrayList<>(Arrays.asList("a", "b")), null);
+		List<ListChangeEvent<? extends String>> events = new ArrayList<>();
+		int[] changes = new int[1];
+		list.addListChangeListener(events::add);
+		list.addChangeListener(event -> changes[0]++);
+
+		realm.runBatched(() -> {
+			list.add("c");
+			list.remove("a");
+			list.add(0, "d");
+			realm.runBatched(() -> list.set(1, "e"));
+			assertEquals(0, events.size());
+		});
+
+		assertEquals(1, events.size());
+		assertEquals(1, changes[0]);
+		List<String> oldList = new ArrayList<>(Arrays.asList("a", "b"));
+		events.get(0).diff.applyTo(oldList);
+		assertEquals(list, oldList);
+	}
+
+	@Test
+	public void testRunBatchedDropsChangesWhichCancelOut() {
+		Realm realm = new CurrentRealm(true);
+		WritableSet<String> set = new WritableSet<>(realm, Collections.singleton("a"), null);
+		int[] events = new int[1];
+		set.addChangeListener(event -> events[0]++);
+		set.addSetChangeListener(event -> events[0]++);
+
+		realm.runBatched(() -> {
+			set.add("b");
+			set.remove("a");
+			set.remove("b");
+			set.add("a");
+		});
+
+		assertEquals(0, events[0]);
+	}
+
+	@Test
+	public void testRunBatchedMergesMapChanges() {
+		Realm realm = new CurrentRealm(true);
+		WritableMap<String, String> map = new WritableMap<>(realm);
+		map.put("changed", "old");
+		map.put("removed", null);
+		List<MapChangeEvent<? extends String, ? extends String>> events = new ArrayList<>();
+		map.addMapChangeListener(events::add);
+
+		realm.runBatched(() -> {
+			map.put("added", "value");
+			map.put("changed", "new");
+			map.put("changed", "newer");
+			map.remove("removed");
+			map.put("transient", "value");
+			map.remove("transient");
+		});
+
+		assertEquals(1, events.size());
+		assertEquals(Collections.singleton("added"), events.get(0).diff.getAddedKeys());
+		assertEquals(Collections.singleton("removed"), events.get(0).diff.getRemovedKeys());
+		assertEquals(Collections.singleton("changed"), events.get(0).diff.getChangedKeys());
+		assertEquals("old", events.get(0).diff.getOldValue("changed"));
+		assertEquals("newer", events.get(0).diff.getNewValue("changed"));
+	}
+
+	@Test
+	public void testRunBatchedRecomputesDependentsOnce() {
+		Realm realm = new CurrentRealm(true);
+		WritableList<Integer> list = new WritableList<>(realm);
+		WritableValue<Integer> offset = new WritableValue<>(realm, 0, Integer.class);
+		int[] computations = new int[1];
+		ComputedValue<Integer> sum = new ComputedValue<Integer>(realm) {
+			@Override
+			protected Integer calculate() {
+				computations[0]++;
+				int result = offset.getValue();
+				for (Integer element : list) {
+					result += element;
+				}
+				return result;
+			}
+		};
+		List<Integer> sums = new ArrayList<>();
+		sum.addValueChangeListener(event -> sums.add(event.diff.getNewValue()));
+		computations[0] = 0;
+
+		realm.runBatched(() -> {
+			for (int i = 1; i <= 100; i++) {
+				list.add(i);
+			}
+			offset.setValue(1);
+		});
+
+		assertEquals(1, computations[0]);
+		assertEquals(Collections.singletonList(5051), sums);
+	}
+
+	@Test
+	public void testRunBatchedFiresRemainingEventsWhenListenerThrows() {
+		Realm realm = new CurrentRealm(true);
+		WritableList<String> failing = new WritableList<>(realm);
+		WritableList<String> list = new WritableList<>(realm);
+		WritableValue<String> dependent = new WritableValue<>(realm, null, String.class);
+		IllegalStateException failure = new IllegalStateException();
+		failing.addListChangeListener(event -> {
+			throw failure;
+		});
+		List<ListChangeEvent<? extends String>> events = new ArrayList<>();
+		list.addListChangeListener(events::add);
+		// fired in the next round
+		list.addListChangeListener(event -> dependent.setValue("changed"));
+		List<String> values = new ArrayList<>();
+		dependent.addValueChangeListener(event -> values.add(event.diff.getNewValue()));
+
+		try {
+			realm.runBatched(() -> {
+				failing.add("a");
+				list.add("b");
+			});
+			fail("The exception of the listener should be rethrown");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		}
+
+		assertEquals(1, events.size());
+		assertEquals(Collections.singletonList("changed"), values);
+	}
 }
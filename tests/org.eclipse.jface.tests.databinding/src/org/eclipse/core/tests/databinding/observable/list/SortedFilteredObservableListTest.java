@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.tests.databinding.observable.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.list.SortedFilteredObservableList;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.jface.databinding.conformance.util.ListChangeEventTracker;
+import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SortedFilteredObservableListTest extends AbstractDefaultRealmTestCase {
+	private WritableList<Integer> source;
+	private SortedFilteredObservableList<Integer> list;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		source = new WritableList<>(new ArrayList<>(Arrays.asList(5, 2, 8, 3, 6)), Integer.class);
+		list = new SortedFilteredObservableList<>(source, e -> e % 2 == 0, Comparator.naturalOrder());
+	}
+
+	@Test
+	public void testInitialContents() {
+		assertEquals(Arrays.asList(2, 6, 8), list);
+		assertEquals(Integer.class, list.getElementType());
+	}
+
+	@Test
+	public void testAdd_FiresSingleEntry() {
+		ListChangeEventTracker<Integer> tracker = ListChangeEventTracker.observe(list);
+		source.add(0, 4);
+
+		assertEquals(Arrays.asList(2, 4, 6, 8), list);
+		assertEquals(1, tracker.count);
+		ListDiffEntry<? extends Integer>[] entries = tracker.event.diff.getDifferences();
+		assertEquals(1, entries.length);
+		assertTrue(entries[0].isAddition());
+		assertEquals(1, entries[0].getPosition());
+	}
+
+	@Test
+	public void testAddFilteredElement_NoEvent() {
+		ListChangeEventTracker<Integer> tracker = ListChangeEventTracker.observe(list);
+		source.add(7);
+
+		assertEquals(Arrays.asList(2, 6, 8), list);
+		assertEquals(0, tracker.count);
+	}
+
+	@Test
+	public void testRemove() {
+		ListChangeEventTracker<Integer> tracker = ListChangeEventTracker.observe(list);
+		source.remove(Integer.valueOf(6));
+
+		assertEquals(Arrays.asList(2, 8), list);
+		ListDiffEntry<? extends Integer>[] entries = tracker.event.diff.getDifferences();
+		assertEquals(1, entries.length);
+		assertFalse(entries[0].isAddition());
+		assertEquals(1, entries[0].getPosition());
+	}
+
+	@Test
+	public void testMoveInSource_NoEvent() {
+		ListChangeEventTracker<Integer> tracker = ListChangeEventTracker.observe(list);
+		source.move(0, 4);
+
+		assertEquals(Arrays.asList(2, 6, 8), list);
+		assertEquals(0, tracker.count);
+	}
+
+	@Test
+	public void testEqualElementsKeepSourceOrder() {
+		String[] elements = { "b1", "a1", "b2", "a2" };
+		WritableList<String> strings = new WritableList<>(new ArrayList<>(Arrays.asList(elements)), String.class);
+		SortedFilteredObservableList<String> sorted = new SortedFilteredObservableList<>(strings,
+				Comparator.comparing(s -> s.charAt(0)));
+		assertEquals(Arrays.asList("a1", "a2", "b1", "b2"), sorted);
+
+		strings.move(3, 0);
+		assertEquals(Arrays.asList("a2", "a1", "b1", "b2"), sorted);
+	}
+
+	@Test
+	public void testRandomChanges_DiffsMatchContents() {
+		Random random = new Random(42);
+		List<Integer> copy = new ArrayList<>(list);
+		list.addListChangeListener(event -> event.diff.applyTo(copy));
+
+		for (int i = 0; i < 500; i++) {
+			int size = source.size();
+			switch (random.nextInt(4)) {
+			case 0:
+				source.add(random.nextInt(size + 1), random.nextInt(50));
+				break;
+			case 1:
+				if (size > 0) {
+					source.remove(random.nextInt(size));
+				}
+				break;
+			case 2:
+				if (size > 0) {
+					source.set(random.nextInt(size), random.nextInt(50));
+				}
+				break;
+			default:
+				if (size > 0) {
+					source.move(random.nextInt(size), random.nextInt(size));
+				}
+				break;
+			}
+
+			List<Integer> expected = new ArrayList<>();
+			for (Integer element : source) {
+				if (element % 2 == 0) {
+					expected.add(element);
+				}
+			}
+			expected.sort(null);
+			assertEquals(expected, list);
+			assertEquals(expected, copy);
+		}
+	}
+
+	@Test
+	public void testIsStale_FollowsSource() {
+		assertFalse(list.isStale());
+		source.setStale(true);
+		assertTrue(list.isStale());
+	}
+}
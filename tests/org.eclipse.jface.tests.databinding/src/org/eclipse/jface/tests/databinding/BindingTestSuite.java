@@ -60,6 +60,7 @@ import org.eclipse.core.tests.databinding.observable.list.ListDiffTest;
 import org.eclipse.core.tests.databinding.observable.list.ListDiffVisitorTest;
 import org.eclipse.core.tests.databinding.observable.list.MultiListTest;
 import org.eclipse.core.tests.databinding.observable.list.ObservableListTest;
+import org.eclipse.core.tests.databinding.observable.list.SortedFilteredObservableListTest;
 import org.eclipse.core.tests.databinding.observable.list.WritableListTest;
 import org.eclipse.core.tests.databinding.observable.map.AbstractObservableMapTest;
 import org.eclipse.core.tests.databinding.observable.map.BidiObservableMapTest;
@@ -269,7 +270,8 @@ import org.junit.runners.Suite.SuiteClasses;
 		SelectionProviderMultiSelectionObservableListTest.class,
 		SelectionProviderSingleSelectionObservableValueTest.class, SetDetailValueObservableMapTest.class,
 		SetOnlyJavaBeanTest.class, SetSimpleValueObservableMapTest.class, ShellObservableValueTest.class,
-		SideEffectTest.class, SpinnerObservableValueMaxTest.class, SpinnerObservableValueMinTest.class,
+		SideEffectTest.class, SortedFilteredObservableListTest.class, SpinnerObservableValueMaxTest.class,
+		SpinnerObservableValueMinTest.class,
 		SpinnerObservableValueSelectionTest.class, SpinnerObservableValueTest.class, StatusToStringConverterTest.class,
 		StringToBooleanConverterTest.class, StringToByteConverterTest.class, StringToByteValidatorTest.class,
 		StringToCharacterConverterTest.class, StringToCharacterValidatorTest.class, StringToDoubleValidatorTest.class,
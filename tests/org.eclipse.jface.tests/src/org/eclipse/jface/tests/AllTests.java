@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2019 SAP SE and others.
+ * Copyright (c) 2018, 2022 SAP SE and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v2.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import org.eclipse.jface.tests.labelProviders.DecoratingLabelProviderTests;
 import org.eclipse.jface.tests.layout.AllLayoutTests;
 import org.eclipse.jface.tests.preferences.AllPrefsTests;
 import org.eclipse.jface.tests.resources.AllResourcesTests;
+import org.eclipse.jface.tests.util.AllUtilTests;
 import org.eclipse.jface.tests.viewers.AllViewersTests;
 import org.eclipse.jface.tests.widgets.AllWidgetTests;
 import org.eclipse.jface.tests.window.AllWindowTests;
@@ -29,8 +30,9 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({ AllActionTests.class, AllDialogTests.class, AllImagesTests.class, AllLabelProviderTests.class,
-		AllLayoutTests.class, AllPrefsTests.class, AllResourcesTests.class, AllViewersTests.class, AllWidgetTests.class,
-		AllWindowTests.class, DecoratingLabelProviderTests.class, FieldAssistTestSuite.class, WizardTestSuite.class })
+		AllLayoutTests.class, AllPrefsTests.class, AllResourcesTests.class, AllUtilTests.class, AllViewersTests.class,
+		AllWidgetTests.class, AllWindowTests.class, DecoratingLabelProviderTests.class, FieldAssistTestSuite.class,
+		WizardTestSuite.class })
 public class AllTests {
 
 }
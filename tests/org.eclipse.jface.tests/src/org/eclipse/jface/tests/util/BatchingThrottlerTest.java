@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.jface.util.BatchingThrottler;
+import org.eclipse.swt.widgets.Display;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchingThrottlerTest {
+
+	private static final int ITEMS = 1000;
+
+	private Display display;
+
+	private final List<Set<Integer>> batches = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		display = Display.getDefault();
+	}
+
+	@Test
+	public void testItemsAreBatched() {
+		BatchingThrottler<Integer> throttler = new BatchingThrottler<>(display, Duration.ofMillis(50), batches::add);
+		List<Integer> submitted = new ArrayList<>();
+		for (int i = 0; i < ITEMS; i++) {
+			throttler.submit(Integer.valueOf(i));
+			submitted.add(Integer.valueOf(i));
+		}
+		assertTrue("Throttler should have items pending", throttler.isPending());
+		spinUntil(() -> !throttler.isPending());
+
+		// the first item is delivered right away, the others wait for the delay
+		assertTrue("Items should be delivered in batches, got " + batches.size(), batches.size() <= 2);
+		assertEquals(submitted, delivered());
+	}
+
+	@Test
+	public void testDuplicatesAreDeliveredOnce() {
+		BatchingThrottler<Integer> throttler = new BatchingThrottler<>(display, Duration.ofMillis(50), batches::add);
+		throttler.submit(Integer.valueOf(0));
+		throttler.submitAll(Arrays.asList(Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(1)));
+		throttler.submit(Integer.valueOf(2));
+		spinUntil(() -> !throttler.isPending());
+
+		assertEquals(Arrays.asList(Integer.valueOf(0), Integer.valueOf(1), Integer.valueOf(2)), delivered());
+	}
+
+	@Test
+	public void testNoItemIsDropped() throws InterruptedException {
+		int threadCount = 4;
+		List<Integer> resubmitted = new ArrayList<>();
+		AtomicReference<BatchingThrottler<Integer>> throttler = new AtomicReference<>();
+		throttler.set(new BatchingThrottler<>(display, Duration.ofMillis(10), batch -> {
+			batches.add(batch);
+			// items submitted while the consumer runs go into the next batch
+			if (resubmitted.isEmpty()) {
+				Integer item = Integer.valueOf(threadCount * ITEMS);
+				resubmitted.add(item);
+				throttler.get().submit(item);
+			}
+		}));
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			int first = t * ITEMS;
+			threads[t] = new Thread(() -> {
+				for (int i = first; i < first + ITEMS; i++) {
+					throttler.get().submit(Integer.valueOf(i));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		spinUntil(() -> !throttler.get().isPending());
+
+		List<Integer> delivered = delivered();
+		assertEquals("Items were dropped or delivered twice", threadCount * ITEMS + 1, delivered.size());
+		assertEquals(threadCount * ITEMS + 1, new HashSet<>(delivered).size());
+		assertTrue("Items should be delivered in batches, got " + batches.size(),
+				batches.size() < threadCount * ITEMS);
+		assertFalse(throttler.get().isPending());
+	}
+
+	private List<Integer> delivered() {
+		List<Integer> delivered = new ArrayList<>();
+		for (Set<Integer> batch : batches) {
+			delivered.addAll(batch);
+		}
+		return delivered;
+	}
+
+	private void spinUntil(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Timed out waiting for the throttler");
+			}
+			if (!display.readAndDispatch()) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+		while (display.readAndDispatch()) {
+			// process remaining events
+		}
+	}
+}
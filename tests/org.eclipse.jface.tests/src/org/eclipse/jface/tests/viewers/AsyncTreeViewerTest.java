@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jface.viewers.IAsyncTreeContentProvider;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+public class AsyncTreeViewerTest extends ViewerTestCase {
+
+	private TreeViewer treeViewer;
+
+	private AsyncContentProvider contentProvider;
+
+	public AsyncTreeViewerTest(String name) {
+		super(name);
+	}
+
+	private static class AsyncContentProvider extends TestModelContentProvider implements IAsyncTreeContentProvider {
+		final Map<Object, CompletableFuture<Object[]>> fetches = new HashMap<>();
+
+		int fetchCount;
+
+		@Override
+		public CompletableFuture<Object[]> getChildrenAsync(Object parentElement) {
+			fetchCount++;
+			CompletableFuture<Object[]> future = new CompletableFuture<>();
+			fetches.put(parentElement, future);
+			return future;
+		}
+
+		void complete(Object parentElement) {
+			fetches.remove(parentElement).complete(getChildren(parentElement));
+		}
+	}
+
+	@Override
+	protected StructuredViewer createViewer(Composite parent) {
+		treeViewer = new TreeViewer(parent);
+		contentProvider = new AsyncContentProvider();
+		treeViewer.setContentProvider(contentProvider);
+		return treeViewer;
+	}
+
+	private TreeItem expandFirstRoot() {
+		TreeItem item = treeViewer.getTree().getItem(0);
+		expandByUser(item);
+		return item;
+	}
+
+	/**
+	 * Expands the item like the user does, unlike the programmatic expansion by
+	 * the viewer's methods.
+	 */
+	private void expandByUser(TreeItem item) {
+		Event event = new Event();
+		event.item = item;
+		treeViewer.getTree().notifyListeners(SWT.Expand, event);
+		item.setExpanded(true);
+	}
+
+	private void assertNoPlaceholder(TreeItem[] items) {
+		for (TreeItem item : items) {
+			assertNotNull(item.getData());
+			assertNoPlaceholder(item.getItems());
+		}
+	}
+
+	public void testPlaceholderUntilChildrenArrive() {
+		TreeItem item = expandFirstRoot();
+		assertEquals(1, item.getItemCount());
+		assertNull(item.getItem(0).getData());
+		assertEquals("Pending...", item.getItem(0).getText());
+
+		contentProvider.complete(fRootElement.getFirstChild());
+		processEvents();
+		TestElement first = fRootElement.getFirstChild();
+		assertEquals(first.getChildCount(), item.getItemCount());
+		for (int i = 0; i < first.getChildCount(); i++) {
+			assertEquals(first.getChildAt(i), item.getItem(i).getData());
+		}
+	}
+
+	public void testChildrenMergedInBatches() {
+		TestElement first = fRootElement.getFirstChild();
+		for (int i = 0; i < 500; i++) {
+			first.basicAddChild();
+		}
+		TreeItem item = expandFirstRoot();
+		contentProvider.complete(first);
+		processEvents();
+		assertEquals(first.getChildCount(), item.getItemCount());
+		for (TreeItem child : item.getItems()) {
+			assertNotNull(child.getData());
+		}
+	}
+
+	public void testChildrenAreCached() {
+		TestElement first = fRootElement.getFirstChild();
+		expandFirstRoot();
+		contentProvider.complete(first);
+		processEvents();
+		treeViewer.setExpandedState(first, false);
+		expandFirstRoot();
+		assertEquals(1, contentProvider.fetchCount);
+	}
+
+	public void testCollapseCancelsFetch() {
+		TestElement first = fRootElement.getFirstChild();
+		TreeItem item = expandFirstRoot();
+		CompletableFuture<Object[]> future = contentProvider.fetches.get(first);
+
+		Tree tree = treeViewer.getTree();
+		item.setExpanded(false);
+		Event event = new Event();
+		event.item = item;
+		tree.notifyListeners(SWT.Collapse, event);
+		assertTrue(future.isCancelled());
+
+		// the children are fetched again on the next expansion
+		expandByUser(item);
+		assertEquals(2, contentProvider.fetchCount);
+		contentProvider.complete(first);
+		processEvents();
+		assertEquals(first.getChildCount(), item.getItemCount());
+	}
+
+	public void testRefreshFetchesChildrenAgain() {
+		TestElement first = fRootElement.getFirstChild();
+		TreeItem item = expandFirstRoot();
+		contentProvider.complete(first);
+		processEvents();
+
+		first.basicAddChild();
+		treeViewer.refresh(first);
+		// the cached children are shown until the new ones arrive
+		assertEquals(first.getChildCount() - 1, item.getItemCount());
+		contentProvider.complete(first);
+		processEvents();
+		assertEquals(first.getChildCount(), item.getItemCount());
+	}
+
+	public void testExpandAllIsSynchronous() {
+		treeViewer.expandAll();
+		assertEquals(0, contentProvider.fetchCount);
+		Tree tree = treeViewer.getTree();
+		assertNoPlaceholder(tree.getItems());
+		TestElement first = fRootElement.getFirstChild();
+		assertEquals(first.getChildCount(), tree.getItem(0).getItemCount());
+		assertTrue(tree.getItem(0).getExpanded());
+	}
+
+	public void testSetExpandedStateIsSynchronous() {
+		TestElement first = fRootElement.getFirstChild();
+		treeViewer.setExpandedState(first, true);
+		assertEquals(0, contentProvider.fetchCount);
+		TreeItem item = treeViewer.getTree().getItem(0);
+		assertEquals(first.getChildCount(), item.getItemCount());
+		assertNoPlaceholder(item.getItems());
+	}
+}
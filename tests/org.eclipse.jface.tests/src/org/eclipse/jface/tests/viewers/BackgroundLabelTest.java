@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.IBackgroundLabelProvider;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.jface.viewers.ViewerLabel;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.tests.harness.util.DisplayHelper;
+
+/**
+ * Tests computing the labels of a TableViewer in a background thread.
+ */
+public class BackgroundLabelTest extends ViewerTestCase {
+
+	private TableViewer tableViewer;
+
+	private BackgroundProvider labelProvider;
+
+	public BackgroundLabelTest(String name) {
+		super(name);
+	}
+
+	private static class BackgroundProvider extends ColumnLabelProvider implements IBackgroundLabelProvider {
+		volatile CountDownLatch latch = new CountDownLatch(0);
+
+		volatile String suffix = "";
+
+		volatile boolean calledInUIThread;
+
+		@Override
+		public void updateLabel(ViewerLabel label, Object element) {
+			calledInUIThread |= Display.getCurrent() != null;
+			try {
+				latch.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			label.setText(element + suffix);
+		}
+	}
+
+	@Override
+	protected StructuredViewer createViewer(Composite parent) {
+		tableViewer = new TableViewer(parent);
+		tableViewer.setContentProvider(new TestModelContentProvider());
+		labelProvider = new BackgroundProvider();
+		labelProvider.latch = new CountDownLatch(1);
+		new TableViewerColumn(tableViewer, SWT.NONE).setLabelProvider(labelProvider);
+		tableViewer.setBackgroundLabelComputation(true);
+		return tableViewer;
+	}
+
+	private void waitForText(TableItem item, String text) {
+		DisplayHelper.waitForCondition(item.getDisplay(), 5000, () -> text.equals(item.getText()));
+		assertEquals(text, item.getText());
+	}
+
+	public void testPlaceholderUntilLabelComputed() {
+		TableItem item = tableViewer.getTable().getItem(0);
+		assertEquals("Pending...", item.getText());
+
+		labelProvider.latch.countDown();
+		waitForText(item, fRootElement.getFirstChild().toString());
+		assertFalse(labelProvider.calledInUIThread);
+	}
+
+	public void testAllRowsComputed() {
+		labelProvider.latch.countDown();
+		TableItem[] items = tableViewer.getTable().getItems();
+		for (int i = 0; i < items.length; i++) {
+			waitForText(items[i], fRootElement.getChildAt(i).toString());
+		}
+	}
+
+	public void testUpdateKeepsPreviousLabel() {
+		TestElement first = fRootElement.getFirstChild();
+		TableItem item = tableViewer.getTable().getItem(0);
+		labelProvider.latch.countDown();
+		waitForText(item, first.toString());
+
+		labelProvider.latch = new CountDownLatch(1);
+		labelProvider.suffix = " updated";
+		tableViewer.update(first, null);
+		processEvents();
+		assertEquals(first.toString(), item.getText());
+
+		labelProvider.latch.countDown();
+		waitForText(item, first + " updated");
+	}
+
+	public void testDisabled() {
+		labelProvider.latch.countDown();
+		tableViewer.setBackgroundLabelComputation(false);
+		tableViewer.refresh();
+		assertEquals(fRootElement.getFirstChild().toString(), tableViewer.getTable().getItem(0).getText());
+		assertFalse(tableViewer.isBackgroundLabelComputation());
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerFilter;
+import org.eclipse.jface.viewers.deferred.DeferredContentProvider;
+import org.eclipse.jface.viewers.deferred.SetModel;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.ui.tests.harness.util.DisplayHelper;
+
+/**
+ * Tests sorting and filtering the contents of a VIRTUAL TableViewer and
+ * TreeViewer in a background thread.
+ */
+public class DeferredContentProviderTest extends ViewerTestCase {
+
+	private static final Comparator<Object> ASCENDING = Comparator.comparingInt(Integer.class::cast);
+
+	private TableViewer tableViewer;
+
+	private DeferredContentProvider contentProvider;
+
+	private SetModel model;
+
+	public DeferredContentProviderTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected StructuredViewer createViewer(Composite parent) {
+		tableViewer = new TableViewer(parent, SWT.VIRTUAL);
+		contentProvider = new DeferredContentProvider(ASCENDING);
+		tableViewer.setContentProvider(contentProvider);
+		tableViewer.setLabelProvider(new LabelProvider());
+		return tableViewer;
+	}
+
+	@Override
+	protected void setInput() {
+		model = new SetModel();
+		model.addAll(shuffled(100));
+		fViewer.setInput(model);
+	}
+
+	private static Object[] shuffled(int count) {
+		List<Object> elements = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			elements.add(Integer.valueOf(i));
+		}
+		Collections.shuffle(elements);
+		return elements.toArray();
+	}
+
+	private void waitForTable(int count, String firstText) {
+		Table table = tableViewer.getTable();
+		DisplayHelper.waitForCondition(table.getDisplay(), 5000,
+				() -> table.getItemCount() == count && firstText.equals(table.getItem(0).getText()));
+		assertEquals(count, table.getItemCount());
+		assertEquals(firstText, table.getItem(0).getText());
+	}
+
+	public void testSorted() {
+		waitForTable(100, "0");
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Integer.toString(i), tableViewer.getTable().getItem(i).getText());
+		}
+	}
+
+	public void testSortKeys() {
+		waitForTable(100, "0");
+		contentProvider.setSortKeys(Comparator.comparingInt(element -> (Integer) element % 10),
+				ASCENDING.reversed());
+		waitForTable(100, "90");
+		assertEquals("80", tableViewer.getTable().getItem(1).getText());
+		assertEquals("91", tableViewer.getTable().getItem(10).getText());
+	}
+
+	public void testFilters() {
+		waitForTable(100, "0");
+		contentProvider.setFilters(new ViewerFilter() {
+			@Override
+			public boolean select(Viewer viewer, Object parentElement, Object element) {
+				assertSame(tableViewer, viewer);
+				assertSame(model, parentElement);
+				return (Integer) element % 2 == 1;
+			}
+		});
+		waitForTable(50, "1");
+		assertEquals("3", tableViewer.getTable().getItem(1).getText());
+	}
+
+	public void testLimit() {
+		contentProvider.setLimit(10);
+		waitForTable(10, "0");
+		model.removeAll(new Object[] { Integer.valueOf(0) });
+		waitForTable(10, "1");
+		assertEquals("10", tableViewer.getTable().getItem(9).getText());
+	}
+
+	public void testStreamingChanges() throws InterruptedException {
+		waitForTable(100, "0");
+		Thread producer = new Thread(() -> {
+			for (int i = 100; i < 20000; i++) {
+				model.addAll(new Object[] { Integer.valueOf(i) });
+				if (i % 2 == 0) {
+					model.removeAll(new Object[] { Integer.valueOf(i - 100) });
+				}
+			}
+		});
+		producer.start();
+		while (producer.isAlive()) {
+			processEvents();
+		}
+		producer.join();
+		// the even elements up to 19898 have been removed
+		waitForTable(9950 + 100, "1");
+		assertEquals("19899", tableViewer.getTable().getItem(9949).getText());
+		assertEquals("19900", tableViewer.getTable().getItem(9950).getText());
+	}
+
+	public void testTreeViewer() {
+		TreeViewer treeViewer = new TreeViewer(new Tree(fShell, SWT.VIRTUAL));
+		treeViewer.setContentProvider(new DeferredContentProvider(ASCENDING.reversed()));
+		treeViewer.setLabelProvider(new LabelProvider());
+		treeViewer.setInput(model);
+		Tree tree = treeViewer.getTree();
+		DisplayHelper.waitForCondition(tree.getDisplay(), 5000,
+				() -> tree.getItemCount() == 100 && "99".equals(tree.getItem(0).getText()));
+		assertEquals(100, tree.getItemCount());
+		assertEquals("99", tree.getItem(0).getText());
+		assertEquals("98", tree.getItem(1).getText());
+	}
+}
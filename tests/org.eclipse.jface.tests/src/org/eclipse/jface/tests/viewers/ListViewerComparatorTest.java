@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,9 +14,18 @@
 
 package org.eclipse.jface.tests.viewers;
 
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
 import org.eclipse.jface.viewers.ListViewer;
 import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.jface.viewers.ViewerSorter;
 import org.eclipse.swt.widgets.Composite;
 
@@ -65,6 +74,66 @@ public class ListViewerComparatorTest extends ViewerComparatorTest {
 		assertSortedResult(TEAM1_SORTED_WITH_INSERT);
 	}
 
+	public void testViewerComparatorCategory() {
+		fViewer.setComparator(new ViewerComparator() {
+			@Override
+			public int category(Object element) {
+				return ((TeamMember) element).name.startsWith("M") ? 0 : 1;
+			}
+		});
+		assertSortedResult(new String[] { "Michael", "Mike", "Andrea", "Boris", "Eric", "Karice", "Kim", "Paul",
+				"Susan", "Tod" });
+	}
+
+	public void testViewerComparatorComputesLabelsOnce() {
+		int[] labels = new int[1];
+		fViewer.setLabelProvider(new TeamModelLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				labels[0]++;
+				return super.getText(element);
+			}
+		});
+		Object[] members = team1.members.clone();
+		new ViewerComparator().sort(fViewer, members);
+		assertEquals(members.length, labels[0]);
+	}
+
+	public void testViewerComparatorCollationKeys() {
+		Collator collator = Collator.getInstance(Locale.ENGLISH);
+		String[] names = { "b", "B", "a", "\u00e1", "A", "c" };
+		Object[] elements = names.clone();
+		new ViewerComparator(collator).sort(null, elements);
+		String[] expected = names.clone();
+		Arrays.sort(expected, collator);
+		assertEquals(Arrays.asList(expected), Arrays.asList(elements));
+	}
+
+	public void testParallelFilteringAndSorting() {
+		String[] names = new String[20000];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "Member" + (names.length - i);
+		}
+		fViewer.setParallelFilteringAndSorting(true);
+		fViewer.setComparator(new ViewerComparator());
+		fViewer.setFilters(new ViewerFilter() {
+			@Override
+			public boolean select(Viewer viewer, Object parentElement, Object element) {
+				return !((TeamMember) element).name.endsWith("0");
+			}
+		});
+		fViewer.setInput(new Team("Large", names));
+
+		List<String> expected = new ArrayList<>();
+		for (String name : names) {
+			if (!name.endsWith("0")) {
+				expected.add(name);
+			}
+		}
+		Collections.sort(expected);
+		assertEquals(expected, Arrays.asList(getListViewer().getList().getItems()));
+	}
+
 	private void assertSortedResult(String[] expected) {
 		String[] items = getListViewer().getList().getItems();
 		for (int i = 0; i < items.length; i++) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,13 @@
 
 package org.eclipse.jface.tests.viewers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.jface.viewers.ILabelProviderListener;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.ITableLabelProvider;
@@ -31,6 +38,7 @@ import org.eclipse.jface.viewers.ViewerComparator;
 import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.TreeItem;
 
 /**
  * @since 3.2
@@ -139,6 +147,95 @@ public class SimpleTreeViewerTest extends ViewerTestCase {
 		assertEquals("right", treeViewer.getTree().getItem(0).getText());
 	}
 
+	public void testRefreshReusesItems() {
+		treeViewer.setComparator(new ViewerComparator());
+		Map<Object, TreeItem> itemsBefore = new HashMap<>();
+		for (TreeItem item : treeViewer.getTree().getItems()) {
+			itemsBefore.put(item.getData(), item);
+		}
+		TestElement removed = fRootElement.getChildAt(5);
+		fRootElement.basicDeleteChild(removed);
+		TestElement added = fRootElement.basicAddChild();
+		treeViewer.refresh();
+
+		List<TestElement> expected = Arrays.asList(fRootElement.getChildren());
+		expected.sort(Comparator.comparing(TestElement::toString));
+		TreeItem[] items = treeViewer.getTree().getItems();
+		assertEquals(expected.size(), items.length);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(expected.get(i), items[i].getData());
+			if (items[i].getData() != added) {
+				assertSame("item was not reused", itemsBefore.get(items[i].getData()), items[i]);
+			}
+		}
+		assertNull(treeViewer.testFindItem(removed));
+	}
+
+	public void testRefreshReusesItemsOfPermutedChildren() {
+		OrderComparator comparator = new OrderComparator(fRootElement.getChildren());
+		treeViewer.setComparator(comparator);
+		TestElement kept = fRootElement.getChildAt(5);
+		treeViewer.setExpandedState(kept, true);
+		TreeItem keptChildItem = (TreeItem) treeViewer.testFindItem(kept.getFirstChild());
+		Map<Object, TreeItem> itemsBefore = new HashMap<>();
+		for (TreeItem item : treeViewer.getTree().getItems()) {
+			itemsBefore.put(item.getData(), item);
+		}
+
+		// move the third element to the end and the eighth to the front
+		TestElement movedBack = fRootElement.getChildAt(2);
+		TestElement movedFront = fRootElement.getChildAt(7);
+		comparator.order.remove(movedBack);
+		comparator.order.add(movedBack);
+		comparator.order.remove(movedFront);
+		comparator.order.add(0, movedFront);
+		treeViewer.refresh();
+
+		TreeItem[] items = treeViewer.getTree().getItems();
+		assertEquals(comparator.order.size(), items.length);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(comparator.order.get(i), items[i].getData());
+			if (items[i].getData() != movedBack && items[i].getData() != movedFront) {
+				assertSame("item was not reused", itemsBefore.get(items[i].getData()), items[i]);
+			}
+		}
+		assertTrue(treeViewer.getExpandedState(kept));
+		assertSame("child item was not reused", keptChildItem, treeViewer.testFindItem(kept.getFirstChild()));
+	}
+
+	public void testRefreshKeepsExpansionOfMovedChild() {
+		OrderComparator comparator = new OrderComparator(fRootElement.getChildren());
+		treeViewer.setComparator(comparator);
+		TestElement moved = fRootElement.getChildAt(2);
+		TestElement expandedChild = moved.getChildAt(1);
+		treeViewer.setExpandedState(moved, true);
+		treeViewer.setExpandedState(expandedChild, true);
+		TestElement collapsedChild = moved.getChildAt(3);
+		Map<Object, TreeItem> itemsBefore = new HashMap<>();
+		for (TreeItem item : treeViewer.getTree().getItems()) {
+			itemsBefore.put(item.getData(), item);
+		}
+
+		comparator.order.remove(moved);
+		comparator.order.add(moved);
+		treeViewer.refresh();
+
+		TreeItem[] items = treeViewer.getTree().getItems();
+		assertEquals(comparator.order.size(), items.length);
+		for (int i = 0; i < items.length; i++) {
+			assertEquals(comparator.order.get(i), items[i].getData());
+			if (items[i].getData() != moved) {
+				assertSame("item was not reused", itemsBefore.get(items[i].getData()), items[i]);
+			}
+		}
+		assertTrue(treeViewer.getExpandedState(moved));
+		assertTrue(treeViewer.getExpandedState(expandedChild));
+		assertFalse(treeViewer.getExpandedState(collapsedChild));
+		TreeItem expandedChildItem = (TreeItem) treeViewer.testFindItem(expandedChild);
+		assertEquals(expandedChild.getChildCount(), expandedChildItem.getItemCount());
+		assertEquals(expandedChild.getFirstChild(), expandedChildItem.getItem(0).getData());
+	}
+
 	public void test327004() {
 		treeViewer.setInput(null);
 		treeViewer.setContentProvider(new TreeNodeContentProvider());
@@ -167,4 +264,20 @@ public class SimpleTreeViewerTest extends ViewerTestCase {
 		assertEquals(4, i); // 4 because the filter doesn't work due to equal nodes
 	}
 
+	/**
+	 * Sorts the top level elements by their index in a list.
+	 */
+	private static class OrderComparator extends ViewerComparator {
+		final List<Object> order;
+
+		OrderComparator(Object[] elements) {
+			order = new ArrayList<>(Arrays.asList(elements));
+		}
+
+		@Override
+		public int compare(Viewer viewer, Object e1, Object e2) {
+			return Integer.compare(order.indexOf(e1), order.indexOf(e2));
+		}
+	}
+
 }
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.jface.viewers.ViewerFilter;
+import org.eclipse.jface.viewers.VirtualTreeContentProvider;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Tests sorting and filtering a TreeViewer on a VIRTUAL tree.
+ */
+public class VirtualTreeContentProviderTest extends ViewerTestCase {
+
+	private static final Comparator<String> DESCENDING = Comparator.reverseOrder();
+
+	private TreeViewer treeViewer;
+
+	private VirtualTreeContentProvider contentProvider;
+
+	/** the number of times the children of each element were obtained */
+	private final Map<Object, Integer> childrenRequests = new HashMap<>();
+
+	public VirtualTreeContentProviderTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected StructuredViewer createViewer(Composite parent) {
+		treeViewer = new TreeViewer(new Tree(parent, SWT.VIRTUAL | SWT.MULTI));
+		contentProvider = new VirtualTreeContentProvider(new TestModelContentProvider() {
+			@Override
+			public Object[] getChildren(Object element) {
+				childrenRequests.merge(element, Integer.valueOf(1),
+						(a, b) -> Integer.valueOf(a.intValue() + b.intValue()));
+				return super.getChildren(element);
+			}
+		});
+		treeViewer.setContentProvider(contentProvider);
+		return treeViewer;
+	}
+
+	private static class EvenFilter extends ViewerFilter {
+		@Override
+		public boolean select(Viewer viewer, Object parentElement, Object element) {
+			String id = ((TestElement) element).getID();
+			return id.charAt(id.length() - 1) % 2 == 0;
+		}
+	}
+
+	private static List<TestElement> sortedDescending(TestElement[] elements) {
+		List<TestElement> sorted = new ArrayList<>(Arrays.asList(elements));
+		sorted.sort(Comparator.comparing(TestElement::toString, DESCENDING));
+		return sorted;
+	}
+
+	private static void assertItems(List<TestElement> expected, TreeItem[] items) {
+		assertEquals(expected.size(), items.length);
+		for (int i = 0; i < items.length; i++) {
+			// getText() materializes the item
+			assertEquals(expected.get(i).toString(), items[i].getText());
+			assertEquals(expected.get(i), items[i].getData());
+		}
+	}
+
+	public void testSortedRoots() {
+		treeViewer.setComparator(new ViewerComparator(DESCENDING));
+		processEvents();
+		assertItems(sortedDescending(fRootElement.getChildren()), treeViewer.getTree().getItems());
+	}
+
+	public void testFilteredRoots() {
+		assertEquals(fRootElement.getChildCount(), treeViewer.getTree().getItemCount());
+		treeViewer.addFilter(new EvenFilter());
+		processEvents();
+		assertEquals(fRootElement.getChildCount() / 2, treeViewer.getTree().getItemCount());
+		for (TreeItem item : treeViewer.getTree().getItems()) {
+			item.getText();
+			assertTrue(new EvenFilter().select(treeViewer, fRootElement, item.getData()));
+		}
+	}
+
+	public void testSortedChildren() {
+		treeViewer.setComparator(new ViewerComparator(DESCENDING));
+		processEvents();
+		List<TestElement> roots = sortedDescending(fRootElement.getChildren());
+		TreeItem first = treeViewer.getTree().getItem(0);
+		first.getText();
+		treeViewer.expandToLevel(roots.get(0), 1);
+		processEvents();
+		assertItems(sortedDescending(roots.get(0).getChildren()), first.getItems());
+	}
+
+	public void testRefreshSortsExpandedChildren() {
+		TestElement root = fRootElement.getFirstChild();
+		treeViewer.getTree().getItem(0).getText();
+		treeViewer.expandToLevel(root, 1);
+		processEvents();
+
+		treeViewer.setComparator(new ViewerComparator(DESCENDING));
+		processEvents();
+		TreeItem item = treeViewer.getTree().getItem(treeViewer.getTree().getItemCount() - 1);
+		item.getText();
+		assertEquals(root, item.getData());
+		assertItems(sortedDescending(root.getChildren()), item.getItems());
+	}
+
+	private int getChildrenRequests(Object element) {
+		return childrenRequests.getOrDefault(element, Integer.valueOf(0)).intValue();
+	}
+
+	private TestElement expandFirstRoot() {
+		TestElement root = fRootElement.getFirstChild();
+		treeViewer.getTree().getItem(0).getText();
+		treeViewer.expandToLevel(root, 1);
+		processEvents();
+		assertEquals(1, getChildrenRequests(root));
+		return root;
+	}
+
+	public void testCollapseReleasesSortedChildren() {
+		TestElement root = expandFirstRoot();
+		TreeItem item = treeViewer.getTree().getItem(0);
+		item.setExpanded(false);
+		Event event = new Event();
+		event.item = item;
+		treeViewer.getTree().notifyListeners(SWT.Collapse, event);
+
+		// the children are obtained again when they are needed
+		contentProvider.updateElement(root, 0);
+		assertEquals(2, getChildrenRequests(root));
+	}
+
+	public void testRefreshReleasesSortedChildrenOfRemovedElements() {
+		TestElement root = expandFirstRoot();
+		fRootElement.basicDeleteChild(root);
+		treeViewer.refresh();
+		processEvents();
+
+		contentProvider.updateElement(root, 0);
+		assertEquals(2, getChildrenRequests(root));
+	}
+
+	public void testInputChangedReleasesSortedChildren() {
+		TestElement root = expandFirstRoot();
+		treeViewer.setInput(fRootElement);
+		processEvents();
+
+		contentProvider.updateElement(root, 0);
+		assertEquals(2, getChildrenRequests(root));
+	}
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.e4.ui.css.core.impl.engine.StyleSheetCache;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.swt.widgets.Display;
+import org.w3c.css.sac.InputSource;
+
+/**
+ * Measures loading the dark theme style sheets, including their imports, with
+ * an empty (cold) and a filled (warm) style sheet cache.
+ */
+public class ThemeLoadTest extends BasicPerformanceTest {
+
+	private static final String THEME = "platform:/plugin/org.eclipse.ui.themes/css/e4-dark_linux.css";
+
+	private static final int LOADS = 20;
+
+	private final boolean warm;
+
+	private File cacheDirectory;
+
+	public ThemeLoadTest(boolean warm) {
+		super(warm ? "Theme load, warm cache" : "Theme load, cold cache");
+		this.warm = warm;
+	}
+
+	@Override
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		cacheDirectory = Files.createTempDirectory("stylesheets").toFile();
+	}
+
+	@Override
+	protected void doTearDown() throws Exception {
+		new StyleSheetCache(cacheDirectory).clear();
+		cacheDirectory.delete();
+		super.doTearDown();
+	}
+
+	@Override
+	protected void runTest() throws Throwable {
+		Display display = Display.getCurrent();
+		URL url = FileLocator.resolve(new URL(THEME));
+		StyleSheetCache cache = new StyleSheetCache(cacheDirectory);
+		if (warm) {
+			loadTheme(display, url, cache);
+		}
+
+		exercise(() -> {
+			startMeasuring();
+			for (int i = 0; i < LOADS; i++) {
+				if (!warm) {
+					cache.clear();
+				}
+				loadTheme(display, url, cache);
+			}
+			stopMeasuring();
+		});
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private static void loadTheme(Display display, URL url, StyleSheetCache cache) {
+		CSSSWTEngineImpl engine = new CSSSWTEngineImpl(display);
+		engine.setStyleSheetCache(cache);
+		try (InputStream stream = url.openStream()) {
+			InputSource source = new InputSource();
+			source.setByteStream(stream);
+			source.setURI(url.toString());
+			engine.parseStyleSheet(source);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			engine.dispose();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.swt.widgets.Display;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.InputSource;
+import org.w3c.css.sac.Selector;
+
+/**
+ * Measures querying the conditional selectors of the dark or the light theme
+ * by condition type and by the value of their CSS class or id condition.
+ */
+public class ThemeSelectorQueryTest extends BasicPerformanceTest {
+
+	private static final int[] CONDITION_TYPES = { Condition.SAC_CLASS_CONDITION, Condition.SAC_ID_CONDITION,
+			Condition.SAC_PSEUDO_CLASS_CONDITION, Condition.SAC_ATTRIBUTE_CONDITION };
+
+	private static final int QUERIES = 10000;
+
+	private static final String DARK_THEME = "platform:/plugin/org.eclipse.ui.themes/css/e4-dark_linux.css";
+
+	private static final String LIGHT_THEME = "platform:/plugin/org.eclipse.ui.themes/css/e4_default_gtk.css";
+
+	private final String theme;
+
+	private CSSSWTEngineImpl engine;
+
+	public ThemeSelectorQueryTest(boolean dark) {
+		super(dark ? "Theme selector queries, dark theme" : "Theme selector queries, light theme");
+		this.theme = dark ? DARK_THEME : LIGHT_THEME;
+	}
+
+	@Override
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		engine = new CSSSWTEngineImpl(Display.getCurrent());
+		URL url = FileLocator.resolve(new URL(theme));
+		try (InputStream stream = url.openStream()) {
+			InputSource source = new InputSource();
+			source.setByteStream(stream);
+			source.setURI(url.toString());
+			engine.parseStyleSheet(source);
+		}
+	}
+
+	@Override
+	protected void doTearDown() throws Exception {
+		engine.dispose();
+		super.doTearDown();
+	}
+
+	@Override
+	protected void runTest() throws Throwable {
+		DocumentCSSImpl documentCSS = (DocumentCSSImpl) engine.getDocumentCSS();
+		List<Condition> conditions = new ArrayList<>();
+		for (int type : CONDITION_TYPES) {
+			for (Object selector : documentCSS.queryConditionSelector(type)) {
+				conditions.add(((ConditionalSelector) selector).getCondition());
+			}
+		}
+		assertFalse("No conditional selectors in " + theme, conditions.isEmpty());
+
+		exercise(() -> {
+			startMeasuring();
+			int found = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				for (int type : CONDITION_TYPES) {
+					found += documentCSS.querySelector(Selector.SAC_CONDITIONAL_SELECTOR, type).size();
+				}
+				for (Condition condition : conditions) {
+					if (condition instanceof AttributeCondition) {
+						found += documentCSS.queryConditionSelector(condition.getConditionType(),
+								((AttributeCondition) condition).getValue()).size();
+					}
+				}
+			}
+			stopMeasuring();
+			assertTrue(found > 0);
+		});
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -46,5 +46,9 @@ public class UIPerformanceTestSuite extends FilteredTestSuite {
 		addTest(new JUnit4TestAdapter(LabelProviderTest.class));
 		addTestSuite(ProgressReportingTest.class);
 		addTestSuite(OpenProjectExplorerFolderTest.class);
+		addTest(new ThemeLoadTest(false));
+		addTest(new ThemeLoadTest(true));
+		addTest(new ThemeSelectorQueryTest(true));
+		addTest(new ThemeSelectorQueryTest(false));
 	}
 }